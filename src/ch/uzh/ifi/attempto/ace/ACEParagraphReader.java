@@ -0,0 +1,277 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.ace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Reads an ACE text from a character stream and returns its paragraphs
+ * one by one, so that only the paragraph that is currently being read is
+ * kept in memory. The paragraphs are the same as the (non-empty) paragraphs
+ * that {@link ACESplitter#getParagraphs(String)} returns for the complete text.</p>
+ *
+ * <p>The stream is cut into chunks at blank lines that are not inside a C-style
+ * comment or a quoted string, and every chunk is split with {@link ACESplitter}.
+ * Such a blank line always ends a paragraph, so that splitting the chunks separately
+ * gives the same result as splitting the complete text. In order to track comments
+ * and quoted strings, the chunks are scanned in the same way as {@link ACEScanner}
+ * scans them.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class ACEParagraphReader implements Iterator<List<ACESentence>>, Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private enum State {
+		NORMAL,
+		QUOTE,
+		ESCAPE,
+		COMMENT,
+		COMMENT_AFTER_CR,
+		COMMENT_AFTER_LF
+	}
+
+	private final Reader reader;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int pos = 0;
+	private int end = 0;
+
+	private final Deque<List<ACESentence>> paragraphs = new ArrayDeque<List<ACESentence>>();
+	private final StringBuilder chunk = new StringBuilder();
+	private final StringBuilder line = new StringBuilder();
+
+	private State state = State.NORMAL;
+	// Character that opened the current quoted string
+	private char quote;
+	// Previous character in the current C-style comment
+	private char prevc;
+
+	private boolean isEndOfInput = false;
+	private long lineCount = 0;
+
+
+	public ACEParagraphReader(Reader reader) {
+		this.reader = reader;
+	}
+
+
+	/**
+	 * @throws IllegalStateException if reading the stream failed
+	 */
+	public boolean hasNext() {
+		while (paragraphs.isEmpty() && ! isEndOfInput) {
+			try {
+				readChunk();
+			} catch (IOException e) {
+				throw new IllegalStateException("Reading the ACE text failed at line " + lineCount, e);
+			}
+		}
+		return ! paragraphs.isEmpty();
+	}
+
+
+	public List<ACESentence> next() {
+		if (! hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return paragraphs.removeFirst();
+	}
+
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	public void close() throws IOException {
+		reader.close();
+	}
+
+
+	/**
+	 * @return Number of lines read so far
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+
+	/**
+	 * <p>Reads lines up to the next blank line that ends a paragraph
+	 * (or up to the end of the stream) and splits them into paragraphs.</p>
+	 */
+	private void readChunk() throws IOException {
+		chunk.setLength(0);
+		while (readLine()) {
+			lineCount++;
+			if (state == State.NORMAL && isBlank(line)) {
+				if (chunk.length() > 0) {
+					break;
+				}
+				continue;
+			}
+			chunk.append(line);
+			scan(line);
+		}
+		if (chunk.length() > 0) {
+			for (List<ACESentence> paragraph : ACESplitter.getParagraphs(chunk.toString())) {
+				if (! paragraph.isEmpty()) {
+					paragraphs.addLast(paragraph);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * <p>Reads the next line, including its line terminator (LF, CR, or CR LF),
+	 * into <code>line</code>.</p>
+	 *
+	 * @return <code>false</code> if the end of the stream has been reached
+	 */
+	private boolean readLine() throws IOException {
+		line.setLength(0);
+		int c;
+		while ((c = read()) >= 0) {
+			line.append((char) c);
+			if (c == '\n') {
+				return true;
+			}
+			if (c == '\r') {
+				if (peek() == '\n') {
+					line.append((char) read());
+				}
+				return true;
+			}
+		}
+		isEndOfInput = true;
+		return line.length() > 0;
+	}
+
+
+	private int read() throws IOException {
+		if (peek() < 0) {
+			return -1;
+		}
+		return buf[pos++];
+	}
+
+
+	private int peek() throws IOException {
+		if (pos >= end) {
+			pos = 0;
+			end = 0;
+			int count;
+			while ((count = reader.read(buf)) == 0) {
+				// Retry
+			}
+			if (count < 0) {
+				return -1;
+			}
+			end = count;
+		}
+		return buf[pos];
+	}
+
+
+	/**
+	 * <p>Updates the comment and quotation state by the given characters,
+	 * following the rules of {@link ACEScanner}: a quoted string ends at the
+	 * closing quote or at an unescaped line end, and the character that follows
+	 * a line end in a C-style comment cannot close the comment.</p>
+	 */
+	private void scan(CharSequence chars) {
+		int length = chars.length();
+		for (int i = 0; i < length; i++) {
+			char ch = chars.charAt(i);
+			switch (state) {
+			case NORMAL:
+				if (ch == '/' && i + 1 < length && chars.charAt(i + 1) == '*') {
+					state = State.COMMENT;
+					prevc = 0;
+					i++;
+				}
+				else if (ch == '"' || ch == '`') {
+					state = State.QUOTE;
+					quote = ch;
+				}
+				else if (ch == '#') {
+					while (i + 1 < length && chars.charAt(i + 1) != '\n' && chars.charAt(i + 1) != '\r') {
+						i++;
+					}
+				}
+				break;
+			case QUOTE:
+				if (ch == quote || ch == '\n' || ch == '\r') {
+					state = State.NORMAL;
+				}
+				else if (ch == '\\') {
+					state = State.ESCAPE;
+				}
+				break;
+			case ESCAPE:
+				state = State.QUOTE;
+				break;
+			case COMMENT:
+				if (ch == '/' && prevc == '*') {
+					state = State.NORMAL;
+				}
+				else if (ch == '\r') {
+					state = State.COMMENT_AFTER_CR;
+				}
+				else if (ch == '\n') {
+					state = State.COMMENT_AFTER_LF;
+				}
+				else {
+					prevc = ch;
+				}
+				break;
+			case COMMENT_AFTER_CR:
+				if (ch == '\n') {
+					state = State.COMMENT_AFTER_LF;
+				}
+				else {
+					prevc = ch;
+					state = State.COMMENT;
+				}
+				break;
+			case COMMENT_AFTER_LF:
+				prevc = ch;
+				state = State.COMMENT;
+				break;
+			}
+		}
+	}
+
+
+	private static boolean isBlank(CharSequence chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			if (chars.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
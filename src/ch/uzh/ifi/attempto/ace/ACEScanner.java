@@ -0,0 +1,424 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.ace;
+
+/**
+ * <p>Scanner that splits a character sequence into ACE tokens and line ends.
+ * It recognizes words (which can contain digits, <code>_</code>, <code>$</code>,
+ * and <code>-</code>), quoted strings (<code>"..."</code>), quoted words
+ * (<code>`...`</code>), numbers, symbols, sentence border symbols,
+ * Perl-style (<code>#</code>) and C-style comments, and it turns every other
+ * character into a bad token.</p>
+ *
+ * <p>The scanner works directly on the characters of the input and remembers the start
+ * and end offset of every token, e.g. in order to highlight the token in an editor.
+ * It gives the same tokens as the earlier {@link java.io.StreamTokenizer}-based
+ * splitter, including its quirks, e.g. a dot that follows a digit is a separate token,
+ * unless it is followed by a digit or ends the input, in which case it belongs to the number.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class ACEScanner {
+
+	/**
+	 * <p>End of the input</p>
+	 */
+	public static final int TT_EOF = -1;
+
+	/**
+	 * <p>End of a line</p>
+	 */
+	public static final int TT_EOL = -2;
+
+	/**
+	 * <p>ACE token, see {@link #getToken()}</p>
+	 */
+	public static final int TT_TOKEN = -3;
+
+	// Longest integer that is scanned without using floating point arithmetic
+	private static final int MAX_INT_DIGITS = 9;
+
+	private final char[] buf;
+	private final int offset;
+	private final int end;
+
+	// Offset of the next character
+	private int pos;
+
+	// The character at pos is a dot that is preceded by a (virtual) space,
+	// and the space has already been read
+	private boolean isSpaceRead = false;
+
+	// The last line end was a CR which can be followed by an LF
+	private boolean isSkipLF = false;
+
+	private ACEToken token;
+	private int tokenStart;
+	private int tokenEnd;
+
+
+	public ACEScanner(String str) {
+		this(str.toCharArray(), 0, str.length());
+	}
+
+
+	/**
+	 * @param buf Characters
+	 * @param offset Offset of the first character to be scanned
+	 * @param length Number of characters to be scanned
+	 */
+	public ACEScanner(char[] buf, int offset, int length) {
+		this.buf = buf;
+		this.offset = offset;
+		this.end = offset + length;
+		this.pos = offset;
+	}
+
+
+	/**
+	 * @return ACE token that was scanned last
+	 */
+	public ACEToken getToken() {
+		return token;
+	}
+
+
+	/**
+	 * @return Offset of the first character of the token that was scanned last
+	 */
+	public int getStart() {
+		return tokenStart;
+	}
+
+
+	/**
+	 * @return Offset after the last character of the token that was scanned last
+	 */
+	public int getEnd() {
+		return tokenEnd;
+	}
+
+
+	/**
+	 * <p>Scans the next token or line end.</p>
+	 *
+	 * @return {@link #TT_TOKEN}, {@link #TT_EOL}, or {@link #TT_EOF}
+	 */
+	public int nextToken() {
+		token = null;
+		int c = read();
+		if (isSkipLF) {
+			isSkipLF = false;
+			if (c == '\n') {
+				c = read();
+			}
+		}
+		if (c < 0) {
+			return TT_EOF;
+		}
+
+		while (isWhitespace(c)) {
+			if (c == '\r') {
+				isSkipLF = true;
+				return TT_EOL;
+			}
+			if (c == '\n') {
+				return TT_EOL;
+			}
+			c = read();
+			if (c < 0) {
+				return TT_EOF;
+			}
+		}
+
+		tokenStart = pos - 1;
+
+		if (isDigit(c)) {
+			return scanNumber(c);
+		}
+
+		if (isWordChar(c)) {
+			while (isWordChar(c) || isDigit(c)) {
+				c = read();
+			}
+			unread(c);
+			return setToken(ACEToken.newToken(new String(buf, tokenStart, pos - tokenStart)));
+		}
+
+		if (c == '"' || c == '`') {
+			return scanQuoted(c);
+		}
+
+		if (c == '/') {
+			c = read();
+			if (c == '*') {
+				return skipComment();
+			}
+			unread(c);
+			return setToken(ACEToken.newSymbol('/'));
+		}
+
+		if (c == '#') {
+			do {
+				c = read();
+			} while (c != '\n' && c != '\r' && c >= 0);
+			unread(c);
+			return nextToken();
+		}
+
+		return setToken(getOrdinaryToken((char) c));
+	}
+
+
+	private int scanNumber(int c) {
+		boolean isNegative = false;
+		if (c == '-') {
+			c = read();
+			if (c != '.' && (c < '0' || c > '9')) {
+				unread(c);
+				return setToken(ACEToken.newSymbol('-'));
+			}
+			isNegative = true;
+		}
+		double value = 0;
+		int intValue = 0;
+		int digitCount = 0;
+		int decexp = 0;
+		int seendot = 0;
+		while (true) {
+			if (c == '.' && seendot == 0) {
+				seendot = 1;
+			}
+			else if ('0' <= c && c <= '9') {
+				value = value * 10 + (c - '0');
+				intValue = intValue * 10 + (c - '0');
+				digitCount++;
+				decexp += seendot;
+			}
+			else {
+				break;
+			}
+			c = read();
+		}
+		unread(c);
+
+		if (seendot == 0 && digitCount <= MAX_INT_DIGITS) {
+			return setToken(ACEToken.newInteger(isNegative ? -intValue : intValue));
+		}
+		if (decexp != 0) {
+			double denom = 10;
+			decexp--;
+			while (decexp > 0) {
+				denom *= 10;
+				decexp--;
+			}
+			value = value / denom;
+		}
+		return setToken(ACEToken.newNumber(isNegative ? -value : value));
+	}
+
+
+	/**
+	 * <p>Scans a quoted string or word up to the closing quote or the end of the line,
+	 * interpreting backslash escapes.</p>
+	 */
+	private int scanQuoted(int quote) {
+		StringBuilder sb = new StringBuilder();
+		int d = read();
+		while (d >= 0 && d != quote && d != '\n' && d != '\r') {
+			int c;
+			if (d == '\\') {
+				c = read();
+				int first = c;
+				if (c >= '0' && c <= '7') {
+					c = c - '0';
+					int c2 = read();
+					if ('0' <= c2 && c2 <= '7') {
+						c = (c << 3) + (c2 - '0');
+						c2 = read();
+						if ('0' <= c2 && c2 <= '7' && first <= '3') {
+							c = (c << 3) + (c2 - '0');
+							d = read();
+						}
+						else {
+							d = c2;
+						}
+					}
+					else {
+						d = c2;
+					}
+				}
+				else {
+					c = unescape(c);
+					d = read();
+				}
+			}
+			else {
+				c = d;
+				d = read();
+			}
+			sb.append((char) c);
+		}
+		if (d != quote) {
+			unread(d);
+		}
+		if (quote == '"') {
+			return setToken(ACEToken.newQuotedString(sb.toString()));
+		}
+		return setToken(ACEToken.newToken(sb.toString()));
+	}
+
+
+	/**
+	 * <p>Skips a C-style comment (the opening <code>/*</code> has been read)
+	 * and returns the token that follows it.</p>
+	 */
+	private int skipComment() {
+		int prevc = 0;
+		int c;
+		while ((c = read()) != '/' || prevc != '*') {
+			if (c == '\r') {
+				c = read();
+				if (c == '\n') {
+					c = read();
+				}
+			}
+			else if (c == '\n') {
+				c = read();
+			}
+			if (c < 0) {
+				return TT_EOF;
+			}
+			prevc = c;
+		}
+		return nextToken();
+	}
+
+
+	private int setToken(ACEToken token) {
+		this.token = token;
+		tokenEnd = pos;
+		return TT_TOKEN;
+	}
+
+
+	private int read() {
+		if (pos >= end) {
+			return -1;
+		}
+		char ch = buf[pos];
+		if (ch == '.' && ! isSpaceRead && isSeparatedDot(pos)) {
+			isSpaceRead = true;
+			return ' ';
+		}
+		isSpaceRead = false;
+		pos++;
+		return ch;
+	}
+
+
+	/**
+	 * <p>Pushes back the character that was read last.</p>
+	 */
+	private void unread(int c) {
+		if (c < 0) {
+			return;
+		}
+		if (isSpaceRead) {
+			isSpaceRead = false;
+		}
+		else {
+			pos--;
+			isSpaceRead = (buf[pos] == '.' && isSeparatedDot(pos));
+		}
+	}
+
+
+	/**
+	 * <p>A dot that follows a digit and precedes a non-digit is read as if a space
+	 * preceded it, so that it ends the number and is not part of it.</p>
+	 */
+	private boolean isSeparatedDot(int i) {
+		return i > offset && i + 1 < end && isDecimalDigit(buf[i - 1]) && ! isDecimalDigit(buf[i + 1]);
+	}
+
+
+	private static ACEToken getOrdinaryToken(char ch) {
+		switch (ch) {
+		case '.':
+			return ACEToken.DOT;
+		case '?':
+		case '!':
+			return ACEToken.newBorderToken(ch);
+		case '\'':
+		case ',':
+		case ':':
+		case '+':
+		case '-':
+		case '*':
+		case '/':
+		case '=':
+		case '(':
+		case ')':
+			return ACEToken.newSymbol(ch);
+		default:
+			return ACEToken.newBadToken(ch);
+		}
+	}
+
+
+	private static int unescape(int c) {
+		switch (c) {
+		case 'a':
+			return 0x7;
+		case 'b':
+			return '\b';
+		case 'f':
+			return 0xC;
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'v':
+			return 0xB;
+		default:
+			return c;
+		}
+	}
+
+
+	private static boolean isWhitespace(int c) {
+		return c <= ' ';
+	}
+
+
+	private static boolean isDecimalDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+
+	private static boolean isDigit(int c) {
+		return (c >= '0' && c <= '9') || c == '-';
+	}
+
+
+	private static boolean isWordChar(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c >= 160;
+	}
+}
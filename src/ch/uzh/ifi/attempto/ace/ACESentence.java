@@ -1,64 +1,70 @@
 package ch.uzh.ifi.attempto.ace;
 
+import java.util.AbstractList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
  * <p>Every ACE sentence is a list of tokens.</p>
  * 
- * <p>TODO: Make all the fields immutable.</p>
+ * <p>The sentence is stored as an array of the shared tokens of the {@link TokenDictionary},
+ * together with its hash code. The token list, the content words, the bad characters,
+ * and the string representation are computed from the array.</p>
+ *
+ * <p>Two sentences are equal if their tokens have the same strings, i.e. the
+ * features of the tokens (which are derived from the strings by the splitter)
+ * are not compared.</p>
  * 
  * @author Kaarel Kaljurand
  */
 public class ACESentence {
 
-	private final ImmutableList<ACEToken> tokens;
-	private final Set<ACEToken> badChars = Sets.newHashSet();
-	private final List<ACEToken> contentWords = Lists.newArrayList();
-	private final String sentenceAsString;
-	private boolean isNothingbut = false;
-	private boolean isQuestion = false;
+	private static final Joiner joiner = Joiner.on(" ");
 
-	private final Joiner joiner = Joiner.on(" ");
+	private final ACEToken[] tokens;
+	private final int hashCode;
+	private final boolean isNothingbut;
+	private final boolean isQuestion;
 
 	public ACESentence(String str) {
 		this(ACESplitter.getTokens(str));
 	}
 
 	public ACESentence(List<ACEToken> tokens) {
-		this.tokens = ImmutableList.copyOf(tokens);
-
-		for (ACEToken token : this.tokens) {
+		this.tokens = tokens.toArray(new ACEToken[tokens.size()]);
+		boolean isNothingbut = false;
+		boolean isQuestion = false;
+		for (ACEToken token : tokens) {
 			if (token.isButToken()) {
 				isNothingbut = true;
 			}
 			else if (token.isQuestionMark()) {
 				isQuestion = true;
 			}
-			else if (token.isBadToken()) {
-				badChars.add(token);
-			}
-			else if (token.isContentWord()) {
-				contentWords.add(token);
-			}
 		}
-		this.sentenceAsString = createString(this.tokens);
+		this.isNothingbut = isNothingbut;
+		this.isQuestion = isQuestion;
+		// Same as the hash code of the token list
+		hashCode = getTokens().hashCode();
 	}
 
 
+	/**
+	 * @return Unmodifiable list of the tokens of this sentence
+	 */
 	public List<ACEToken> getTokens() {
-		return tokens;
+		return new TokenList();
 	}
 
 
 	public int size() {
-		return tokens.size();
+		return tokens.length;
 	}
 
 
@@ -70,16 +76,22 @@ public class ACESentence {
 	 */
 	@Override
 	public String toString() {
-		return sentenceAsString;
+		return createString(getTokens());
 	}
 
 
 	public String toSimpleString() {
-		return joiner.join(tokens);
+		return joiner.join(getTokens());
 	}
 
 
 	public Set<ACEToken> getBadChars() {
+		Set<ACEToken> badChars = Sets.newHashSet();
+		for (ACEToken token : getTokens()) {
+			if (token.isBadToken()) {
+				badChars.add(token);
+			}
+		}
 		return badChars;
 	}
 
@@ -92,6 +104,12 @@ public class ACESentence {
 	 * @return List of all content words in this sentence
 	 */
 	public List<ACEToken> getContentWords() {
+		List<ACEToken> contentWords = Lists.newArrayList();
+		for (ACEToken token : getTokens()) {
+			if (token.isContentWord()) {
+				contentWords.add(token);
+			}
+		}
 		return contentWords;
 	}
 
@@ -106,13 +124,22 @@ public class ACESentence {
 		if ((obj == null) || (obj.getClass() != this.getClass())) return false;
 		ACESentence s = (ACESentence) obj;
 
-		return tokens.equals(s.getTokens());
+		if (hashCode != s.hashCode || tokens.length != s.tokens.length) {
+			return false;
+		}
+		for (int i = 0; i < tokens.length; i++) {
+			// Equal tokens are usually the same shared object
+			if (tokens[i] != s.tokens[i] && ! tokens[i].getToken().equals(s.tokens[i].getToken())) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 
 	@Override
 	public int hashCode() {
-		return tokens.hashCode();
+		return hashCode;
 	}
 
 
@@ -135,14 +162,9 @@ public class ACESentence {
 
 		int lastIndex = size() - 2;
 
-		int counter = 0;
-		for (ACEToken token : tokens) {
-			if (counter > lastIndex) {
-				break;
-			}
-			sb.append(token);
+		for (int i = 0; i <= lastIndex; i++) {
+			sb.append(tokens[i]);
 			sb.append(' ');
-			counter++;
 		}
 
 		return sb.toString();
@@ -183,4 +205,21 @@ public class ACESentence {
 
 		return sb.toString();
 	}
+
+
+	/**
+	 * <p>Read-only view of the token array.</p>
+	 */
+	private final class TokenList extends AbstractList<ACEToken> implements RandomAccess {
+
+		@Override
+		public ACEToken get(int index) {
+			return tokens[index];
+		}
+
+		@Override
+		public int size() {
+			return tokens.length;
+		}
+	}
 }
\ No newline at end of file
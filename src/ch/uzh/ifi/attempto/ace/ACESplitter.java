@@ -1,19 +1,11 @@
 package ch.uzh.ifi.attempto.ace;
 
-import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import com.google.common.collect.Lists;
 
 public class ACESplitter {
 
-	static final Pattern dotSeparator = Pattern.compile("([0-9])[.]([^0-9])");
-
-
 	/**
 	 * <p>Tokenizes the given string and returns the result
 	 * as a list of lists of ACE sentences, where each sentence
@@ -25,28 +17,7 @@ public class ACESplitter {
 	 */
 	public static List<List<ACESentence>> getParagraphs(String str) {
 
-		Reader r = new StringReader(fixNumbers(str));
-		StreamTokenizer t = new StreamTokenizer(r);
-
-		t.eolIsSignificant(true);
-
-		// We override some default values
-		t.ordinaryChar('/');
-		t.ordinaryChar('\'');
-		t.ordinaryChar('.');
-
-		// ACE supports Perl-style comments
-		t.commentChar('#');
-		// ACE supports C-style comments
-		t.slashStarComments(true);
-
-		// ACE supports quoted strings
-		t.quoteChar('"');
-		// ACE supports quoted words
-		t.quoteChar('`');
-
-		t.wordChars('_', '_');
-		t.wordChars('$', '$');
+		ACEScanner scanner = new ACEScanner(str);
 
 		List<ACEToken> tokens = Lists.newArrayList();
 		List<ACESentence> sentences = Lists.newArrayList();
@@ -55,60 +26,29 @@ public class ACESplitter {
 		int newLineCounter = 0;
 		boolean textHasStarted = false;
 
-		try {
-			while (t.nextToken() != StreamTokenizer.TT_EOF) {
-				if (t.ttype == StreamTokenizer.TT_EOL) {
-					newLineCounter++;
-					continue;
-				}
-
-
-				if (textHasStarted && newLineCounter > 1) {
-					updateParagraphs(paragraphs, sentences, tokens);
-					sentences = Lists.newArrayList();
-				}
-
-				newLineCounter = 0;
-				textHasStarted = true;
-
-				ACEToken tok;
-
-				if (t.ttype == StreamTokenizer.TT_WORD) {
-					tok = ACEToken.newToken(t.sval);
-				}
-				else if (t.ttype == '"') {
-					tok = ACEToken.newQuotedString(t.sval);
-				}
-				else if (t.ttype == '`') {
-					tok = ACEToken.newToken(t.sval);
-				}
-				else if (t.ttype == StreamTokenizer.TT_NUMBER) {
-					tok = ACEToken.newNumber(t.nval);
-				}
-				else if (t.ttype == '.') {
-					tok = ACEToken.DOT;
-				}
-				else if (t.ttype == '?'  || t.ttype == '!') {
-					tok = ACEToken.newBorderToken((char) t.ttype);
-				}
-				else if (t.ttype == '\'' || t.ttype == ',' || t.ttype == ':' ||
-						t.ttype == '+' || t.ttype == '-' || t.ttype == '*' || t.ttype == '/' ||
-						t.ttype == '=' || t.ttype == '(' || t.ttype == ')') {
-					tok = ACEToken.newSymbol((char) t.ttype);
-				}
-				else {
-					tok = ACEToken.newBadToken((char) t.ttype);
-				}
-
-				if (tok.isBorderToken()) {
-					updateSentences(sentences, tokens, tok);
-				}
-				else {
-					tokens.add(tok);
-				}
+		int type;
+		while ((type = scanner.nextToken()) != ACEScanner.TT_EOF) {
+			if (type == ACEScanner.TT_EOL) {
+				newLineCounter++;
+				continue;
+			}
+
+			if (textHasStarted && newLineCounter > 1) {
+				updateParagraphs(paragraphs, sentences, tokens);
+				sentences = Lists.newArrayList();
+			}
+
+			newLineCounter = 0;
+			textHasStarted = true;
+
+			ACEToken tok = scanner.getToken();
+
+			if (tok.isBorderToken()) {
+				updateSentences(sentences, tokens, tok);
+			}
+			else {
+				tokens.add(tok);
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 
 		updateParagraphs(paragraphs, sentences, tokens);
@@ -149,16 +89,6 @@ public class ACESplitter {
 	}	
 
 
-	// BUG: we fix the bug that the tokenizer has with sentences like
-	// "John's age is 15." where it parses the dot as part of the number
-	// (i.e. 15.0) and leaves the sentence without an end symbol.
-	// It's not the best solution as it also modifies dots in strings.
-	private static String fixNumbers(String str) {
-		String fixedStr = dotSeparator.matcher(str).replaceAll("$1 .$2");
-		return fixedStr;
-	}
-
-
 	private static void updateSentences(List<ACESentence> sentences, List<ACEToken> tokens, ACEToken tok) {
 		tokens.add(tok);
 		sentences.add(new ACESentence(tokens));
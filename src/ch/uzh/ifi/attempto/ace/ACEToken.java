@@ -1,5 +1,7 @@
 package ch.uzh.ifi.attempto.ace;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import com.google.common.collect.ImmutableSet;
@@ -7,7 +9,13 @@ import com.google.common.collect.ImmutableSet;
 import ch.uzh.ifi.attempto.ape.FunctionWords;
 
 /**
- * <p>ACE token and its features.</p>
+ * <p>ACE token and its features. The tokens are shared via a global
+ * dictionary (see {@link TokenDictionary}), i.e. the factory methods return
+ * the same instance for the same token as long as the token is in use.
+ * The dictionary holds the tokens weakly, i.e. a token that no sentence
+ * refers to anymore can be garbage collected, and is created anew when
+ * it is needed again. The tokens should therefore be compared with
+ * <code>equals</code>, which compares the token strings.</p>
  * 
  * @author Kaarel Kaljurand
  */
@@ -24,28 +32,65 @@ public final class ACEToken {
 	private static final Pattern variablePattern = Pattern.compile("[A-Z][0-9]*");
 	private static final Pattern wordPattern = Pattern.compile("[a-zA-Z$_-][a-zA-Z0-9$_-]*");
 
+	// Maximal number of words in the word cache
+	private static final int WORD_CACHE_SIZE = 1 << 16;
+
+	// Canonical tokens of the words that have been classified so far, so that
+	// a word is classified only once no matter how often it occurs in the texts.
+	// The cache is cleared when it becomes full.
+	private static final ConcurrentMap<String, ACEToken> wordCache = new ConcurrentHashMap<String, ACEToken>();
+
+	// Features of the token, packed into a bitfield
+	private static final int BAD_TOKEN = 1;
+	private static final int BORDER_TOKEN = 1 << 1;
+	private static final int BUT_TOKEN = 1 << 2;
+	private static final int QUESTION_MARK = 1 << 3;
+	private static final int NUMBER = 1 << 4;
+	private static final int ORDINATION_WORD = 1 << 5;
+	private static final int SYMBOL = 1 << 6;
+	private static final int QUOTED_STRING = 1 << 7;
+	private static final int APOS = 1 << 8;
+	private static final int VARIABLE = 1 << 9;
+	private static final int FUNCTION_WORD = 1 << 10;
+	private static final int NEEDS_QUOTING = 1 << 11;
+
 	// The token itself
-	private String token;
+	private final String token;
+	private final int flags;
+
+	/**
+	 * <p>Tokens are only created by the {@link TokenDictionary}, i.e. there is
+	 * one instance of every distinct token that is in use.</p>
+	 */
+	ACEToken(String token, int flags) {
+		this.token = token;
+		this.flags = flags;
+	}
 
-	private boolean isBadToken = false;
-	private boolean isBorderToken = false;
-	private boolean isButToken = false;
-	private boolean isQuestionMark = false;
-	private boolean isNumber = false;
-	private boolean isOrdinationWord = false;
-	private boolean isSymbol = false;
-	private boolean isQuotedString = false;
-	private boolean isApos = false;
-	private boolean isVariable = false;
-	private boolean isFunctionWord = false;
-	private boolean needsQuoting = false;
 
-	private ACEToken() {}
+	/**
+	 * <p>Returns the token of the given word. The token is looked up from
+	 * the word cache, i.e. the features of a word are only computed when the
+	 * word is seen for the first time.</p>
+	 *
+	 * @param token Word
+	 * @return Token of the word
+	 */
+	public static ACEToken newToken(String token) {
+		ACEToken aceToken = wordCache.get(token);
+		if (aceToken == null) {
+			aceToken = classify(token);
+			if (wordCache.size() >= WORD_CACHE_SIZE) {
+				wordCache.clear();
+			}
+			wordCache.put(aceToken.getToken(), aceToken);
+		}
+		return aceToken;
+	}
 
 
-	public static ACEToken newToken(String token) {
-		ACEToken newToken = new ACEToken();
-		newToken.token = token;
+	private static ACEToken classify(String token) {
+		int flags = 0;
 
 		String tokenLC = token.toLowerCase();
 
@@ -53,126 +98,114 @@ public final class ACEToken {
 				|| tokenLC.equals("or")
 				|| tokenLC.equals("if")
 				|| tokenLC.equals("then")) {
-			newToken.isOrdinationWord = true;
-			newToken.isFunctionWord = true;
+			flags |= ORDINATION_WORD | FUNCTION_WORD;
 		}
 		else if (tokenLC.equals("but")) {
-			newToken.isButToken = true;
-			newToken.isFunctionWord = true;
+			flags |= BUT_TOKEN | FUNCTION_WORD;
 		}
 		else if (variablePattern.matcher(token).matches()) {
-			newToken.isVariable = true;
-			newToken.isFunctionWord = true;
+			flags |= VARIABLE | FUNCTION_WORD;
 		}
 		else if (checkIsFunctionWord(tokenLC)) {
-			newToken.isFunctionWord = true;
+			flags |= FUNCTION_WORD;
 		}
 
 		if (! wordPattern.matcher(token).matches()) {
-			newToken.needsQuoting = true;
+			flags |= NEEDS_QUOTING;
 		}
-		return newToken;
+		return TokenDictionary.intern(token, flags);
 	}
 
 
 	public static ACEToken newNumber(double number) {
-		ACEToken newToken = new ACEToken();
+		String token;
 		if (number == (int) number) {
-			newToken.token = Integer.toString((int) number);
+			token = Integer.toString((int) number);
 		}
 		else {
-			newToken.token = Double.toString(number);
+			token = Double.toString(number);
 		}
-		newToken.isNumber = true;
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern(token, NUMBER | FUNCTION_WORD);
+	}
+
+
+	/**
+	 * <p>Same as {@link #newNumber(double)} for integers.</p>
+	 */
+	static ACEToken newInteger(int number) {
+		return TokenDictionary.intern(Integer.toString(number), NUMBER | FUNCTION_WORD);
 	}
 
 
 	public static ACEToken newQuotedString(String str) {
-		ACEToken newToken = new ACEToken();
-		newToken.token = "\"" + str + "\"";
-		newToken.isQuotedString = true;
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern("\"" + str + "\"", QUOTED_STRING | FUNCTION_WORD);
 	}
 
 
 	public static ACEToken newSymbol(char ch) {
-		ACEToken newToken = new ACEToken();
-		newToken.token = String.valueOf(ch);
-		newToken.isSymbol = true;
-		if (newToken.token.equals("'")) {
-			newToken.isApos = true;
+		int flags = SYMBOL | FUNCTION_WORD;
+		if (ch == '\'') {
+			flags |= APOS;
 		}
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern(String.valueOf(ch), flags);
 	}
 
 	public static ACEToken newBorderToken(char ch) {
-		ACEToken newToken = new ACEToken();
-		newToken.token = String.valueOf(ch);
-		newToken.isBorderToken = true;
-		newToken.isSymbol = true;
-		if (newToken.token.equals("?")) {
-			newToken.isQuestionMark = true;			
+		int flags = BORDER_TOKEN | SYMBOL | FUNCTION_WORD;
+		if (ch == '?') {
+			flags |= QUESTION_MARK;
 		}
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern(String.valueOf(ch), flags);
 	}
 
 
 	public static ACEToken newBadToken(char ch) {
-		ACEToken newToken = new ACEToken();
-		newToken.token = String.valueOf(ch);
-		newToken.isBadToken = true;
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern(String.valueOf(ch), BAD_TOKEN | FUNCTION_WORD);
 	}
 
 
 	public boolean isQuotedString() {
-		return isQuotedString;
+		return (flags & QUOTED_STRING) != 0;
 	}
 
 	public boolean isBadToken() {
-		return isBadToken;
+		return (flags & BAD_TOKEN) != 0;
 	}
 
 	public boolean isButToken() {
-		return isButToken;
+		return (flags & BUT_TOKEN) != 0;
 	}
 
 	public boolean isNumber() {
-		return isNumber;
+		return (flags & NUMBER) != 0;
 	}
 
 	public boolean isSymbol() {
-		return isSymbol;
+		return (flags & SYMBOL) != 0;
 	}
 
 	public boolean isBorderToken() {
-		return isBorderToken;
+		return (flags & BORDER_TOKEN) != 0;
 	}
 
 	public boolean isQuestionMark() {
-		return isQuestionMark;
+		return (flags & QUESTION_MARK) != 0;
 	}
 
 	public boolean isOrdinationWord() {
-		return isOrdinationWord;
+		return (flags & ORDINATION_WORD) != 0;
 	}
 
 	public boolean isVariable() {
-		return isVariable;
+		return (flags & VARIABLE) != 0;
 	}
 
 	public boolean isApos() {
-		return isApos;
+		return (flags & APOS) != 0;
 	}
 
 	public boolean isFunctionWord() {
-		return isFunctionWord;
+		return (flags & FUNCTION_WORD) != 0;
 	}
 
 	public boolean isContentWord() {
@@ -187,7 +220,7 @@ public final class ACEToken {
 
 	@Override
 	public String toString() {
-		if (needsQuoting) {
+		if ((flags & NEEDS_QUOTING) != 0) {
 			return "`" + token + "`";
 		}
 		return token;
@@ -210,12 +243,7 @@ public final class ACEToken {
 
 
 	private static ACEToken makeDot() {
-		ACEToken newToken = new ACEToken();
-		newToken.token = String.valueOf('.');
-		newToken.isBorderToken = true;
-		newToken.isSymbol = true;
-		newToken.isFunctionWord = true;
-		return newToken;
+		return TokenDictionary.intern(String.valueOf('.'), BORDER_TOKEN | SYMBOL | FUNCTION_WORD);
 	}
 
 
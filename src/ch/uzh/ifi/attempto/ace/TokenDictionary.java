@@ -0,0 +1,97 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.ace;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * <p>Global dictionary of ACE tokens. Every distinct token (i.e. token string
+ * together with its features) that is in use is stored once, so that the sentences
+ * share the token objects and strings instead of holding their own copies.</p>
+ *
+ * <p>The dictionary holds its tokens via weak references, i.e. a token
+ * is removed from the dictionary when no sentence (or other object) refers
+ * to it anymore, and the dictionary does not grow with the history of the
+ * texts but only with the vocabulary of the current texts.</p>
+ *
+ * <p>The dictionary is thread-safe.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+final class TokenDictionary {
+
+	private static final class Key {
+		private final String token;
+		private final int flags;
+
+		private Key(String token, int flags) {
+			this.token = token;
+			this.flags = flags;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (! (obj instanceof Key)) return false;
+			Key k = (Key) obj;
+			return flags == k.flags && token.equals(k.token);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * token.hashCode() + flags;
+		}
+	}
+
+	private static final ConcurrentMap<Key, ACEToken> keyToToken = new MapMaker().weakValues().makeMap();
+
+
+	private TokenDictionary() {}
+
+
+	/**
+	 * <p>Returns the token with the given string and features,
+	 * creating it if the dictionary does not contain it.</p>
+	 *
+	 * @param token Token string
+	 * @param flags Features of the token
+	 * @return Token that is shared by all the callers
+	 */
+	static ACEToken intern(String token, int flags) {
+		Key key = new Key(token, flags);
+		ACEToken aceToken = keyToToken.get(key);
+		if (aceToken == null) {
+			ACEToken newToken = new ACEToken(token.intern(), flags);
+			aceToken = keyToToken.putIfAbsent(key, newToken);
+			if (aceToken == null) {
+				aceToken = newToken;
+			}
+		}
+		return aceToken;
+	}
+
+
+	/**
+	 * @return Number of tokens in the dictionary (including the ones that
+	 * are not referenced anymore but have not been removed yet)
+	 */
+	static int size() {
+		return keyToToken.size();
+	}
+}
@@ -20,8 +20,10 @@ package ch.uzh.ifi.attempto.aceview;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.expression.ParserException;
@@ -37,6 +39,7 @@ import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 import org.semanticweb.owlapi.model.SWRLRule;
+import org.xml.sax.SAXException;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.HashMultimap;
@@ -50,6 +53,7 @@ import ch.uzh.ifi.attempto.ace.ACESentence;
 import ch.uzh.ifi.attempto.ace.ACESplitter;
 import ch.uzh.ifi.attempto.ace.ACEToken;
 import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
+import ch.uzh.ifi.attempto.aceview.lexicon.LexiconChange;
 import ch.uzh.ifi.attempto.aceview.lexicon.LexiconUtils;
 import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
@@ -73,6 +77,9 @@ public class ACESnippetImpl implements ACESnippet {
 
 	private static final Logger logger = Logger.getLogger(ACESnippetImpl.class);
 
+	// Set while a parser error dialog is shown or about to be shown
+	private static final AtomicBoolean isParserErrorShown = new AtomicBoolean();
+
 	private final ImmutableList<ACESentence> sentences;
 	private final OWLOntologyID ns;
 
@@ -92,7 +99,18 @@ public class ACESnippetImpl implements ACESnippet {
 	private int errorMessagesCount = 0;
 	private int owlErrorMessagesCount = 0;
 
-	private final Joiner joiner = Joiner.on(" ");
+	private static final Joiner joiner = Joiner.on(" ");
+
+	// Data that is derived from the sentences and the axioms, computed when first
+	// needed. The sentences and the axioms do not change after the construction.
+	private volatile String simpleString;
+	private volatile ImmutableSet<SWRLRule> rules;
+	private volatile ImmutableSet<OWLEntity> referencedEntities;
+	private volatile Boolean isUnsatisfiable;
+	private volatile String tags;
+
+	// HTML rendering, which is valid as long as the lexicon has not changed
+	private volatile HtmlRendering htmlRendering;
 
 
 	/**
@@ -102,6 +120,21 @@ public class ACESnippetImpl implements ACESnippet {
 	 * @param sentences List of sentences that the snippet contains
 	 */
 	public ACESnippetImpl(OWLOntologyID ns, List<ACESentence> sentences) {
+		this(ns, sentences, ACETextManager.getACELexicon(ns), ParseSettings.of(ACEViewPreferences.getInstance()));
+	}
+
+
+	/**
+	 * <p>Constructs an ACE snippet from a list of ACE sentences, using the given
+	 * lexicon and parsing settings. This is used to parse snippets in worker threads
+	 * (see {@link SnippetParser}), which must not look up the lexicon and the preferences.</p>
+	 * 
+	 * @param ns Default namespace of the snippet
+	 * @param sentences List of sentences that the snippet contains
+	 * @param aceLexicon Lexicon of the default namespace
+	 * @param settings Parsing settings
+	 */
+	ACESnippetImpl(OWLOntologyID ns, List<ACESentence> sentences, TokenMapper aceLexicon, ParseSettings settings) {
 		if (sentences == null) {
 			throw new IllegalArgumentException("Sentences must not be null!");
 		}
@@ -112,7 +145,7 @@ public class ACESnippetImpl implements ACESnippet {
 			if (this.sentences.get(sentences.size() - 1).isQuestion()) {
 				isQuestion = true;
 			}
-			init();
+			init(aceLexicon, settings);
 			countMessages();
 		}
 		this.altRendering = null;
@@ -133,7 +166,7 @@ public class ACESnippetImpl implements ACESnippet {
 			isQuestion = true;
 		}
 		this.sentences = ImmutableList.of(sentence);
-		init();
+		init(ACETextManager.getACELexicon(ns), ParseSettings.of(ACEViewPreferences.getInstance()));
 		countMessages();
 		this.altRendering = null;
 		this.stringID = makeStringID();
@@ -152,9 +185,35 @@ public class ACESnippetImpl implements ACESnippet {
 	 * @param altRendering alternative rendering (MOS syntax) for the snippet
 	 */
 	public ACESnippetImpl(OWLOntologyID ns, String str, OWLLogicalAxiom axiom, String altRendering) {
+		this(ns, str, ImmutableSet.of(axiom), altRendering);
+	}
+
+
+	public ACESnippetImpl(OWLOntologyID ns, String str, OWLLogicalAxiom axiom) {
+		this(ns, str, axiom, null);
+	}
+
+
+	/**
+	 * <p>Constructs an ACE snippet from a string.
+	 * The corresponding OWL axioms are given as input,
+	 * therefore the snippet is not parsed.
+	 * Note that any annotations (if present) are stripped from the axioms.
+	 * This is used to restore the snippets from a snapshot.</p>
+	 * 
+	 * @param ns Default namespace of the snippet
+	 * @param str Textual content of the snippet
+	 * @param axioms OWL axioms that the snippet corresponds to
+	 * @param altRendering alternative rendering (MOS syntax) for the snippet
+	 */
+	public ACESnippetImpl(OWLOntologyID ns, String str, Set<OWLLogicalAxiom> axioms, String altRendering) {
 		this.timestamp = new SnippetDate();
 		this.ns = ns;
-		this.axiomSet = ImmutableSet.of((OWLLogicalAxiom) axiom.getAxiomWithoutAnnotations());
+		ImmutableSet.Builder<OWLLogicalAxiom> builder = ImmutableSet.builder();
+		for (OWLLogicalAxiom axiom : axioms) {
+			builder.add((OWLLogicalAxiom) axiom.getAxiomWithoutAnnotations());
+		}
+		this.axiomSet = builder.build();
 		this.sentences = ImmutableList.copyOf(ACESplitter.getSentences(str));
 		if (! sentences.isEmpty()) {
 			if (sentences.get(sentences.size() - 1).isQuestion()) {
@@ -166,11 +225,6 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
-	public ACESnippetImpl(OWLOntologyID ns, String str, OWLLogicalAxiom axiom) {
-		this(ns, str, axiom, null);
-	}
-
-
 	public String toStringID() {
 		return stringID;
 	}
@@ -191,15 +245,19 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
-	// TODO: construct this at construction time
 	public Set<SWRLRule> getRules() {
-		Set<SWRLRule> rules = Sets.newHashSet();
-		for (OWLLogicalAxiom ax : axiomSet) {
-			if (ax instanceof SWRLRule) {
-				rules.add((SWRLRule) ax);
+		ImmutableSet<SWRLRule> result = rules;
+		if (result == null) {
+			ImmutableSet.Builder<SWRLRule> builder = ImmutableSet.builder();
+			for (OWLLogicalAxiom ax : axiomSet) {
+				if (ax instanceof SWRLRule) {
+					builder.add((SWRLRule) ax);
+				}
 			}
+			result = builder.build();
+			rules = result;
 		}
-		return rules;
+		return result;
 	}
 
 
@@ -212,7 +270,54 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
+	/**
+	 * <p>The rendering is cached until the given lexicon changes
+	 * (see {@link TokenMapper#getGeneration()}) in a way that concerns
+	 * the content words of this snippet
+	 * (see {@link TokenMapper#getChangesSince(long)}).</p>
+	 */
 	public String toHtmlString(TokenMapper aceLexicon) {
+		HtmlRendering rendering = htmlRendering;
+		long generation = aceLexicon.getGeneration();
+		if (rendering == null || rendering.lexicon != aceLexicon) {
+			rendering = new HtmlRendering(aceLexicon, generation, makeHtmlString(aceLexicon));
+			htmlRendering = rendering;
+		}
+		else if (rendering.generation != generation) {
+			if (isAffectedBy(aceLexicon.getChangesSince(rendering.generation))) {
+				rendering = new HtmlRendering(aceLexicon, generation, makeHtmlString(aceLexicon));
+			}
+			else {
+				rendering = new HtmlRendering(aceLexicon, generation, rendering.html);
+			}
+			htmlRendering = rendering;
+		}
+		return rendering.html;
+	}
+
+
+	/**
+	 * @param changes Lexicon changes, or <code>null</code> if they are not known
+	 * @return <code>true</code> iff the changes concern a content word of this snippet
+	 */
+	private boolean isAffectedBy(List<LexiconChange> changes) {
+		if (changes == null) {
+			return true;
+		}
+		if (changes.isEmpty()) {
+			return false;
+		}
+		Set<String> contentWordForms = getContentWordsAsStrings();
+		for (LexiconChange change : changes) {
+			if (contentWordForms.contains(change.getWordform())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private String makeHtmlString(TokenMapper aceLexicon) {
 
 		if (isEmpty()) {
 			return "<span color='red'>" + getAltRendering() + "</span>";
@@ -283,8 +388,17 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
-	// TODO: Do this at creation time
 	public String getTags() {
+		String result = tags;
+		if (result == null) {
+			result = makeTags();
+			tags = result;
+		}
+		return result;
+	}
+
+
+	private String makeTags() {
 		StringBuilder tags = new StringBuilder();
 
 		if (axiomSet.isEmpty()) {
@@ -306,6 +420,16 @@ public class ACESnippetImpl implements ACESnippet {
 
 
 	public boolean isUnsatisfiable() {
+		Boolean result = isUnsatisfiable;
+		if (result == null) {
+			result = Boolean.valueOf(checkIsUnsatisfiable());
+			isUnsatisfiable = result;
+		}
+		return result.booleanValue();
+	}
+
+
+	private boolean checkIsUnsatisfiable() {
 		for (OWLAxiom axiom : axiomSet) {
 			if (axiom instanceof OWLSubClassOfAxiom) {
 				if (((OWLSubClassOfAxiom) axiom).getSuperClass().isOWLNothing()) {
@@ -433,11 +557,16 @@ public class ACESnippetImpl implements ACESnippet {
 
 
 	public Set<OWLEntity> getReferencedEntities() {
-		Set<OWLEntity> entities = Sets.newHashSet();
-		for (OWLLogicalAxiom axiom : axiomSet) {
-			entities.addAll(axiom.getSignature());
+		ImmutableSet<OWLEntity> result = referencedEntities;
+		if (result == null) {
+			ImmutableSet.Builder<OWLEntity> builder = ImmutableSet.builder();
+			for (OWLLogicalAxiom axiom : axiomSet) {
+				builder.addAll(axiom.getSignature());
+			}
+			result = builder.build();
+			referencedEntities = result;
 		}
-		return entities;
+		return result;
 	}
 
 
@@ -496,12 +625,10 @@ public class ACESnippetImpl implements ACESnippet {
 	 * if this fails then parses with an ACE parser. In the later case,
 	 * also optionally paraphrases the snippet.</li>
 	 */
-	private void init() {
-		ACEViewPreferences prefs = ACEViewPreferences.getInstance();
-
+	private void init(TokenMapper aceLexicon, ParseSettings settings) {
 		// As possible MOS strings,
 		// we only accept snippets which contain exactly one sentence.
-		if (prefs.getUseMos() && sentences.size() == 1) {
+		if (settings.isUseMos() && sentences.size() == 1) {
 			OWLLogicalAxiom mosAxiom = null;
 			try {
 				// TODO: BUG: it's not clear what this "base" is
@@ -521,18 +648,17 @@ public class ACESnippetImpl implements ACESnippet {
 
 
 		try {
-			parse(prefs);
+			parse(aceLexicon, settings);
 		} catch (OWLOntologyCreationException e) {
 			e.printStackTrace();
 		}
 	}
 
 
-	private void parse(ACEViewPreferences prefs) throws OWLOntologyCreationException {
-		TokenMapper aceLexicon = ACETextManager.getACELexicon(ns);
+	private void parse(TokenMapper aceLexicon, ParseSettings settings) throws OWLOntologyCreationException {
 		Set<String> contentWordForms = getContentWordsAsStrings();
 
-		if (! prefs.getParseWithUndefinedTokens()) {
+		if (! settings.isParseWithUndefinedTokens()) {
 			// logger.info("Content word forms: " + contentWordForms);
 			for (String wordFrom : contentWordForms) {
 				if (! aceLexicon.containsWordform(wordFrom)) {
@@ -544,7 +670,7 @@ public class ACESnippetImpl implements ACESnippet {
 		// In case there are no lexical entries for at least one token, and the preferences
 		// tell us not to parse in this case, then abort immediately.
 		if (messages.isEmpty()) {
-			parseWithAceParser(prefs, aceLexicon, contentWordForms);
+			parseWithAceParser(settings, aceLexicon, contentWordForms);
 		}
 		else {
 			//logger.info("Not parsing, there are messages.");
@@ -553,7 +679,7 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
-	private void parseWithAceParser(ACEViewPreferences prefs, TokenMapper aceLexicon, Set<String> contentWordforms) throws OWLOntologyCreationException {
+	private void parseWithAceParser(ParseSettings settings, TokenMapper aceLexicon, Set<String> contentWordforms) throws OWLOntologyCreationException {
 		logger.info("Wordforms: " + contentWordforms);
 		Lexicon lexicon = aceLexicon.createLexicon(contentWordforms);
 		if (lexicon.getEntries().isEmpty()) {
@@ -564,60 +690,156 @@ public class ACESnippetImpl implements ACESnippet {
 			logger.info("Parsing with lexicon:\n" + lexicon.toString());
 		}
 
-		boolean paraphrase1Enabled = prefs.isParaphrase1Enabled();
+		boolean paraphrase1Enabled = settings.isParaphrase1Enabled();
+		String text = toSimpleString();
+		String uri = getOntologyIRIAsString();
 
-		// Note: parser might be null in case the ParserHolder has not been initialized
-		ACEParser parser = ParserHolder.getACEParser();
+		ParseCache parseCache = ACETextManager.getParseCache();
+		long key = ParseCache.getKey(text, lexicon, uri, settings);
+		ParseCache.Result cachedResult = parseCache.get(key);
+		if (cachedResult == null) {
+			cachedResult = callAceParser(text, lexicon, uri, paraphrase1Enabled);
+			if (cachedResult == null) {
+				return;
+			}
+			parseCache.put(key, cachedResult);
+		}
 
-		parser.setURI(getOntologyIRIAsString());
+		messages.addAll(cachedResult.getMessages());
+
+		if (cachedResult.getOwlxml() != null) {
+			if (paraphrase1Enabled && cachedResult.getParaphrase() != null) {
+				para1 = ACESplitter.getParagraphs(cachedResult.getParaphrase());
+			}
+			Set<OWLLogicalAxiom> axioms = cachedResult.getAxioms();
+			if (axioms == null) {
+				axioms = createAxioms(cachedResult.getOwlxml());
+				cachedResult.setAxioms(axioms);
+			}
+			axiomSet = ImmutableSet.copyOf(axioms);
+		}
+		else {
+			List<Message> errorMessages = Lists.newArrayList();
+			for (Message m : cachedResult.getMessages()) {
+				if (m.isError()) {
+					errorMessages.add(m);
+				}
+			}
+			setPinpointers(errorMessages);
+		}
+	}
+
+
+	/**
+	 * <p>Calls the ACE parser and converts its output into a form that can be cached.</p>
+	 * 
+	 * @return Parser output, or <code>null</code> if the parser failed
+	 * @throws OWLOntologyCreationException if the parser did not return any OWL/XML
+	 */
+	private static ParseCache.Result callAceParser(String text, Lexicon lexicon, String uri, boolean paraphrase1Enabled) throws OWLOntologyCreationException {
+		// Note: the pool might be null in case the ParserHolder has not been initialized
+		ParserPool parserPool = ParserHolder.getParserPool();
+
+		ACEParser parser;
+		try {
+			parser = parserPool.borrow();
+		} catch (InterruptedException e) {
+			logger.info("Interrupted while waiting for the ACE parser");
+			Thread.currentThread().interrupt();
+			return null;
+		}
 
 		ACEParserResult result = null;
+		// The parser is given back only if the call completed, otherwise (also in case
+		// of an Error) it is discarded, so that the pool does not run out of parsers.
+		boolean isCompleted = false;
 
 		try {
+			parser.setURI(uri);
 			if (paraphrase1Enabled) {
-				result = parser.getMultiOutput(toSimpleString(), lexicon, OutputType.PARAPHRASE1, OutputType.OWLXML);
+				result = parser.getMultiOutput(text, lexicon, OutputType.PARAPHRASE1, OutputType.OWLXML);
 			}
 			else {
-				result = parser.getMultiOutput(toSimpleString(), lexicon, OutputType.OWLXML);
+				result = parser.getMultiOutput(text, lexicon, OutputType.OWLXML);
 			}
+			isCompleted = true;
 		} catch (RuntimeException e) {
 			e.printStackTrace();
-			JOptionPane.showMessageDialog(null, "ACE Parser error:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+			showParserError(e.getMessage());
+		} finally {
+			if (isCompleted) {
+				parserPool.giveBack(parser);
+			}
+			else {
+				parserPool.discard(parser);
+			}
 		}
 
-		if (result != null) {
-			MessageContainer messageContainer = result.getMessageContainer();
-			messages.addAll(messageContainer.getMessages());
+		if (result == null) {
+			return null;
+		}
 
-			List<Message> errorMessages = messageContainer.getErrorMessages();
+		MessageContainer messageContainer = result.getMessageContainer();
+		if (! messageContainer.getErrorMessages().isEmpty()) {
+			return new ParseCache.Result(messageContainer.getMessages(), null, null);
+		}
 
-			if (errorMessages.isEmpty()) {
-				if (paraphrase1Enabled) {
-					para1 = ACESplitter.getParagraphs(result.get(OutputType.PARAPHRASE1));
-				}
-				String owlxml = result.get(OutputType.OWLXML);
-				if (owlxml == null || owlxml.length() == 0) {
-					throw new OWLOntologyCreationException("get(OutputType.OWLXML) is null or empty");
-				}
+		String owlxml = result.get(OutputType.OWLXML);
+		if (owlxml == null || owlxml.length() == 0) {
+			throw new OWLOntologyCreationException("get(OutputType.OWLXML) is null or empty");
+		}
 
-				// TODO: BUG: creating a new ontology manager just to parse a snippet
-				// might be bad for performance
-				OWLOntologyManager manager = ACETextManager.createOWLOntologyManager();
+		String paraphrase = paraphrase1Enabled ? result.get(OutputType.PARAPHRASE1) : null;
+		return new ParseCache.Result(messageContainer.getMessages(), paraphrase, owlxml);
+	}
 
-				// TODO: BUG: remove this temporary hack that converts the APE output into
-				// correct OWL 2 XML.
-				String owl2xml = OWLXMLTransformer.transform(owlxml);
 
-				// BUG: we should copy the axioms and then throw away the created ontology
-				axiomSet = ImmutableSet.copyOf(manager.loadOntologyFromOntologyDocument(new StringDocumentSource(owl2xml)).getLogicalAxioms());
-			}
-			else {
-				setPinpointers(errorMessages);
-			}
+	/**
+	 * <p>Shows the given parser error in a dialog. Several snippets are parsed
+	 * in parallel and typically fail for the same reason (e.g. the parser
+	 * is not reachable), therefore the errors that occur while the dialog
+	 * is open are only logged.</p>
+	 */
+	private static void showParserError(final String message) {
+		if (isParserErrorShown.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					try {
+						JOptionPane.showMessageDialog(null, "ACE Parser error:\n" + message, "Error", JOptionPane.ERROR_MESSAGE);
+					} finally {
+						isParserErrorShown.set(false);
+					}
+				}
+			});
 		}
 	}
 
 
+	/**
+	 * <p>Converts the OWL/XML output of the ACE parser into axioms. The streaming
+	 * reader is tried first. If it does not support the input (e.g. SWRL rules)
+	 * then the output is transformed into OWL 2 and loaded into a temporary ontology.</p>
+	 * 
+	 * @param owlxml OWL/XML as returned by the ACE parser
+	 * @return Logical axioms
+	 * @throws OWLOntologyCreationException
+	 */
+	private static Set<OWLLogicalAxiom> createAxioms(String owlxml) throws OWLOntologyCreationException {
+		try {
+			return ImmutableSet.copyOf(OWLXMLAxiomReader.read(ACETextManager.getOWLDataFactory(), owlxml));
+		} catch (SAXException e) {
+			logger.info("Loading the OWL/XML via a temporary ontology: " + e.getMessage());
+		}
+
+		// TODO: BUG: remove this temporary hack that converts the APE output into
+		// correct OWL 2 XML.
+		String owl2xml = OWLXMLTransformer.transform(owlxml);
+
+		OWLOntologyManager manager = ACETextManager.createOWLOntologyManager();
+		return ImmutableSet.copyOf(manager.loadOntologyFromOntologyDocument(new StringDocumentSource(owl2xml)).getLogicalAxioms());
+	}
+
+
 	private void setPinpointers(List<Message> errorMessages) {
 		for (Message m : errorMessages) {
 			Integer sid = m.getSentenceId();
@@ -640,15 +862,28 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
-	// TODO Do this during construction time
+	/**
+	 * <p>Returns the sentences as a string, separated (and followed) by a space
+	 * if there is more than one sentence. The string is computed when it is
+	 * first needed (e.g. when the snippet is parsed) and then kept. Several threads
+	 * might compute it at the same time, but they compute the same string.</p>
+	 * 
+	 * @return Sentences as string
+	 */
 	private String toSimpleString() {
-		if (sentences.size() == 1) {
-			return sentences.iterator().next().toSimpleString();
-		}
-
-		String str = "";
-		for (ACESentence s : sentences) {
-			str += s.toSimpleString() + " ";
+		String str = simpleString;
+		if (str == null) {
+			if (sentences.size() == 1) {
+				str = sentences.get(0).toSimpleString();
+			}
+			else {
+				StringBuilder sb = new StringBuilder();
+				for (ACESentence s : sentences) {
+					sb.append(s.toSimpleString()).append(' ');
+				}
+				str = sb.toString();
+			}
+			simpleString = str;
 		}
 		return str;
 	}
@@ -688,6 +923,14 @@ public class ACESnippetImpl implements ACESnippet {
 	}
 
 
+	/**
+	 * @return Alternative rendering that was given in the constructor, or <code>null</code>
+	 */
+	String getAlternativeRendering() {
+		return altRendering;
+	}
+
+
 	private String getAltRendering() {
 		if (altRendering == null) {
 			return "/*" + getLogicalAxioms().toString() + "*/";
@@ -707,14 +950,23 @@ public class ACESnippetImpl implements ACESnippet {
 		if (sentences.size() == 0) {
 			return getLogicalAxioms().toString();
 		}
-		else if (sentences.size() == 1) {
-			return sentences.iterator().next().toSimpleString();
-		}
+		return toSimpleString();
+	}
 
-		String str = "";
-		for (ACESentence s : sentences) {
-			str += s.toSimpleString() + " ";
+
+	/**
+	 * <p>HTML rendering of the snippet, together with the lexicon
+	 * (and its generation) that was used to render it.</p>
+	 */
+	private static final class HtmlRendering {
+		private final TokenMapper lexicon;
+		private final long generation;
+		private final String html;
+
+		private HtmlRendering(TokenMapper lexicon, long generation, String html) {
+			this.lexicon = lexicon;
+			this.generation = generation;
+			this.html = html;
 		}
-		return str;
 	}
 }
\ No newline at end of file
@@ -292,6 +292,18 @@ public interface ACEText<E, A> {
 	 */
 	Set<ACESnippet> getSimilarSnippets(ACESnippet snippet);
 
+	/**
+	 * <p>Returns at most <code>k</code> snippets that share at least one entity
+	 * with the given snippet, ranked by the Jaccard similarity of their
+	 * referenced entities, the most similar snippet first.
+	 * The returned list does not contain the given snippet.</p>
+	 * 
+	 * @param snippet ACE snippet
+	 * @param k Maximal number of snippets to return
+	 * @return List of the most similar snippets
+	 */
+	List<ACESnippet> getMostSimilarSnippets(ACESnippet snippet, int k);
+
 	/**
 	 * <p>Returns <code>true</code> iff this text contains
 	 * the given snippet.</p>
@@ -324,6 +336,26 @@ public interface ACEText<E, A> {
 	 */
 	List<ACESnippet> getSnippets();
 
+	/**
+	 * <p>Returns the generation of this text, i.e. a number that changes
+	 * whenever a snippet is inserted into or removed from the snippet list.</p>
+	 * 
+	 * @return Generation of this text
+	 */
+	long getGeneration();
+
+	/**
+	 * <p>Returns the insertions and removals of snippets that have been made
+	 * after the given generation, in the order in which they were made.
+	 * Only a bounded number of recent changes is remembered. If some of the
+	 * requested changes have been forgotten then <code>null</code> is returned,
+	 * in which case everything derived from the snippet list should be considered stale.</p>
+	 * 
+	 * @param generation Generation of this text
+	 * @return List of changes (possibly empty), or <code>null</code>
+	 */
+	List<ACETextChange> getChangesSince(long generation);
+
 	/**
 	 * <p>Sets given the answer to be the answer to the given
 	 * question.</p>
@@ -0,0 +1,69 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview;
+
+/**
+ * <p>Record of a single change of the snippet list of an ACE text: the insertion
+ * or the removal of a snippet at a position, together with the generation of the
+ * text that the change produced (see {@link ACEText#getGeneration()}).
+ * The position refers to the snippet list as it was right before the change,
+ * i.e. the changes must be replayed in order.</p>
+ * 
+ * @author Kaarel Kaljurand
+ */
+public final class ACETextChange {
+
+	private final ACESnippet snippet;
+	private final int index;
+	private final boolean isInsertion;
+	private final long generation;
+
+	public ACETextChange(ACESnippet snippet, int index, boolean isInsertion, long generation) {
+		this.snippet = snippet;
+		this.index = index;
+		this.isInsertion = isInsertion;
+		this.generation = generation;
+	}
+
+	public ACESnippet getSnippet() {
+		return snippet;
+	}
+
+	/**
+	 * @return Position of the inserted snippet, or the position that the removed snippet had
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return <code>true</code> if the snippet was inserted, <code>false</code> if it was removed
+	 */
+	public boolean isInsertion() {
+		return isInsertion;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public String toString() {
+		return generation + (isInsertion ? " + " : " - ") + index + " " + snippet;
+	}
+}
@@ -16,10 +16,15 @@
 
 package ch.uzh.ifi.attempto.aceview;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -34,24 +39,37 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.ace.ACESentence;
+import ch.uzh.ifi.attempto.aceview.util.ChangeJournal;
+import ch.uzh.ifi.attempto.aceview.util.CompressedBitmap;
+import ch.uzh.ifi.attempto.aceview.util.IndexedList;
 import ch.uzh.ifi.attempto.aceview.util.Showing;
 
 public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 
 	private static final Logger logger = Logger.getLogger(ACETextImpl.class);
 
-	// List of snippets in this ACE text.
-	// TODO: It should actually be an "ordered set", or "list without duplicates",
-	// but the important thing is that we want to access the snippets by index.
-	private final List<ACESnippet> snippetList = Lists.newArrayList();
+	// Maximal number of changes in the change journal
+	private static final int JOURNAL_SIZE = 4096;
 
-	// We used to keep the referenced entities sorted, but this doesn't make sense, e.g.
-	// it creates a dependency on the entity rendering which can change anytime.
-	// Maps every OWL entity to a set of ACE snippets that contain a word that corresponds to the entity. 
-	//private final SortedMap<OWLEntity, Set<ACESnippet>> entityToSnippets = new TreeMap<OWLEntity, Set<ACESnippet>>(new EntityComparator());
-	//private final SortedMap<OWLEntity, Set<ACESnippet>> entityToSnippets = new TreeMap<OWLEntity, Set<ACESnippet>>();
-	// May it's better to do the sorting in the caller, i.e. define here:
-	private final Map<OWLEntity, Set<ACESnippet>> entityToSnippets = new HashMap<OWLEntity, Set<ACESnippet>>();
+	// List of snippets in this ACE text, without duplicates.
+	// Access by index, indexOf, contains, and remove take at most logarithmic time.
+	private final IndexedList<ACESnippet> snippetList = new IndexedList<ACESnippet>();
+
+	// Maps every OWL entity to the set of ACE snippets that contain a word that corresponds
+	// to the entity. The map is not sorted, because the order would depend on the entity
+	// rendering which can change anytime, i.e. the callers sort the entities themselves.
+	// The snippets are stored as a compressed bitmap of their ordinals (see below),
+	// so that intersecting the snippet sets of several entities is cheap.
+	private final Map<OWLEntity, CompressedBitmap> entityToSnippets = new HashMap<OWLEntity, CompressedBitmap>();
+
+	// Every snippet in this text has a small non-negative ordinal. The ordinals
+	// of removed snippets are reused, so that the ordinals stay dense.
+	private final Map<ACESnippet, Integer> snippetToOrdinal = Maps.newHashMap();
+	private final List<ACESnippet> ordinalToSnippet = Lists.newArrayList();
+	private final Deque<Integer> freeOrdinals = new ArrayDeque<Integer>();
+
+	// Number of (shown) entities that the snippet with the given ordinal references
+	private int[] ordinalToEntityCount = new int[16];
 
 	// Maps every OWL axiom to a set of ACE snippets that correspond to the axiom.
 	// TODO: clarify the meaning of this
@@ -77,6 +95,9 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 
 	private final Joiner snippetJoiner = Joiner.on("\n\n");
 
+	// The most recent insertions and removals of snippets
+	private final ChangeJournal<ACETextChange> journal = new ChangeJournal<ACETextChange>(JOURNAL_SIZE);
+
 
 	public ACETextImpl() {
 	}
@@ -86,6 +107,7 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 		if (! contains(snippet)) {
 			registerSnippet(snippet);
 			snippetList.add(snippet);
+			record(snippet, snippetList.size() - 1, true);
 		}
 	}
 
@@ -94,6 +116,7 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 		if (! contains(snippet)) {
 			registerSnippet(snippet);
 			snippetList.add(index, snippet);
+			record(snippet, index, true);
 		}
 	}
 
@@ -122,6 +145,7 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 	private void registerSnippet(ACESnippet snippet) {		
 
 		Set<OWLLogicalAxiom> snippetAxioms = snippet.getLogicalAxioms();
+		int ordinal = newOrdinal(snippet);
 
 		if (snippetAxioms.isEmpty()) {
 			axiomlessSnippetCount++;
@@ -133,12 +157,14 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 			for (OWLLogicalAxiom axiom : snippetAxioms) {
 				for (OWLEntity entity : axiom.getSignature()) {
 					if (Showing.isShow(entity)) {
-						Set<ACESnippet> snippets = entityToSnippets.get(entity);
+						CompressedBitmap snippets = entityToSnippets.get(entity);
 						if (snippets == null) {
-							snippets = Sets.newHashSet();
+							snippets = new CompressedBitmap();
 							entityToSnippets.put(entity, snippets);
 						}
-						snippets.add(snippet);
+						if (snippets.add(ordinal)) {
+							ordinalToEntityCount[ordinal]++;
+						}
 					}
 				}
 				axiomToSnippets.put(axiom, snippet);
@@ -205,6 +231,8 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 		// of removing this snippet.
 		Set<OWLLogicalAxiom> removedAxioms = Sets.newHashSet();
 
+		Integer ordinal = snippetToOrdinal.get(snippet);
+
 		if (snippetAxioms.isEmpty()) {
 			axiomlessSnippetCount--;
 		}
@@ -215,12 +243,12 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 			for (OWLLogicalAxiom axiom : snippetAxioms) {
 				for (OWLEntity entity : axiom.getSignature()) {
 					if (Showing.isShow(entity)) {
-						Set<ACESnippet> snippets = entityToSnippets.get(entity);
+						CompressedBitmap snippets = entityToSnippets.get(entity);
 						if (snippets == null) {
 							logger.error("Lemma `" + entity + "' not found in hash!");
 						}
-						else {
-							snippets.remove(snippet);
+						else if (ordinal != null) {
+							snippets.remove(ordinal);
 							if (snippets.isEmpty()) {
 								entityToSnippets.remove(entity);
 							}
@@ -238,11 +266,72 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 			}
 		}
 
-		snippetList.remove(snippet);
+		if (ordinal != null) {
+			releaseOrdinal(snippet, ordinal);
+		}
+		int index = snippetList.indexOf(snippet);
+		if (index != -1) {
+			snippetList.remove(index);
+			record(snippet, index, false);
+		}
 		return removedAxioms;
 	}
 
 
+	private int newOrdinal(ACESnippet snippet) {
+		int ordinal;
+		if (freeOrdinals.isEmpty()) {
+			ordinal = ordinalToSnippet.size();
+			ordinalToSnippet.add(snippet);
+			if (ordinal == ordinalToEntityCount.length) {
+				ordinalToEntityCount = Arrays.copyOf(ordinalToEntityCount, 2 * ordinal);
+			}
+		}
+		else {
+			ordinal = freeOrdinals.pop();
+			ordinalToSnippet.set(ordinal, snippet);
+		}
+		ordinalToEntityCount[ordinal] = 0;
+		snippetToOrdinal.put(snippet, ordinal);
+		return ordinal;
+	}
+
+
+	private void releaseOrdinal(ACESnippet snippet, int ordinal) {
+		snippetToOrdinal.remove(snippet);
+		ordinalToSnippet.set(ordinal, null);
+		ordinalToEntityCount[ordinal] = 0;
+		freeOrdinals.push(ordinal);
+	}
+
+
+	private Set<ACESnippet> toSnippets(CompressedBitmap ordinals) {
+		Set<ACESnippet> snippets = Sets.newHashSetWithExpectedSize(ordinals.getCardinality());
+		for (int ordinal : ordinals.toArray()) {
+			snippets.add(ordinalToSnippet.get(ordinal));
+		}
+		return snippets;
+	}
+
+
+	/**
+	 * <p>Returns the snippet bitmaps of the shown entities that the given snippet references.
+	 * Entities that do not occur in this text are skipped.</p>
+	 */
+	private List<CompressedBitmap> getEntityBitmaps(ACESnippet snippet) {
+		List<CompressedBitmap> bitmaps = Lists.newArrayList();
+		for (OWLEntity entity : snippet.getReferencedEntities()) {
+			if (Showing.isShow(entity)) {
+				CompressedBitmap bitmap = entityToSnippets.get(entity);
+				if (bitmap != null) {
+					bitmaps.add(bitmap);
+				}
+			}
+		}
+		return bitmaps;
+	}
+
+
 	/*
 	 * TODO: create this during construction time. Actually it's not
 	 * so easy because indexes change. So this needs to be done after
@@ -405,43 +494,100 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 
 
 	public Set<ACESnippet> getSnippets(OWLEntity entity) {
-		Set<ACESnippet> snippets = entityToSnippets.get(entity);
+		CompressedBitmap snippets = entityToSnippets.get(entity);
 		if (snippets == null) {
 			return Sets.newHashSet();
 		}
-		return snippets;
+		return toSnippets(snippets);
 	}
 
 
 	public int getSnippetCount(OWLEntity entity) {
-		Set<ACESnippet> snippets = entityToSnippets.get(entity);
+		CompressedBitmap snippets = entityToSnippets.get(entity);
 		if (snippets == null) {
 			return 0;
 		}
-		return snippets.size();
+		return snippets.getCardinality();
 	}
 
 
+	/**
+	 * <p>Intersects the snippet bitmaps of the entities, starting with the
+	 * smallest bitmap, and stops as soon as the intersection becomes empty.
+	 * Entities that do not occur in this text are ignored.</p>
+	 */
 	public Set<ACESnippet> getSimilarSnippets(ACESnippet snippet) {
-		Set<OWLEntity> entities = snippet.getReferencedEntities();
-		Set<ACESnippet> similarSnippets = Sets.newHashSet();
-		boolean isFirst = true;
-		for (OWLEntity entity : entities) {
+		List<CompressedBitmap> bitmaps = getEntityBitmaps(snippet);
+		if (bitmaps.isEmpty()) {
+			return Sets.newHashSet();
+		}
+		Collections.sort(bitmaps, new Comparator<CompressedBitmap>() {
+			public int compare(CompressedBitmap b1, CompressedBitmap b2) {
+				return b1.getCardinality() - b2.getCardinality();
+			}
+		});
+		CompressedBitmap intersection = bitmaps.get(0);
+		for (int i = 1; i < bitmaps.size() && ! intersection.isEmpty(); i++) {
+			intersection = intersection.and(bitmaps.get(i));
+		}
+		Set<ACESnippet> similarSnippets = toSnippets(intersection);
+		similarSnippets.remove(snippet); // Remove itself if present
+		return similarSnippets;
+	}
+
+
+	public List<ACESnippet> getMostSimilarSnippets(ACESnippet snippet, int k) {
+		List<ACESnippet> mostSimilar = Lists.newArrayList();
+		if (k <= 0) {
+			return mostSimilar;
+		}
+		Integer self = snippetToOrdinal.get(snippet);
+		int entityCount = 0;
+		for (OWLEntity entity : snippet.getReferencedEntities()) {
 			if (Showing.isShow(entity)) {
-				Set<ACESnippet> snippets = entityToSnippets.get(entity);
-				if (snippets != null) {
-					if (isFirst) {
-						similarSnippets.addAll(snippets);
-						similarSnippets.remove(snippet); // Remove itself if present
-						isFirst = false;
-					}
-					else {
-						similarSnippets.retainAll(snippets);
-					}
+				entityCount++;
+			}
+		}
+
+		// Number of shared entities for every snippet that shares at least one entity
+		int[] sharedCounts = new int[ordinalToSnippet.size()];
+		for (CompressedBitmap bitmap : getEntityBitmaps(snippet)) {
+			for (int ordinal : bitmap.toArray()) {
+				sharedCounts[ordinal]++;
+			}
+		}
+
+		// Min-heap of the k best candidates: {ordinal, shared count}
+		final int[] entityCounts = ordinalToEntityCount;
+		final int queryCount = entityCount;
+		final Comparator<int[]> byJaccard = new Comparator<int[]>() {
+			public int compare(int[] c1, int[] c2) {
+				// Compares shared1/union1 with shared2/union2 without division
+				long d = (long) c1[1] * union(c2) - (long) c2[1] * union(c1);
+				if (d != 0) {
+					return (d < 0) ? -1 : 1;
+				}
+				return c2[0] - c1[0];
+			}
+
+			private int union(int[] c) {
+				return queryCount + entityCounts[c[0]] - c[1];
+			}
+		};
+		PriorityQueue<int[]> best = new PriorityQueue<int[]>(k + 1, byJaccard);
+		for (int ordinal = 0; ordinal < sharedCounts.length; ordinal++) {
+			if (sharedCounts[ordinal] > 0 && (self == null || ordinal != self)) {
+				best.add(new int[] { ordinal, sharedCounts[ordinal] });
+				if (best.size() > k) {
+					best.poll();
 				}
 			}
 		}
-		return similarSnippets;
+		while (! best.isEmpty()) {
+			mostSimilar.add(ordinalToSnippet.get(best.poll()[0]));
+		}
+		Collections.reverse(mostSimilar);
+		return mostSimilar;
 	}
 
 
@@ -458,4 +604,23 @@ public class ACETextImpl implements ACEText<OWLEntity, OWLLogicalAxiom> {
 	public List<ACESnippet> getSnippets() {
 		return snippetList;
 	}
+
+
+	public long getGeneration() {
+		return journal.getGeneration();
+	}
+
+
+	public List<ACETextChange> getChangesSince(long since) {
+		return journal.getChangesSince(since);
+	}
+
+
+	/**
+	 * <p>Adds the change to the journal. The change gets the next generation
+	 * of the text.</p>
+	 */
+	private synchronized void record(ACESnippet snippet, int index, boolean isInsertion) {
+		journal.add(new ACETextChange(snippet, index, isInsertion, journal.getGeneration() + 1));
+	}
 }
\ No newline at end of file
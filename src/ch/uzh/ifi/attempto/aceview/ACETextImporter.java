@@ -0,0 +1,268 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.CountingInputStream;
+
+import ch.uzh.ifi.attempto.ace.ACEParagraphReader;
+import ch.uzh.ifi.attempto.ace.ACESentence;
+
+/**
+ * <p>Adds the paragraphs of an ACE text file to the active ACE text,
+ * without reading the complete file into memory. The file is read and
+ * split into paragraphs (see {@link ACEParagraphReader}) by a reader thread,
+ * which collects the paragraphs into batches of at most <code>batchSize</code>
+ * paragraphs. The calling thread parses the batches and adds them to the
+ * ACE text one by one (see {@link ACETextManager#addNewItems(java.util.Collection, SnippetParser)}).
+ * The batches are passed through a queue of <code>QUEUE_CAPACITY</code> batches,
+ * i.e. the reader thread waits if the parsing falls behind, so that
+ * only a few batches are in memory at any time.</p>
+ *
+ * <p>The import can be cancelled from any thread. The cancellation is checked
+ * before every paragraph, and the parsing of the current batch is stopped
+ * (see {@link SnippetParser#cancel()}). The batches that have already
+ * been added to the ACE text remain there.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class ACETextImporter {
+
+	private static final Logger logger = Logger.getLogger(ACETextImporter.class);
+
+	public static final int BATCH_SIZE = 500;
+
+	// Number of batches that the reader thread can read ahead
+	private static final int QUEUE_CAPACITY = 2;
+
+	// Marks the end of the file in the queue
+	private static final List<List<ACESentence>> END = Collections.emptyList();
+
+	/**
+	 * <p>Listener that is notified (in the importing thread) about the
+	 * number of kilobytes of the file that have been imported so far.
+	 * The listener is also notified while a batch is being parsed,
+	 * with unchanged numbers, so that it can cancel the import in time.</p>
+	 */
+	public interface ProgressListener {
+		void progressChanged(int doneKB, int totalKB);
+	}
+
+	private final int batchSize;
+	private final SnippetParser snippetParser = new SnippetParser();
+	private final List<ProgressListener> listeners = new CopyOnWriteArrayList<ProgressListener>();
+
+	private volatile boolean isCancelled = false;
+
+	// Last reported progress
+	private volatile int doneKB = 0;
+	private volatile int totalKB = 0;
+
+	private int addedCount = 0;
+	private int duplicateCount = 0;
+
+
+	public ACETextImporter() {
+		this(BATCH_SIZE);
+	}
+
+
+	/**
+	 * @param batchSize Maximal number of paragraphs that are added to the ACE text in one go
+	 */
+	public ACETextImporter(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+		snippetParser.addProgressListener(new ACETextLoader.ProgressListener() {
+			public void progressChanged(int done, int total) {
+				fireProgressChanged(doneKB, totalKB);
+			}
+		});
+	}
+
+
+	public void addProgressListener(ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+
+	public void removeProgressListener(ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+
+	/**
+	 * <p>Stops the import. Can be called from any thread.</p>
+	 */
+	public void cancel() {
+		isCancelled = true;
+		snippetParser.cancel();
+	}
+
+
+	public boolean isCancelled() {
+		return isCancelled;
+	}
+
+
+	/**
+	 * @return Number of snippets that have been added to the ACE text
+	 */
+	public int getAddedCount() {
+		return addedCount;
+	}
+
+
+	/**
+	 * @return Number of paragraphs that were not added because the ACE text already contained them
+	 */
+	public int getDuplicateCount() {
+		return duplicateCount;
+	}
+
+
+	/**
+	 * <p>Adds the paragraphs of the given UTF-8 encoded file to the active ACE text,
+	 * one paragraph per snippet.</p>
+	 *
+	 * @param file ACE text file
+	 * @throws IOException if reading the file failed
+	 * @throws CancellationException if the import was cancelled
+	 */
+	public void importFile(File file) throws IOException {
+		long start = System.currentTimeMillis();
+		totalKB = toKB(file.length());
+		final CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+		final ACEParagraphReader paragraphReader = new ACEParagraphReader(new InputStreamReader(in, Charsets.UTF_8));
+		final BlockingQueue<List<List<ACESentence>>> queue = new ArrayBlockingQueue<List<List<ACESentence>>>(QUEUE_CAPACITY);
+		final AtomicReference<Throwable> readerException = new AtomicReference<Throwable>();
+
+		Thread readerThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					List<List<ACESentence>> batch = Lists.newArrayListWithCapacity(batchSize);
+					while (! isCancelled && paragraphReader.hasNext()) {
+						batch.add(paragraphReader.next());
+						if (batch.size() == batchSize) {
+							queue.put(batch);
+							batch = Lists.newArrayListWithCapacity(batchSize);
+						}
+					}
+					if (! batch.isEmpty()) {
+						queue.put(batch);
+					}
+				} catch (InterruptedException e) {
+					// The importing thread has stopped waiting
+					return;
+				} catch (Throwable e) {
+					// Also errors (e.g. OutOfMemoryError) are passed to the importing thread
+					readerException.set(e);
+				}
+				try {
+					queue.put(END);
+				} catch (InterruptedException e) {
+					// The importing thread has stopped waiting
+				}
+			}
+		}, "ACE View importer");
+		readerThread.setDaemon(true);
+		readerThread.start();
+
+		try {
+			List<List<ACESentence>> batch;
+			while ((batch = queue.take()) != END) {
+				if (isCancelled) {
+					throw new CancellationException();
+				}
+				addBatch(batch);
+				fireProgressChanged(toKB(in.getCount()), totalKB);
+			}
+			Throwable e = readerException.get();
+			if (e != null) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				Throwables.propagateIfPossible(e);
+				throw new RuntimeException(e);
+			}
+			if (isCancelled) {
+				throw new CancellationException();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new CancellationException();
+		}
+		finally {
+			readerThread.interrupt();
+			Closeables.closeQuietly(paragraphReader);
+			logger.info("Imported " + file + " in " + (System.currentTimeMillis() - start) + " ms: " +
+					"added: " + addedCount + "; duplicates: " + duplicateCount + (isCancelled ? "; cancelled" : ""));
+		}
+		fireProgressChanged(totalKB, totalKB);
+	}
+
+
+	/**
+	 * <p>Adds the paragraphs of the given batch that are not yet
+	 * in the ACE text (as snippets). The ACE text is checked on the
+	 * event dispatch thread (see {@link ACETextManager#addNewItems(java.util.Collection, SnippetParser)}).</p>
+	 */
+	private void addBatch(List<List<ACESentence>> batch) {
+		Set<List<ACESentence>> sentenceLists = Sets.newLinkedHashSet();
+		for (List<ACESentence> sentences : batch) {
+			if (isCancelled) {
+				throw new CancellationException();
+			}
+			sentenceLists.add(sentences);
+		}
+		int count = ACETextManager.addNewItems(sentenceLists, snippetParser);
+		addedCount += count;
+		duplicateCount += batch.size() - count;
+	}
+
+
+	private void fireProgressChanged(int done, int total) {
+		doneKB = done;
+		for (ProgressListener listener : listeners) {
+			listener.progressChanged(done, total);
+		}
+	}
+
+
+	private static int toKB(long bytes) {
+		return (int) Math.min(Integer.MAX_VALUE, bytes / 1024);
+	}
+}
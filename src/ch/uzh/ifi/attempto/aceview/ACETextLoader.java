@@ -0,0 +1,518 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.Timer;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import com.google.common.collect.Lists;
+
+/**
+ * <p>Translates a collection of logical axioms into ACE snippets and adds
+ * the snippets to an ACE text. This is used to build the ACE text
+ * of an ontology that has just been loaded. The work is organized as a
+ * pipeline of four stages:</p>
+ *
+ * <ol>
+ * <li>enumeration of the axioms;</li>
+ * <li>local verbalization: axioms that carry ACE annotations, axioms that
+ * are verbalized directly in Java, and axioms whose verbalization is not supported;</li>
+ * <li>remote verbalization: the remaining axioms are collected into batches
+ * (see {@link VerbalizationBatch}) which are verbalized by the
+ * OWL verbalizer webservice in a pool of worker threads;</li>
+ * <li>insertion of the snippets into the ACE text.</li>
+ * </ol>
+ *
+ * <p>Stages 1, 2 and 4 run in the calling thread because they use the Protege
+ * renderer and modify the ACE text, neither of which is thread-safe.
+ * When the loading is started on the event dispatch thread, these stages
+ * run in short time slices (see {@link #loadInSlices(OWLOntology, Collection, ACEText, Runnable)}),
+ * so that the user interface stays responsive and can show the progress.
+ * The stages are connected by a bounded window of pending axioms,
+ * i.e. at most <code>(workerCount + 1) * batchSize</code> axioms
+ * are in the pipeline at any time. The snippets are added to the ACE text
+ * in the enumeration order of the axioms, no matter in which order the workers
+ * finish, so that the resulting ACE text does not depend on the number of workers.</p>
+ *
+ * <p>The loading can be cancelled from any thread. The axioms that have not been
+ * verbalized by then get the Protege rendering instead of the verbalization
+ * (as if their verbalization was not supported), i.e. every axiom still ends up in the ACE text.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class ACETextLoader {
+
+	private static final Logger logger = Logger.getLogger(ACETextLoader.class);
+
+	// Progress is reported after every PROGRESS_STEP axioms
+	private static final int PROGRESS_STEP = 100;
+
+	// Maximal duration of a slice of the loading on the event dispatch thread
+	private static final int SLICE_MS = 50;
+
+	// Pause between the slices, during which the user interface handles its events
+	private static final int SLICE_PAUSE_MS = 10;
+
+	/**
+	 * <p>Listener that is notified (in the loading thread) about
+	 * the number of axioms that have been added to the ACE text so far.</p>
+	 */
+	public interface ProgressListener {
+		void progressChanged(int done, int total);
+	}
+
+	private final AxiomVerbalizer axiomVerbalizer;
+	private final OWLAnnotationProperty acetextAnnProp;
+	private final int workerCount;
+	private final int windowSize;
+	// Becomes 1 if the verbalizer output cannot be split
+	private int batchSize;
+	private VerbalizationBatch currentBatch;
+	private PendingBatch currentPendingBatch;
+	private final List<ProgressListener> listeners = new CopyOnWriteArrayList<ProgressListener>();
+
+	private volatile boolean isCancelled = false;
+
+	private int localCount = 0;
+	private int cachedCount = 0;
+	private int remoteCount = 0;
+	private int failedCount = 0;
+	private int batchCount = 0;
+
+
+	/**
+	 * @param axiomVerbalizer Verbalizer of the axioms
+	 * @param acetextAnnProp Annotation property of the ACE annotations (can be <code>null</code>)
+	 * @param workerCount Number of threads that call the verbalizer webservice
+	 */
+	public ACETextLoader(AxiomVerbalizer axiomVerbalizer, OWLAnnotationProperty acetextAnnProp, int workerCount) {
+		this(axiomVerbalizer, acetextAnnProp, workerCount, AxiomVerbalizer.BATCH_SIZE);
+	}
+
+
+	/**
+	 * @param axiomVerbalizer Verbalizer of the axioms
+	 * @param acetextAnnProp Annotation property of the ACE annotations (can be <code>null</code>)
+	 * @param workerCount Number of threads that call the verbalizer webservice
+	 * @param batchSize Maximal number of axioms verbalized by a single webservice call
+	 */
+	public ACETextLoader(AxiomVerbalizer axiomVerbalizer, OWLAnnotationProperty acetextAnnProp, int workerCount, int batchSize) {
+		this.axiomVerbalizer = axiomVerbalizer;
+		this.acetextAnnProp = acetextAnnProp;
+		this.workerCount = Math.max(1, workerCount);
+		this.batchSize = Math.max(1, batchSize);
+		this.windowSize = (this.workerCount + 1) * this.batchSize;
+	}
+
+
+	public void addProgressListener(ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+
+	public void removeProgressListener(ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+
+	/**
+	 * <p>Stops calling the verbalizer webservice. Can be called from any thread.</p>
+	 */
+	public void cancel() {
+		isCancelled = true;
+	}
+
+
+	public boolean isCancelled() {
+		return isCancelled;
+	}
+
+
+	/**
+	 * @return Number of axioms for which the verbalizer webservice failed
+	 */
+	public int getFailedCount() {
+		return failedCount;
+	}
+
+
+	/**
+	 * <p>Verbalizes the given logical axioms of the given ontology
+	 * and adds the resulting snippets to the given ACE text,
+	 * in the iteration order of the axioms. Returns when all
+	 * the snippets have been added.</p>
+	 *
+	 * @param ont Ontology that contains the axioms and annotates their entities
+	 * @param axioms Logical axioms to be verbalized
+	 * @param acetext ACE text to which the snippets are added
+	 */
+	public void load(OWLOntology ont, Collection<OWLLogicalAxiom> axioms, ACEText<OWLEntity, OWLLogicalAxiom> acetext) {
+		new Run(ont, axioms, acetext).advance(true);
+	}
+
+
+	/**
+	 * <p>Does the same as {@link #load(OWLOntology, Collection, ACEText)}, but in
+	 * short time slices on the event dispatch thread,
+	 * which never waits for the verbalizer webservice. The user interface therefore
+	 * stays responsive while the ACE text is being built. Must be called on the event
+	 * dispatch thread.</p>
+	 *
+	 * @param ont Ontology that contains the axioms and annotates their entities
+	 * @param axioms Logical axioms to be verbalized
+	 * @param acetext ACE text to which the snippets are added
+	 * @param onFinished Runs on the event dispatch thread after all the snippets have been added,
+	 * or after the loading has failed
+	 */
+	public void loadInSlices(OWLOntology ont, Collection<OWLLogicalAxiom> axioms, ACEText<OWLEntity, OWLLogicalAxiom> acetext, final Runnable onFinished) {
+		final Run run = new Run(ont, axioms, acetext);
+		final Timer timer = new Timer(SLICE_PAUSE_MS, null);
+		timer.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				boolean isFinished = true;
+				try {
+					isFinished = run.advance(false);
+				} catch (RuntimeException ex) {
+					logger.error("Loading the ACE text failed", ex);
+				}
+				if (isFinished) {
+					timer.stop();
+					onFinished.run();
+				}
+			}
+		});
+		timer.setInitialDelay(0);
+		timer.start();
+	}
+
+
+	/**
+	 * <p>State of the loading of a collection of axioms.</p>
+	 */
+	private final class Run {
+		private final OWLOntology ont;
+		private final OWLOntologyID ns;
+		private final Iterator<OWLLogicalAxiom> iterator;
+		private final ACEText<OWLEntity, OWLLogicalAxiom> acetext;
+		private final int total;
+		private final long start = System.currentTimeMillis();
+		private final Deque<PendingAxiom> window = new ArrayDeque<PendingAxiom>(windowSize);
+		private final ExecutorService executor = createExecutor();
+		private int done = 0;
+
+		private Run(OWLOntology ont, Collection<OWLLogicalAxiom> axioms, ACEText<OWLEntity, OWLLogicalAxiom> acetext) {
+			this.ont = ont;
+			this.ns = ont.getOntologyID();
+			this.iterator = axioms.iterator();
+			this.acetext = acetext;
+			this.total = axioms.size();
+		}
+
+		/**
+		 * <p>Moves the axioms through the pipeline. The head of the window is inserted
+		 * as soon as it is ready. If the window is full (or all the axioms have been
+		 * enumerated) and the head is not ready then we wait for it, or, if
+		 * <code>isBlocking</code> is false, return and continue in the next call.
+		 * A non-blocking call also returns when its time slice is over.</p>
+		 *
+		 * @param isBlocking <code>true</code> to continue until all the axioms have been inserted
+		 * @return <code>true</code> iff all the axioms have been inserted
+		 */
+		private boolean advance(boolean isBlocking) {
+			long deadline = System.currentTimeMillis() + SLICE_MS;
+			try {
+				while (true) {
+					if (! window.isEmpty() && (window.peekFirst().isDone() ||
+							(isBlocking && (window.size() >= windowSize || ! iterator.hasNext())))) {
+						PendingAxiom pending = window.removeFirst();
+						// While the loading is sliced, the user can remove axioms from the ontology
+						if (isBlocking || ont.containsAxiomIgnoreAnnotations(pending.axiom)) {
+							insert(ns, pending, acetext, executor);
+						}
+						done++;
+						if (done % PROGRESS_STEP == 0) {
+							fireProgressChanged(done, total);
+						}
+					}
+					else if (window.size() < windowSize && iterator.hasNext()) {
+						window.addLast(prepare(ont, ns, iterator.next(), executor));
+						if (currentBatch != null && currentBatch.isFull()) {
+							submitCurrentBatch(executor);
+						}
+					}
+					else if (window.isEmpty()) {
+						finish();
+						return true;
+					}
+					else {
+						// The head is waiting for a batch that might not have been submitted yet
+						submitCurrentBatch(executor);
+						return false;
+					}
+					if (! isBlocking && System.currentTimeMillis() > deadline) {
+						return false;
+					}
+				}
+			} catch (RuntimeException e) {
+				executor.shutdownNow();
+				throw e;
+			}
+		}
+
+		private void finish() {
+			executor.shutdownNow();
+			fireProgressChanged(done, total);
+			logger.info("Loaded " + done + " axioms in " + (System.currentTimeMillis() - start) + " ms: " +
+					"local: " + localCount + "; cached: " + cachedCount + "; remote: " + remoteCount + " in " + batchCount + " calls (failed: " + failedCount + ")" +
+					"; workers: " + workerCount + (isCancelled ? "; cancelled" : ""));
+			logger.info(axiomVerbalizer.getLocalCoverageReport());
+		}
+	}
+
+
+	/**
+	 * <p>Stage 2: turns the axiom into snippets if this can be done locally
+	 * or with a cached verbalization, otherwise submits the axiom to the remote verbalization stage.</p>
+	 */
+	private PendingAxiom prepare(OWLOntology ont, OWLOntologyID ns, OWLLogicalAxiom axiom, ExecutorService executor) {
+		List<ACESnippet> annotatedSnippets = getAnnotatedSnippets(ns, axiom);
+		if (! annotatedSnippets.isEmpty()) {
+			localCount++;
+			return new PendingAxiom(axiom, annotatedSnippets, null);
+		}
+
+		OWLLogicalAxiom axiomWithoutAnnotations = (OWLLogicalAxiom) axiom.getAxiomWithoutAnnotations();
+		ACESnippet snippet = axiomVerbalizer.verbalizeAxiomLocally(axiomWithoutAnnotations, ont);
+		if (snippet != null) {
+			localCount++;
+			return new PendingAxiom(axiomWithoutAnnotations, Collections.singletonList(snippet), null);
+		}
+
+		String verbalization = axiomVerbalizer.getCachedVerbalization(axiomWithoutAnnotations, AxiomVerbalizer.getVerbalizationInput(axiomWithoutAnnotations, ont));
+		if (verbalization != null) {
+			cachedCount++;
+			return new PendingAxiom(axiomWithoutAnnotations, Collections.singletonList(axiomVerbalizer.makeSnippet(ns, axiomWithoutAnnotations, verbalization)), null);
+		}
+
+		if (isCancelled) {
+			return new PendingAxiom(axiomWithoutAnnotations, Collections.singletonList(axiomVerbalizer.makeSnippet(ns, axiomWithoutAnnotations, null)), null);
+		}
+
+		remoteCount++;
+		// The batch is filled here because the workers must not access the ontology.
+		if (currentBatch == null || ! currentBatch.add(axiomWithoutAnnotations, ont)) {
+			submitCurrentBatch(executor);
+			currentBatch = new VerbalizationBatch(batchSize);
+			currentPendingBatch = new PendingBatch();
+			currentBatch.add(axiomWithoutAnnotations, ont);
+		}
+		return new PendingAxiom(axiomWithoutAnnotations, currentPendingBatch, currentBatch.size() - 1);
+	}
+
+
+	/**
+	 * <p>Stage 3: submits the batch that is currently being filled to the workers.</p>
+	 */
+	private void submitCurrentBatch(ExecutorService executor) {
+		if (currentBatch == null) {
+			return;
+		}
+		final VerbalizationBatch batch = currentBatch;
+		batchCount++;
+		currentPendingBatch.batch = batch;
+		currentPendingBatch.verbalizations = executor.submit(new Callable<List<String>>() {
+			public List<String> call() throws Exception {
+				if (isCancelled) {
+					return null;
+				}
+				return batch.verbalize(axiomVerbalizer);
+			}
+		});
+		currentBatch = null;
+		currentPendingBatch = null;
+	}
+
+
+	/**
+	 * <p>Stage 4: adds the snippets of the given pending axiom to the ACE text,
+	 * waiting for the remote verbalization if needed.</p>
+	 */
+	private void insert(OWLOntologyID ns, PendingAxiom pending, ACEText<OWLEntity, OWLLogicalAxiom> acetext, ExecutorService executor) {
+		List<ACESnippet> snippets = pending.snippets;
+		if (snippets == null) {
+			if (pending.batch.verbalizations == null) {
+				submitCurrentBatch(executor);
+			}
+			String verbalization = null;
+			List<String> verbalizations = pending.batch.get();
+			if (verbalizations != null) {
+				verbalization = verbalizations.get(pending.index);
+			}
+			snippets = Collections.singletonList(axiomVerbalizer.makeSnippet(ns, pending.axiom, verbalization));
+		}
+		for (ACESnippet snippet : snippets) {
+			acetext.add(snippet);
+		}
+	}
+
+
+	/**
+	 * <p>Converts the ACE annotations of the given axiom (if present) into snippets.</p>
+	 */
+	private List<ACESnippet> getAnnotatedSnippets(OWLOntologyID ns, OWLLogicalAxiom axiom) {
+		List<ACESnippet> snippets = Lists.newArrayList();
+		if (acetextAnnProp == null) {
+			return snippets;
+		}
+		for (OWLAnnotation annotation : axiom.getAnnotations(acetextAnnProp)) {
+			if (annotation.getValue() instanceof OWLLiteral) {
+				String aceAnnotationValue = ((OWLLiteral) annotation.getValue()).getLiteral();
+				logger.info("ACE annotation: " + aceAnnotationValue);
+				snippets.add(new ACESnippetImpl(ns, aceAnnotationValue, axiom));
+			}
+			else {
+				logger.error("Malformed ACE annotation ignored: " + annotation);
+			}
+		}
+		return snippets;
+	}
+
+
+	private ExecutorService createExecutor() {
+		final AtomicInteger threadCounter = new AtomicInteger();
+		ThreadFactory threadFactory = new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ACE View verbalizer " + threadCounter.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		};
+		// The window guarantees that the queue never overflows.
+		return new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(windowSize), threadFactory);
+	}
+
+
+	private void fireProgressChanged(int done, int total) {
+		for (ProgressListener listener : listeners) {
+			listener.progressChanged(done, total);
+		}
+	}
+
+
+	/**
+	 * <p>Axiom in the pipeline: either its snippets are already known or
+	 * its verbalization is being computed by a worker as part of a batch.</p>
+	 */
+	private static final class PendingAxiom {
+		private final OWLLogicalAxiom axiom;
+		private final List<ACESnippet> snippets;
+		private final PendingBatch batch;
+		private final int index;
+
+		private PendingAxiom(OWLLogicalAxiom axiom, List<ACESnippet> snippets, PendingBatch batch) {
+			this.axiom = axiom;
+			this.snippets = snippets;
+			this.batch = batch;
+			this.index = -1;
+		}
+
+		private PendingAxiom(OWLLogicalAxiom axiom, PendingBatch batch, int index) {
+			this.axiom = axiom;
+			this.snippets = null;
+			this.batch = batch;
+			this.index = index;
+		}
+
+		private boolean isDone() {
+			return snippets != null || (batch.verbalizations != null && batch.verbalizations.isDone());
+		}
+	}
+
+
+	/**
+	 * <p>Batch of axioms whose verbalizations are computed by a worker
+	 * (the future is set when the batch is submitted).</p>
+	 */
+	private final class PendingBatch {
+		private VerbalizationBatch batch;
+		private Future<List<String>> verbalizations;
+		private boolean isCounted = false;
+
+		/**
+		 * @return Verbalizations of the batch or <code>null</code> if the batch failed or was cancelled
+		 */
+		private List<String> get() {
+			List<String> result = null;
+			try {
+				result = verbalizations.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel();
+			} catch (CancellationException e) {
+				// The rendering is used instead
+			} catch (ExecutionException e) {
+				logger.error("OWL verbalizer error: " + e.getCause());
+			}
+			if (! isCounted) {
+				isCounted = true;
+				if (result == null) {
+					if (! isCancelled) {
+						failedCount += batch.size();
+					}
+				}
+				else {
+					failedCount += batch.getFailedCount();
+				}
+				if (batch.isSplitFailed()) {
+					// No point in sending batches to a verbalizer whose output cannot be split
+					batchSize = 1;
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -16,13 +16,21 @@
 
 package ch.uzh.ifi.attempto.aceview;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
 
 import org.apache.log4j.Logger;
-import org.protege.editor.core.ProtegeApplication;
 import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.model.find.OWLEntityFinder;
 import org.protege.editor.owl.model.parser.ProtegeOWLEntityChecker;
@@ -45,6 +53,9 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -52,15 +63,20 @@ import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.ace.ACESentence;
 import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
+import ch.uzh.ifi.attempto.aceview.lexicon.LexiconChange;
 import ch.uzh.ifi.attempto.aceview.lexicon.LexiconUtils;
+import ch.uzh.ifi.attempto.aceview.lexicon.SurfaceFormIndex;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapperImpl;
+import ch.uzh.ifi.attempto.aceview.model.event.ACETextDelta;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
+import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEventDispatcher;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
 import ch.uzh.ifi.attempto.aceview.model.event.SnippetEventType;
+import ch.uzh.ifi.attempto.aceview.util.AppendOnlyStore;
+import ch.uzh.ifi.attempto.aceview.util.Fingerprint;
 import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
-import ch.uzh.ifi.attempto.owl.VerbalizerWebservice;
 
 /**
  * <p>The ACE text manager keeps track of the open ACE texts, how
@@ -83,6 +99,8 @@ public final class ACETextManager {
 
 	private static final Map<OWLOntologyID, ACEText<OWLEntity, OWLLogicalAxiom>> acetexts = Maps.newHashMap();
 	private static final Map<OWLOntologyID, TokenMapper> acelexicons = Maps.newHashMap();
+	// Accessed also by the verbalizer threads
+	private static final ConcurrentMap<OWLOntologyID, SurfaceFormIndex> surfaceFormIndexes = Maps.newConcurrentMap();
 	private static OWLModelManager owlModelManager;
 
 	// BUG: maybe we should get a new instance whenever we need to query the renderer preferences?
@@ -97,10 +115,51 @@ public final class ACETextManager {
 	private static ACESnippet whySnippet;
 
 
-	private static final List<ACEViewListener<ACEViewEvent<TextEventType>>> aceTextManagerChangeListeners = Lists.newArrayList();
-	private static final List<ACEViewListener<ACEViewEvent<SnippetEventType>>> snippetListeners = Lists.newArrayList();
+	// The events are delivered asynchronously on the event dispatch thread,
+	// coalescing the events that are fired in quick succession.
+	// The text and snippet events go through one queue, i.e. keep their relative order.
+	private static final ACEViewEventDispatcher<TextEventType> textEventDispatcher = new ACEViewEventDispatcher<TextEventType>(
+			new Function<TextEventType, ACEViewEvent<TextEventType>>() {
+				public ACEViewEvent<TextEventType> apply(TextEventType type) {
+					if (isInitCompleted) {
+						return new ACEViewEvent<TextEventType>(type, getDelta(type));
+					}
+					return null;
+				}
+			});
+
+	private static final ACEViewEventDispatcher<SnippetEventType> snippetEventDispatcher = new ACEViewEventDispatcher<SnippetEventType>(
+			new Function<SnippetEventType, ACEViewEvent<SnippetEventType>>() {
+				public ACEViewEvent<SnippetEventType> apply(SnippetEventType type) {
+					return new ACEViewEvent<SnippetEventType>(type);
+				}
+			});
+
+	private static volatile boolean isInitCompleted = false;
+
+	// Generations of the active ACE text and its lexicon at the time of the last event,
+	// the changes made after them are reported in the next event
+	private static OWLOntologyID deltaID;
+	private static long deltaTextGeneration;
+	private static long deltaLexiconGeneration;
 
-	private static boolean isInitCompleted = false;
+	private static final File cacheDir = new File(System.getProperty("user.home"),
+			".Protege" + File.separator + "aceview");
+
+	// Persistent cache of the verbalizations, shared by all the verbalizers
+	private static final File verbalizationCacheFile = new File(cacheDir, "verbalizations.cache");
+	private static VerbalizationCache verbalizationCache;
+
+	// Number of the ACE View tabs that use the caches, see retainCaches()
+	private static int cacheUserCount = 0;
+
+	// Cache of the parser results, shared by all the snippets
+	private static final int PARSE_CACHE_CAPACITY = 1000;
+	private static final File parseCacheFile = new File(cacheDir, "parses.cache");
+	private static ParseCache parseCache;
+
+	// Snapshots of the ACE texts, one file per ontology
+	private static final File snapshotDir = new File(cacheDir, "snapshots");
 
 	// No instances allowed
 	private ACETextManager() {}
@@ -178,6 +237,54 @@ public final class ACETextManager {
 	}
 
 
+	/**
+	 * <p>Returns the index of the surface forms that the morphological annotations
+	 * of the given ontology assign to its entities. The index is built on the
+	 * first call and kept up to date by the ontology change listener.</p>
+	 * 
+	 * @param ont OWL ontology
+	 * @return Surface form index
+	 */
+	public static SurfaceFormIndex getSurfaceFormIndex(OWLOntology ont) {
+		OWLOntologyID id = ont.getOntologyID();
+		SurfaceFormIndex index = surfaceFormIndexes.get(id);
+		if (index == null) {
+			SurfaceFormIndex newIndex = new SurfaceFormIndex(ont);
+			index = surfaceFormIndexes.putIfAbsent(id, newIndex);
+			if (index == null) {
+				index = newIndex;
+			}
+		}
+		return index;
+	}
+
+
+	/**
+	 * <p>Forgets the surface form index of the ontology with the given ID,
+	 * e.g. because the ontology has got a new ID.</p>
+	 * 
+	 * @param id Ontology ID
+	 */
+	public static void removeSurfaceFormIndex(OWLOntologyID id) {
+		surfaceFormIndexes.remove(id);
+	}
+
+
+	/**
+	 * <p>Forgets the surface form indexes of the ontologies
+	 * that are not among the given (i.e. open) ontologies.</p>
+	 * 
+	 * @param onts Open ontologies
+	 */
+	public static void retainSurfaceFormIndexes(Collection<OWLOntology> onts) {
+		Set<OWLOntologyID> ids = Sets.newHashSet();
+		for (OWLOntology ont : onts) {
+			ids.add(ont.getOntologyID());
+		}
+		surfaceFormIndexes.keySet().retainAll(ids);
+	}
+
+
 	public static void setOWLModelManager(OWLModelManager mm) {
 		owlModelManager = mm;
 	}
@@ -215,18 +322,25 @@ public final class ACETextManager {
 
 
 	/**
-	 * <p>Updates the given snippet in the active text at the given index
+	 * <p>Updates the given snippet in the active text
 	 * by first removing the snippet,
 	 * then creating a new snippet out of the set of given sentences, and then
-	 * adding the new snippet to the text and setting it as the selected snippet.</p>
+	 * adding the new snippet to the text (at the position of the old snippet)
+	 * and setting it as the selected snippet. The position is looked up in
+	 * the ACE text, because the rows of a view can lag behind the text.
+	 * If the text does not contain the snippet anymore then nothing is changed.</p>
 	 * 
-	 * @param index Index of the snippet in the ACE text
 	 * @param snippet Snippet to be updated (i.e replaced)
 	 * @param sentences Sentences that form the new snippet
 	 */
-	public static void updateSnippet(int index, ACESnippet snippet, List<ACESentence> sentences) {
-		ACESnippet newSnippet = new ACESnippetImpl(snippet.getDefaultNamespace(), sentences);
+	public static void updateSnippet(ACESnippet snippet, List<ACESentence> sentences) {
 		ACEText<OWLEntity, OWLLogicalAxiom> acetext = getActiveACEText();
+		int index = acetext.indexOf(snippet);
+		if (index == -1) {
+			logger.info("Not updated, the snippet is not in the text: " + snippet);
+			return;
+		}
+		ACESnippet newSnippet = new ACESnippetImpl(snippet.getDefaultNamespace(), sentences);
 		logger.info("Del old snippet: " + snippet);
 		Set<OWLLogicalAxiom> removedAxioms = acetext.remove(snippet);
 		logger.info("Add new snippet: " + newSnippet);
@@ -244,7 +358,9 @@ public final class ACETextManager {
 
 	/**
 	 * <p>Adds a collection of ACE sentences and removes another collection
-	 * of ACE sentences to/from the active ACE text.</p>
+	 * of ACE sentences to/from the active ACE text.
+	 * The new sentences are parsed in parallel
+	 * (see {@link #addAndRemoveItems(Collection, Collection, SnippetParser)}).</p>
 	 * 
 	 * @param addedSentences Collection of ACE sentences
 	 * @param removedSentences Collection of ACE sentences
@@ -254,8 +370,12 @@ public final class ACETextManager {
 		List<OWLAxiomChange> changes = Lists.newArrayList();
 		OWLOntology ont = owlModelManager.getActiveOntology();
 
+		List<List<ACESentence>> addedSentenceLists = Lists.newArrayList();
 		for (ACESentence sentence : addedSentences) {
-			ACESnippet snippet = new ACESnippetImpl(ont.getOntologyID(), sentence);
+			addedSentenceLists.add(ImmutableList.of(sentence));
+		}
+
+		for (ACESnippet snippet : new SnippetParser().parse(ont.getOntologyID(), addedSentenceLists)) {
 			activeAceText.add(snippet);
 			changes.addAll(getAddChanges(ont, snippet));
 		}
@@ -270,63 +390,194 @@ public final class ACETextManager {
 		}
 	}
 
+
 	public static void addAndRemoveItems(Collection<List<ACESentence>> addedSentences, Collection<ACESnippet> removedSnippets) {
-		ACEText<OWLEntity, OWLLogicalAxiom> activeAceText = getActiveACEText();
-		List<OWLAxiomChange> changes = Lists.newArrayList();
-		OWLOntology ont = owlModelManager.getActiveOntology();
+		addAndRemoveItems(addedSentences, removedSnippets, new SnippetParser());
+	}
 
-		for (List<ACESentence> sentenceList : addedSentences) {
-			ACESnippet snippet = new ACESnippetImpl(ont.getOntologyID(), sentenceList);
-			activeAceText.add(snippet);
-			changes.addAll(getAddChanges(ont, snippet));
-		}
 
-		for (ACESnippet oldSnippet : removedSnippets) {
-			Set<OWLLogicalAxiom> removedAxioms = activeAceText.remove(oldSnippet);
-			changes.addAll(getRemoveChanges(ont, removedAxioms));
+	/**
+	 * <p>Adds a collection of new snippets and removes a collection of existing snippets
+	 * to/from the active ACE text, in two phases. First, the new snippets are parsed
+	 * in parallel by the given parser, which the caller can use to follow the progress and
+	 * to cancel the update. Then all the additions and removals are applied to the
+	 * ACE text and the ontology in one ordered batch, which fires one event.
+	 * If the parsing is cancelled then nothing is changed.</p>
+	 * 
+	 * <p>This method can be called from a background thread. The batch is
+	 * applied on the event dispatch thread (the caller waits for it), because
+	 * the listeners read the ACE text on the event dispatch thread.</p>
+	 * 
+	 * @param addedSentences Sentence lists of the new snippets
+	 * @param removedSnippets Snippets to be removed
+	 * @param snippetParser Parser of the new snippets
+	 * @throws java.util.concurrent.CancellationException if the parsing was cancelled
+	 */
+	public static void addAndRemoveItems(Collection<List<ACESentence>> addedSentences, Collection<ACESnippet> removedSnippets, SnippetParser snippetParser) {
+		addAndRemoveItems(addedSentences, removedSnippets, snippetParser, false);
+	}
+
+
+	/**
+	 * <p>Adds new snippets for those of the given sentence lists that the active
+	 * ACE text does not contain yet (see {@link #addAndRemoveItems(Collection, Collection, SnippetParser)}).
+	 * The sentence lists that the ACE text already contains are not parsed. The ACE text
+	 * is checked again before adding the parsed snippets, on the event dispatch thread.</p>
+	 * 
+	 * @param addedSentences Sentence lists of the new snippets
+	 * @param snippetParser Parser of the new snippets
+	 * @return Number of snippets that were added
+	 * @throws java.util.concurrent.CancellationException if the parsing was cancelled
+	 */
+	public static int addNewItems(final Collection<List<ACESentence>> addedSentences, SnippetParser snippetParser) {
+		final List<List<ACESentence>> newSentences = Lists.newArrayList();
+		invokeAndWait(new Runnable() {
+			public void run() {
+				ACEText<OWLEntity, OWLLogicalAxiom> activeAceText = getActiveACEText();
+				for (List<ACESentence> sentences : addedSentences) {
+					if (! activeAceText.contains(sentences)) {
+						newSentences.add(sentences);
+					}
+				}
+			}
+		});
+		return addAndRemoveItems(newSentences, Collections.<ACESnippet>emptySet(), snippetParser, true);
+	}
+
+
+	/**
+	 * @param isSkipDuplicates <code>true</code> iff the new snippets whose sentences the ACE text
+	 * already contains are not added
+	 * @return Number of snippets that were added
+	 */
+	private static int addAndRemoveItems(Collection<List<ACESentence>> addedSentences, final Collection<ACESnippet> removedSnippets,
+			SnippetParser snippetParser, final boolean isSkipDuplicates) {
+		OWLOntologyID id = owlModelManager.getActiveOntology().getOntologyID();
+		final List<ACESnippet> addedSnippets = snippetParser.parse(id, addedSentences);
+
+		if (addedSnippets.isEmpty() && removedSnippets.isEmpty()) {
+			return 0;
 		}
 
-		if (! (addedSentences.isEmpty() && removedSnippets.isEmpty())) {
-			changeOntology(changes);
-			fireEvent(TextEventType.ACETEXT_CHANGED);
+		final AtomicInteger addedCount = new AtomicInteger();
+		invokeAndWait(new Runnable() {
+			public void run() {
+				ACEText<OWLEntity, OWLLogicalAxiom> activeAceText = getActiveACEText();
+				List<OWLAxiomChange> changes = Lists.newArrayList();
+				OWLOntology ont = owlModelManager.getActiveOntology();
+
+				for (ACESnippet snippet : addedSnippets) {
+					if (isSkipDuplicates && activeAceText.contains(snippet.getSentences())) {
+						continue;
+					}
+					activeAceText.add(snippet);
+					changes.addAll(getAddChanges(ont, snippet));
+					addedCount.incrementAndGet();
+				}
+
+				for (ACESnippet oldSnippet : removedSnippets) {
+					Set<OWLLogicalAxiom> removedAxioms = activeAceText.remove(oldSnippet);
+					changes.addAll(getRemoveChanges(ont, removedAxioms));
+				}
+
+				if (addedCount.get() > 0 || ! removedSnippets.isEmpty()) {
+					changeOntology(changes);
+					fireEvent(TextEventType.ACETEXT_CHANGED);
+				}
+			}
+		});
+		return addedCount.get();
+	}
+
+
+	/**
+	 * <p>Runs the given task on the event dispatch thread and waits until it has
+	 * finished. A runtime exception that the task throws is rethrown.</p>
+	 * 
+	 * @param runnable Task
+	 */
+	static void invokeAndWait(Runnable runnable) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			runnable.run();
+			return;
+		}
+		try {
+			SwingUtilities.invokeAndWait(runnable);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (InvocationTargetException e) {
+			Throwables.propagateIfPossible(e.getCause());
+			throw new RuntimeException(e.getCause());
 		}
 	}
 
 
 	public static void addListener(ACEViewListener<ACEViewEvent<TextEventType>> listener) {
-		aceTextManagerChangeListeners.add(listener);
+		textEventDispatcher.addListener(listener);
 	}
 
 	public static void removeListener(ACEViewListener<ACEViewEvent<TextEventType>> listener) {
-		aceTextManagerChangeListeners.remove(listener);
+		textEventDispatcher.removeListener(listener);
 	}
 
 
 	public static void addSnippetListener(ACEViewListener<ACEViewEvent<SnippetEventType>> listener) {
-		snippetListeners.add(listener);
+		snippetEventDispatcher.addListener(listener);
 	}
 
 	public static void removeSnippetListener(ACEViewListener<ACEViewEvent<SnippetEventType>> listener) {
-		snippetListeners.remove(listener);
+		snippetEventDispatcher.removeListener(listener);
 	}
 
 
+	/**
+	 * <p>Schedules an event of the given type to be delivered to the listeners
+	 * on the event dispatch thread. The event reports all the changes that have been
+	 * made until its delivery, so that the events that are fired in quick
+	 * succession are merged into one.</p>
+	 * 
+	 * @param type Type of the event
+	 */
 	// TODO: should be private
 	public static void fireEvent(TextEventType type) {
 		if (isInitCompleted) {
-			ACEViewEvent<TextEventType> event = new ACEViewEvent<TextEventType>(type);
-			logger.info("Event: " + event.getType());
-			for (ACEViewListener<ACEViewEvent<TextEventType>> listener : aceTextManagerChangeListeners) {
-				try {
-					listener.handleChange(event);
-				}
-				catch (Exception e) {
-					logger.error("Detaching " + listener.getClass().getName() + " because it threw " + e.toString());
-					ProtegeApplication.getErrorLog().logError(e);
-					removeListener(listener);
-				}
+			textEventDispatcher.fire(type);
+		}
+	}
+
+
+	/**
+	 * <p>Collects the changes of the active ACE text and its lexicon that
+	 * have been made since the last event. Returns <code>null</code> if
+	 * the active text has changed or if some of the changes have been forgotten.</p>
+	 * 
+	 * @param type Type of the event
+	 * @return Changes since the last event, or <code>null</code>
+	 */
+	private static ACETextDelta getDelta(TextEventType type) {
+		OWLOntology ont = owlModelManager.getActiveOntology();
+		if (ont == null) {
+			return null;
+		}
+		OWLOntologyID id = ont.getOntologyID();
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = getACEText(id);
+		TokenMapper acelexicon = getACELexicon(id);
+		long textGeneration = acetext.getGeneration();
+		long lexiconGeneration = acelexicon.getGeneration();
+
+		ACETextDelta delta = null;
+		if (type != TextEventType.ACTIVE_ACETEXT_CHANGED && id.equals(deltaID)) {
+			List<ACETextChange> snippetChanges = acetext.getChangesSince(deltaTextGeneration);
+			List<LexiconChange> lexiconChanges = acelexicon.getChangesSince(deltaLexiconGeneration);
+			if (snippetChanges != null && lexiconChanges != null) {
+				delta = new ACETextDelta(deltaTextGeneration, snippetChanges, lexiconChanges);
 			}
 		}
+		deltaID = id;
+		deltaTextGeneration = textGeneration;
+		deltaLexiconGeneration = lexiconGeneration;
+		return delta;
 	}
 
 
@@ -340,6 +591,155 @@ public final class ACETextManager {
 	}
 
 
+	/**
+	 * <p>Returns the persistent verbalization cache, opening it on the first call.
+	 * Returns <code>null</code> if the cache is switched off in the preferences
+	 * or if the cache file cannot be opened.</p>
+	 * 
+	 * @return Verbalization cache or <code>null</code>
+	 */
+	public static synchronized VerbalizationCache getVerbalizationCache() {
+		if (! ACEViewPreferences.getInstance().isUseVerbalizationCache()) {
+			return null;
+		}
+		if (verbalizationCache == null) {
+			try {
+				verbalizationCache = new VerbalizationCache(verbalizationCacheFile);
+			} catch (AppendOnlyStore.LockedException e) {
+				logger.warn(e.getMessage() + ", using a private verbalization cache");
+				try {
+					verbalizationCache = new VerbalizationCache(createPrivateCacheFile(verbalizationCacheFile));
+				} catch (IOException e1) {
+					logger.error("Cannot open a private verbalization cache: " + e1.getMessage());
+				}
+			} catch (IOException e) {
+				logger.error("Cannot open the verbalization cache " + verbalizationCacheFile + ": " + e.getMessage());
+			}
+		}
+		return verbalizationCache;
+	}
+
+
+	/**
+	 * <p>Removes the cached verbalizations of the axioms that contain the given entity.
+	 * This must be called whenever the lexicon entry of the entity changes.</p>
+	 * 
+	 * @param iri IRI of an entity
+	 */
+	public static synchronized void invalidateVerbalizations(IRI iri) {
+		if (verbalizationCache != null) {
+			verbalizationCache.invalidate(iri);
+		}
+	}
+
+
+	/**
+	 * <p>Registers a user (i.e. an ACE View tab) of the shared caches.
+	 * Each call must be matched by a call to {@link #releaseCaches()}.</p>
+	 */
+	public static synchronized void retainCaches() {
+		cacheUserCount++;
+	}
+
+
+	/**
+	 * <p>Unregisters a user of the shared caches. The caches are closed
+	 * when the last user has released them.</p>
+	 */
+	public static synchronized void releaseCaches() {
+		if (cacheUserCount > 0) {
+			cacheUserCount--;
+		}
+		if (cacheUserCount == 0) {
+			closeVerbalizationCache();
+			resetParseCache();
+		}
+	}
+
+
+	private static synchronized void closeVerbalizationCache() {
+		if (verbalizationCache != null) {
+			verbalizationCache.close();
+			verbalizationCache = null;
+		}
+	}
+
+
+	/**
+	 * <p>Creates a cache file that is used by this process only (and deleted on exit)
+	 * instead of the given shared cache file, which is locked by another process.</p>
+	 * 
+	 * @param file Shared cache file
+	 * @return Private cache file
+	 * @throws IOException
+	 */
+	private static File createPrivateCacheFile(File file) throws IOException {
+		File privateFile = File.createTempFile(file.getName() + ".", ".tmp");
+		privateFile.deleteOnExit();
+		AppendOnlyStore.getLockFile(privateFile).deleteOnExit();
+		return privateFile;
+	}
+
+
+	/**
+	 * <p>Returns the cache of the parser results, creating it on the first call.
+	 * The cache is backed by a file only if this is switched on in the preferences
+	 * and the file can be opened.</p>
+	 * 
+	 * @return Parse cache
+	 */
+	public static synchronized ParseCache getParseCache() {
+		if (parseCache == null) {
+			AppendOnlyStore disk = null;
+			if (ACEViewPreferences.getInstance().isUseParseCacheOnDisk()) {
+				try {
+					disk = new AppendOnlyStore(parseCacheFile, ParseCache.getDiskVersion());
+				} catch (AppendOnlyStore.LockedException e) {
+					logger.warn(e.getMessage() + ", using a private parse cache");
+					try {
+						disk = new AppendOnlyStore(createPrivateCacheFile(parseCacheFile), ParseCache.getDiskVersion());
+					} catch (IOException e1) {
+						logger.error("Cannot open a private parse cache: " + e1.getMessage());
+					}
+				} catch (IOException e) {
+					logger.error("Cannot open the parse cache " + parseCacheFile + ": " + e.getMessage());
+				}
+			}
+			parseCache = new ParseCache(PARSE_CACHE_CAPACITY, disk);
+		}
+		return parseCache;
+	}
+
+
+	/**
+	 * <p>Returns the file of the snapshot of the ACE text of the given ontology
+	 * (see {@link ACETextSnapshot}). The file name is derived from the ontology ID
+	 * and the location of the ontology document.</p>
+	 * 
+	 * @param ont Ontology
+	 * @return Snapshot file
+	 */
+	public static File getSnapshotFile(OWLOntology ont) {
+		IRI documentIRI = owlModelManager.getOWLOntologyManager().getOntologyDocumentIRI(ont);
+		long fingerprint = Fingerprint.of(ont.getOntologyID() + " " + documentIRI);
+		return new File(snapshotDir, Long.toHexString(fingerprint) + ".snapshot");
+	}
+
+
+	/**
+	 * <p>Closes the parse cache. Unlike {@link #releaseCaches()} this does not
+	 * concern the users of the cache: a new cache is opened (e.g. with
+	 * new preferences) when the cache is needed next time.</p>
+	 */
+	public static synchronized void resetParseCache() {
+		if (parseCache != null) {
+			logger.info(parseCache);
+			parseCache.close();
+			parseCache = null;
+		}
+	}
+
+
 	/**
 	 * <p>Creates a new OWL ontology manager, but uses an existing
 	 * OWL data factory.</p>
@@ -354,6 +754,20 @@ public final class ACETextManager {
 	}
 
 
+	/**
+	 * <p>Returns the OWL data factory of Protege, or the default
+	 * OWL data factory if ACE View runs outside of Protege.</p>
+	 * 
+	 * @return OWL data factory
+	 */
+	public static OWLDataFactory getOWLDataFactory() {
+		if (owlModelManager == null) {
+			return OWLManager.getOWLDataFactory();
+		}
+		return owlModelManager.getOWLDataFactory();
+	}
+
+
 	public static String wrapInHtml(String body) {
 		return wrapInHtml(getHtmlHead(), body);
 	}
@@ -492,6 +906,11 @@ public final class ACETextManager {
 	}
 
 
+	public static boolean isInitCompleted() {
+		return isInitCompleted;
+	}
+
+
 	/**
 	 * <p>Remove the set of given logical axioms from the ontology, i.e. generate the respective
 	 * list of changes. Note that the removed axioms do not have to match structurally against
@@ -544,12 +963,16 @@ public final class ACETextManager {
 
 
 	public static void processTanglingAxioms(ACEText<OWLEntity, OWLLogicalAxiom> acetext, Set<OWLLogicalAxiom> tanglingAxioms) {		
+		if (tanglingAxioms.isEmpty()) {
+			return;
+		}
 		AxiomVerbalizer axiomVerbalizer = createAxiomVerbalizer();
 		OWLOntology ont = getOWLModelManager().getActiveOntology();
 
-		for (OWLLogicalAxiom newAxiom : tanglingAxioms) {
-			logger.info("Adding back: " + newAxiom);
-			verbalizeAndAdd(acetext, ont, axiomVerbalizer, newAxiom);
+		logger.info("Adding back: " + tanglingAxioms);
+		// The axioms that need the verbalizer webservice are verbalized in batches.
+		for (ACESnippet snippet : axiomVerbalizer.verbalizeAxioms(Lists.newArrayList(tanglingAxioms), ont)) {
+			acetext.add(snippet);
 		}
 	}
 
@@ -770,44 +1193,10 @@ public final class ACETextManager {
 
 
 	/**
-	 * <p>Note that we do not add the axiom into the ontology, because
-	 * we expect it to be there already, as it is one of the tangling
-	 * axioms.</p>
-	 * 
-	 * @param acetext ACE text
-	 * @param ont OWL ontology
-	 * @param axiomVerbalizer AxiomVerbalizer
-	 * @param axiom OWL axiom
+	 * @return Axiom verbalizer that uses the current OWL verbalizer and the verbalization cache
 	 */
-	private static void verbalizeAndAdd(ACEText<OWLEntity, OWLLogicalAxiom> acetext, OWLOntology ont, AxiomVerbalizer axiomVerbalizer, OWLLogicalAxiom axiom) {
-		ACESnippet snippet = null;
-		try {
-			snippet = axiomVerbalizer.verbalizeAxiom(axiom, ont);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		if (snippet != null) {
-			acetext.add(snippet);
-			// TODO: remove the axiom and add it back with the ACE annotation
-			/*
-			OWLDataFactory df = owlModelManager.getOWLDataFactory();
-			OWLAxiomAnnotationAxiom annAcetext = OntologyUtils.createAxiomAnnotation(df, axiom, acetextIRI, snippet.toString());
-			OWLAxiomAnnotationAxiom annTimestamp = OntologyUtils.createAxiomAnnotation(df, axiom, timestampURI, snippet.getTimestamp().toString());
-			List<OWLAxiomChange> changes = Lists.newArrayList();
-			changes.add(new AddAxiomByACEView(ont, annAcetext));
-			changes.add(new AddAxiomByACEView(ont, annTimestamp));
-			changeOntology(changes);
-			 */
-		}
-		else {
-			logger.warn("AxiomVerbalizer produced a null-snippet for: " + axiom.toString());
-		}
-	}
-
-
-	private static AxiomVerbalizer createAxiomVerbalizer() {
-		return new AxiomVerbalizer(
-				new VerbalizerWebservice(ACEViewPreferences.getInstance().getOwlToAce()));
+	public static AxiomVerbalizer createAxiomVerbalizer() {
+		return new AxiomVerbalizer(ACEViewPreferences.getInstance().getOwlToAce(), getVerbalizationCache());
 	}
 
 
@@ -866,18 +1255,7 @@ public final class ACETextManager {
 
 
 	private static void fireSnippetEvent(SnippetEventType type) {
-		ACEViewEvent<SnippetEventType> event = new ACEViewEvent<SnippetEventType>(type);
-		logger.info("Event: " + event.getType());
-		for (ACEViewListener<ACEViewEvent<SnippetEventType>> listener : snippetListeners) {
-			try {
-				listener.handleChange(event);
-			}
-			catch (Exception e) {
-				logger.error("Detaching " + listener.getClass().getName() + " because it threw " + e.toString());
-				ProtegeApplication.getErrorLog().logError(e);
-				removeSnippetListener(listener);
-			}
-		}
+		snippetEventDispatcher.fire(type);
 	}
 
 
@@ -0,0 +1,442 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+
+import ch.uzh.ifi.attempto.ace.ACESentence;
+import ch.uzh.ifi.attempto.ace.ACEToken;
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.lexicon.Triple;
+import ch.uzh.ifi.attempto.aceview.util.Fingerprint;
+import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
+
+/**
+ * <p>Snapshot of the ACE text and the ACE lexicon of an ontology, stored
+ * in a binary file so that the ACE text does not have to be rebuilt
+ * (i.e. the axioms verbalized) when the ontology is opened again.
+ * The snapshot contains:</p>
+ *
+ * <ul>
+ * <li>the lexicon entries;</li>
+ * <li>a dictionary of the tokens of the snippets;</li>
+ * <li>the snippets, each as a list of token numbers, together with the
+ * fingerprints of the axioms of the snippet.</li>
+ * </ul>
+ *
+ * <p>The axioms are identified by the fingerprints of their structural rendering
+ * (which uses full IRIs), because their default rendering can depend on the labels.</p>
+ *
+ * <p>The snapshot is validated by two digests of the ontology, which do not depend
+ * on the order of the axioms: the digest of the morphological annotations
+ * (and of the preferences that influence the verbalization), and the digest of
+ * the logical axioms. If the first digest has changed then the snapshot cannot be used.
+ * If only the second digest has changed then the snippets of the axioms that are
+ * still in the ontology are restored, and only the new axioms need to be verbalized.</p>
+ *
+ * <p>Only the snippets that correspond to axioms of the ontology are stored,
+ * i.e. the same snippets that a rebuild would produce. The answers to questions
+ * are not stored, as they are recomputed anyway when the ontology is classified.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class ACETextSnapshot {
+
+	private static final Logger logger = Logger.getLogger(ACETextSnapshot.class);
+
+	private static final int MAGIC = 0x41435453;
+
+	// Must be increased if the format of the file changes
+	private static final int VERSION = 2;
+
+	private static final Joiner joiner = Joiner.on(' ');
+
+	private final long lexiconDigest;
+	private final long axiomDigest;
+	private final List<Triple> lexiconEntries;
+	private final List<Entry> entries;
+
+
+	private ACETextSnapshot(long lexiconDigest, long axiomDigest, List<Triple> lexiconEntries, List<Entry> entries) {
+		this.lexiconDigest = lexiconDigest;
+		this.axiomDigest = axiomDigest;
+		this.lexiconEntries = lexiconEntries;
+		this.entries = entries;
+	}
+
+
+	/**
+	 * <p>Returns the digest of the morphological annotations of the given ontology,
+	 * which also covers the preferences that influence the lexicon and the verbalization.</p>
+	 *
+	 * @param ont Ontology
+	 * @param prefs Preferences
+	 * @return Digest
+	 */
+	public static long getLexiconDigest(OWLOntology ont, ACEViewPreferences prefs) {
+		long digest = Fingerprint.of(VERSION + " " + prefs.isUseLexicon() + " " + prefs.getOwlToAce());
+		for (OWLAnnotationAssertionAxiom ax : ont.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+			if (MorphType.isMorphTypeIRI(ax.getProperty().getIRI())) {
+				digest += OntologyUtils.getFingerprint(ax);
+			}
+		}
+		return digest;
+	}
+
+
+	/**
+	 * @param ont Ontology
+	 * @return Digest of the logical axioms (including their annotations) of the given ontology
+	 */
+	public static long getAxiomDigest(OWLOntology ont) {
+		long digest = 0;
+		for (OWLLogicalAxiom ax : ont.getLogicalAxioms()) {
+			digest += OntologyUtils.getFingerprint(ax);
+		}
+		return digest;
+	}
+
+
+	/**
+	 * <p>Writes the snapshot of the given ACE text and lexicon into the given file.
+	 * The file is replaced only after the snapshot has been completely written.</p>
+	 *
+	 * @param file Snapshot file
+	 * @param ont Ontology of the ACE text
+	 * @param acetext ACE text
+	 * @param lexicon ACE lexicon
+	 * @throws IOException
+	 */
+	public static void write(File file, OWLOntology ont, ACEText<OWLEntity, OWLLogicalAxiom> acetext, TokenMapper lexicon) throws IOException {
+		long start = System.currentTimeMillis();
+
+		// The snippets contain the axioms without annotations
+		Map<OWLAxiom, Long> axiomToFingerprint = Maps.newHashMap();
+		for (OWLLogicalAxiom ax : ont.getLogicalAxioms()) {
+			axiomToFingerprint.put(ax.getAxiomWithoutAnnotations(), OntologyUtils.getFingerprint(ax));
+		}
+
+		Map<String, Integer> dictionary = Maps.newLinkedHashMap();
+		List<int[]> snippetTokens = Lists.newArrayList();
+		List<long[]> snippetAxioms = Lists.newArrayList();
+		List<String> snippetAltRenderings = Lists.newArrayList();
+		for (ACESnippet snippet : acetext.getSnippets()) {
+			long[] fingerprints = getFingerprints(snippet.getLogicalAxioms(), axiomToFingerprint);
+			if (fingerprints == null) {
+				continue;
+			}
+			List<Integer> ids = Lists.newArrayList();
+			for (ACESentence sentence : snippet.getSentences()) {
+				for (ACEToken token : sentence.getTokens()) {
+					String str = token.toString();
+					Integer id = dictionary.get(str);
+					if (id == null) {
+						id = dictionary.size();
+						dictionary.put(str, id);
+					}
+					ids.add(id);
+				}
+			}
+			int[] tokens = new int[ids.size()];
+			for (int i = 0; i < tokens.length; i++) {
+				tokens[i] = ids.get(i);
+			}
+			snippetTokens.add(tokens);
+			snippetAxioms.add(fingerprints);
+			snippetAltRenderings.add((snippet instanceof ACESnippetImpl) ? ((ACESnippetImpl) snippet).getAlternativeRendering() : null);
+		}
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && ! dir.exists() && ! dir.mkdirs()) {
+			throw new IOException("Cannot create directory: " + dir);
+		}
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+		boolean isWritten = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(getLexiconDigest(ont, ACEViewPreferences.getInstance()));
+			out.writeLong(getAxiomDigest(ont));
+
+			Collection<Triple> triples = lexicon.getEntries();
+			out.writeInt(triples.size());
+			for (Triple triple : triples) {
+				out.writeUTF(triple.getObject());
+				out.writeUTF(triple.getSubjectIRI().toString());
+				out.writeUTF(triple.getProperty().name());
+			}
+
+			out.writeInt(dictionary.size());
+			for (String str : dictionary.keySet()) {
+				out.writeUTF(str);
+			}
+
+			out.writeInt(snippetTokens.size());
+			for (int i = 0; i < snippetTokens.size(); i++) {
+				int[] tokens = snippetTokens.get(i);
+				out.writeInt(tokens.length);
+				for (int id : tokens) {
+					out.writeInt(id);
+				}
+				long[] fingerprints = snippetAxioms.get(i);
+				out.writeInt(fingerprints.length);
+				for (long fingerprint : fingerprints) {
+					out.writeLong(fingerprint);
+				}
+				String altRendering = snippetAltRenderings.get(i);
+				out.writeBoolean(altRendering != null);
+				if (altRendering != null) {
+					out.writeUTF(altRendering);
+				}
+			}
+			out.flush();
+			isWritten = true;
+		}
+		finally {
+			Closeables.close(out, ! isWritten);
+		}
+
+		if (file.exists() && ! file.delete()) {
+			throw new IOException("Cannot replace: " + file);
+		}
+		if (! tmpFile.renameTo(file)) {
+			throw new IOException("Cannot rename " + tmpFile + " to " + file);
+		}
+		logger.info("Wrote snapshot " + file + ": " + snippetTokens.size() + " snippets, " + dictionary.size() +
+				" distinct tokens, in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+
+	/**
+	 * <p>Reads the snapshot from the given file.</p>
+	 *
+	 * @param file Snapshot file
+	 * @return Snapshot or <code>null</code> if the file does not exist or has a different format version
+	 * @throws IOException if the file cannot be read or is corrupted
+	 */
+	public static ACETextSnapshot read(File file) throws IOException {
+		DataInputStream in;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a snapshot file: " + file);
+			}
+			if (in.readInt() != VERSION) {
+				return null;
+			}
+			long lexiconDigest = in.readLong();
+			long axiomDigest = in.readLong();
+
+			int tripleCount = in.readInt();
+			List<Triple> lexiconEntries = Lists.newArrayListWithCapacity(tripleCount);
+			for (int i = 0; i < tripleCount; i++) {
+				String wordform = in.readUTF();
+				IRI iri = IRI.create(in.readUTF());
+				lexiconEntries.add(new Triple(iri, MorphType.valueOf(in.readUTF()), wordform));
+			}
+
+			String[] dictionary = new String[in.readInt()];
+			for (int i = 0; i < dictionary.length; i++) {
+				dictionary[i] = in.readUTF();
+			}
+
+			int entryCount = in.readInt();
+			List<Entry> entries = Lists.newArrayListWithCapacity(entryCount);
+			List<String> tokens = Lists.newArrayList();
+			for (int i = 0; i < entryCount; i++) {
+				tokens.clear();
+				int tokenCount = in.readInt();
+				for (int j = 0; j < tokenCount; j++) {
+					tokens.add(dictionary[in.readInt()]);
+				}
+				long[] fingerprints = new long[in.readInt()];
+				for (int j = 0; j < fingerprints.length; j++) {
+					fingerprints[j] = in.readLong();
+				}
+				String altRendering = in.readBoolean() ? in.readUTF() : null;
+				entries.add(new Entry(joiner.join(tokens), fingerprints, altRendering));
+			}
+			return new ACETextSnapshot(lexiconDigest, axiomDigest, lexiconEntries, entries);
+		} catch (RuntimeException e) {
+			// E.g. an illegal token number or morph type
+			throw new IOException("Corrupted snapshot file: " + file + ": " + e);
+		}
+		finally {
+			Closeables.closeQuietly(in);
+		}
+	}
+
+
+	/**
+	 * @param ont Ontology
+	 * @param prefs Preferences
+	 * @return <code>true</code> iff the lexicon entries of this snapshot are up to date
+	 */
+	public boolean isLexiconValid(OWLOntology ont, ACEViewPreferences prefs) {
+		return lexiconDigest == getLexiconDigest(ont, prefs);
+	}
+
+
+	/**
+	 * @param ont Ontology
+	 * @return <code>true</code> iff the snapshot covers exactly the logical axioms of the given ontology
+	 */
+	public boolean isTextValid(OWLOntology ont) {
+		return axiomDigest == getAxiomDigest(ont);
+	}
+
+
+	/**
+	 * <p>Adds the lexicon entries of this snapshot to the given lexicon.</p>
+	 *
+	 * @param lexicon ACE lexicon
+	 */
+	public void restoreLexicon(TokenMapper lexicon) {
+		for (Triple triple : lexiconEntries) {
+			lexicon.addEntry(triple.getObject(), triple.getSubjectIRI(), triple.getProperty());
+		}
+	}
+
+
+	/**
+	 * <p>Returns the given entities whose IRI does not occur in the lexicon entries
+	 * of this snapshot, e.g. entities that have been added to the ontology
+	 * without morphological annotations after the snapshot was written.</p>
+	 *
+	 * @param entities Entities
+	 * @return Entities that are not covered by the lexicon entries of this snapshot
+	 */
+	public Set<OWLEntity> getUncoveredEntities(Set<OWLEntity> entities) {
+		Set<IRI> coveredIRIs = Sets.newHashSet();
+		for (Triple triple : lexiconEntries) {
+			coveredIRIs.add(triple.getSubjectIRI());
+		}
+		Set<OWLEntity> uncoveredEntities = Sets.newHashSet();
+		for (OWLEntity entity : entities) {
+			if (! coveredIRIs.contains(entity.getIRI())) {
+				uncoveredEntities.add(entity);
+			}
+		}
+		return uncoveredEntities;
+	}
+
+
+	/**
+	 * <p>Adds the snippets of this snapshot whose axioms are all in the given ontology
+	 * to the given ACE text. The snippets are not parsed, i.e. they get the axioms
+	 * they had when the snapshot was written.</p>
+	 *
+	 * @param ont Ontology
+	 * @param acetext ACE text of the ontology
+	 * @return Logical axioms of the ontology that are covered by the restored snippets
+	 */
+	public Set<OWLLogicalAxiom> restoreText(OWLOntology ont, ACEText<OWLEntity, OWLLogicalAxiom> acetext) {
+		OWLOntologyID ns = ont.getOntologyID();
+		Map<Long, OWLLogicalAxiom> fingerprintToAxiom = Maps.newHashMap();
+		for (OWLLogicalAxiom ax : ont.getLogicalAxioms()) {
+			fingerprintToAxiom.put(OntologyUtils.getFingerprint(ax), ax);
+		}
+
+		Set<OWLLogicalAxiom> coveredAxioms = Sets.newHashSet();
+		int restoredCount = 0;
+		for (Entry entry : entries) {
+			Set<OWLLogicalAxiom> axioms = Sets.newHashSet();
+			for (long fingerprint : entry.fingerprints) {
+				OWLLogicalAxiom ax = fingerprintToAxiom.get(fingerprint);
+				if (ax == null) {
+					break;
+				}
+				axioms.add(ax);
+			}
+			if (axioms.size() == entry.fingerprints.length) {
+				acetext.add(new ACESnippetImpl(ns, entry.text, axioms, entry.altRendering));
+				coveredAxioms.addAll(axioms);
+				restoredCount++;
+			}
+		}
+		logger.info("Restored " + restoredCount + " of " + entries.size() + " snippets from the snapshot");
+		return coveredAxioms;
+	}
+
+
+	/**
+	 * @return Fingerprints of the ontology axioms that correspond to the given axioms,
+	 * or <code>null</code> if there are no axioms or some axiom is not in the ontology
+	 */
+	private static long[] getFingerprints(Set<OWLLogicalAxiom> axioms, Map<OWLAxiom, Long> axiomToFingerprint) {
+		if (axioms.isEmpty()) {
+			return null;
+		}
+		long[] fingerprints = new long[axioms.size()];
+		int i = 0;
+		for (OWLLogicalAxiom ax : axioms) {
+			Long fingerprint = axiomToFingerprint.get(ax);
+			if (fingerprint == null) {
+				return null;
+			}
+			fingerprints[i++] = fingerprint;
+		}
+		return fingerprints;
+	}
+
+
+	private static final class Entry {
+		private final String text;
+		private final long[] fingerprints;
+		private final String altRendering;
+
+		private Entry(String text, long[] fingerprints, String altRendering) {
+			this.text = text;
+			this.fingerprints = fingerprints;
+			this.altRendering = altRendering;
+		}
+	}
+}
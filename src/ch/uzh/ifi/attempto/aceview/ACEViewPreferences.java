@@ -45,6 +45,7 @@ public final class ACEViewPreferences {
 	private static final String ACE_TO_OWL_SOCKETS_KEY = "ACE_TO_OWL_SOCKETS";
 	private static final String ACE_TO_OWL_SOCKET_HOST_KEY = "ACE_TO_OWL_SOCKET_HOST";
 	private static final String ACE_TO_OWL_SOCKET_PORT_KEY = "ACE_TO_OWL_SOCKET_PORT";
+	private static final String ACE_TO_OWL_THREADS_KEY = "ACE_TO_OWL_THREADS";
 
 	private static final String PARAPHRASE1_KEY = "PARAPHRASE1";
 	private static final String GUESS_KEY = "GUESS";
@@ -52,11 +53,15 @@ public final class ACEViewPreferences {
 
 	private static final String OWL_TO_ACE_WEBSERVICES_KEY = "OWL_TO_ACE_WEBSERVICES";
 	private static final String OWL_TO_ACE_KEY = "OWL_TO_ACE";
+	private static final String OWL_TO_ACE_THREADS_KEY = "OWL_TO_ACE_THREADS";
 
 	private static final String PARSEWITHUNDEF_KEY = "PARSEWITHUNDEF";
 	private static final String USE_MOS_KEY = "USE_MOS";
 	private static final String UPDATE_ANSWERS_ON_CLASSIFY_KEY = "UPDATE_ANSWERS_ON_CLASSIFY";
 	private static final String USE_LEXICON_KEY = "USE_LEXICON";
+	private static final String USE_VERBALIZATION_CACHE_KEY = "USE_VERBALIZATION_CACHE";
+	private static final String USE_PARSE_CACHE_ON_DISK_KEY = "USE_PARSE_CACHE_ON_DISK";
+	private static final String USE_SNAPSHOTS_KEY = "USE_SNAPSHOTS";
 
 
 	public static synchronized ACEViewPreferences getInstance() {
@@ -200,6 +205,32 @@ public final class ACEViewPreferences {
 		prefs.putString(OWL_TO_ACE_KEY, owlToAce);
 	}
 
+	// ACE to OWL: number of concurrent calls to APE Socket or APE Webservice
+	public int getAceToOwlThreads() {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, ACE_TO_OWL_THREADS_KEY);
+		return prefs.getInt(ACE_TO_OWL_THREADS_KEY, 4);
+	}
+
+	public void setAceToOwlThreads(int threads) {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, ACE_TO_OWL_THREADS_KEY);
+		prefs.putInt(ACE_TO_OWL_THREADS_KEY, threads);
+	}
+
+	// OWL to ACE: number of concurrent calls to the verbalizer webservice
+	public int getOwlToAceThreads() {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, OWL_TO_ACE_THREADS_KEY);
+		return prefs.getInt(OWL_TO_ACE_THREADS_KEY, 4);
+	}
+
+	public void setOwlToAceThreads(int threads) {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, OWL_TO_ACE_THREADS_KEY);
+		prefs.putInt(OWL_TO_ACE_THREADS_KEY, threads);
+	}
+
 	public void setParaphrase1Enabled(boolean b) {
 		PreferencesManager prefMan = PreferencesManager.getInstance();
 		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, PARAPHRASE1_KEY);
@@ -293,4 +324,43 @@ public final class ACEViewPreferences {
 		return prefs.getString(USE_LEXICON_KEY, Boolean.toString(true)).equals(Boolean.toString(true));
 	}
 
-}
\ No newline at end of file
+	public void setUseVerbalizationCache(boolean b) {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_VERBALIZATION_CACHE_KEY);
+		prefs.putString(USE_VERBALIZATION_CACHE_KEY, Boolean.toString(b));
+	}
+
+	// Default: true
+	public boolean isUseVerbalizationCache() {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_VERBALIZATION_CACHE_KEY);
+		return prefs.getString(USE_VERBALIZATION_CACHE_KEY, Boolean.toString(true)).equals(Boolean.toString(true));
+	}
+
+	public void setUseParseCacheOnDisk(boolean b) {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_PARSE_CACHE_ON_DISK_KEY);
+		prefs.putString(USE_PARSE_CACHE_ON_DISK_KEY, Boolean.toString(b));
+	}
+
+	// Default: false
+	public boolean isUseParseCacheOnDisk() {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_PARSE_CACHE_ON_DISK_KEY);
+		return prefs.getString(USE_PARSE_CACHE_ON_DISK_KEY, Boolean.toString(false)).equals(Boolean.toString(true));
+	}
+
+	public void setUseSnapshots(boolean b) {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_SNAPSHOTS_KEY);
+		prefs.putString(USE_SNAPSHOTS_KEY, Boolean.toString(b));
+	}
+
+	// Default: true
+	public boolean isUseSnapshots() {
+		PreferencesManager prefMan = PreferencesManager.getInstance();
+		Preferences prefs = prefMan.getPreferencesForSet(PREFERENCES_SET_KEY, USE_SNAPSHOTS_KEY);
+		return prefs.getString(USE_SNAPSHOTS_KEY, Boolean.toString(true)).equals(Boolean.toString(true));
+	}
+
+}
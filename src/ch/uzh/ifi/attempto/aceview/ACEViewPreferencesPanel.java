@@ -62,6 +62,9 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 	private final JCheckBox checkboxUseMos = new JCheckBox();
 	private final JCheckBox checkboxUpdateAnswersOnClassify = new JCheckBox();
 	private final JCheckBox checkboxUseLexicon = new JCheckBox();
+	private final JCheckBox checkboxUseVerbalizationCache = new JCheckBox();
+	private final JCheckBox checkboxUseParseCacheOnDisk = new JCheckBox();
+	private final JCheckBox checkboxUseSnapshots = new JCheckBox();
 
 	private JTextField textfieldApe;
 
@@ -76,6 +79,10 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 
 	private JTextField tfApeSocket;
 
+	private JTextField tfAceToOwlThreads;
+
+	private JTextField tfOwlToAceThreads;
+
 
 	@Override
 	public void applyChanges() {
@@ -92,14 +99,23 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 		prefs.setAceToOwlSockets(getComboBoxItemsAsStrings(cbApeSocket));
 		prefs.setAceToOwlSocketHost(cbApeSocket.getSelectedItem().toString());
 		prefs.setAceToOwlSocketPort(Integer.parseInt(tfApeSocket.getText()));
+		prefs.setAceToOwlThreads(Integer.parseInt(tfAceToOwlThreads.getText()));
 
 		prefs.setParaphrase1Enabled(checkboxParaphrase1Enabled.isSelected());
 		prefs.setGuessingEnabled(checkboxParseWithUndefinedTokens.isSelected() && checkboxGuessingEnabled.isSelected());
 		prefs.setClexEnabled(checkboxParseWithUndefinedTokens.isSelected() && checkboxClexEnabled.isSelected());
+		if (prefs.isUseParseCacheOnDisk() != checkboxUseParseCacheOnDisk.isSelected()) {
+			prefs.setUseParseCacheOnDisk(checkboxUseParseCacheOnDisk.isSelected());
+			// The cache is reopened with the new setting when it is needed next time
+			ACETextManager.resetParseCache();
+		}
 
 		// OWL to ACE
 		prefs.setOwlToAceWebservices(getComboBoxItemsAsStrings(comboboxOwlToAce));
 		prefs.setOwlToAce(comboboxOwlToAce.getSelectedItem().toString());
+		prefs.setOwlToAceThreads(Integer.parseInt(tfOwlToAceThreads.getText()));
+		prefs.setUseVerbalizationCache(checkboxUseVerbalizationCache.isSelected());
+		prefs.setUseSnapshots(checkboxUseSnapshots.isSelected());
 
 		// OTHER
 		prefs.setParseWithUndefinedTokens(checkboxParseWithUndefinedTokens.isSelected());
@@ -127,6 +143,12 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 		comboboxOwlToAce.setSelectedItem(prefs.getOwlToAce());
 		comboboxOwlToAce.setEditable(true);
 
+		tfAceToOwlThreads = new JTextField("" + prefs.getAceToOwlThreads());
+		tfAceToOwlThreads.setToolTipText("Number of concurrent calls to APE Socket or APE Webservice. APE Local always handles one call at a time.");
+
+		tfOwlToAceThreads = new JTextField("" + prefs.getOwlToAceThreads());
+		tfOwlToAceThreads.setToolTipText("Number of concurrent calls to the OWL\u2192ACE service when loading an ontology.");
+
 		checkboxParaphrase1Enabled.setSelected(prefs.isParaphrase1Enabled());
 		checkboxParaphrase1Enabled.setToolTipText("Generate a Core ACE paraphrase for every snippet.");
 
@@ -151,6 +173,15 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 		checkboxUpdateAnswersOnClassify.setSelected(prefs.isUpdateAnswersOnClassify());
 		checkboxUpdateAnswersOnClassify.setToolTipText("Update answers automatically after each classification.");
 
+		checkboxUseVerbalizationCache.setSelected(prefs.isUseVerbalizationCache());
+		checkboxUseVerbalizationCache.setToolTipText("Store the verbalizations in a file in the user's home directory so that reopening an ontology does not call the OWL\u2192ACE service again.");
+
+		checkboxUseSnapshots.setSelected(prefs.isUseSnapshots());
+		checkboxUseSnapshots.setToolTipText("Store the ACE text and the lexicon of each ontology in a file in the user's home directory so that reopening an unchanged ontology does not rebuild them.");
+
+		checkboxUseParseCacheOnDisk.setSelected(prefs.isUseParseCacheOnDisk());
+		checkboxUseParseCacheOnDisk.setToolTipText("Store the parser results in a file in the user's home directory so that reopening an ontology does not call the ACE\u2192OWL/SWRL service again.");
+
 		checkboxUseLexicon.setSelected(prefs.isUseLexicon());
 		checkboxUseLexicon.setToolTipText("For each entity generate morphological annotations (e.g. plural forms) and use them when displaying the entity in ACE sentences.");
 
@@ -233,18 +264,37 @@ public class ACEViewPreferencesPanel extends OWLPreferencesPanel {
 		guessBox.add(checkboxGuessingEnabled);
 		guessBox.add(new JLabel("Guess unknown words"));
 
+		Box boxUseParseCacheOnDisk = new Box(BoxLayout.X_AXIS);
+		boxUseParseCacheOnDisk.add(checkboxUseParseCacheOnDisk);
+		boxUseParseCacheOnDisk.add(new JLabel("Cache the parser results on disk"));
+
 
 		JPanel panelAceToOwl = new JPanel(new VerticalLayout());
 		panelAceToOwl.setBorder(ComponentFactory.createTitledBorder("ACE\u2192OWL/SWRL service"));
 		panelAceToOwl.add(serviceSelectionPaneAceToOwl);
+		panelAceToOwl.add(new JLabel("Concurrent calls:"));
+		panelAceToOwl.add(tfAceToOwlThreads);
 		panelAceToOwl.add(clexBox);
 		panelAceToOwl.add(guessBox);
+		panelAceToOwl.add(boxUseParseCacheOnDisk);
 
 
 		// OWL->ACE configuration panel
-		JPanel panelOwlToAce = new JPanel(new GridLayout(1, 1));
+		Box boxUseVerbalizationCache = new Box(BoxLayout.X_AXIS);
+		boxUseVerbalizationCache.add(checkboxUseVerbalizationCache);
+		boxUseVerbalizationCache.add(new JLabel("Cache the verbalizations on disk"));
+
+		Box boxUseSnapshots = new Box(BoxLayout.X_AXIS);
+		boxUseSnapshots.add(checkboxUseSnapshots);
+		boxUseSnapshots.add(new JLabel("Restore the ACE text from a snapshot on disk"));
+
+		JPanel panelOwlToAce = new JPanel(new GridLayout(5, 1));
 		panelOwlToAce.setBorder(ComponentFactory.createTitledBorder("OWL\u2192ACE service"));
 		panelOwlToAce.add(comboboxOwlToAce);
+		panelOwlToAce.add(new JLabel("Concurrent calls:"));
+		panelOwlToAce.add(tfOwlToAceThreads);
+		panelOwlToAce.add(boxUseVerbalizationCache);
+		panelOwlToAce.add(boxUseSnapshots);
 
 
 		// Options configuration panel
@@ -16,10 +16,22 @@
 
 package ch.uzh.ifi.attempto.aceview;
 
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.swing.ProgressMonitor;
+
 import org.apache.log4j.Logger;
+import org.protege.editor.core.ProtegeApplication;
+import org.protege.editor.core.ui.progress.BackgroundTask;
 import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
@@ -49,12 +61,18 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.RemoveAxiom;
+import org.semanticweb.owlapi.model.SetOntologyID;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
 import ch.uzh.ifi.attempto.aceview.lexicon.LexiconUtils;
 import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.SurfaceFormIndex;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
 import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
@@ -73,22 +91,40 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 
 	private static final Logger logger = Logger.getLogger(ACEViewTab.class);
 
+	// Lists of ontology changes that are at least this long are processed in the bulk mode
+	private static final int BULK_MODE_THRESHOLD = 100;
+
+	// Loader of the ACE text of the ontology that is currently being loaded (or null)
+	private static volatile ACETextLoader currentLoader;
+
+	// Task that builds the ACE texts of the ontologies (or null)
+	private static InitTask currentInitTask;
+
+	// Task that applies large lists of ontology changes to the ACE texts (or null)
+	private static BulkTask currentBulkTask;
+
+	// Ontologies whose ACE text is incomplete (because its loading was cancelled)
+	// and must therefore not be stored in a snapshot
+	private static final Set<OWLOntologyID> incompleteTexts = Sets.newHashSet();
+
 	// Fired when ontologies are loaded/created and reasoner is run
 	private final OWLModelManagerListener modelManagerListener = new OWLModelManagerListener() {
 		public void handleChange(OWLModelManagerChangeEvent event) {
 			logger.info("OWLModelManagerChangeEvent: " + event.getType());
 			if (event.isType(org.protege.editor.owl.model.event.EventType.ACTIVE_ONTOLOGY_CHANGED)) {
 				ACETextManager.setActiveACETextID(getOWLModelManager().getActiveOntology().getOntologyID());
+				// The active ontology also changes if the active ontology is closed
+				ACETextManager.retainSurfaceFormIndexes(getOWLModelManager().getOntologies());
 			}
 			else if (event.isType(org.protege.editor.owl.model.event.EventType.ONTOLOGY_LOADED)) {
+				ACETextManager.retainSurfaceFormIndexes(getOWLModelManager().getOntologies());
 				// TODO: remove: ACETextManager.createACEText(getOWLModelManager().getActiveOntology().getOntologyID());
-				try {
-					initACEText();
-					// TODO: BUG: nothing is monitoring this event
-					//ACETextManager.fireEvent(EventType.ACETEXT_LOADED);
-				} catch (Exception e) {
-					logger.error(e.getMessage());
-				}
+				initACEText(ACEViewTab.this);
+				// TODO: BUG: nothing is monitoring this event
+				//ACETextManager.fireEvent(EventType.ACETEXT_LOADED);
+			}
+			else if (event.isType(org.protege.editor.owl.model.event.EventType.ONTOLOGY_SAVED)) {
+				writeSnapshots();
 			}
 			else if (event.isType(org.protege.editor.owl.model.event.EventType.ONTOLOGY_CLASSIFIED)) {
 				if (ACEViewPreferences.getInstance().isUpdateAnswersOnClassify()) {
@@ -167,15 +203,12 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 		acetextAnnProp = mm.getOWLDataFactory().getOWLAnnotationProperty(ACETextManager.acetextIRI);
 
 		ACETextManager.setOWLModelManager(mm);
+		ACETextManager.retainCaches();
 		//TODO: remove: ACETextManager.createACEText(mm.getActiveOntology().getOntologyID());
 		// Note: We start to listen before filling the ACE text, because
 		// we want to add entity annotations to the lexicon.
 		getOWLModelManager().addOntologyChangeListener(ontologyChangeListener);
-		try {
-			initACEText();
-		} catch (Exception e) {
-			logger.error(e.getMessage());
-		}
+		initACEText(this);
 		getOWLModelManager().getOWLEntityRenderer().addListener(entityRendererListener);
 		getOWLModelManager().addListener(modelManagerListener);
 	}
@@ -183,9 +216,21 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 
 	@Override
 	public void dispose() {
+		ACETextLoader loader = currentLoader;
+		if (loader != null) {
+			loader.cancel();
+		}
+		if (currentInitTask != null) {
+			currentInitTask.isCancelled = true;
+		}
+		if (currentBulkTask != null) {
+			currentBulkTask.cancel();
+		}
 		getOWLModelManager().removeOntologyChangeListener(ontologyChangeListener);
 		getOWLModelManager().removeListener(modelManagerListener);
 		getOWLModelManager().getOWLEntityRenderer().removeListener(entityRendererListener);
+		writeSnapshots();
+		ACETextManager.releaseCaches();
 		super.dispose();
 	}
 
@@ -195,25 +240,106 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 	 * when the ONTOLOGY_LOADED even is fired. In both cases the ACE text
 	 * must be generated that corresponds to the ontology.</p>
 	 * 
-	 * @throws OWLRendererException
-	 * @throws OWLOntologyCreationException
-	 * @throws OWLOntologyChangeException
+	 * <p>The ACE texts are built one ontology at a time, in time slices on the event dispatch
+	 * thread (see {@link ACETextLoader#loadInSlices(OWLOntology, Collection, ACEText, Runnable)}),
+	 * while a progress monitor shows the progress and allows to cancel the verbalization.
+	 * If this is called while the ACE texts are still being built then
+	 * it is called again once they have been built.</p>
+	 * 
+	 * @param parent Parent component of the progress monitor
 	 */
-	private static void initACEText() throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+	private static void initACEText(Component parent) {
+		if (currentInitTask != null) {
+			currentInitTask.isRepeatRequested = true;
+			return;
+		}
 		OWLModelManager mm = ACETextManager.getOWLModelManager();
-		OWLOntologyManager mngr = mm.getOWLOntologyManager();
-		OWLDataFactory df = mm.getOWLDataFactory();
-		ACEViewPreferences prefs = ACEViewPreferences.getInstance();
 		Set<OWLOntology> ontologies = mm.getOntologies();
 
 		logger.info("Init: ontology count: " + ontologies.size());
 
 		ACETextManager.setInitCompleted(false);
-		for (OWLOntology ont : ontologies) {
-			logger.info("Init: ontology:\n" + getOntologyInfo(ont));
-			initACETextFromOntology(mngr, df, prefs, ont);
+		currentInitTask = new InitTask(parent, ontologies);
+		currentInitTask.loadNext();
+	}
+
+
+	/**
+	 * <p>Builds the ACE texts of a set of ontologies.</p>
+	 */
+	private static final class InitTask {
+		private final Component parent;
+		private final Iterator<OWLOntology> iterator;
+		private final ProgressMonitor progressMonitor;
+		private final BackgroundTask backgroundTask;
+		private boolean isCancelled = false;
+		private boolean isRepeatRequested = false;
+
+		private InitTask(Component parent, Collection<OWLOntology> ontologies) {
+			this.parent = parent;
+			this.iterator = Lists.newArrayList(ontologies).iterator();
+			progressMonitor = new ProgressMonitor(parent, "Verbalizing the axioms", null, 0, 100);
+			backgroundTask = ProtegeApplication.getBackgroundTaskManager().startTask("building the ACE text");
+		}
+
+		/**
+		 * <p>Starts building the ACE text of the next ontology,
+		 * skipping the ontologies that fail.</p>
+		 */
+		private void loadNext() {
+			OWLModelManager mm = ACETextManager.getOWLModelManager();
+			while (iterator.hasNext()) {
+				OWLOntology ont = iterator.next();
+				logger.info("Init: ontology:\n" + getOntologyInfo(ont));
+				progressMonitor.setNote(ont.getOntologyID().toString());
+				try {
+					initACETextFromOntology(mm.getOWLOntologyManager(), mm.getOWLDataFactory(), ACEViewPreferences.getInstance(), ont, this);
+					return;
+				} catch (Exception e) {
+					logger.error(e.getMessage());
+				}
+			}
+			finish();
+		}
+
+		private void progressChanged(int done, int total) {
+			logger.info("Init: Added axioms: " + done + "/" + total);
+			if (progressMonitor.isCanceled()) {
+				isCancelled = true;
+			}
+			progressMonitor.setMaximum(total);
+			progressMonitor.setProgress(done);
+		}
+
+		private void loaded(OWLOntologyID id, ACETextLoader loader) {
+			synchronized (incompleteTexts) {
+				if (loader.isCancelled()) {
+					incompleteTexts.add(id);
+				}
+				else {
+					incompleteTexts.remove(id);
+				}
+			}
+			VerbalizationCache cache = ACETextManager.getVerbalizationCache();
+			if (cache != null) {
+				logger.info("Init: verbalization cache: " + cache.size() + " entries, " + cache.getHitCount() + " hits, " + cache.getMissCount() + " misses");
+				cache.flush();
+			}
+			loadNext();
+		}
+
+		private void finish() {
+			currentLoader = null;
+			currentInitTask = null;
+			progressMonitor.close();
+			ProtegeApplication.getBackgroundTaskManager().endTask(backgroundTask);
+			ACETextManager.setInitCompleted(true);
+			ACETextManager.fireEvent(TextEventType.ACETEXT_CHANGED);
+			ACETextManager.fireEvent(TextEventType.ACELEXICON_CHANGED);
+			if (isRepeatRequested) {
+				initACEText(parent);
+			}
 		}
-		ACETextManager.setInitCompleted(true);
 	}
 
 
@@ -222,21 +348,38 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 	 * 
 	 * Translate every OWL logical axiom into ACE snippet and add it to the ACE text.
 	 * If the logical axiom is already annotated with an ACE snippet then add the snippet instead.
+	 * The verbalization is started here but finished later, when the task is notified.
 	 * 
 	 * @param mngr
 	 * @param df
 	 * @param prefs
 	 * @param ont
+	 * @param task Task that is notified when the ACE text has been built
 	 * @throws OWLRendererException
 	 * @throws OWLOntologyCreationException
 	 * @throws OWLOntologyChangeException
 	 */
-	private static void initACETextFromOntology(OWLOntologyManager mngr, OWLDataFactory df, ACEViewPreferences prefs, OWLOntology ont) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+	private static void initACETextFromOntology(OWLOntologyManager mngr, OWLDataFactory df, ACEViewPreferences prefs, OWLOntology ont, final InitTask task) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
 
-		OWLOntologyID id = ont.getOntologyID();
+		final OWLOntologyID id = ont.getOntologyID();
 		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getACEText(id);
 		TokenMapper tokenMapper = ACETextManager.getACELexicon(id);
-		if (prefs.isUseLexicon()) {
+
+		// The snapshot must be validated before the lexicon is built,
+		// because building the lexicon can add annotations to the ontology.
+		ACETextSnapshot snapshot = readSnapshot(ont, prefs);
+
+		if (prefs.isUseLexicon() && snapshot != null) {
+			logger.info("Init: restoring the lexicon from the snapshot");
+			snapshot.restoreLexicon(tokenMapper);
+			// Entities that have been added after the snapshot was written
+			// do not have any morphological annotations yet.
+			Set<OWLEntity> entities = snapshot.getUncoveredEntities(ont.getSignature());
+			if (! entities.isEmpty()) {
+				addMorfAnnotations(mngr, df, ont, entities, tokenMapper);
+			}
+		}
+		else if (prefs.isUseLexicon()) {
 			Set<OWLEntity> entities = ont.getSignature();
 			addMorfAnnotations(mngr, df, ont, entities, tokenMapper);
 		}
@@ -253,13 +396,94 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 		}
 
 
-		AxiomVerbalizer axiomVerbalizer = new AxiomVerbalizer(prefs.getOwlToAce());
-		int axiomCount = ont.getLogicalAxiomCount();
-		int counter = 0;
-		for (OWLLogicalAxiom logicalAxiom : ont.getLogicalAxioms()) {
-			counter++;
-			logger.info("Init: Add axiom " + counter + "/" + axiomCount + " : " + logicalAxiom);
-			processAxiomOnLoad(ont, acetext, axiomVerbalizer, id, logicalAxiom);
+		// Build the surface form index before the bulk verbalization
+		ACETextManager.getSurfaceFormIndex(ont);
+
+		Collection<OWLLogicalAxiom> axioms = ont.getLogicalAxioms();
+		if (snapshot != null) {
+			Set<OWLLogicalAxiom> restoredAxioms = snapshot.restoreText(ont, acetext);
+			axioms = Sets.newLinkedHashSet(Sets.difference(ont.getLogicalAxioms(), restoredAxioms));
+		}
+
+		int axiomCount = axioms.size();
+		logger.info("Init: Add " + axiomCount + " axioms");
+		final ACETextLoader loader = new ACETextLoader(ACETextManager.createAxiomVerbalizer(), acetextAnnProp, prefs.getOwlToAceThreads());
+		loader.addProgressListener(new ACETextLoader.ProgressListener() {
+			public void progressChanged(int done, int total) {
+				task.progressChanged(done, total);
+				if (task.isCancelled) {
+					loader.cancel();
+				}
+			}
+		});
+		if (task.isCancelled) {
+			loader.cancel();
+		}
+		currentLoader = loader;
+		loader.loadInSlices(ont, axioms, acetext, new Runnable() {
+			public void run() {
+				task.loaded(id, loader);
+			}
+		});
+	}
+
+
+	/**
+	 * <p>Reads the snapshot of the ACE text of the given ontology, if snapshots are
+	 * switched on in the preferences and the snapshot matches the lexicon of the ontology
+	 * (see {@link ACETextSnapshot}).</p>
+	 * 
+	 * @return Snapshot or <code>null</code>
+	 */
+	private static ACETextSnapshot readSnapshot(OWLOntology ont, ACEViewPreferences prefs) {
+		if (! prefs.isUseSnapshots()) {
+			return null;
+		}
+		File file = ACETextManager.getSnapshotFile(ont);
+		try {
+			ACETextSnapshot snapshot = ACETextSnapshot.read(file);
+			if (snapshot == null) {
+				logger.info("Init: no snapshot: " + file);
+			}
+			else if (! snapshot.isLexiconValid(ont, prefs)) {
+				logger.info("Init: the lexicon has changed, not using the snapshot: " + file);
+				snapshot = null;
+			}
+			else if (snapshot.isTextValid(ont)) {
+				logger.info("Init: the snapshot is up to date: " + file);
+			}
+			else {
+				logger.info("Init: the axioms have changed, using the snapshot partially: " + file);
+			}
+			return snapshot;
+		} catch (IOException e) {
+			logger.error("Init: cannot read the snapshot: " + e.getMessage());
+		}
+		return null;
+	}
+
+
+	/**
+	 * <p>Writes the snapshots of the ACE texts of all the ontologies,
+	 * if snapshots are switched on in the preferences.</p>
+	 */
+	private static void writeSnapshots() {
+		if (! ACEViewPreferences.getInstance().isUseSnapshots() || ! ACETextManager.isInitCompleted()) {
+			return;
+		}
+		OWLModelManager mm = ACETextManager.getOWLModelManager();
+		for (OWLOntology ont : mm.getOntologies()) {
+			OWLOntologyID id = ont.getOntologyID();
+			synchronized (incompleteTexts) {
+				if (incompleteTexts.contains(id)) {
+					continue;
+				}
+			}
+			try {
+				ACETextSnapshot.write(ACETextManager.getSnapshotFile(ont), ont, ACETextManager.getACEText(id), ACETextManager.getACELexicon(id));
+			} catch (IOException e) {
+				logger.error("Cannot write the snapshot of " + id + ": " + e.getMessage());
+			}
 		}
 	}
 
@@ -301,12 +525,20 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 	 * e.g. updates the ACE text. Only axiom changes (additions, removals) are handled.
 	 * The respective axiom can be a logical or an annotation axiom.</p>
 	 * 
+	 * <p>A large list of changes (e.g. when an ontology is merged into another)
+	 * is processed in the bulk mode (see {@link #processChangesInBulk(OWLModelManager, List)}).
+	 * While the bulk mode is running, all the changes are processed in it.</p>
+	 * 
 	 * @param changes List of ontology changes
 	 */
 	private static void processChanges(OWLModelManager mngr, List<? extends OWLOntologyChange> changes) {
+		if (changes.size() >= BULK_MODE_THRESHOLD || currentBulkTask != null) {
+			processChangesInBulk(mngr, changes);
+			return;
+		}
+
 		OWLDataFactory df = mngr.getOWLDataFactory();
 		OWLOntologyManager ontologyManager = mngr.getOWLOntologyManager();
-		ACEViewPreferences prefs = ACEViewPreferences.getInstance();
 
 		// Counts axioms that cause the ACE text to change.
 		int textAxiomCounter = 0;
@@ -315,6 +547,11 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 
 		for (OWLOntologyChange change : changes) {
 
+			if (change instanceof SetOntologyID) {
+				ACETextManager.removeSurfaceFormIndex(((SetOntologyID) change).getOriginalOntologyID());
+				continue;
+			}
+
 			if (! change.isAxiomChange()) {
 				logger.warn("Not handling change: " + change.getClass());
 				continue;
@@ -324,7 +561,6 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 			OWLOntologyID oid = changeOnt.getOntologyID();
 			OWLAxiom axiom = change.getAxiom();
 			ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getACEText(oid);
-			TokenMapper acelexicon = ACETextManager.getACELexicon(oid);
 
 			if (axiom instanceof OWLLogicalAxiom) {
 
@@ -347,7 +583,7 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 					Set<OWLEntity> entities = ((OWLAxiomChange) change).getEntities();
 					logger.info("Add axiom: " + logicalAxiom + " (" + entities.size() + " entities)");
 					try {
-						AxiomVerbalizer axiomVerbalizer = new AxiomVerbalizer(prefs.getOwlToAce());
+						AxiomVerbalizer axiomVerbalizer = ACETextManager.createAxiomVerbalizer();
 						processAxiom(changeOnt, df, ontologyManager, acetext, axiomVerbalizer, oid, logicalAxiom);
 					} catch (Exception e) {
 						logger.error(e.getMessage());
@@ -363,132 +599,294 @@ public class ACEViewTab extends OWLWorkspaceViewsTab {
 					logger.warn("AxiomChange was neither addition nor removal: " + change.getClass());
 				}
 			}
-			else if (axiom instanceof OWLAnnotationAssertionAxiom) {
-				logger.info("Processing annotation: " + axiom);
-				OWLAnnotationAssertionAxiom annAx = (OWLAnnotationAssertionAxiom) axiom;
-				IRI annotationIRI = annAx.getProperty().getIRI();
+			else if (processLexiconChange(df, ontologyManager, change)) {
+				lexiconAxiomCounter++;
+			}
+		}
 
-				MorphType morphType = MorphType.getMorphType(annotationIRI);
+		if (textAxiomCounter > 0) {
+			ACETextManager.fireEvent(TextEventType.ACETEXT_CHANGED);
+		}
+		if (lexiconAxiomCounter > 0) {
+			ACETextManager.fireEvent(TextEventType.ACELEXICON_CHANGED);
+		}
+	}
 
-				if (morphType != null) {
-					OWLAnnotationSubject subject = annAx.getSubject();
 
-					if (subject instanceof IRI) {
-						String annValue = getAnnotationValueAsString(annAx.getValue());
+	/**
+	 * <p>Processes a large list of changes in a {@link BulkTask}. If such a task
+	 * is already running then the changes are queued in it, so that all the changes
+	 * are applied to the ACE text in their original order.
+	 * Must be called on the event dispatch thread.</p>
+	 * 
+	 * @param changes List of ontology changes
+	 */
+	private static void processChangesInBulk(OWLModelManager mngr, List<? extends OWLOntologyChange> changes) {
+		if (currentBulkTask == null) {
+			currentBulkTask = new BulkTask(mngr);
+			currentBulkTask.addChanges(changes);
+			currentBulkTask.advance();
+		}
+		else {
+			currentBulkTask.addChanges(changes);
+		}
+	}
 
-						if (annValue == null) {
-							// The annotation value is not a constant.
-							logger.error("Malformed ACE lexicon annotation ignored: " + annAx);
-						}
-						else {
-							lexiconAxiomCounter++;
-							if (change instanceof AddAxiom) {
-								acelexicon.addEntry(annValue, (IRI) subject, morphType);
-							}
-							else if (change instanceof RemoveAxiom) {
-								acelexicon.removeEntry(annValue, (IRI) subject, morphType);
-							}
-						}
-					}
-				}
+
+	/**
+	 * <p>Applies large lists of changes to the ACE texts without blocking the event
+	 * dispatch thread. For every list, first all the lexicon changes are applied,
+	 * so that the added axioms are verbalized with the final lexicon. Then the logical
+	 * axiom changes are grouped by ontology and applied in their original order, but
+	 * the consecutive additions are verbalized together by an {@link ACETextLoader}
+	 * (see {@link ACETextLoader#loadInSlices(OWLOntology, Collection, ACEText, Runnable)}),
+	 * i.e. in batches, in parallel and in time slices. A removal is applied
+	 * only once the preceding additions have been loaded. The removals collect the axioms
+	 * that have lost their snippets (see {@link ACEText#removeAxiom(Object)}), and these are
+	 * added back in the final run of the ontology. No snippet is selected and
+	 * the events are fired only once, when all the queued changes have been applied.</p>
+	 */
+	private static final class BulkTask {
+		private final OWLModelManager mngr;
+		private final Deque<List<? extends OWLOntologyChange>> pendingChanges = new ArrayDeque<List<? extends OWLOntologyChange>>();
+		private final Set<OWLOntologyID> touchedIDs = Sets.newHashSet();
+		private final BackgroundTask backgroundTask;
+		private final long start = System.currentTimeMillis();
+		private Iterator<Map.Entry<OWLOntology, List<OWLAxiomChange>>> ontIterator = Iterators.emptyIterator();
+		private OWLOntology ont;
+		private ACEText<OWLEntity, OWLLogicalAxiom> acetext;
+		private PeekingIterator<OWLAxiomChange> changeIterator;
+		private List<OWLLogicalAxiom> addedAxioms;
+		// Axioms that have lost their snippets, null if they have already been added back
+		private Set<OWLLogicalAxiom> tanglingAxioms;
+		private ACETextLoader loader;
+		private boolean isCancelled = false;
+		private int changeCounter = 0;
+		private int textAxiomCounter = 0;
+		private int lexiconAxiomCounter = 0;
+
+		private BulkTask(OWLModelManager mngr) {
+			this.mngr = mngr;
+			backgroundTask = ProtegeApplication.getBackgroundTaskManager().startTask("updating the ACE text");
+		}
+
+		private void addChanges(List<? extends OWLOntologyChange> changes) {
+			logger.info("Bulk mode: " + changes.size() + " changes");
+			pendingChanges.addLast(changes);
+		}
+
+		/**
+		 * <p>Stops the verbalization. The ACE texts that the task has changed
+		 * are marked as incomplete.</p>
+		 */
+		private void cancel() {
+			isCancelled = true;
+			if (loader != null) {
+				loader.cancel();
 			}
-			else if (axiom instanceof OWLDeclarationAxiom) {
-				OWLDeclarationAxiom declarationAxiom = (OWLDeclarationAxiom) axiom;
-				if (prefs.isUseLexicon()) {
+			synchronized (incompleteTexts) {
+				incompleteTexts.addAll(touchedIDs);
+			}
+		}
 
+		/**
+		 * <p>Applies the changes until the next batch of additions is to be loaded,
+		 * in which case the loading is started and this method is called again
+		 * once it has finished.</p>
+		 */
+		private void advance() {
+			while (! isCancelled) {
+				if (changeIterator == null) {
+					if (ontIterator.hasNext()) {
+						Map.Entry<OWLOntology, List<OWLAxiomChange>> entry = ontIterator.next();
+						ont = entry.getKey();
+						acetext = ACETextManager.getACEText(ont.getOntologyID());
+						changeIterator = Iterators.peekingIterator(entry.getValue().iterator());
+						addedAxioms = Lists.newArrayList();
+						tanglingAxioms = Sets.newLinkedHashSet();
+						touchedIDs.add(ont.getOntologyID());
+					}
+					else if (! pendingChanges.isEmpty()) {
+						ontIterator = splitChanges(pendingChanges.removeFirst()).entrySet().iterator();
+					}
+					else {
+						break;
+					}
+				}
+				else if (changeIterator.hasNext()) {
+					if (changeIterator.peek() instanceof RemoveAxiom && ! addedAxioms.isEmpty()) {
+						loadAddedAxioms();
+						return;
+					}
+					OWLAxiomChange change = changeIterator.next();
+					textAxiomCounter++;
+					OWLLogicalAxiom logicalAxiom = (OWLLogicalAxiom) change.getAxiom();
 					if (change instanceof AddAxiom) {
-						OWLEntity entity = declarationAxiom.getEntity();
-						logger.info("Add declaration axiom: " + entity);
-						Set<OWLAnnotationAssertionAxiom> morphAnnotations = MorphAnnotation.getAdditionalMorphAnnotations(df, changeOnt, entity);
-						logger.info("Triggered: add: " + morphAnnotations);
-						ACETextManager.addAxiomsToOntology(ontologyManager, changeOnt, morphAnnotations);
+						addedAxioms.add(logicalAxiom);
 					}
 					else if (change instanceof RemoveAxiom) {
-						// TODO: BUG: We probably do not need to do anything here
-						// as nothing changes for the ACE text and the lexicon is
-						// changed if respective morph. annotations are removed (which
-						// happens when an entity is undeclared).
-						logger.info("Del declaration axiom (not handling): " + declarationAxiom);
+						tanglingAxioms.addAll(acetext.removeAxiom(logicalAxiom));
+					}
+				}
+				else if (! addedAxioms.isEmpty()) {
+					loadAddedAxioms();
+					return;
+				}
+				else if (tanglingAxioms != null) {
+					// Some of the tangling axioms might have been removed by later changes
+					for (OWLLogicalAxiom axiom : tanglingAxioms) {
+						if (ont.containsAxiomIgnoreAnnotations(axiom) && ! acetext.containsAxiom(axiom)) {
+							addedAxioms.add(axiom);
+						}
 					}
+					tanglingAxioms = null;
+					logger.info("Bulk mode: adding back " + addedAxioms.size() + " axioms");
 				}
 				else {
-					updateLexicon(declarationAxiom.getEntity(), acelexicon, change);
+					changeIterator = null;
 				}
 			}
-			else {
-				// logger.warn("Not handling axiom change for " + axiom.getClass());
+			finish();
+		}
+
+		/**
+		 * <p>Applies the lexicon changes and groups the logical axiom changes by ontology.</p>
+		 */
+		private Map<OWLOntology, List<OWLAxiomChange>> splitChanges(List<? extends OWLOntologyChange> changes) {
+			OWLDataFactory df = mngr.getOWLDataFactory();
+			OWLOntologyManager ontologyManager = mngr.getOWLOntologyManager();
+			Map<OWLOntology, List<OWLAxiomChange>> ontToLogicalChanges = Maps.newLinkedHashMap();
+			changeCounter += changes.size();
+
+			for (OWLOntologyChange change : changes) {
+				if (change instanceof SetOntologyID) {
+					ACETextManager.removeSurfaceFormIndex(((SetOntologyID) change).getOriginalOntologyID());
+					continue;
+				}
+				if (! change.isAxiomChange()) {
+					continue;
+				}
+				if (change.getAxiom() instanceof OWLLogicalAxiom) {
+					if (change instanceof AddAxiomByACEView || change instanceof RemoveAxiomByACEView) {
+						continue;
+					}
+					List<OWLAxiomChange> logicalChanges = ontToLogicalChanges.get(change.getOntology());
+					if (logicalChanges == null) {
+						logicalChanges = Lists.newArrayList();
+						ontToLogicalChanges.put(change.getOntology(), logicalChanges);
+					}
+					logicalChanges.add((OWLAxiomChange) change);
+				}
+				else if (processLexiconChange(df, ontologyManager, change)) {
+					lexiconAxiomCounter++;
+				}
 			}
+			return ontToLogicalChanges;
 		}
 
-		if (textAxiomCounter > 0) {
-			ACETextManager.fireEvent(TextEventType.ACETEXT_CHANGED);
+		private void loadAddedAxioms() {
+			List<OWLLogicalAxiom> axioms = addedAxioms;
+			addedAxioms = Lists.newArrayList();
+			loader = new ACETextLoader(ACETextManager.createAxiomVerbalizer(), acetextAnnProp, ACEViewPreferences.getInstance().getOwlToAceThreads());
+			loader.loadInSlices(ont, axioms, acetext, new Runnable() {
+				public void run() {
+					loader = null;
+					advance();
+				}
+			});
 		}
-		if (lexiconAxiomCounter > 0) {
-			ACETextManager.fireEvent(TextEventType.ACELEXICON_CHANGED);
+
+		private void finish() {
+			currentBulkTask = null;
+			ProtegeApplication.getBackgroundTaskManager().endTask(backgroundTask);
+			logger.info("Bulk mode: processed " + changeCounter + " changes in " + (System.currentTimeMillis() - start) + " ms" + (isCancelled ? " (cancelled)" : ""));
+
+			if (textAxiomCounter > 0) {
+				ACETextManager.fireEvent(TextEventType.ACETEXT_CHANGED);
+			}
+			if (lexiconAxiomCounter > 0) {
+				ACETextManager.fireEvent(TextEventType.ACELEXICON_CHANGED);
+			}
 		}
 	}
 
 
-
 	/**
-	 * <p>Processes a logical axiom that has been added by Protege when loading an ontology.
-	 * The input axiom undergoes the following processing.</p>
+	 * <p>Processes a change of a non-logical axiom, i.e. of a morphological annotation
+	 * or of a declaration, which can change the ACE lexicon.</p>
 	 * 
-	 * <ol>
-	 *  <li>Does it contain any ACE annotations (i.e. has this axiom been already ACEified)?
-	 *  <ol>
-	 *   <li>If yes then convert the annotations (there can be more than one)
-	 *   into ACE snippets and add the snippets to the ACE text</li>
-	 *   <li>If not then
-	 *   <ol>
-	 *    <li>verbalize the axiom</li>
-	 *    <li>create a snippet based on the verbalization</li>
-	 *   </ol>
-	 *   </li>
-	 *  </ol>
-	 * </li>
-	 * </ul>
-	 * 
-	 * @param ont
-	 * @param df
-	 * @param ontologyManager
-	 * @param acetext
-	 * @param axiomVerbalizer
-	 * @param ns
-	 * @param logicalAxiom
-	 * @param existingAnnotations
-	 * @throws OWLRendererException
-	 * @throws OWLOntologyCreationException
-	 * @throws OWLOntologyChangeException
+	 * @return <code>true</code> if the change was applied to the lexicon
 	 */
-	private static void processAxiomOnLoad(OWLOntology ont, ACEText acetext, AxiomVerbalizer axiomVerbalizer, OWLOntologyID ns, OWLLogicalAxiom logicalAxiom) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+	private static boolean processLexiconChange(OWLDataFactory df, OWLOntologyManager ontologyManager, OWLOntologyChange change) {
+		OWLOntology changeOnt = change.getOntology();
+		OWLAxiom axiom = change.getAxiom();
+		TokenMapper acelexicon = ACETextManager.getACELexicon(changeOnt.getOntologyID());
 
-		ACESnippet newSnippet = null;
+		if (axiom instanceof OWLAnnotationAssertionAxiom) {
+			logger.info("Processing annotation: " + axiom);
+			OWLAnnotationAssertionAxiom annAx = (OWLAnnotationAssertionAxiom) axiom;
+			IRI annotationIRI = annAx.getProperty().getIRI();
 
-		for (OWLAnnotation annotation : logicalAxiom.getAnnotations(acetextAnnProp)) {
-			String aceAnnotationValue = getAnnotationValueAsString(annotation.getValue());
-			if (aceAnnotationValue == null) {
-				logger.error("Malformed ACE annotation ignored: " + annotation);
-			}
-			else {
-				logger.info("ACE annotation: " + aceAnnotationValue);
-				newSnippet = new ACESnippetImpl(ns, aceAnnotationValue, logicalAxiom);
-				acetext.add(newSnippet);
+			MorphType morphType = MorphType.getMorphType(annotationIRI);
+
+			if (morphType != null) {
+				OWLAnnotationSubject subject = annAx.getSubject();
+
+				if (subject instanceof IRI) {
+					String annValue = getAnnotationValueAsString(annAx.getValue());
+
+					if (annValue == null) {
+						// The annotation value is not a constant.
+						logger.error("Malformed ACE lexicon annotation ignored: " + annAx);
+					}
+					else {
+						// The cached verbalizations that use the old surface forms are stale
+						ACETextManager.invalidateVerbalizations((IRI) subject);
+						SurfaceFormIndex surfaceForms = ACETextManager.getSurfaceFormIndex(changeOnt);
+						if (change instanceof AddAxiom) {
+							acelexicon.addEntry(annValue, (IRI) subject, morphType);
+							surfaceForms.add((IRI) subject, morphType, annValue);
+						}
+						else if (change instanceof RemoveAxiom) {
+							acelexicon.removeEntry(annValue, (IRI) subject, morphType);
+							surfaceForms.remove((IRI) subject, morphType, annValue);
+						}
+						return true;
+					}
+				}
 			}
 		}
-
-		if (newSnippet == null) {
-			newSnippet = axiomVerbalizer.verbalizeAxiom(logicalAxiom, ont);
-			if (newSnippet == null) {
-				logger.warn("AxiomVerbalizer produced a null-snippet for: " + logicalAxiom);
+		else if (axiom instanceof OWLDeclarationAxiom) {
+			OWLDeclarationAxiom declarationAxiom = (OWLDeclarationAxiom) axiom;
+			if (ACEViewPreferences.getInstance().isUseLexicon()) {
+
+				if (change instanceof AddAxiom) {
+					OWLEntity entity = declarationAxiom.getEntity();
+					logger.info("Add declaration axiom: " + entity);
+					Set<OWLAnnotationAssertionAxiom> morphAnnotations = MorphAnnotation.getAdditionalMorphAnnotations(df, changeOnt, entity);
+					logger.info("Triggered: add: " + morphAnnotations);
+					ACETextManager.addAxiomsToOntology(ontologyManager, changeOnt, morphAnnotations);
+				}
+				else if (change instanceof RemoveAxiom) {
+					// TODO: BUG: We probably do not need to do anything here
+					// as nothing changes for the ACE text and the lexicon is
+					// changed if respective morph. annotations are removed (which
+					// happens when an entity is undeclared).
+					logger.info("Del declaration axiom (not handling): " + declarationAxiom);
+				}
 			}
 			else {
-				acetext.add(newSnippet);
+				updateLexicon(declarationAxiom.getEntity(), acelexicon, change);
 			}
 		}
+		else {
+			// logger.warn("Not handling axiom change for " + axiom.getClass());
+		}
+		return false;
 	}
 
 
+
 	/**
 	 * <p>Processes a logical axiom that has been added by Protege, either
 	 * via the GUI or when loading an ontology.
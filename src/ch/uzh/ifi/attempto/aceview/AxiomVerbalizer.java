@@ -17,8 +17,11 @@
 package ch.uzh.ifi.attempto.aceview;
 
 import java.io.StringWriter;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.swing.JOptionPane;
 
@@ -27,50 +30,72 @@ import org.coode.owlapi.owlxml.renderer.OWLXMLRenderer;
 import org.semanticweb.owlapi.io.OWLRendererException;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLAnnotationValue;
 import org.semanticweb.owlapi.model.OWLAxiom;
-import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLClassExpression;
-import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
-import org.semanticweb.owlapi.model.OWLDatatype;
-import org.semanticweb.owlapi.model.OWLDisjointClassesAxiom;
 import org.semanticweb.owlapi.model.OWLEntity;
-import org.semanticweb.owlapi.model.OWLIndividual;
 import org.semanticweb.owlapi.model.OWLLiteral;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
-import org.semanticweb.owlapi.model.OWLNamedIndividual;
-import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChangeException;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
-import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 
+import com.google.common.base.Function;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
-import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
-import ch.uzh.ifi.attempto.aceview.lexicon.FieldType;
-import ch.uzh.ifi.attempto.aceview.lexicon.LexiconUtils;
+import ch.uzh.ifi.attempto.ace.ACESentence;
+import ch.uzh.ifi.attempto.ace.ACESplitter;
+import ch.uzh.ifi.attempto.ace.ACEToken;
 import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
 import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
-import ch.uzh.ifi.attempto.ape.ACEUtils;
 import ch.uzh.ifi.attempto.owl.VerbalizerWebservice;
 
 public class AxiomVerbalizer {
 
 	private static final Logger logger = Logger.getLogger(AxiomVerbalizer.class);
+
+	/**
+	 * <p>Maximal number of axioms that are verbalized with a single call
+	 * to the verbalizer webservice.</p>
+	 */
+	public static final int BATCH_SIZE = 200;
+
+	// The verbalizer separates the verbalizations of the axioms by empty lines
+	private static final Pattern paragraphSeparator = Pattern.compile("\\n\\s*\\n");
+
+	private static final Function<OWLEntity, String> RENDERER = new Function<OWLEntity, String>() {
+		public String apply(OWLEntity entity) {
+			return ACETextManager.getRendering(entity);
+		}
+	};
+
 	private final VerbalizerWebservice verbalizerWS;
+	private final String verbalizerWSURL;
+	private final VerbalizationCache cache;
+	private final LocalAxiomVerbalizer localVerbalizer = new LocalAxiomVerbalizer(RENDERER);
 
 	public AxiomVerbalizer(String verbalizerWSURL) {
+		this(verbalizerWSURL, null);
+	}
+
+	/**
+	 * @param verbalizerWSURL URL of the verbalizer webservice
+	 * @param cache Cache of the webservice verbalizations or <code>null</code>
+	 */
+	public AxiomVerbalizer(String verbalizerWSURL, VerbalizationCache cache) {
 		this.verbalizerWS = new VerbalizerWebservice(verbalizerWSURL);
+		this.verbalizerWSURL = verbalizerWSURL;
+		this.cache = cache;
 	}
 
 	public AxiomVerbalizer(VerbalizerWebservice verbalizerWS) {
 		this.verbalizerWS = verbalizerWS;
+		this.verbalizerWSURL = null;
+		this.cache = null;
 	}
 
 
@@ -91,6 +116,113 @@ public class AxiomVerbalizer {
 
 		OWLLogicalAxiom axiomWithoutAnnotations = (OWLLogicalAxiom) axiom.getAxiomWithoutAnnotations();
 
+		ACESnippet snippet = verbalizeAxiomLocally(axiomWithoutAnnotations, ont);
+		if (snippet != null) {
+			return snippet;
+		}
+
+		// If the axiom was not simple, then we verbalize it using the
+		// OWL verbalizer webservice. We first remove the axiom annotation
+		// from the axiom because the verbalizer does not need it
+		// (and currently fails to ignore it as well).
+		Set<OWLAxiom> input = getVerbalizationInput(axiomWithoutAnnotations, ont);
+		String verbalization = getCachedVerbalization(axiomWithoutAnnotations, input);
+		if (verbalization != null) {
+			return makeSnippet(iri, axiomWithoutAnnotations, verbalization);
+		}
+
+		logger.info("Using OWL Verbalizer WS to verbalize: " + axiomWithoutAnnotations);
+		try {
+			verbalization = verbalizeWithWS(input);
+			cacheVerbalization(axiomWithoutAnnotations, input, verbalization);
+		}
+		catch (Exception e) {
+			JOptionPane.showMessageDialog(null, "OWL verbalizer error:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+		}
+
+		return makeSnippet(iri, axiomWithoutAnnotations, verbalization);
+	}
+
+
+	/**
+	 * <p>Verbalizes a list of logical OWL axioms and constructs
+	 * a new ACE snippet for each of them. Axioms that are not verbalized locally
+	 * are sent to the verbalizer webservice in batches of at most {@link #BATCH_SIZE} axioms,
+	 * i.e. the number of webservice calls is much smaller than with
+	 * {@link #verbalizeAxiom(OWLLogicalAxiom, OWLOntology)}. The verbalization cache
+	 * is consulted before the axioms are put into batches.</p>
+	 * 
+	 * @param axioms OWL logical axioms to be verbalized
+	 * @param ont Ontology that annotates the entities of the given axioms
+	 * @return ACE snippets in the order of the given axioms
+	 */
+	public List<ACESnippet> verbalizeAxioms(List<OWLLogicalAxiom> axioms, OWLOntology ont) {
+		OWLOntologyID iri = ont.getOntologyID();
+		List<ACESnippet> snippets = Lists.newArrayList();
+		Map<OWLLogicalAxiom, Integer> remoteAxioms = Maps.newHashMap();
+		List<VerbalizationBatch> batches = Lists.newArrayList();
+		VerbalizationBatch batch = new VerbalizationBatch(BATCH_SIZE);
+
+		for (OWLLogicalAxiom axiom : axioms) {
+			OWLLogicalAxiom axiomWithoutAnnotations = (OWLLogicalAxiom) axiom.getAxiomWithoutAnnotations();
+			ACESnippet snippet = verbalizeAxiomLocally(axiomWithoutAnnotations, ont);
+			if (snippet == null) {
+				String verbalization = getCachedVerbalization(axiomWithoutAnnotations, getVerbalizationInput(axiomWithoutAnnotations, ont));
+				if (verbalization != null) {
+					snippet = makeSnippet(iri, axiomWithoutAnnotations, verbalization);
+				}
+			}
+			if (snippet == null && ! remoteAxioms.containsKey(axiomWithoutAnnotations)) {
+				if (! batch.add(axiomWithoutAnnotations, ont)) {
+					batches.add(batch);
+					batch = new VerbalizationBatch(BATCH_SIZE);
+					batch.add(axiomWithoutAnnotations, ont);
+				}
+				remoteAxioms.put(axiomWithoutAnnotations, snippets.size());
+			}
+			snippets.add(snippet);
+		}
+		if (! batch.isEmpty()) {
+			batches.add(batch);
+		}
+
+		for (VerbalizationBatch b : batches) {
+			logger.info("Using OWL Verbalizer WS to verbalize " + b.size() + " axioms");
+			List<String> verbalizations = b.verbalize(this);
+			for (int i = 0; i < b.size(); i++) {
+				OWLLogicalAxiom axiom = b.getAxioms().get(i);
+				snippets.set(remoteAxioms.get(axiom), makeSnippet(iri, axiom, verbalizations.get(i)));
+			}
+		}
+
+		// Duplicate axioms share the snippet of their first occurrence
+		for (int i = 0; i < snippets.size(); i++) {
+			if (snippets.get(i) == null) {
+				OWLLogicalAxiom axiomWithoutAnnotations = (OWLLogicalAxiom) axioms.get(i).getAxiomWithoutAnnotations();
+				snippets.set(i, snippets.get(remoteAxioms.get(axiomWithoutAnnotations)));
+			}
+		}
+		return snippets;
+	}
+
+
+	/**
+	 * <p>Verbalizes the given annotation-free axiom without calling the verbalizer
+	 * webservice, i.e. either the axiom is structurally simple and is verbalized
+	 * directly in Java, or its verbalization is not supported and the Protege
+	 * rendering is used instead. Returns <code>null</code> if the axiom must be
+	 * verbalized by the webservice.</p>
+	 * 
+	 * <p>This method uses the Protege renderer and must therefore be called
+	 * from the thread that owns the model manager.</p>
+	 * 
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param ont Ontology that annotates the entities of the given axiom
+	 * @return ACE snippet or <code>null</code>
+	 */
+	ACESnippet verbalizeAxiomLocally(OWLLogicalAxiom axiomWithoutAnnotations, OWLOntology ont) {
+		OWLOntologyID iri = ont.getOntologyID();
+
 		// TODO: Currently the verbalization of certain axioms is not supported.
 		// We just return the Protege rendering.
 		// Checking for unsupported axioms here increases processing speed.
@@ -98,36 +230,42 @@ public class AxiomVerbalizer {
 			return new ACESnippetImpl(iri, "", axiomWithoutAnnotations, getAlternativeRendering(axiomWithoutAnnotations));
 		}
 
-
-		// BUG: this is a bit of a hack for performance reasons.
 		// We verbalize simple axioms without having to use
 		// the verbalizer webservice. It seems that about 50% of
 		// the axioms in real-world ontologies are simple SubClassOf-axioms,
 		// so it really pays off performancewise to verbalize them directly in Java.
-		String verbalization = verbalizeSimpleAxiom(axiomWithoutAnnotations, ont);
+		String verbalization = localVerbalizer.verbalize(axiomWithoutAnnotations, ACETextManager.getSurfaceFormIndex(ont));
 
 		if (verbalization != null) {
 			logger.info("Simple axiom verbalized: " + verbalization);
 			return new ACESnippetImpl(iri, verbalization, axiomWithoutAnnotations);
 		}
+		return null;
+	}
 
-		// If the axiom was not simple, then we verbalize it using the
-		// OWL verbalizer webservice. We first remove the axiom annotation
-		// from the axiom because the verbalizer does not need it
-		// (and currently fails to ignore it as well).
-		logger.info("Using OWL Verbalizer WS to verbalize: " + axiomWithoutAnnotations);
 
-		try {
-			verbalization = verbalizeWithWS(ont, axiomWithoutAnnotations);
-		}
-		catch (Exception e) {
-			JOptionPane.showMessageDialog(null, "OWL verbalizer error:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-		}
+	/**
+	 * @return Report of the axioms (by type) that have been verbalized without the webservice
+	 */
+	public String getLocalCoverageReport() {
+		return localVerbalizer.getCoverageReport();
+	}
+
 
+	/**
+	 * <p>Constructs the snippet for an axiom that was sent to the verbalizer
+	 * webservice. If the verbalization is missing then the Protege rendering
+	 * is used as the alternative rendering of an empty snippet.</p>
+	 * 
+	 * @param iri Default namespace of the snippet
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param verbalization Verbalization of the axiom or <code>null</code>
+	 * @return ACE snippet
+	 */
+	ACESnippet makeSnippet(OWLOntologyID iri, OWLLogicalAxiom axiomWithoutAnnotations, String verbalization) {
 		if (verbalization == null) {
 			return new ACESnippetImpl(iri, "", axiomWithoutAnnotations, getAlternativeRendering(axiomWithoutAnnotations));
 		}
-
 		return new ACESnippetImpl(iri, verbalization, axiomWithoutAnnotations);
 	}
 
@@ -160,218 +298,201 @@ public class AxiomVerbalizer {
 	}
 
 	/**
-	 * <p>Verbalizes the OWL axiom using the Verbalizer webservice.</p>
+	 * <p>Collects the axioms that are sent to the verbalizer webservice
+	 * in order to verbalize the given axiom, i.e. the axiom itself and
+	 * the annotation assertion axioms of the entities in its signature.</p>
 	 * 
-	 * @param ontologyID URI
 	 * @param axiom OWL axiom
-	 * @return Verbalization of the given axiom
-	 * @throws OWLRendererException 
-	 * @throws OWLOntologyChangeException 
-	 * @throws OWLOntologyCreationException 
+	 * @param ont Ontology that annotates the entities of the given axiom
+	 * @return Set of axioms to be verbalized
 	 */
-	private String verbalizeWithWS(OWLOntology ont, OWLLogicalAxiom axiom) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+	static Set<OWLAxiom> getVerbalizationInput(OWLLogicalAxiom axiom, OWLOntology ont) {
 		Set<OWLAxiom> allAxioms = Sets.newHashSet((OWLAxiom) axiom);
 
 		for (OWLEntity entity : axiom.getSignature()) {
 			allAxioms.addAll(entity.getAnnotationAssertionAxioms(ont));
 		}
-
-		OWLOntologyManager ontologyManager = ACETextManager.createOWLOntologyManager();
-		// TODO: think: it would also be possible to set the IRI, but
-		// I guess naming the ontology is not necessary if one just wants to verbalize it.
-		OWLOntology ontology = ontologyManager.createOntology(allAxioms);
-		return verbalizeOntology(ontologyManager, ontology);
+		return allAxioms;
 	}
 
 
 	/**
-	 * <p>Verbalizes an <code>OWLLogicalAxiom</code> given that it is
-	 * a structurally simple axiom,
-	 * specifically of one of the following axiom types</p>
-	 * <ul>
-	 * <li>SubClassOf with named classes</li>,
-	 * <li>ClassAssertion with a named class and named individual</li>,
-	 * <li>ObjectPropertyAssertion with named individuals and a named object property</li>
-	 * <li>OWLDisjointClasses with exactly two named classes</li>
-	 * </ul>
+	 * <p>Looks up the verbalization of the given axiom in the verbalization cache.</p>
 	 * 
-	 * <p>Otherwise returns <code>null</code>.</p>
-	 * 
-	 * <p>The surface forms are decided by the annotation axioms in the ontology.</p>
-	 * 
-	 * @param ax an instance of <code>OWLLogicalAxiom</code> to be verbalized
-	 * @return sentence corresponding to the axiom or <code>null</code>
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param input Verbalizer input of the axiom (see {@link #getVerbalizationInput(OWLLogicalAxiom, OWLOntology)})
+	 * @return Cached verbalization or <code>null</code> if there is none (or no cache)
 	 */
-	private static String verbalizeSimpleAxiom(OWLLogicalAxiom ax, OWLOntology ont) {
-		if (ax instanceof OWLSubClassOfAxiom) {
-			OWLSubClassOfAxiom subClassAxiom = (OWLSubClassOfAxiom) ax;
-			OWLClassExpression subClass = subClassAxiom.getSubClass();
-			OWLClassExpression superClass = subClassAxiom.getSuperClass();
-			// There is a higher chance that superClass.isAnonymous(), that is why we test it first.
-			if (isAnonymousOrNothing(superClass)) {
-				return null;
-			}
-			if (isAnonymousOrNothing(subClass)) {
-				return null;
-			}
-
-			return getSimpleClassRelationVerbalization((OWLClass) subClass, (OWLClass) superClass, "Every", ont);
+	String getCachedVerbalization(OWLLogicalAxiom axiomWithoutAnnotations, Set<OWLAxiom> input) {
+		if (cache == null) {
+			return null;
 		}
-		else if (ax instanceof OWLClassAssertionAxiom) {
-			OWLClassAssertionAxiom classAssertionAxiom = (OWLClassAssertionAxiom) ax;
-			OWLClassExpression desc = classAssertionAxiom.getClassExpression();
-			OWLIndividual ind = classAssertionAxiom.getIndividual();
-
-			if (isAnonymousOrNothing(desc) || isAnonymous(ind)) {
-				return null;
-			}
-
-			OWLNamedIndividual namedIndividual = ind.asOWLNamedIndividual();
+		return cache.get(VerbalizationCache.getFingerprint(verbalizerWSURL, axiomWithoutAnnotations, input));
+	}
 
-			if (desc.isOWLThing()) {
-				return getSg(namedIndividual, ont) + " is something.";
-			}
 
-			String descAsString = getSg((OWLClass) desc, ont);
-			return getSg(namedIndividual, ont) + " is " + getIndefiniteArticle(descAsString) + " " + descAsString + ".";
+	/**
+	 * <p>Stores the webservice verbalization of the given axiom in the verbalization cache.
+	 * This method can be called concurrently from several threads.</p>
+	 * 
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param input Verbalizer input of the axiom (see {@link #getVerbalizationInput(OWLLogicalAxiom, OWLOntology)})
+	 * @param verbalization Verbalization of the axiom or <code>null</code>
+	 */
+	void cacheVerbalization(OWLLogicalAxiom axiomWithoutAnnotations, Set<OWLAxiom> input, String verbalization) {
+		if (cache != null && verbalization != null) {
+			cache.put(VerbalizationCache.getFingerprint(verbalizerWSURL, axiomWithoutAnnotations, input), axiomWithoutAnnotations, verbalization);
 		}
-		else if (ax instanceof OWLObjectPropertyAssertionAxiom) {
-			OWLObjectPropertyAssertionAxiom opAssertionAxiom = (OWLObjectPropertyAssertionAxiom) ax;
-			OWLObjectPropertyExpression opExpression = opAssertionAxiom.getProperty();
-			OWLIndividual subject = opAssertionAxiom.getSubject();
-			OWLIndividual object = opAssertionAxiom.getObject();
-
-			if (opExpression.isAnonymous() || isAnonymous(subject) || isAnonymous(object)) {
-				return null;
-			}
+	}
 
-			return getSg(subject.asOWLNamedIndividual(), ont) + " " + getSg(opExpression.asOWLObjectProperty(), ont) + " " + getSg(object.asOWLNamedIndividual(), ont) + ".";
-		}
-		else if (ax instanceof OWLDataPropertyAssertionAxiom) {
-			OWLDataPropertyAssertionAxiom dpAssertionAxiom = (OWLDataPropertyAssertionAxiom) ax;
 
-			OWLDataPropertyExpression dpExpression = dpAssertionAxiom.getProperty();
-			if (dpExpression.isAnonymous()) return null;
+	/**
+	 * <p>Verbalizes the given axioms using the Verbalizer webservice.
+	 * The axioms are put into a fresh ontology which does not share
+	 * its manager with any other ontology, i.e. this method can be called
+	 * concurrently from several threads.</p>
+	 * 
+	 * @param allAxioms OWL axioms (see {@link #getVerbalizationInput(OWLLogicalAxiom, OWLOntology)})
+	 * @return Verbalization of the given axioms
+	 * @throws OWLRendererException 
+	 * @throws OWLOntologyChangeException 
+	 * @throws OWLOntologyCreationException 
+	 */
+	String verbalizeWithWS(Set<OWLAxiom> allAxioms) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+		OWLOntologyManager ontologyManager = ACETextManager.createOWLOntologyManager();
+		// TODO: think: it would also be possible to set the IRI, but
+		// I guess naming the ontology is not necessary if one just wants to verbalize it.
+		OWLOntology ontology = ontologyManager.createOntology(allAxioms);
+		return verbalizeOntology(ontologyManager, ontology);
+	}
 
-			OWLIndividual subject = dpAssertionAxiom.getSubject();
-			if (isAnonymous(subject)) return null;
 
-			OWLLiteral literal = dpAssertionAxiom.getObject();
-			OWLDatatype datatype = literal.getDatatype();
-			String datavalue = "";
-			if (datatype.isString()) {
-				datavalue = "\"" + literal.getLiteral() + "\"";
-			}
-			else {
-				// BUG: we accept all types of data here (although ACE only supports numbers and strings)
-				datavalue = literal.getLiteral();
-			}
+	/**
+	 * <p>Verbalizes several annotation-free axioms with a single call to the Verbalizer webservice
+	 * and splits the resulting ACE text into the verbalizations of the individual axioms.
+	 * The OWL/XML renderer writes the axioms in their natural order, and the verbalizer
+	 * verbalizes them in the order of the input, separating the verbalizations by empty lines.
+	 * The assignment of the verbalizations to the axioms is checked by requiring that each
+	 * verbalization mentions every entity of the signature of its axiom.
+	 * If the number of verbalizations does not match the number of axioms, or if the check fails,
+	 * then <code>null</code> is returned.</p>
+	 * 
+	 * @param axioms OWL logical axioms without annotations (with pairwise different signatures)
+	 * @param annotationAxioms Annotation assertion axioms of the entities of the given axioms
+	 * @return Verbalizations in the order of the given axioms or <code>null</code>
+	 * @throws OWLRendererException 
+	 * @throws OWLOntologyChangeException 
+	 * @throws OWLOntologyCreationException 
+	 */
+	List<String> verbalizeBatchWithWS(List<OWLLogicalAxiom> axioms, Set<OWLAnnotationAssertionAxiom> annotationAxioms) throws OWLRendererException, OWLOntologyCreationException, OWLOntologyChangeException {
+		Set<OWLAxiom> allAxioms = Sets.newHashSet();
+		allAxioms.addAll(annotationAxioms);
+		allAxioms.addAll(axioms);
+		String verbalization = verbalizeWithWS(allAxioms);
+		if (axioms.size() == 1) {
+			return Lists.newArrayList(verbalization);
+		}
 
-			String dpAsString = ACETextManager.getRendering(dpExpression.asOWLDataProperty());
-			// John's temperature is 36.
-			return getSg(subject.asOWLNamedIndividual(), ont) + "'s " + dpAsString + " is " + datavalue + ".";
+		List<String> paragraphs = splitVerbalization(verbalization);
+		if (paragraphs.size() != axioms.size()) {
+			logger.warn("Verbalizer returned " + paragraphs.size() + " verbalizations for " + axioms.size() + " axioms");
+			return null;
 		}
-		else if (ax instanceof OWLDisjointClassesAxiom) {
-			OWLDisjointClassesAxiom disjointClassesAxiom = (OWLDisjointClassesAxiom) ax;
-			Set<OWLClassExpression> descriptions = disjointClassesAxiom.getClassExpressions();
 
-			if (descriptions.size() != 2) {
-				return null;
+		Multimap<IRI, String> surfaceForms = HashMultimap.create();
+		for (OWLAnnotationAssertionAxiom ax : annotationAxioms) {
+			if (ax.getSubject() instanceof IRI && MorphType.isMorphTypeIRI(ax.getProperty().getIRI()) && ax.getValue() instanceof OWLLiteral) {
+				surfaceForms.put((IRI) ax.getSubject(), ((OWLLiteral) ax.getValue()).getLiteral());
 			}
+		}
 
-			Iterator<OWLClassExpression> iterator = descriptions.iterator();
-
-			OWLClassExpression desc1 = iterator.next();
-			OWLClassExpression desc2 = iterator.next();
-
-			if (isAnonymousOrNothing(desc1)) {
+		List<OWLLogicalAxiom> sortedAxioms = Lists.newArrayList(axioms);
+		Collections.sort(sortedAxioms);
+		Map<OWLLogicalAxiom, String> axiomToVerbalization = Maps.newHashMap();
+		for (int i = 0; i < sortedAxioms.size(); i++) {
+			OWLLogicalAxiom axiom = sortedAxioms.get(i);
+			String paragraph = paragraphs.get(i);
+			if (! mentionsSignature(paragraph, axiom, surfaceForms)) {
+				logger.warn("Verbalization does not match the axiom: " + axiom + ": " + paragraph);
 				return null;
 			}
-			if (isAnonymousOrNothing(desc2)) {
-				return null;
-			}
-
-			return getSimpleClassRelationVerbalization((OWLClass) desc1, (OWLClass) desc2, "No", ont);
+			axiomToVerbalization.put(axiom, paragraph);
+		}
 
+		List<String> verbalizations = Lists.newArrayList();
+		for (OWLLogicalAxiom axiom : axioms) {
+			verbalizations.add(axiomToVerbalization.get(axiom));
 		}
-		return null;
+		return verbalizations;
 	}
 
 
 	/**
-	 * <p>Decides which indefinite article (`a' vs `an') to use, given
-	 * a noun (that would follow the article in the text).</p>
+	 * <p>Splits the verbalizer output into paragraphs, dropping the
+	 * paragraphs that do not contain any ACE sentences (e.g. comments).</p>
 	 * 
-	 * @param word is an English noun
-	 * @return either 'a' or 'an' depending on the given noun
+	 * @param verbalization Verbalizer output
+	 * @return List of paragraphs
 	 */
-	private static String getIndefiniteArticle(String word) {
-		if (ACEUtils.useIndefiniteArticleAn(word)) {
-			return "an";
+	private static List<String> splitVerbalization(String verbalization) {
+		List<String> paragraphs = Lists.newArrayList();
+		for (String paragraph : paragraphSeparator.split(verbalization)) {
+			if (! ACESplitter.getSentences(paragraph).isEmpty()) {
+				paragraphs.add(paragraph.trim());
+			}
 		}
-		return "a";
-	}
-
-
-	private static boolean isAnonymousOrNothing(OWLClassExpression desc) {
-		return (desc.isAnonymous() || desc.isOWLNothing());
-	}
-
-	private static boolean isAnonymous(OWLIndividual ind) {
-		return (ind.isAnonymous());
+		return paragraphs;
 	}
 
-	private static String getSimpleClassRelationVerbalization(OWLClass class1, OWLClass class2, String prefix, OWLOntology ont) {
-		String subClassAsString;
-		String superClassAsString;
 
-		if (class1.isOWLThing()) {
-			subClassAsString = prefix + "thing";
-		}
-		else {
-			subClassAsString = prefix + " " + getSg(class1, ont);
+	/**
+	 * <p>Checks if the given verbalization mentions each (non built-in) entity of the given axiom,
+	 * either by one of its surface forms or by its IRI fragment. The forms are matched
+	 * as whole token sequences against the ACE tokens of the verbalization, so that
+	 * e.g. <code>man</code> is not found in <code>Every woman is a human.</code>
+	 * If the check fails then the caller falls back to verbalizing one axiom per call.</p>
+	 */
+	static boolean mentionsSignature(String verbalization, OWLLogicalAxiom axiom, Multimap<IRI, String> surfaceForms) {
+		List<String> tokens = getTokenStrings(verbalization);
+		for (OWLEntity entity : axiom.getSignature()) {
+			if (entity.isBuiltIn() || entity.isOWLDatatype()) {
+				continue;
+			}
+			IRI iri = entity.getIRI();
+			boolean isMentioned = false;
+			String fragment = iri.getFragment();
+			if (fragment != null && containsTokens(tokens, fragment)) {
+				isMentioned = true;
+			}
+			else {
+				for (String form : surfaceForms.get(iri)) {
+					if (containsTokens(tokens, form)) {
+						isMentioned = true;
+						break;
+					}
+				}
+			}
+			if (! isMentioned) {
+				return false;
+			}
 		}
+		return true;
+	}
 
-		if (class2.isOWLThing()) {
-			superClassAsString = "something";
-		}
-		else {
-			String superClassName = getSg(class2, ont);
-			superClassAsString = getIndefiniteArticle(superClassName) + " " + superClassName;
-		}
 
-		return subClassAsString + " is " + superClassAsString + ".";
+	private static boolean containsTokens(List<String> tokens, String form) {
+		List<String> formTokens = getTokenStrings(form);
+		return ! formTokens.isEmpty() && Collections.indexOfSubList(tokens, formTokens) != -1;
 	}
 
 
-	/**
-	 * <p>Returns the singular surface form for the given entity.
-	 * Looks for it among the annotation axioms in the given
-	 * ontology. If this fails then just returns the rendering of the entity.</p>
-	 * 
-	 * @param entity OWL entity
-	 * @param ont OWL ontology that contains surfaceform-annotations for the entity
-	 * @return Singular form of the entity
-	 */
-	private static String getSg(OWLEntity entity, OWLOntology ont) {
-		// decide if the entity corresponds to CN, TV, or PN
-		EntryType entryType = LexiconUtils.getLexiconEntryType(entity);
-		// get the type CN_SG, TV_SG, or PN_SG
-		MorphType morphType = MorphType.getMorphType(entryType, FieldType.SG);
-		// get the IRI that corresponds to this type
-		IRI wordformTypeIRI = morphType.getIRI();
-
-		// scan all the annotations that annotate this entity
-		for (OWLAnnotationAssertionAxiom annAx : ont.getAnnotationAssertionAxioms(entity.getIRI())) {
-			// ... and select the one that annotates it using the ?_SG IRI
-			if (annAx.getProperty().getIRI().equals(wordformTypeIRI)) {
-				OWLAnnotationValue value = annAx.getValue();
-				if (value instanceof OWLLiteral) {
-					return ((OWLLiteral) value).getLiteral();
-				}
-				break;
+	private static List<String> getTokenStrings(String str) {
+		List<String> tokens = Lists.newArrayList();
+		for (ACESentence sentence : ACESplitter.getSentences(str)) {
+			for (ACEToken token : sentence.getTokens()) {
+				tokens.add(token.getToken());
 			}
 		}
-		return ACETextManager.getRendering(entity);
+		return tokens;
 	}
-}
\ No newline at end of file
+}
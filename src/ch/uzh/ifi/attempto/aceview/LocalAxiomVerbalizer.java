@@ -0,0 +1,620 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLDisjointClassesAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLInverseObjectPropertiesAxiom;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLObjectAllValuesFrom;
+import org.semanticweb.owlapi.model.OWLObjectCardinalityRestriction;
+import org.semanticweb.owlapi.model.OWLObjectComplementOf;
+import org.semanticweb.owlapi.model.OWLObjectExactCardinality;
+import org.semanticweb.owlapi.model.OWLObjectHasValue;
+import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectMaxCardinality;
+import org.semanticweb.owlapi.model.OWLObjectMinCardinality;
+import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLObjectUnionOf;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.model.OWLSubObjectPropertyOfAxiom;
+import org.semanticweb.owlapi.util.OWLAxiomVisitorAdapter;
+import org.semanticweb.owlapi.util.OWLClassExpressionVisitorAdapter;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
+import ch.uzh.ifi.attempto.aceview.lexicon.FieldType;
+import ch.uzh.ifi.attempto.aceview.lexicon.LexiconUtils;
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.SurfaceFormIndex;
+import ch.uzh.ifi.attempto.ape.ACEUtils;
+
+/**
+ * <p>Verbalizes structurally simple logical axioms directly in Java,
+ * without calling the OWL verbalizer webservice. The produced sentences follow
+ * the style of the OWL verbalizer. The following axioms are covered, where
+ * <code>A</code>, <code>B</code> are named classes, <code>p</code>, <code>q</code>
+ * are named object properties (or their inverses in restrictions) and
+ * <code>a</code>, <code>b</code> are named individuals:</p>
+ *
+ * <ul>
+ * <li>SubClassOf(A, C) and ClassAssertion(C, a), where C is a named class,
+ * an existential or universal restriction with a named filler, a value restriction,
+ * a qualified cardinality restriction with a named filler, the complement of a named class,
+ * or an intersection or a union of such class expressions
+ * ("Every man likes a woman and is a human.", "Every man likes nothing but women.",
+ * "Every man likes at least 2 women.", "John is a man or is a woman.")</li>
+ * <li>SubClassOf(A, ObjectComplementOf(B)) and DisjointClasses(A, B) ("No man is a woman.")</li>
+ * <li>EquivalentClasses(A, B) ("Every man is a human. Every human is a man.")</li>
+ * <li>ObjectPropertyDomain(p, A) ("Everything that likes something is a human.")</li>
+ * <li>ObjectPropertyRange(p, A) ("Everything that something likes is a human.")</li>
+ * <li>SubObjectPropertyOf(p, q) ("If X likes Y then X loves Y.")</li>
+ * <li>InverseObjectProperties(p, q) ("If X likes Y then Y loves X. If X loves Y then Y likes X.")</li>
+ * <li>ObjectPropertyAssertion(p, a, b) and DataPropertyAssertion(p, a, literal)</li>
+ * </ul>
+ *
+ * <p>The surface forms are decided by the morphological annotations in the ontology
+ * (see {@link SurfaceFormIndex}).
+ * If a plural or past participle form is needed but is missing then the axiom is
+ * not verbalized (i.e. left to the webservice). Singular forms fall back to the
+ * rendering of the entity, which is computed by the renderer that is given
+ * to the constructor.</p>
+ *
+ * <p>The verbalizer keeps statistics about the covered axiom types.
+ * It is not thread-safe and must be used in the thread that owns the ontology.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+final class LocalAxiomVerbalizer extends OWLAxiomVisitorAdapter {
+
+	// Number of axioms by type: [seen, verbalized]
+	private final Map<AxiomType<?>, int[]> coverage = Maps.newLinkedHashMap();
+	private long nanos = 0;
+
+	private final VerbPhraseBuilder verbPhraseBuilder = new VerbPhraseBuilder();
+	private final Function<? super OWLEntity, String> renderer;
+
+	private SurfaceFormIndex surfaceForms;
+	private String verbalization;
+
+
+	/**
+	 * @param renderer Function that maps an entity to its rendering
+	 * (e.g. {@link ACETextManager#getRendering(OWLEntity)})
+	 */
+	LocalAxiomVerbalizer(Function<? super OWLEntity, String> renderer) {
+		this.renderer = renderer;
+	}
+
+	/**
+	 * @param ax OWL logical axiom without annotations
+	 * @param surfaceForms Surface forms of the ontology that annotates the entities of the given axiom
+	 * @return Verbalization of the given axiom or <code>null</code> if the axiom is not covered
+	 */
+	String verbalize(OWLLogicalAxiom ax, SurfaceFormIndex surfaceForms) {
+		long start = System.nanoTime();
+		this.surfaceForms = surfaceForms;
+		verbalization = null;
+		ax.accept(this);
+		String result = verbalization;
+		this.surfaceForms = null;
+		verbalization = null;
+		nanos += System.nanoTime() - start;
+
+		int[] counts = coverage.get(ax.getAxiomType());
+		if (counts == null) {
+			counts = new int[2];
+			coverage.put(ax.getAxiomType(), counts);
+		}
+		counts[0]++;
+		if (result != null) {
+			counts[1]++;
+		}
+		return result;
+	}
+
+
+	/**
+	 * @return Report of the number of seen and locally verbalized axioms by axiom type,
+	 * and the time spent on local verbalization
+	 */
+	String getCoverageReport() {
+		int seen = 0;
+		int verbalized = 0;
+		List<String> lines = Lists.newArrayList();
+		for (Map.Entry<AxiomType<?>, int[]> entry : coverage.entrySet()) {
+			int[] counts = entry.getValue();
+			seen += counts[0];
+			verbalized += counts[1];
+			lines.add(entry.getKey() + ": " + counts[1] + "/" + counts[0]);
+		}
+		long ms = nanos / 1000000;
+		lines.add(0, "Local verbalization: " + verbalized + "/" + seen + " axioms in " + ms + " ms" +
+				(ms > 0 ? " (" + (seen * 1000L / ms) + " axioms/s)" : ""));
+		return Joiner.on('\n').join(lines);
+	}
+
+
+	@Override
+	public void visit(OWLSubClassOfAxiom axiom) {
+		OWLClassExpression subClass = axiom.getSubClass();
+		OWLClassExpression superClass = axiom.getSuperClass();
+		if (isAnonymousOrNothing(subClass)) {
+			return;
+		}
+		OWLClass cl = subClass.asOWLClass();
+
+		// SubClassOf(A, ObjectComplementOf(B)) is verbalized as "No A is a B."
+		if (superClass instanceof OWLObjectComplementOf) {
+			OWLClassExpression operand = ((OWLObjectComplementOf) superClass).getOperand();
+			if (! isAnonymousOrNothing(operand)) {
+				verbalization = getSimpleClassRelationVerbalization(cl, operand.asOWLClass(), "No");
+			}
+			return;
+		}
+
+		String vp = verbPhraseBuilder.build(superClass);
+		if (vp != null) {
+			verbalization = getSubject(cl, "Every") + " " + vp + ".";
+		}
+	}
+
+
+	@Override
+	public void visit(OWLEquivalentClassesAxiom axiom) {
+		Set<OWLClassExpression> descriptions = axiom.getClassExpressions();
+		if (descriptions.size() != 2) {
+			return;
+		}
+		Iterator<OWLClassExpression> iterator = descriptions.iterator();
+		OWLClassExpression desc1 = iterator.next();
+		OWLClassExpression desc2 = iterator.next();
+		if (isAnonymousOrNothing(desc1) || isAnonymousOrNothing(desc2)) {
+			return;
+		}
+		verbalization =
+			getSimpleClassRelationVerbalization(desc1.asOWLClass(), desc2.asOWLClass(), "Every") + " " +
+			getSimpleClassRelationVerbalization(desc2.asOWLClass(), desc1.asOWLClass(), "Every");
+	}
+
+
+	@Override
+	public void visit(OWLDisjointClassesAxiom axiom) {
+		Set<OWLClassExpression> descriptions = axiom.getClassExpressions();
+		if (descriptions.size() != 2) {
+			return;
+		}
+		Iterator<OWLClassExpression> iterator = descriptions.iterator();
+		OWLClassExpression desc1 = iterator.next();
+		OWLClassExpression desc2 = iterator.next();
+		if (isAnonymousOrNothing(desc1) || isAnonymousOrNothing(desc2)) {
+			return;
+		}
+		verbalization = getSimpleClassRelationVerbalization(desc1.asOWLClass(), desc2.asOWLClass(), "No");
+	}
+
+
+	@Override
+	public void visit(OWLClassAssertionAxiom axiom) {
+		OWLIndividual ind = axiom.getIndividual();
+		if (ind.isAnonymous()) {
+			return;
+		}
+		String vp = verbPhraseBuilder.build(axiom.getClassExpression());
+		if (vp != null) {
+			verbalization = getSg(ind.asOWLNamedIndividual()) + " " + vp + ".";
+		}
+	}
+
+
+	@Override
+	public void visit(OWLObjectPropertyAssertionAxiom axiom) {
+		OWLObjectPropertyExpression property = axiom.getProperty();
+		OWLIndividual subject = axiom.getSubject();
+		OWLIndividual object = axiom.getObject();
+		if (property.isAnonymous() || subject.isAnonymous() || object.isAnonymous()) {
+			return;
+		}
+		verbalization = getSg(subject.asOWLNamedIndividual()) + " " + getSg(property.asOWLObjectProperty()) + " " + getSg(object.asOWLNamedIndividual()) + ".";
+	}
+
+
+	@Override
+	public void visit(OWLDataPropertyAssertionAxiom axiom) {
+		OWLDataPropertyExpression dpExpression = axiom.getProperty();
+		OWLIndividual subject = axiom.getSubject();
+		if (dpExpression.isAnonymous() || subject.isAnonymous()) {
+			return;
+		}
+
+		OWLLiteral literal = axiom.getObject();
+		OWLDatatype datatype = literal.getDatatype();
+		String datavalue = "";
+		if (datatype.isString()) {
+			datavalue = "\"" + literal.getLiteral() + "\"";
+		}
+		else {
+			// BUG: we accept all types of data here (although ACE only supports numbers and strings)
+			datavalue = literal.getLiteral();
+		}
+
+		String dpAsString = getRendering(dpExpression.asOWLDataProperty());
+		// John's temperature is 36.
+		verbalization = getSg(subject.asOWLNamedIndividual()) + "'s " + dpAsString + " is " + datavalue + ".";
+	}
+
+
+	@Override
+	public void visit(OWLObjectPropertyDomainAxiom axiom) {
+		OWLClassExpression domain = axiom.getDomain();
+		if (isAnonymousOrNothing(domain) || domain.isOWLThing()) {
+			return;
+		}
+		String verb = getVerb(axiom.getProperty());
+		if (verb != null) {
+			verbalization = "Everything that " + verb + " something is " + getNounPhrase(domain.asOWLClass()) + ".";
+		}
+	}
+
+
+	@Override
+	public void visit(OWLObjectPropertyRangeAxiom axiom) {
+		OWLClassExpression range = axiom.getRange();
+		if (isAnonymousOrNothing(range) || range.isOWLThing()) {
+			return;
+		}
+		String verb = getVerb(axiom.getProperty());
+		if (verb != null) {
+			verbalization = "Everything that something " + verb + " is " + getNounPhrase(range.asOWLClass()) + ".";
+		}
+	}
+
+
+	@Override
+	public void visit(OWLSubObjectPropertyOfAxiom axiom) {
+		String relation1 = getRelation("X", axiom.getSubProperty(), "Y");
+		String relation2 = getRelation("X", axiom.getSuperProperty(), "Y");
+		if (relation1 != null && relation2 != null) {
+			verbalization = "If " + relation1 + " then " + relation2 + ".";
+		}
+	}
+
+
+	@Override
+	public void visit(OWLInverseObjectPropertiesAxiom axiom) {
+		String relation1 = getRelation("X", axiom.getFirstProperty(), "Y");
+		String relation2 = getRelation("Y", axiom.getSecondProperty(), "X");
+		String relation3 = getRelation("X", axiom.getSecondProperty(), "Y");
+		String relation4 = getRelation("Y", axiom.getFirstProperty(), "X");
+		if (relation1 != null && relation2 != null && relation3 != null && relation4 != null) {
+			verbalization = "If " + relation1 + " then " + relation2 + ". If " + relation3 + " then " + relation4 + ".";
+		}
+	}
+
+
+	/**
+	 * <p>Builds the verb phrase that corresponds to a class expression,
+	 * e.g. "is a man", "likes nothing but women", "is a human and likes at least 2 women".
+	 * The result is <code>null</code> if the class expression is not covered.</p>
+	 */
+	private final class VerbPhraseBuilder extends OWLClassExpressionVisitorAdapter {
+
+		private String vp;
+		// Intersections and unions are not nested
+		private boolean isCoordinationAllowed;
+
+		String build(OWLClassExpression desc) {
+			isCoordinationAllowed = true;
+			return buildPart(desc);
+		}
+
+		private String buildPart(OWLClassExpression desc) {
+			vp = null;
+			desc.accept(this);
+			String result = vp;
+			vp = null;
+			return result;
+		}
+
+		@Override
+		public void visit(OWLClass desc) {
+			if (desc.isOWLThing()) {
+				vp = "is something";
+			}
+			else if (! desc.isOWLNothing()) {
+				vp = "is " + getNounPhrase(desc);
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectComplementOf desc) {
+			OWLClassExpression operand = desc.getOperand();
+			if (! isAnonymousOrNothing(operand) && ! operand.isOWLThing()) {
+				vp = "is not " + getNounPhrase(operand.asOWLClass());
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectSomeValuesFrom desc) {
+			String verb = getVerb(desc.getProperty());
+			OWLClassExpression filler = desc.getFiller();
+			if (verb == null || isAnonymousOrNothing(filler)) {
+				return;
+			}
+			if (filler.isOWLThing()) {
+				vp = verb + " something";
+			}
+			else {
+				vp = verb + " " + getNounPhrase(filler.asOWLClass());
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectAllValuesFrom desc) {
+			String verb = getVerb(desc.getProperty());
+			OWLClassExpression filler = desc.getFiller();
+			if (verb == null || isAnonymousOrNothing(filler) || filler.isOWLThing()) {
+				return;
+			}
+			String pl = getPl(filler.asOWLClass());
+			if (pl != null) {
+				vp = verb + " nothing but " + pl;
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectHasValue desc) {
+			String verb = getVerb(desc.getProperty());
+			OWLIndividual value = desc.getValue();
+			if (verb != null && ! value.isAnonymous()) {
+				vp = verb + " " + getSg(value.asOWLNamedIndividual());
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectMinCardinality desc) {
+			if (desc.getCardinality() > 0) {
+				vp = getCardinalityVerbPhrase(desc, "at least");
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectMaxCardinality desc) {
+			if (desc.getCardinality() > 0) {
+				vp = getCardinalityVerbPhrase(desc, "at most");
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectExactCardinality desc) {
+			if (desc.getCardinality() > 0) {
+				vp = getCardinalityVerbPhrase(desc, "exactly");
+			}
+		}
+
+		@Override
+		public void visit(OWLObjectIntersectionOf desc) {
+			vp = getCoordination(desc.getOperandsAsList(), " and ");
+		}
+
+		@Override
+		public void visit(OWLObjectUnionOf desc) {
+			vp = getCoordination(desc.getOperandsAsList(), " or ");
+		}
+
+		private String getCoordination(List<OWLClassExpression> operands, String conjunction) {
+			if (! isCoordinationAllowed) {
+				return null;
+			}
+			isCoordinationAllowed = false;
+			List<String> vps = Lists.newArrayList();
+			for (OWLClassExpression operand : operands) {
+				String operandVP = buildPart(operand);
+				if (operandVP == null) {
+					return null;
+				}
+				vps.add(operandVP);
+			}
+			return Joiner.on(conjunction).join(vps);
+		}
+	}
+
+
+	/**
+	 * <p>Verbalizes a qualified cardinality restriction with a named filler,
+	 * e.g. "likes at least 2 women", "likes at most 1 thing".</p>
+	 */
+	private String getCardinalityVerbPhrase(OWLObjectCardinalityRestriction desc, String quantifier) {
+		String verb = getVerb(desc.getProperty());
+		OWLClassExpression filler = desc.getFiller();
+		if (verb == null || isAnonymousOrNothing(filler)) {
+			return null;
+		}
+		int cardinality = desc.getCardinality();
+		String noun;
+		if (filler.isOWLThing()) {
+			noun = (cardinality == 1) ? "thing" : "things";
+		}
+		else if (cardinality == 1) {
+			noun = getSg(filler.asOWLClass());
+		}
+		else {
+			noun = getPl(filler.asOWLClass());
+		}
+		if (noun == null) {
+			return null;
+		}
+		return verb + " " + quantifier + " " + cardinality + " " + noun;
+	}
+
+
+	/**
+	 * <p>Returns the transitive verb that corresponds to the given property,
+	 * i.e. "likes" for a named property and "is liked by" for its inverse.</p>
+	 */
+	private String getVerb(OWLObjectPropertyExpression property) {
+		if (! property.isAnonymous()) {
+			return getSg(property.asOWLObjectProperty());
+		}
+		if (property instanceof OWLObjectInverseOf) {
+			OWLObjectPropertyExpression inverse = ((OWLObjectInverseOf) property).getInverse();
+			if (! inverse.isAnonymous()) {
+				String vbg = getForm(inverse.asOWLObjectProperty(), MorphType.TV_VBG);
+				if (vbg != null) {
+					return "is " + vbg + " by";
+				}
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * <p>Returns the relation "X likes Y" for the given property and variables.
+	 * The inverse of a named property swaps the variables.</p>
+	 */
+	private String getRelation(String var1, OWLObjectPropertyExpression property, String var2) {
+		if (! property.isAnonymous()) {
+			return var1 + " " + getSg(property.asOWLObjectProperty()) + " " + var2;
+		}
+		if (property instanceof OWLObjectInverseOf) {
+			return getRelation(var2, ((OWLObjectInverseOf) property).getInverse(), var1);
+		}
+		return null;
+	}
+
+
+	private String getSimpleClassRelationVerbalization(OWLClass class1, OWLClass class2, String prefix) {
+		String superClassAsString;
+		if (class2.isOWLThing()) {
+			superClassAsString = "something";
+		}
+		else {
+			superClassAsString = getNounPhrase(class2);
+		}
+		return getSubject(class1, prefix) + " is " + superClassAsString + ".";
+	}
+
+
+	/**
+	 * <p>Returns the quantified subject, e.g. "Every man", "Everything", "No man", "Nothing".</p>
+	 */
+	private String getSubject(OWLClass cl, String prefix) {
+		if (cl.isOWLThing()) {
+			return prefix + "thing";
+		}
+		return prefix + " " + getSg(cl);
+	}
+
+
+	/**
+	 * <p>Returns the noun phrase with the indefinite article, e.g. "a man", "an apple".</p>
+	 */
+	private String getNounPhrase(OWLClass cl) {
+		String sg = getSg(cl);
+		return getIndefiniteArticle(sg) + " " + sg;
+	}
+
+
+	/**
+	 * <p>Decides which indefinite article (`a' vs `an') to use, given
+	 * a noun (that would follow the article in the text).</p>
+	 *
+	 * @param word is an English noun
+	 * @return either 'a' or 'an' depending on the given noun
+	 */
+	private static String getIndefiniteArticle(String word) {
+		if (ACEUtils.useIndefiniteArticleAn(word)) {
+			return "an";
+		}
+		return "a";
+	}
+
+
+	private static boolean isAnonymousOrNothing(OWLClassExpression desc) {
+		return (desc.isAnonymous() || desc.isOWLNothing());
+	}
+
+
+	/**
+	 * <p>Returns the singular surface form for the given entity.
+	 * Looks for it in the surface form index of the
+	 * ontology. If this fails then just returns the rendering of the entity.</p>
+	 *
+	 * @param entity OWL entity
+	 * @return Singular form of the entity
+	 */
+	private String getSg(OWLEntity entity) {
+		// decide if the entity corresponds to CN, TV, or PN
+		EntryType entryType = LexiconUtils.getLexiconEntryType(entity);
+		// get the type CN_SG, TV_SG, or PN_SG
+		MorphType morphType = MorphType.getMorphType(entryType, FieldType.SG);
+		String form = getForm(entity, morphType);
+		if (form == null) {
+			return getRendering(entity);
+		}
+		return form;
+	}
+
+
+	/**
+	 * <p>Returns the plural form of the given class,
+	 * or <code>null</code> if the class does not have a plural annotation.</p>
+	 */
+	private String getPl(OWLClass cl) {
+		return getForm(cl, MorphType.CN_PL);
+	}
+
+
+	/**
+	 * <p>Returns the surface form of the given entity that is given by
+	 * the annotation of the given morphological type, or <code>null</code>
+	 * if the ontology does not contain such an annotation.</p>
+	 */
+	private String getForm(OWLEntity entity, MorphType morphType) {
+		return surfaceForms.get(entity.getIRI(), morphType);
+	}
+
+
+	private String getRendering(OWLEntity entity) {
+		return renderer.apply(entity);
+	}
+}
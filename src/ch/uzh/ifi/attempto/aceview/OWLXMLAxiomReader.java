@@ -0,0 +1,449 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * <p>Converts the OWL/XML output of the ACE parser into OWL logical axioms
+ * in a single streaming pass, i.e. without creating an ontology manager and
+ * an ontology. The conversion does the same as {@link OWLXMLTransformer} followed by
+ * the OWL/XML parser of the OWL API: the OWL 1.1 element and attribute names
+ * are read as their OWL 2 equivalents, and the SubClassOf axioms that
+ * express property domains and ranges are turned into ObjectPropertyDomain and
+ * ObjectPropertyRange axioms.</p>
+ *
+ * <p>Only the constructs that the ACE parser outputs for OWL are supported.
+ * Any other element (e.g. a SWRL rule) results in a {@link SAXException},
+ * in which case the caller should fall back to the OWL API parser.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+final class OWLXMLAxiomReader {
+
+	// OWL 1.1 element names that have been renamed in OWL 2
+	private static final Map<String, String> OWL11_NAMES = new ImmutableMap.Builder<String, String>()
+	.put("InverseObjectProperty", "ObjectInverseOf")
+	.put("SubObjectPropertyChain", "ObjectPropertyChain")
+	.put("ObjectExistsSelf", "ObjectHasSelf")
+	.put("Individual", "NamedIndividual")
+	.put("Constant", "Literal")
+	.put("SameIndividuals", "SameIndividual")
+	.build();
+
+	private static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+
+	// Axioms that are not logical axioms
+	private static final Set<String> SKIPPED = ImmutableSet.of(
+			"Declaration", "AnnotationAssertion", "Import", "Prefix",
+			"EntityAnnotation", "SubAnnotationPropertyOf", "AnnotationPropertyDomain", "AnnotationPropertyRange");
+
+	// SAX parsers are not thread-safe, but can be reused
+	private static final ThreadLocal<SAXParser> saxParser = new ThreadLocal<SAXParser>() {
+		@Override
+		protected SAXParser initialValue() {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			try {
+				return factory.newSAXParser();
+			} catch (ParserConfigurationException e) {
+				throw new RuntimeException(e);
+			} catch (SAXException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	// No instances allowed
+	private OWLXMLAxiomReader() {}
+
+
+	/**
+	 * <p>Reads the logical axioms from the given OWL/XML document.</p>
+	 *
+	 * @param df OWL data factory that creates the axioms
+	 * @param owlxml OWL/XML document in OWL 1.1 or OWL 2 format
+	 * @return Logical axioms of the document
+	 * @throws SAXException if the document is not well-formed or contains an unsupported element
+	 */
+	public static Set<OWLLogicalAxiom> read(OWLDataFactory df, String owlxml) throws SAXException {
+		AxiomHandler handler = new AxiomHandler(df);
+		SAXParser parser = saxParser.get();
+		parser.reset();
+		try {
+			parser.parse(new InputSource(new StringReader(owlxml)), handler);
+		} catch (IOException e) {
+			// Cannot happen when reading from a string
+			throw new SAXException(e);
+		}
+		return handler.axioms;
+	}
+
+
+	/**
+	 * <p>Element that is being read, together with the objects
+	 * created from its child elements.</p>
+	 */
+	private static final class Frame {
+		private final String name;
+		private final String iri;
+		private final String cardinality;
+		private final String datatype;
+		private final String lang;
+		private final List<Object> children = Lists.newArrayList();
+		private StringBuilder text;
+
+		private Frame(String name, Attributes atts) {
+			this.name = name;
+			this.iri = getAttribute(atts, "IRI", "URI");
+			this.cardinality = atts.getValue("cardinality");
+			this.datatype = getAttribute(atts, "datatypeIRI", "datatypeURI");
+			this.lang = getLang(atts);
+		}
+
+		private <T> T get(Class<T> type, int index) throws SAXException {
+			int i = 0;
+			for (Object child : children) {
+				if (type.isInstance(child) && i++ == index) {
+					return type.cast(child);
+				}
+			}
+			throw new SAXException(name + ": missing argument: " + type.getSimpleName());
+		}
+
+		private <T> T getOptional(Class<T> type) {
+			for (Object child : children) {
+				if (type.isInstance(child)) {
+					return type.cast(child);
+				}
+			}
+			return null;
+		}
+
+		private <T> Set<T> getAll(Class<T> type) {
+			Set<T> objects = Sets.newHashSet();
+			for (Object child : children) {
+				if (type.isInstance(child)) {
+					objects.add(type.cast(child));
+				}
+			}
+			return objects;
+		}
+
+		private IRI getIRI() throws SAXException {
+			if (iri == null) {
+				throw new SAXException(name + ": missing IRI");
+			}
+			return IRI.create(iri);
+		}
+
+		private int getCardinality() throws SAXException {
+			try {
+				return Integer.parseInt(cardinality);
+			} catch (NumberFormatException e) {
+				throw new SAXException(name + ": bad cardinality: " + cardinality);
+			}
+		}
+
+		private static String getLang(Attributes atts) {
+			String value = atts.getValue(XML_NS, "lang");
+			if (value == null) {
+				return atts.getValue("xml:lang");
+			}
+			return value;
+		}
+
+		private static String getAttribute(Attributes atts, String name, String owl11Name) {
+			String value = atts.getValue(name);
+			if (value == null) {
+				return atts.getValue(owl11Name);
+			}
+			return value;
+		}
+	}
+
+
+	private static final class AxiomHandler extends DefaultHandler {
+
+		private final OWLDataFactory df;
+		private final Set<OWLLogicalAxiom> axioms = Sets.newHashSet();
+		private final List<Frame> stack = Lists.newArrayList();
+
+		// Depth of the skipped element that is being read, or 0
+		private int skipDepth = 0;
+
+		private AxiomHandler(OWLDataFactory df) {
+			this.df = df;
+		}
+
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+			if (skipDepth > 0) {
+				skipDepth++;
+				return;
+			}
+			String name = normalize(localName.length() == 0 ? qName : localName);
+			// Annotations are ignored, just like getLogicalAxioms() ignores them
+			if ("Annotation".equals(name) || (stack.size() == 1 && SKIPPED.contains(name))) {
+				skipDepth = 1;
+				return;
+			}
+			stack.add(new Frame(name, atts));
+		}
+
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (skipDepth == 0 && ! stack.isEmpty()) {
+				Frame frame = stack.get(stack.size() - 1);
+				if ("Literal".equals(frame.name)) {
+					if (frame.text == null) {
+						frame.text = new StringBuilder();
+					}
+					frame.text.append(ch, start, length);
+				}
+			}
+		}
+
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			if (skipDepth > 0) {
+				skipDepth--;
+				return;
+			}
+			Frame frame = stack.remove(stack.size() - 1);
+			if (stack.isEmpty()) {
+				// End of the Ontology-element
+				return;
+			}
+			if (stack.size() == 1) {
+				axioms.add(createAxiom(frame));
+			}
+			else {
+				stack.get(stack.size() - 1).children.add(createObject(frame));
+			}
+		}
+
+
+		private Object createObject(Frame f) throws SAXException {
+			String n = f.name;
+
+			// Entities and literals
+			if ("Class".equals(n)) return df.getOWLClass(f.getIRI());
+			if ("ObjectProperty".equals(n)) return df.getOWLObjectProperty(f.getIRI());
+			if ("DataProperty".equals(n)) return df.getOWLDataProperty(f.getIRI());
+			if ("Datatype".equals(n)) return df.getOWLDatatype(f.getIRI());
+			if ("NamedIndividual".equals(n)) return df.getOWLNamedIndividual(f.getIRI());
+			if ("Literal".equals(n)) return createLiteral(f);
+
+			// Property expressions
+			if ("ObjectInverseOf".equals(n)) return df.getOWLObjectInverseOf(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("ObjectPropertyChain".equals(n)) return new PropertyChain(f.children);
+
+			// Class expressions
+			if ("ObjectIntersectionOf".equals(n)) return df.getOWLObjectIntersectionOf(f.getAll(OWLClassExpression.class));
+			if ("ObjectUnionOf".equals(n)) return df.getOWLObjectUnionOf(f.getAll(OWLClassExpression.class));
+			if ("ObjectComplementOf".equals(n)) return df.getOWLObjectComplementOf(f.get(OWLClassExpression.class, 0));
+			if ("ObjectOneOf".equals(n)) return df.getOWLObjectOneOf(f.getAll(OWLIndividual.class));
+			if ("ObjectSomeValuesFrom".equals(n)) return df.getOWLObjectSomeValuesFrom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLClassExpression.class, 0));
+			if ("ObjectAllValuesFrom".equals(n)) return df.getOWLObjectAllValuesFrom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLClassExpression.class, 0));
+			if ("ObjectHasValue".equals(n)) return df.getOWLObjectHasValue(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLIndividual.class, 0));
+			if ("ObjectHasSelf".equals(n)) return df.getOWLObjectHasSelf(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("ObjectMinCardinality".equals(n)) return df.getOWLObjectMinCardinality(f.getCardinality(), f.get(OWLObjectPropertyExpression.class, 0), getFiller(f));
+			if ("ObjectMaxCardinality".equals(n)) return df.getOWLObjectMaxCardinality(f.getCardinality(), f.get(OWLObjectPropertyExpression.class, 0), getFiller(f));
+			if ("ObjectExactCardinality".equals(n)) return df.getOWLObjectExactCardinality(f.getCardinality(), f.get(OWLObjectPropertyExpression.class, 0), getFiller(f));
+			if ("DataSomeValuesFrom".equals(n)) return df.getOWLDataSomeValuesFrom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLDataRange.class, 0));
+			if ("DataAllValuesFrom".equals(n)) return df.getOWLDataAllValuesFrom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLDataRange.class, 0));
+			if ("DataHasValue".equals(n)) return df.getOWLDataHasValue(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLLiteral.class, 0));
+			if ("DataMinCardinality".equals(n)) return df.getOWLDataMinCardinality(f.getCardinality(), f.get(OWLDataPropertyExpression.class, 0), getDataFiller(f));
+			if ("DataMaxCardinality".equals(n)) return df.getOWLDataMaxCardinality(f.getCardinality(), f.get(OWLDataPropertyExpression.class, 0), getDataFiller(f));
+			if ("DataExactCardinality".equals(n)) return df.getOWLDataExactCardinality(f.getCardinality(), f.get(OWLDataPropertyExpression.class, 0), getDataFiller(f));
+
+			throw new SAXException("Unsupported element: " + n);
+		}
+
+
+		private OWLLogicalAxiom createAxiom(Frame f) throws SAXException {
+			String n = f.name;
+
+			// Class axioms
+			if ("SubClassOf".equals(n)) return createSubClassOf(f.get(OWLClassExpression.class, 0), f.get(OWLClassExpression.class, 1));
+			if ("EquivalentClasses".equals(n)) return df.getOWLEquivalentClassesAxiom(f.getAll(OWLClassExpression.class));
+			if ("DisjointClasses".equals(n)) return df.getOWLDisjointClassesAxiom(f.getAll(OWLClassExpression.class));
+
+			// Assertions
+			if ("ClassAssertion".equals(n)) return df.getOWLClassAssertionAxiom(f.get(OWLClassExpression.class, 0), f.get(OWLIndividual.class, 0));
+			if ("ObjectPropertyAssertion".equals(n)) return df.getOWLObjectPropertyAssertionAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLIndividual.class, 0), f.get(OWLIndividual.class, 1));
+			if ("NegativeObjectPropertyAssertion".equals(n)) return df.getOWLNegativeObjectPropertyAssertionAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLIndividual.class, 0), f.get(OWLIndividual.class, 1));
+			if ("DataPropertyAssertion".equals(n)) return df.getOWLDataPropertyAssertionAxiom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLIndividual.class, 0), f.get(OWLLiteral.class, 0));
+			if ("NegativeDataPropertyAssertion".equals(n)) return df.getOWLNegativeDataPropertyAssertionAxiom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLIndividual.class, 0), f.get(OWLLiteral.class, 0));
+			if ("SameIndividual".equals(n)) return df.getOWLSameIndividualAxiom(f.getAll(OWLIndividual.class));
+			if ("DifferentIndividuals".equals(n)) return df.getOWLDifferentIndividualsAxiom(f.getAll(OWLIndividual.class));
+
+			// Object property axioms
+			if ("SubObjectPropertyOf".equals(n)) {
+				PropertyChain chain = f.getOptional(PropertyChain.class);
+				if (chain == null) {
+					return df.getOWLSubObjectPropertyOfAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLObjectPropertyExpression.class, 1));
+				}
+				return df.getOWLSubPropertyChainOfAxiom(chain.properties, f.get(OWLObjectPropertyExpression.class, 0));
+			}
+			if ("EquivalentObjectProperties".equals(n)) return df.getOWLEquivalentObjectPropertiesAxiom(f.getAll(OWLObjectPropertyExpression.class));
+			if ("DisjointObjectProperties".equals(n)) return df.getOWLDisjointObjectPropertiesAxiom(f.getAll(OWLObjectPropertyExpression.class));
+			if ("InverseObjectProperties".equals(n)) return df.getOWLInverseObjectPropertiesAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLObjectPropertyExpression.class, 1));
+			if ("ObjectPropertyDomain".equals(n)) return df.getOWLObjectPropertyDomainAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLClassExpression.class, 0));
+			if ("ObjectPropertyRange".equals(n)) return df.getOWLObjectPropertyRangeAxiom(f.get(OWLObjectPropertyExpression.class, 0), f.get(OWLClassExpression.class, 0));
+			if ("FunctionalObjectProperty".equals(n)) return df.getOWLFunctionalObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("InverseFunctionalObjectProperty".equals(n)) return df.getOWLInverseFunctionalObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("TransitiveObjectProperty".equals(n)) return df.getOWLTransitiveObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("SymmetricObjectProperty".equals(n)) return df.getOWLSymmetricObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("AsymmetricObjectProperty".equals(n)) return df.getOWLAsymmetricObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("ReflexiveObjectProperty".equals(n)) return df.getOWLReflexiveObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+			if ("IrreflexiveObjectProperty".equals(n)) return df.getOWLIrreflexiveObjectPropertyAxiom(f.get(OWLObjectPropertyExpression.class, 0));
+
+			// Data property axioms
+			if ("SubDataPropertyOf".equals(n)) return df.getOWLSubDataPropertyOfAxiom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLDataPropertyExpression.class, 1));
+			if ("DataPropertyDomain".equals(n)) return df.getOWLDataPropertyDomainAxiom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLClassExpression.class, 0));
+			if ("DataPropertyRange".equals(n)) return df.getOWLDataPropertyRangeAxiom(f.get(OWLDataPropertyExpression.class, 0), f.get(OWLDataRange.class, 0));
+			if ("FunctionalDataProperty".equals(n)) return df.getOWLFunctionalDataPropertyAxiom(f.get(OWLDataPropertyExpression.class, 0));
+
+			throw new SAXException("Unsupported axiom: " + n);
+		}
+
+
+		/**
+		 * <p>Creates a SubClassOf axiom, or an ObjectPropertyDomain or ObjectPropertyRange
+		 * axiom if the subclass has the form <code>Thing and (p some Thing)</code>,
+		 * or <code>Thing and (inverse(p) some Thing)</code>, and the superclass
+		 * is a named class.</p>
+		 */
+		private OWLLogicalAxiom createSubClassOf(OWLClassExpression subClass, OWLClassExpression superClass) {
+			if (superClass instanceof OWLClass && subClass instanceof OWLObjectIntersectionOf) {
+				Set<OWLClassExpression> operands = ((OWLObjectIntersectionOf) subClass).getOperands();
+				if (operands.size() == 2 && operands.contains(df.getOWLThing())) {
+					for (OWLClassExpression operand : operands) {
+						if (operand instanceof OWLObjectSomeValuesFrom) {
+							OWLObjectSomeValuesFrom some = (OWLObjectSomeValuesFrom) operand;
+							if (some.getFiller().isOWLThing()) {
+								OWLObjectPropertyExpression property = some.getProperty();
+								if (! property.isAnonymous()) {
+									return df.getOWLObjectPropertyDomainAxiom(property, superClass);
+								}
+								OWLObjectPropertyExpression inverse = ((OWLObjectInverseOf) property).getInverse();
+								if (! inverse.isAnonymous()) {
+									return df.getOWLObjectPropertyRangeAxiom(inverse, superClass);
+								}
+							}
+						}
+					}
+				}
+			}
+			return df.getOWLSubClassOfAxiom(subClass, superClass);
+		}
+
+
+		private OWLClassExpression getFiller(Frame f) {
+			OWLClassExpression filler = f.getOptional(OWLClassExpression.class);
+			if (filler == null) {
+				return df.getOWLThing();
+			}
+			return filler;
+		}
+
+
+		private OWLDataRange getDataFiller(Frame f) {
+			OWLDataRange filler = f.getOptional(OWLDataRange.class);
+			if (filler == null) {
+				return df.getTopDatatype();
+			}
+			return filler;
+		}
+
+
+		private OWLLiteral createLiteral(Frame f) {
+			String value = (f.text == null) ? "" : f.text.toString();
+			if (f.datatype != null) {
+				OWLDatatype datatype = df.getOWLDatatype(IRI.create(f.datatype));
+				return df.getOWLLiteral(value, datatype);
+			}
+			return df.getOWLLiteral(value, (f.lang == null) ? "" : f.lang);
+		}
+
+
+		private static String normalize(String name) {
+			String owl2Name = OWL11_NAMES.get(name);
+			if (owl2Name == null) {
+				return name;
+			}
+			return owl2Name;
+		}
+	}
+
+
+	/**
+	 * <p>Content of the ObjectPropertyChain-element, kept apart from
+	 * the property expressions of the enclosing axiom.</p>
+	 */
+	private static final class PropertyChain {
+		private final List<OWLObjectPropertyExpression> properties;
+
+		private PropertyChain(List<Object> children) {
+			List<OWLObjectPropertyExpression> list = Lists.newArrayList();
+			for (Object child : children) {
+				if (child instanceof OWLObjectPropertyExpression) {
+					list.add((OWLObjectPropertyExpression) child);
+				}
+			}
+			this.properties = Collections.unmodifiableList(list);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import ch.uzh.ifi.attempto.aceview.util.AppendOnlyStore;
+import ch.uzh.ifi.attempto.aceview.util.Fingerprint;
+import ch.uzh.ifi.attempto.ape.Lexicon;
+import ch.uzh.ifi.attempto.ape.LexiconEntry;
+import ch.uzh.ifi.attempto.ape.Message;
+
+/**
+ * <p>Cache of the results of the ACE parser. The key of a result is the fingerprint
+ * of everything that the parser output depends on: the text of the snippet,
+ * the lexicon entries that are sent along with the text, the namespace of the snippet,
+ * the selected parser, and the parser flags (guessing, Clex, paraphrasing).
+ * A change in the lexicon therefore automatically leads to a new key.</p>
+ *
+ * <p>The cache consists of a bounded in-memory LRU map and an optional on-disk tier
+ * which survives restarts. The disk tier stores the OWL/XML instead of the axioms,
+ * i.e. a disk hit saves the parser call, but not the loading of the axioms.</p>
+ *
+ * <p>All the methods are synchronized, i.e. snippets can be parsed concurrently.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class ParseCache {
+
+	private static final Logger logger = Logger.getLogger(ParseCache.class);
+
+	// Must be increased if the format of the key or of the disk records changes
+	private static final int VERSION = 1;
+
+	// Number of lookups between two statistics log messages
+	private static final int LOG_STEP = 500;
+
+	// Marks a null field on the disk
+	private static final String NULL_FIELD = "\u0000";
+
+	private static final int MESSAGE_FIELD_COUNT = 6;
+
+	/**
+	 * <p>Parser output of a snippet. The axioms are created from
+	 * the OWL/XML when needed and then kept in memory.</p>
+	 */
+	static final class Result {
+		private final ImmutableList<Message> messages;
+		private final String paraphrase;
+		private final String owlxml;
+		private Set<OWLLogicalAxiom> axioms;
+
+		/**
+		 * @param messages Parser messages
+		 * @param paraphrase Paraphrase or <code>null</code>
+		 * @param owlxml OWL/XML as returned by the parser or <code>null</code> if there were errors
+		 */
+		Result(List<Message> messages, String paraphrase, String owlxml) {
+			this.messages = ImmutableList.copyOf(messages);
+			this.paraphrase = paraphrase;
+			this.owlxml = owlxml;
+		}
+
+		List<Message> getMessages() {
+			return messages;
+		}
+
+		String getParaphrase() {
+			return paraphrase;
+		}
+
+		String getOwlxml() {
+			return owlxml;
+		}
+
+		synchronized Set<OWLLogicalAxiom> getAxioms() {
+			return axioms;
+		}
+
+		synchronized void setAxioms(Set<OWLLogicalAxiom> axioms) {
+			this.axioms = axioms;
+		}
+	}
+
+
+	private final Map<Long, Result> memory;
+	private final AppendOnlyStore disk;
+
+	private int hitCount = 0;
+	private int diskHitCount = 0;
+	private int missCount = 0;
+
+
+	/**
+	 * @param capacity Maximal number of results kept in memory
+	 * @param disk Disk tier or <code>null</code>
+	 */
+	public ParseCache(final int capacity, AppendOnlyStore disk) {
+		this.memory = new LinkedHashMap<Long, Result>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Result> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.disk = disk;
+	}
+
+
+	/**
+	 * @return Version of the disk format, to be used when opening the disk tier
+	 */
+	public static int getDiskVersion() {
+		return VERSION;
+	}
+
+
+	/**
+	 * <p>Computes the cache key of a parser call.</p>
+	 *
+	 * @param text Text to be parsed
+	 * @param lexicon Lexicon that is sent to the parser or <code>null</code>
+	 * @param uri Namespace of the resulting axioms
+	 * @param settings Settings that select the parser and its flags
+	 * @return Fingerprint of the parser call
+	 */
+	static long getKey(String text, Lexicon lexicon, String uri, ParseSettings settings) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(text).append('\n');
+		sb.append(uri).append('\n');
+		sb.append(settings.getParserKey());
+		if (lexicon != null) {
+			// The order of the entries does not matter to the parser
+			List<String> entries = Lists.newArrayList();
+			for (LexiconEntry entry : lexicon.getEntries()) {
+				entries.add(entry.toString());
+			}
+			Collections.sort(entries);
+			for (String entry : entries) {
+				sb.append(entry).append('\n');
+			}
+		}
+		return Fingerprint.of(sb.toString());
+	}
+
+
+	/**
+	 * @param key Key (see {@link #getKey(String, Lexicon, String, ParseSettings)})
+	 * @return Cached parser output or <code>null</code>
+	 */
+	public synchronized Result get(long key) {
+		Result result = memory.get(key);
+		if (result != null) {
+			hitCount++;
+		}
+		else {
+			result = getFromDisk(key);
+			if (result != null) {
+				diskHitCount++;
+				memory.put(key, result);
+			}
+			else {
+				missCount++;
+			}
+		}
+		if ((hitCount + diskHitCount + missCount) % LOG_STEP == 0) {
+			logger.info(this);
+		}
+		return result;
+	}
+
+
+	/**
+	 * @param key Key (see {@link #getKey(String, Lexicon, String, ParseSettings)})
+	 * @param result Parser output
+	 */
+	public synchronized void put(long key, Result result) {
+		memory.put(key, result);
+		if (disk != null) {
+			List<String> fields = Lists.newArrayList(toField(result.getParaphrase()), toField(result.getOwlxml()));
+			for (Message m : result.getMessages()) {
+				fields.add(m.isError() ? "error" : "warning");
+				fields.add(toField(m.getType()));
+				fields.add(toField(m.getSentenceId()));
+				fields.add(toField(m.getTokenId()));
+				fields.add(toField(m.getValue()));
+				fields.add(toField(m.getRepair()));
+			}
+			try {
+				disk.put(key, fields.toArray(new String[fields.size()]));
+			} catch (IOException e) {
+				logger.error("Parse cache: " + e.getMessage());
+			}
+		}
+	}
+
+
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+
+	public synchronized int getDiskHitCount() {
+		return diskHitCount;
+	}
+
+
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * <p>Writes the buffered disk records to the file and closes it.</p>
+	 */
+	public synchronized void close() {
+		if (disk != null) {
+			try {
+				disk.close();
+			} catch (IOException e) {
+				logger.error("Parse cache: " + e.getMessage());
+			}
+		}
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		return "Parse cache: " + memory.size() + " results in memory" +
+		(disk == null ? "" : ", " + disk.size() + " on disk") +
+		"; hits: " + hitCount + "; disk hits: " + diskHitCount + "; misses: " + missCount;
+	}
+
+
+	private Result getFromDisk(long key) {
+		if (disk == null) {
+			return null;
+		}
+		try {
+			String[] fields = disk.get(key);
+			if (fields == null) {
+				return null;
+			}
+			List<Message> messages = Lists.newArrayList();
+			for (int i = 2; i + MESSAGE_FIELD_COUNT <= fields.length; i += MESSAGE_FIELD_COUNT) {
+				messages.add(new Message(fields[i], fromField(fields[i + 1]),
+						toInteger(fromField(fields[i + 2])), toInteger(fromField(fields[i + 3])),
+						fromField(fields[i + 4]), fromField(fields[i + 5])));
+			}
+			return new Result(messages, fromField(fields[0]), fromField(fields[1]));
+		} catch (IOException e) {
+			logger.error("Parse cache: " + e.getMessage());
+		}
+		return null;
+	}
+
+
+	private static String toField(Object obj) {
+		if (obj == null) {
+			return NULL_FIELD;
+		}
+		return obj.toString();
+	}
+
+
+	private static String fromField(String field) {
+		if (NULL_FIELD.equals(field)) {
+			return null;
+		}
+		return field;
+	}
+
+
+	private static Integer toInteger(String str) {
+		if (str == null) {
+			return null;
+		}
+		return Integer.valueOf(str);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview;
+
+/**
+ * <p>Immutable copy of the preferences that affect the parsing of a snippet.
+ * The copy is taken once in the thread that starts the parsing, so that the
+ * parser threads do not read the preferences, and so that all the snippets
+ * of a bulk update are parsed with the same settings.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+final class ParseSettings {
+
+	private final boolean useMos;
+	private final boolean parseWithUndefinedTokens;
+	private final boolean paraphrase1Enabled;
+	private final String parserKey;
+
+
+	private ParseSettings(ACEViewPreferences prefs) {
+		useMos = prefs.getUseMos();
+		parseWithUndefinedTokens = prefs.getParseWithUndefinedTokens();
+		paraphrase1Enabled = prefs.isParaphrase1Enabled();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(prefs.getAceToOwl()).append(' ');
+		sb.append(prefs.getApePath()).append(' ');
+		sb.append(prefs.getAceToOwlWebserviceUrl()).append(' ');
+		sb.append(prefs.getAceToOwlSocketHost()).append(':').append(prefs.getAceToOwlSocketPort()).append('\n');
+		sb.append(prefs.isGuessingEnabled()).append(' ');
+		sb.append(prefs.isClexEnabled()).append(' ');
+		sb.append(prefs.isParaphrase1Enabled()).append('\n');
+		parserKey = sb.toString();
+	}
+
+
+	/**
+	 * @param prefs ACE View preferences
+	 * @return Copy of the parsing settings of the given preferences
+	 */
+	public static ParseSettings of(ACEViewPreferences prefs) {
+		return new ParseSettings(prefs);
+	}
+
+
+	public boolean isUseMos() {
+		return useMos;
+	}
+
+
+	public boolean isParseWithUndefinedTokens() {
+		return parseWithUndefinedTokens;
+	}
+
+
+	public boolean isParaphrase1Enabled() {
+		return paraphrase1Enabled;
+	}
+
+
+	/**
+	 * @return String that identifies the parser and its flags (e.g. to be used in a cache key)
+	 */
+	public String getParserKey() {
+		return parserKey;
+	}
+}
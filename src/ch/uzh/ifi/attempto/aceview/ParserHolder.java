@@ -25,21 +25,30 @@ public enum ParserHolder {
 
 	INSTANCE;
 
-	private ACEParser aceParser;
+	private volatile ParserPool parserPool;
+
+	// APE Local is a single Prolog engine per JVM, so its pool is created once
+	// and is reused when the user switches back to APE Local.
+	private ParserPool localParserPool;
 
 	private String apePath;
 
 
 	/**
-	 * <p>Returns the concrete ACE parser
+	 * <p>Returns the pool of the concrete ACE parsers
 	 * (either <code>APELocal</code>, <code>APESocket</code>, or <code>APEWebservice</code>)
 	 * that the user has selected in the Protege Preferences-menu. In case
 	 * the parser has not been selected then <code>null</code> is returned.</p>
 	 * 
-	 * @return ACE parser that is selected in preferences
+	 * <p>The pool of APE Local contains a single parser. The pools of APE Socket and APE Webservice
+	 * contain as many parsers as the preferences allow concurrent calls.
+	 * A caller must not keep a parser after its call has finished, but give it back to
+	 * the pool from which it was borrowed.</p>
+	 * 
+	 * @return Pool of the ACE parsers that are selected in preferences
 	 */
-	public static ACEParser getACEParser() {
-		return INSTANCE.aceParser;
+	public static ParserPool getParserPool() {
+		return INSTANCE.parserPool;
 	}
 
 
@@ -53,6 +62,10 @@ public enum ParserHolder {
 	 * @throws Exception if Protege needs to be restarted for the update to take effect
 	 */
 	public static void updateACEParser(ACEViewPreferences prefs) throws Exception {
+		final boolean isGuessingEnabled = prefs.isGuessingEnabled();
+		final boolean isClexEnabled = prefs.isClexEnabled();
+		// The preferences panel accepts any number, but the pool needs at least one parser
+		int threadCount = Math.max(1, prefs.getAceToOwlThreads());
 		String serviceType = prefs.getAceToOwl();
 		if (serviceType.equals("APE Local")) {
 			String apePath = prefs.getApePath();
@@ -62,17 +75,39 @@ public enum ParserHolder {
 				}
 				INSTANCE.apePath = apePath;
 				APELocal.init(apePath);
-				INSTANCE.aceParser = APELocal.getInstance();
+				INSTANCE.localParserPool = new ParserPool(new ParserPool.Factory() {
+					public ACEParser create() {
+						return APELocal.getInstance();
+					}
+				}, 1);
 			}
+			APELocal.getInstance().setGuessingEnabled(isGuessingEnabled);
+			APELocal.getInstance().setClexEnabled(isClexEnabled);
+			INSTANCE.parserPool = INSTANCE.localParserPool;
 		}
 		else if (serviceType.equals("APE Socket")) {
-			INSTANCE.aceParser = new APESocket(prefs.getAceToOwlSocketHost(), prefs.getAceToOwlSocketPort());
+			final String host = prefs.getAceToOwlSocketHost();
+			final int port = prefs.getAceToOwlSocketPort();
+			INSTANCE.parserPool = new ParserPool(new ParserPool.Factory() {
+				public ACEParser create() {
+					return configure(new APESocket(host, port), isGuessingEnabled, isClexEnabled);
+				}
+			}, threadCount);
 		}
 		else if (serviceType.equals("APE Webservice")) {
-			INSTANCE.aceParser = new APEWebservice(prefs.getAceToOwlWebserviceUrl());
+			final String url = prefs.getAceToOwlWebserviceUrl();
+			INSTANCE.parserPool = new ParserPool(new ParserPool.Factory() {
+				public ACEParser create() {
+					return configure(new APEWebservice(url), isGuessingEnabled, isClexEnabled);
+				}
+			}, threadCount);
 		}
+	}
+
 
-		INSTANCE.aceParser.setGuessingEnabled(prefs.isGuessingEnabled());
-		INSTANCE.aceParser.setClexEnabled(prefs.isClexEnabled());
+	private static ACEParser configure(ACEParser parser, boolean isGuessingEnabled, boolean isClexEnabled) {
+		parser.setGuessingEnabled(isGuessingEnabled);
+		parser.setClexEnabled(isClexEnabled);
+		return parser;
 	}
-}
\ No newline at end of file
+}
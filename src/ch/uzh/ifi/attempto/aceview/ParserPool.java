@@ -0,0 +1,129 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import ch.uzh.ifi.attempto.ape.ACEParser;
+
+/**
+ * <p>Fixed-size pool of ACE parsers of the same kind. A parser is checked out
+ * with {@link #borrow()} and must be given back with {@link #giveBack(ACEParser)},
+ * or, if the call failed (e.g. the connection to the socket server or
+ * the webservice broke), with {@link #discard(ACEParser)}, in which case
+ * a fresh parser takes its place. The size of the pool is the maximal
+ * number of concurrent calls to the backend.</p>
+ *
+ * <p>Because each parser is used by one thread at a time,
+ * its settings (e.g. the URI) can be changed before each call.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class ParserPool {
+
+	private static final Logger logger = Logger.getLogger(ParserPool.class);
+
+	/**
+	 * <p>Creates the parsers of the pool.</p>
+	 */
+	public interface Factory {
+		ACEParser create();
+	}
+
+	private final Factory factory;
+	private final BlockingQueue<ACEParser> idle;
+	private final int size;
+
+	private int discardCount = 0;
+
+
+	/**
+	 * @param factory Factory that creates the parsers
+	 * @param size Number of parsers in the pool
+	 */
+	public ParserPool(Factory factory, int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: " + size);
+		}
+		this.factory = factory;
+		this.size = size;
+		this.idle = new ArrayBlockingQueue<ACEParser>(size);
+		for (int i = 0; i < size; i++) {
+			idle.add(factory.create());
+		}
+	}
+
+
+	/**
+	 * <p>Takes a parser from the pool, waiting until one becomes available.</p>
+	 *
+	 * @return ACE parser
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public ACEParser borrow() throws InterruptedException {
+		return idle.take();
+	}
+
+
+	/**
+	 * <p>Returns a parser that was taken from the pool.</p>
+	 *
+	 * @param parser ACE parser
+	 */
+	public void giveBack(ACEParser parser) {
+		idle.offer(parser);
+	}
+
+
+	/**
+	 * <p>Drops a parser whose call failed and puts a new parser into the pool
+	 * in its place.</p>
+	 *
+	 * @param parser ACE parser
+	 */
+	public void discard(ACEParser parser) {
+		synchronized (this) {
+			discardCount++;
+		}
+		logger.info("Replacing a failed parser (" + parser.getClass().getSimpleName() + ")");
+		idle.offer(factory.create());
+	}
+
+
+	/**
+	 * @return Number of parsers in the pool
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @return Number of parsers that are currently not borrowed
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+
+	public synchronized int getDiscardCount() {
+		return discardCount;
+	}
+}
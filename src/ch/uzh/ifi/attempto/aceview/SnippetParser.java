@@ -0,0 +1,236 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import ch.uzh.ifi.attempto.ace.ACESentence;
+import ch.uzh.ifi.attempto.ace.ACEToken;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapperImpl;
+import ch.uzh.ifi.attempto.aceview.lexicon.Triple;
+
+/**
+ * <p>Parses a collection of new snippets in a pool of worker threads.
+ * This is the first phase of a bulk update of the ACE text, the second
+ * phase (see {@link ACETextManager#addAndRemoveItems(Collection, Collection, SnippetParser)})
+ * adds the parsed snippets to the ACE text and the ontology in one go.
+ * The parsing settings are captured in the calling thread before the work is handed out,
+ * and the lexicon entries of the content words of the snippets are copied into a private
+ * lexicon on the event dispatch thread (where the lexicon is changed). The workers
+ * only read this copy and do not read the preferences, and the ACE text
+ * and the ontology do not change during this phase.</p>
+ *
+ * <p>The number of workers equals the number of parsers in the parser pool
+ * (see {@link ParserHolder#getParserPool()}), i.e. APE Local parses one snippet
+ * at a time, while APE Socket and APE Webservice receive several concurrent calls.</p>
+ *
+ * <p>The parsing can be cancelled from any thread, in which case the snippets
+ * that are being parsed are completed (i.e. the parser calls are not interrupted),
+ * the remaining snippets are skipped, and
+ * {@link #parse(OWLOntologyID, Collection)} throws a {@link CancellationException}
+ * and the caller should not change the ACE text at all.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class SnippetParser {
+
+	private static final Logger logger = Logger.getLogger(SnippetParser.class);
+
+	// Progress is reported after every PROGRESS_STEP snippets
+	private static final int PROGRESS_STEP = 10;
+
+	private final List<ACETextLoader.ProgressListener> listeners = new CopyOnWriteArrayList<ACETextLoader.ProgressListener>();
+	private final List<Future<ACESnippet>> futures = new CopyOnWriteArrayList<Future<ACESnippet>>();
+
+	private volatile boolean isCancelled = false;
+
+
+	public void addProgressListener(ACETextLoader.ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+
+	public void removeProgressListener(ACETextLoader.ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+
+	/**
+	 * <p>Stops parsing. Can be called from any thread.</p>
+	 */
+	public void cancel() {
+		isCancelled = true;
+		// The running parser calls are not interrupted, because an interrupted
+		// parser would have to be discarded. The workers check the flag between the snippets.
+		for (Future<ACESnippet> future : futures) {
+			future.cancel(false);
+		}
+	}
+
+
+	public boolean isCancelled() {
+		return isCancelled;
+	}
+
+
+	/**
+	 * <p>Parses the given sentence lists into snippets, using as many threads
+	 * as there are parsers in the parser pool. The progress listeners are
+	 * notified in the calling thread.</p>
+	 *
+	 * @param ns Default namespace of the snippets
+	 * @param sentenceLists Sentence lists, one for each snippet
+	 * @return Snippets in the order of the sentence lists
+	 * @throws CancellationException if the parsing was cancelled
+	 */
+	public List<ACESnippet> parse(final OWLOntologyID ns, Collection<List<ACESentence>> sentenceLists) {
+		int total = sentenceLists.size();
+		List<ACESnippet> snippets = Lists.newArrayListWithCapacity(total);
+		if (total == 0) {
+			return snippets;
+		}
+
+		long start = System.currentTimeMillis();
+		final TokenMapper aceLexicon = copyLexicon(ACETextManager.getACELexicon(ns), sentenceLists);
+		final ParseSettings settings = ParseSettings.of(ACEViewPreferences.getInstance());
+		int workerCount = getWorkerCount(total);
+		ExecutorService executor = createExecutor(workerCount);
+		futures.clear();
+		try {
+			for (final List<ACESentence> sentences : sentenceLists) {
+				Future<ACESnippet> future = executor.submit(new Callable<ACESnippet>() {
+					public ACESnippet call() {
+						if (isCancelled) {
+							return null;
+						}
+						return new ACESnippetImpl(ns, sentences, aceLexicon, settings);
+					}
+				});
+				futures.add(future);
+				// cancel() might have missed this future
+				if (isCancelled) {
+					future.cancel(false);
+				}
+			}
+			for (Future<ACESnippet> future : futures) {
+				snippets.add(get(future));
+				if (snippets.size() % PROGRESS_STEP == 0) {
+					fireProgressChanged(snippets.size(), total);
+				}
+			}
+		}
+		finally {
+			// The queued snippets are skipped if the parsing was cancelled
+			executor.shutdown();
+			futures.clear();
+		}
+		fireProgressChanged(total, total);
+
+		logger.info("Parsed " + total + " snippets in " + (System.currentTimeMillis() - start) + " ms; workers: " + workerCount);
+		return snippets;
+	}
+
+
+	private ACESnippet get(Future<ACESnippet> future) {
+		ACESnippet snippet = null;
+		try {
+			snippet = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		if (isCancelled || snippet == null) {
+			throw new CancellationException();
+		}
+		return snippet;
+	}
+
+
+	/**
+	 * <p>Returns a new lexicon that contains the entries of the given lexicon
+	 * for the content words of the given sentences. The entries are copied
+	 * on the event dispatch thread.</p>
+	 */
+	private static TokenMapper copyLexicon(final TokenMapper aceLexicon, Collection<List<ACESentence>> sentenceLists) {
+		final Set<String> wordforms = Sets.newHashSet();
+		for (List<ACESentence> sentences : sentenceLists) {
+			for (ACESentence sentence : sentences) {
+				for (ACEToken contentWord : sentence.getContentWords()) {
+					wordforms.add(contentWord.toString());
+				}
+			}
+		}
+		final TokenMapper copy = new TokenMapperImpl();
+		ACETextManager.invokeAndWait(new Runnable() {
+			public void run() {
+				for (String wordform : wordforms) {
+					for (Triple triple : aceLexicon.getWordformEntries(wordform)) {
+						copy.addEntry(triple.getObject(), triple.getSubjectIRI(), triple.getProperty());
+					}
+				}
+			}
+		});
+		return copy;
+	}
+
+
+	private static int getWorkerCount(int total) {
+		ParserPool parserPool = ParserHolder.getParserPool();
+		int poolSize = (parserPool == null) ? 1 : parserPool.size();
+		return Math.max(1, Math.min(poolSize, total));
+	}
+
+
+	private static ExecutorService createExecutor(int workerCount) {
+		final AtomicInteger threadCounter = new AtomicInteger();
+		return Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ACE View parser " + threadCounter.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+
+	private void fireProgressChanged(int done, int total) {
+		for (ACETextLoader.ProgressListener listener : listeners) {
+			listener.progressChanged(done, total);
+		}
+	}
+}
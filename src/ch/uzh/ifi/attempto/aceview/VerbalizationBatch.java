@@ -0,0 +1,192 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * <p>A group of annotation-free logical axioms that are verbalized with a
+ * single call to the OWL verbalizer webservice, together with the
+ * annotation assertion axioms of all the entities in their signatures.</p>
+ *
+ * <p>The batch is filled in the thread that owns the ontology. Afterwards
+ * {@link #verbalize(AxiomVerbalizer)} does not access the ontology anymore
+ * and can be called from a worker thread.</p>
+ *
+ * <p>No two axioms in the batch have the same signature. This guarantees
+ * that a verbalization which is assigned to the wrong axiom is detected
+ * (see {@link AxiomVerbalizer#verbalizeBatchWithWS(List, Set)}).</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+final class VerbalizationBatch {
+
+	private static final Logger logger = Logger.getLogger(VerbalizationBatch.class);
+
+	private final int capacity;
+	private final List<OWLLogicalAxiom> axioms = Lists.newArrayList();
+	private final Set<Set<OWLEntity>> signatures = Sets.newHashSet();
+	private final Set<OWLAnnotationAssertionAxiom> annotations = Sets.newHashSet();
+
+	private int failedCount = 0;
+	private boolean isSplitFailed = false;
+
+
+	/**
+	 * @param capacity Maximal number of axioms in the batch
+	 */
+	VerbalizationBatch(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+
+	/**
+	 * <p>Adds the given annotation-free axiom to the batch unless the batch is full
+	 * or already contains an axiom with the same signature.</p>
+	 *
+	 * @param axiom OWL logical axiom without annotations
+	 * @param ont Ontology that annotates the entities of the given axiom
+	 * @return <code>true</code> if the axiom was added
+	 */
+	boolean add(OWLLogicalAxiom axiom, OWLOntology ont) {
+		if (isFull()) {
+			return false;
+		}
+		Set<OWLEntity> signature = axiom.getSignature();
+		if (! signatures.add(signature)) {
+			return false;
+		}
+		axioms.add(axiom);
+		for (OWLEntity entity : signature) {
+			annotations.addAll(entity.getAnnotationAssertionAxioms(ont));
+		}
+		return true;
+	}
+
+
+	boolean isFull() {
+		return axioms.size() >= capacity;
+	}
+
+
+	boolean isEmpty() {
+		return axioms.isEmpty();
+	}
+
+
+	int size() {
+		return axioms.size();
+	}
+
+
+	List<OWLLogicalAxiom> getAxioms() {
+		return axioms;
+	}
+
+
+	/**
+	 * @return Number of axioms that the webservice failed to verbalize
+	 */
+	int getFailedCount() {
+		return failedCount;
+	}
+
+
+	/**
+	 * @return <code>true</code> iff the webservice output could not be split into per-axiom verbalizations
+	 */
+	boolean isSplitFailed() {
+		return isSplitFailed;
+	}
+
+
+	/**
+	 * <p>Verbalizes the axioms of this batch. If the batch verbalization fails or
+	 * its output cannot be split reliably then the axioms are verbalized one by one.
+	 * The obtained verbalizations are stored in the verbalization cache of the verbalizer.</p>
+	 *
+	 * @param verbalizer Axiom verbalizer
+	 * @return Verbalizations in the order of the axioms, <code>null</code> for the axioms that failed
+	 */
+	List<String> verbalize(AxiomVerbalizer verbalizer) {
+		List<String> verbalizations = verbalizeWithWS(verbalizer);
+		for (int i = 0; i < axioms.size(); i++) {
+			OWLLogicalAxiom axiom = axioms.get(i);
+			verbalizer.cacheVerbalization(axiom, getVerbalizationInput(axiom), verbalizations.get(i));
+		}
+		return verbalizations;
+	}
+
+
+	private List<String> verbalizeWithWS(AxiomVerbalizer verbalizer) {
+		if (axioms.size() > 1) {
+			try {
+				List<String> verbalizations = verbalizer.verbalizeBatchWithWS(axioms, annotations);
+				if (verbalizations != null) {
+					return verbalizations;
+				}
+				isSplitFailed = true;
+				logger.warn("Could not split the verbalization of " + axioms.size() + " axioms, verbalizing them one by one.");
+			} catch (Exception e) {
+				logger.warn("Verbalizing " + axioms.size() + " axioms failed, verbalizing them one by one: " + e.getMessage());
+			}
+		}
+
+		List<String> verbalizations = Lists.newArrayList();
+		for (OWLLogicalAxiom axiom : axioms) {
+			try {
+				verbalizations.add(verbalizer.verbalizeWithWS(getVerbalizationInput(axiom)));
+			} catch (Exception e) {
+				failedCount++;
+				logger.error("OWL verbalizer error: " + axiom + ": " + e.getMessage());
+				verbalizations.add(null);
+			}
+		}
+		return verbalizations;
+	}
+
+
+	/**
+	 * <p>Returns the given axiom and the annotation assertion axioms
+	 * (among those of the batch) of the entities in its signature.</p>
+	 */
+	private Set<OWLAxiom> getVerbalizationInput(OWLLogicalAxiom axiom) {
+		Set<IRI> iris = Sets.newHashSet();
+		for (OWLEntity entity : axiom.getSignature()) {
+			iris.add(entity.getIRI());
+		}
+		Set<OWLAxiom> allAxioms = Sets.newHashSet((OWLAxiom) axiom);
+		for (OWLAnnotationAssertionAxiom ax : annotations) {
+			if (iris.contains(ax.getSubject())) {
+				allAxioms.add(ax);
+			}
+		}
+		return allAxioms;
+	}
+}
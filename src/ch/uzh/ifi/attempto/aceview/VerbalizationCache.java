@@ -0,0 +1,229 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.util.AppendOnlyStore;
+import ch.uzh.ifi.attempto.aceview.util.Fingerprint;
+import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
+
+/**
+ * <p>Persistent cache of the verbalizations returned by the OWL verbalizer webservice.
+ * The key of a verbalization is the fingerprint of the annotation-free axiom
+ * (in a structural rendering with full IRIs, see {@link OntologyUtils#toStructuralString(org.semanticweb.owlapi.model.OWLObject)})
+ * together with the morphological annotations (i.e. surface forms) of the entities
+ * in its signature and the URL of the verbalizer. Changing the surface form
+ * of an entity therefore changes the key, but the entries that mention the entity
+ * should also be removed explicitly with {@link #invalidate(IRI)} so that
+ * they do not pile up in the cache file.</p>
+ *
+ * <p>Errors in reading or writing the cache file are logged and otherwise ignored,
+ * i.e. in the worst case the axiom is verbalized by the webservice again.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class VerbalizationCache {
+
+	private static final Logger logger = Logger.getLogger(VerbalizationCache.class);
+
+	// Must be increased if the format of the key or of the value changes
+	private static final int VERSION = 2;
+
+	private final AppendOnlyStore store;
+
+	// Maps the entities to the keys of the entries that mention them.
+	// Built on the first invalidation because it requires reading the whole file.
+	private Multimap<IRI, Long> iriToKeys;
+
+	private int hitCount = 0;
+	private int missCount = 0;
+
+
+	/**
+	 * @param file Cache file
+	 * @throws IOException
+	 */
+	public VerbalizationCache(File file) throws IOException {
+		store = new AppendOnlyStore(file, VERSION);
+		logger.info("Verbalization cache " + file + " contains " + store.size() + " entries");
+	}
+
+
+	/**
+	 * <p>Computes the cache key of the given axiom.</p>
+	 *
+	 * @param verbalizerWSURL URL of the verbalizer webservice
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param input Axioms that are sent to the verbalizer in order to verbalize the given axiom,
+	 * see {@link AxiomVerbalizer#getVerbalizationInput(OWLLogicalAxiom, org.semanticweb.owlapi.model.OWLOntology)}
+	 * @return Fingerprint of the axiom
+	 */
+	public static long getFingerprint(String verbalizerWSURL, OWLLogicalAxiom axiomWithoutAnnotations, Collection<? extends OWLAxiom> input) {
+		List<String> surfaceForms = Lists.newArrayList();
+		for (OWLAxiom ax : input) {
+			if (ax instanceof OWLAnnotationAssertionAxiom) {
+				OWLAnnotationAssertionAxiom annAx = (OWLAnnotationAssertionAxiom) ax;
+				if (MorphType.isMorphTypeIRI(annAx.getProperty().getIRI())) {
+					surfaceForms.add(OntologyUtils.toStructuralString(annAx));
+				}
+			}
+		}
+		// The order of the input axioms is arbitrary
+		Collections.sort(surfaceForms);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(verbalizerWSURL).append('\n');
+		sb.append(OntologyUtils.toStructuralString(axiomWithoutAnnotations)).append('\n');
+		for (String surfaceForm : surfaceForms) {
+			sb.append(surfaceForm).append('\n');
+		}
+		return Fingerprint.of(sb.toString());
+	}
+
+
+	/**
+	 * @param fingerprint Fingerprint of the axiom
+	 * @return Cached verbalization or <code>null</code>
+	 */
+	public synchronized String get(long fingerprint) {
+		try {
+			String[] fields = store.get(fingerprint);
+			if (fields != null) {
+				hitCount++;
+				return fields[0];
+			}
+		} catch (IOException e) {
+			logger.error("Verbalization cache: " + e.getMessage());
+		}
+		missCount++;
+		return null;
+	}
+
+
+	/**
+	 * @param fingerprint Fingerprint of the axiom
+	 * @param axiomWithoutAnnotations OWL logical axiom without annotations
+	 * @param verbalization Verbalization of the axiom
+	 */
+	public synchronized void put(long fingerprint, OWLLogicalAxiom axiomWithoutAnnotations, String verbalization) {
+		List<String> fields = Lists.newArrayList(verbalization);
+		for (OWLEntity entity : axiomWithoutAnnotations.getSignature()) {
+			if (! entity.isBuiltIn()) {
+				fields.add(entity.getIRI().toString());
+			}
+		}
+		try {
+			store.put(fingerprint, fields.toArray(new String[fields.size()]));
+			if (iriToKeys != null) {
+				for (String iri : fields.subList(1, fields.size())) {
+					iriToKeys.put(IRI.create(iri), fingerprint);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Verbalization cache: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * <p>Removes the verbalizations of all the axioms
+	 * whose signature contains the given entity.</p>
+	 *
+	 * @param iri IRI of an entity
+	 */
+	public synchronized void invalidate(IRI iri) {
+		try {
+			if (iriToKeys == null) {
+				iriToKeys = buildIndex();
+			}
+			Collection<Long> keys = iriToKeys.removeAll(iri);
+			for (Long key : keys) {
+				store.remove(key);
+			}
+			if (! keys.isEmpty()) {
+				logger.info("Verbalization cache: removed " + keys.size() + " entries that mention " + iri);
+			}
+		} catch (IOException e) {
+			logger.error("Verbalization cache: " + e.getMessage());
+		}
+	}
+
+
+	public synchronized int size() {
+		return store.size();
+	}
+
+
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * <p>Writes the new entries to the cache file.</p>
+	 */
+	public synchronized void flush() {
+		try {
+			store.flush();
+		} catch (IOException e) {
+			logger.error("Verbalization cache: " + e.getMessage());
+		}
+	}
+
+
+	public synchronized void close() {
+		try {
+			store.close();
+		} catch (IOException e) {
+			logger.error("Verbalization cache: " + e.getMessage());
+		}
+	}
+
+
+	private Multimap<IRI, Long> buildIndex() throws IOException {
+		Multimap<IRI, Long> index = HashMultimap.create();
+		for (Long key : store.keySet()) {
+			String[] fields = store.get(key);
+			for (int i = 1; i < fields.length; i++) {
+				index.put(IRI.create(fields[i]), key);
+			}
+		}
+		return index;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.lexicon;
+
+/**
+ * <p>Record of a single change of the ACE lexicon: the addition or the removal
+ * of a wordform-IRI-morphtype triple, together with the generation of the
+ * lexicon that the change produced (see {@link TokenMapper#getGeneration()}).</p>
+ * 
+ * @author Kaarel Kaljurand
+ */
+public final class LexiconChange {
+
+	private final Triple triple;
+	private final boolean isAddition;
+	private final long generation;
+
+	public LexiconChange(Triple triple, boolean isAddition, long generation) {
+		this.triple = triple;
+		this.isAddition = isAddition;
+		this.generation = generation;
+	}
+
+	public Triple getTriple() {
+		return triple;
+	}
+
+	public String getWordform() {
+		return triple.getObject();
+	}
+
+	/**
+	 * @return <code>true</code> if the triple was added, <code>false</code> if it was removed
+	 */
+	public boolean isAddition() {
+		return isAddition;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public String toString() {
+		return generation + (isAddition ? " + " : " - ") + triple;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.lexicon;
+
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.google.common.collect.Maps;
+
+/**
+ * <p>Index of the surface forms that the morphological annotations
+ * of an ontology assign to its entities, i.e. a map from
+ * (entity IRI, morphological type) to the surface form.
+ * The index is built once from the annotation assertion axioms of the ontology
+ * and must afterwards be updated whenever a morphological annotation is
+ * added to or removed from the ontology. A lookup takes constant time and
+ * does not allocate any objects.</p>
+ *
+ * <p>If an entity has several annotations of the same type then
+ * one of them is used, as has always been the case.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class SurfaceFormIndex {
+
+	private static final int MORPH_TYPE_COUNT = MorphType.values().length;
+
+	private final OWLOntology ont;
+
+	// Maps the entity IRI to its surface forms, indexed by the ordinal of the morph type
+	private final Map<IRI, String[]> iriToForms = Maps.newHashMap();
+
+
+	/**
+	 * <p>Builds the index from the morphological annotations of the given ontology.</p>
+	 *
+	 * @param ont OWL ontology
+	 */
+	public SurfaceFormIndex(OWLOntology ont) {
+		this.ont = ont;
+		for (OWLAnnotationAssertionAxiom annAx : ont.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+			MorphType morphType = MorphType.getMorphType(annAx.getProperty().getIRI());
+			String form = getForm(annAx);
+			if (morphType != null && form != null && annAx.getSubject() instanceof IRI) {
+				IRI iri = (IRI) annAx.getSubject();
+				if (get(iri, morphType) == null) {
+					put(iri, morphType, form);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @param iri IRI of an entity
+	 * @param morphType Morphological type
+	 * @return Surface form or <code>null</code> if the entity does not have such annotation
+	 */
+	public String get(IRI iri, MorphType morphType) {
+		String[] forms = iriToForms.get(iri);
+		if (forms == null) {
+			return null;
+		}
+		return forms[morphType.ordinal()];
+	}
+
+
+	/**
+	 * <p>Updates the index after the given morphological annotation has been
+	 * added to the ontology.</p>
+	 *
+	 * @param iri IRI of an entity
+	 * @param morphType Morphological type
+	 * @param form Surface form
+	 */
+	public void add(IRI iri, MorphType morphType, String form) {
+		put(iri, morphType, form);
+	}
+
+
+	/**
+	 * <p>Updates the index after the given morphological annotation has been
+	 * removed from the ontology. If the entity has another annotation of the
+	 * same type then its surface form takes the place of the removed one.</p>
+	 *
+	 * @param iri IRI of an entity
+	 * @param morphType Morphological type
+	 * @param form Surface form
+	 */
+	public void remove(IRI iri, MorphType morphType, String form) {
+		String[] forms = iriToForms.get(iri);
+		if (forms == null || ! form.equals(forms[morphType.ordinal()])) {
+			return;
+		}
+		forms[morphType.ordinal()] = null;
+		for (OWLAnnotationAssertionAxiom annAx : ont.getAnnotationAssertionAxioms(iri)) {
+			if (morphType.hasIRI(annAx.getProperty().getIRI())) {
+				String otherForm = getForm(annAx);
+				if (otherForm != null) {
+					forms[morphType.ordinal()] = otherForm;
+					return;
+				}
+			}
+		}
+	}
+
+
+	private void put(IRI iri, MorphType morphType, String form) {
+		String[] forms = iriToForms.get(iri);
+		if (forms == null) {
+			forms = new String[MORPH_TYPE_COUNT];
+			iriToForms.put(iri, forms);
+		}
+		forms[morphType.ordinal()] = form;
+	}
+
+
+	private static String getForm(OWLAnnotationAssertionAxiom annAx) {
+		OWLAnnotationValue value = annAx.getValue();
+		if (value instanceof OWLLiteral) {
+			return ((OWLLiteral) value).getLiteral();
+		}
+		return null;
+	}
+}
@@ -1,6 +1,7 @@
 package ch.uzh.ifi.attempto.aceview.lexicon;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.semanticweb.owlapi.model.IRI;
@@ -68,6 +69,37 @@ public interface TokenMapper {
 	int size();
 
 
+	/**
+	 * <p>Returns the generation of the lexicon, i.e. a number that changes
+	 * whenever an entry is added or removed. Can be used to find out if
+	 * something that was derived from the lexicon is still up to date.</p>
+	 * 
+	 * @return Generation of the lexicon
+	 */
+	long getGeneration();
+
+
+	/**
+	 * <p>Returns the changes that have been made to the lexicon
+	 * after the given generation, in the order in which they were made.
+	 * Only a bounded number of recent changes is remembered. If some of the
+	 * requested changes have been forgotten then <code>null</code> is returned,
+	 * in which case everything derived from the lexicon should be considered stale.</p>
+	 * 
+	 * @param generation Generation of the lexicon
+	 * @return List of changes (possibly empty), or <code>null</code>
+	 */
+	List<LexiconChange> getChangesSince(long generation);
+
+
+	/**
+	 * <p>Returns all the wordform-IRI-morphtype triples of the lexicon.</p>
+	 * 
+	 * @return Collection of triples
+	 */
+	Collection<Triple> getEntries();
+
+
 	/**
 	 * <p>Returns the number of CN entries in the lexicon.</p>
 	 * 
@@ -17,22 +17,28 @@
 package ch.uzh.ifi.attempto.aceview.lexicon;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.IRI;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.ape.Lexicon;
 import ch.uzh.ifi.attempto.ape.LexiconEntry;
+import ch.uzh.ifi.attempto.aceview.util.ChangeJournal;
 
 public class TokenMapperImpl implements TokenMapper {
 
 	private static final Logger logger = Logger.getLogger(TokenMapperImpl.class);
 
+	// Maximal number of changes in the change journal
+	private static final int JOURNAL_SIZE = 4096;
+
 	private final Multimap<String, Triple> map = HashMultimap.create();
 	private final Multimap<IRI, Triple> map2 = HashMultimap.create();
 
@@ -53,6 +59,9 @@ public class TokenMapperImpl implements TokenMapper {
 
 	private int partialCount = 0;
 
+	// The most recent changes of the lexicon
+	private final ChangeJournal<LexiconChange> journal = new ChangeJournal<LexiconChange>(JOURNAL_SIZE);
+
 
 	public TokenMapperImpl() {
 		ac = new Autocompleter();
@@ -73,7 +82,10 @@ public class TokenMapperImpl implements TokenMapper {
 	public void addEntry(String wordform, IRI lemma, MorphType morphType) {
 		Triple triple = new Triple(lemma, morphType, wordform);
 
-		map.put(wordform, triple);
+		if (! map.put(wordform, triple)) {
+			logger.info("Already in the lexicon: " + wordform + " -> " + triple);
+			return;
+		}
 		map2.put(lemma, triple);
 		ac.add(wordform);
 
@@ -112,22 +124,27 @@ public class TokenMapperImpl implements TokenMapper {
 				throw new RuntimeException("Programmer expected CN/TV/PN");
 			}
 		 */
+		// The change is recorded only after the lexicon has been changed, so that
+		// a listener that has seen the new generation also sees the change.
+		record(triple, true);
 		logger.info("Added: " + wordform + " -> " + triple);
 	}
 
 
 	public void removeEntry(String wordform, IRI lemma, MorphType morphType) {
-		// TODO: BUG: check that the triple is in the map
+		Triple triple = new Triple(lemma, morphType, wordform);
+		if (! map.remove(wordform, triple)) {
+			logger.info("Not in the lexicon: " + wordform + " -> " + triple);
+			return;
+		}
+		map2.remove(lemma, triple);
 
-		// If there are currently exactly 2 triples for the
-		// same wordform then this wordform will become unambiguous.
-		if (map.get(wordform).size() == 2) {
+		// If there is now exactly 1 triple for the
+		// same wordform then this wordform has become unambiguous.
+		if (map.get(wordform).size() == 1) {
 			ambiguousWordforms.remove(wordform);
 		}
 
-		Triple triple = new Triple(lemma, morphType, wordform);
-		map.remove(wordform, triple);
-		map2.remove(lemma, triple);
 		if (! map.containsKey(wordform)) {
 			ac.remove(wordform);
 			logger.info("Removed: " + wordform + " -> " + triple + " (no tokens remaining)");
@@ -166,6 +183,8 @@ public class TokenMapperImpl implements TokenMapper {
 				throw new RuntimeException("Programmer expected CN/TV/PN");
 			}
 		 */
+
+		record(triple, false);
 	}
 
 
@@ -185,6 +204,30 @@ public class TokenMapperImpl implements TokenMapper {
 	}
 
 
+	public long getGeneration() {
+		return journal.getGeneration();
+	}
+
+
+	public Collection<Triple> getEntries() {
+		return Lists.newArrayList(map.values());
+	}
+
+
+	public List<LexiconChange> getChangesSince(long since) {
+		return journal.getChangesSince(since);
+	}
+
+
+	/**
+	 * <p>Adds the change to the journal. The change gets the next generation
+	 * of the lexicon.</p>
+	 */
+	private synchronized void record(Triple triple, boolean isAddition) {
+		journal.add(new LexiconChange(triple, isAddition, journal.getGeneration() + 1));
+	}
+
+
 	public boolean containsWordform(String wordform) {
 		return map.containsKey(wordform);
 	}
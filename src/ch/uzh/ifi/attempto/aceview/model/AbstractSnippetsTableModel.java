@@ -102,7 +102,7 @@ public abstract class AbstractSnippetsTableModel extends AbstractTableModel {
 					fireTableCellUpdated(row, column);
 				}
 				else {
-					ACETextManager.updateSnippet(row, oldSnippet, newSentences);
+					ACETextManager.updateSnippet(oldSnippet, newSentences);
 					fireTableCellUpdated(row, column);
 				}
 			}
@@ -0,0 +1,249 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import ch.uzh.ifi.attempto.aceview.ACEText;
+import ch.uzh.ifi.attempto.aceview.ACETextChange;
+import ch.uzh.ifi.attempto.aceview.ACETextManager;
+import ch.uzh.ifi.attempto.aceview.model.event.ACETextDelta;
+import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
+import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
+import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
+import ch.uzh.ifi.attempto.aceview.util.CollatedList;
+
+/**
+ * <p>List model of the index of the active ACE text, i.e. of the entities
+ * in the signature of the active ontology, sorted by their renderings.
+ * The sorted list is built once and then updated by the changes of the
+ * ACE text, its lexicon, and the ontology: only the entities that are
+ * referenced by the changed snippets, whose lexicon entries changed, or that entered
+ * or left the signature are re-rendered and moved.</p>
+ *
+ * <p>The model must be accessed on the event dispatch thread.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class IndexListModel extends AbstractListModel {
+
+	private static final Function<OWLEntity, String> RENDERER = new Function<OWLEntity, String>() {
+		public String apply(OWLEntity entity) {
+			return ACETextManager.getRendering(entity);
+		}
+	};
+
+	private final CollatedList<OWLEntity> entities = new CollatedList<OWLEntity>();
+	private final Predicate<? super OWLEntity> filter;
+	private ACEText<OWLEntity, OWLLogicalAxiom> acetext;
+	// Generation of the ACE text that the model has seen
+	private long generation;
+
+	private final ACEViewListener<ACEViewEvent<TextEventType>> aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
+		public void handleChange(ACEViewEvent<TextEventType> event) {
+			ACETextDelta delta = event.getDelta();
+			if (delta == null || delta.getFromGeneration() != generation) {
+				reset();
+			}
+			else if (! delta.isEmpty()) {
+				applyDelta(delta);
+			}
+		}
+	};
+
+	// The signature of the ontology can change without changing the ACE text,
+	// e.g. when an axiom that cannot be verbalized is added in another view.
+	private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+		public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+			final Set<OWLEntity> changedEntities = Sets.newHashSet();
+			for (OWLOntologyChange change : changes) {
+				if (change.isAxiomChange()) {
+					changedEntities.addAll(change.getAxiom().getSignature());
+				}
+			}
+			if (! changedEntities.isEmpty()) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						updateEntities(changedEntities);
+					}
+				});
+			}
+		}
+	};
+
+
+	public IndexListModel() {
+		this(Predicates.alwaysTrue());
+	}
+
+
+	/**
+	 * @param filter Selects the entities of the signature that are included in the index
+	 */
+	public IndexListModel(Predicate<? super OWLEntity> filter) {
+		this.filter = filter;
+		reset();
+		ACETextManager.getOWLModelManager().addOntologyChangeListener(ontologyChangeListener);
+		ACETextManager.addListener(aceTextManagerListener);
+	}
+
+
+	public int getSize() {
+		return entities.size();
+	}
+
+
+	public OWLEntity getElementAt(int index) {
+		return entities.get(index);
+	}
+
+
+	/**
+	 * @param index Position of an entity
+	 * @return Rendering of the entity, as it was when the entity was sorted
+	 */
+	public String getRendering(int index) {
+		return entities.getRendering(index);
+	}
+
+
+	/**
+	 * @param index Position of an entity
+	 * @return Number of snippets that reference the entity
+	 */
+	public int getSnippetCount(int index) {
+		return acetext.getSnippetCount(entities.get(index));
+	}
+
+
+	/**
+	 * @param entity OWL entity
+	 * @return Position of the entity, or <code>-1</code> if the entity is not in the index
+	 */
+	public int indexOf(OWLEntity entity) {
+		return entities.indexOf(entity);
+	}
+
+
+	/**
+	 * <p>Sorts the signature of the active ontology from scratch, e.g.
+	 * after the active ontology or the entity renderer has changed.</p>
+	 */
+	public void reset() {
+		acetext = ACETextManager.getActiveACEText();
+		generation = acetext.getGeneration();
+		int oldSize = entities.size();
+		entities.clear();
+		if (oldSize > 0) {
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+		OWLOntology ont = ACETextManager.getOWLModelManager().getActiveOntology();
+		entities.setAll(Iterables.filter(ont.getSignature(), filter), RENDERER);
+		if (entities.size() > 0) {
+			fireIntervalAdded(this, 0, entities.size() - 1);
+		}
+	}
+
+
+	public void dispose() {
+		ACETextManager.removeListener(aceTextManagerListener);
+		ACETextManager.getOWLModelManager().removeOntologyChangeListener(ontologyChangeListener);
+	}
+
+
+	private void applyDelta(ACETextDelta delta) {
+		Set<OWLEntity> changedEntities = Sets.newHashSet();
+		for (ACETextChange change : delta.getSnippetChanges()) {
+			changedEntities.addAll(change.getSnippet().getReferencedEntities());
+		}
+		Set<IRI> iris = delta.getLexiconIRIs();
+		if (! iris.isEmpty()) {
+			OWLOntology ont = ACETextManager.getOWLModelManager().getActiveOntology();
+			for (IRI iri : iris) {
+				changedEntities.addAll(ont.getEntitiesInSignature(iri));
+			}
+		}
+		generation = acetext.getGeneration();
+		updateEntities(changedEntities);
+	}
+
+
+	/**
+	 * <p>Adds the given entities that have entered the signature of the active ontology,
+	 * removes the ones that have left it, moves the ones whose rendering has changed,
+	 * and repaints the rest (as their snippet counts could have changed).</p>
+	 */
+	private void updateEntities(Collection<OWLEntity> changedEntities) {
+		OWLOntology ont = ACETextManager.getOWLModelManager().getActiveOntology();
+		List<OWLEntity> updated = Lists.newArrayList();
+		for (OWLEntity entity : changedEntities) {
+			boolean isIncluded = ont.containsEntityInSignature(entity) && filter.apply(entity);
+			String oldRendering = entities.getRendering(entity);
+			if (oldRendering == null) {
+				if (isIncluded) {
+					add(entity);
+				}
+			}
+			else if (! isIncluded) {
+				remove(entity);
+			}
+			else if (! oldRendering.equals(RENDERER.apply(entity))) {
+				remove(entity);
+				add(entity);
+			}
+			else {
+				updated.add(entity);
+			}
+		}
+		for (OWLEntity entity : updated) {
+			int index = entities.indexOf(entity);
+			fireContentsChanged(this, index, index);
+		}
+	}
+
+
+	private void add(OWLEntity entity) {
+		int index = entities.add(entity, RENDERER.apply(entity));
+		fireIntervalAdded(this, index, index);
+	}
+
+
+	private void remove(OWLEntity entity) {
+		int index = entities.remove(entity);
+		fireIntervalRemoved(this, index, index);
+	}
+}
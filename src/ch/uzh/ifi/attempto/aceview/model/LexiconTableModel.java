@@ -16,6 +16,7 @@
 
 package ch.uzh.ifi.attempto.aceview.model;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.swing.table.AbstractTableModel;
@@ -30,7 +31,9 @@ import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
 
 import ch.uzh.ifi.attempto.aceview.ACEText;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
@@ -41,6 +44,7 @@ import ch.uzh.ifi.attempto.aceview.lexicon.EntryType;
 import ch.uzh.ifi.attempto.aceview.lexicon.FieldType;
 import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.model.event.ACETextDelta;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
@@ -73,16 +77,24 @@ public class LexiconTableModel extends AbstractTableModel {
 	private ACEText<OWLEntity, OWLLogicalAxiom> acetext;
 	private TokenMapper acelexicon;
 	private Object[] entityArray;
+	// Maps the IRI of every entity in the entity array to its row(s),
+	// there can be several rows if the IRI is punned
+	private final Multimap<IRI, Integer> iriToRows = HashMultimap.create();
 	private static final Logger logger = Logger.getLogger(LexiconTableModel.class);
 
+	// The lexicon changes are reported by the event that follows them, which need not
+	// be ACELEXICON_CHANGED, therefore every event is inspected.
 	private ACEViewListener<ACEViewEvent<TextEventType>> aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
-		public void handleChange(ACEViewEvent<TextEventType> event) {			
-			if (event.isType(TextEventType.ACELEXICON_CHANGED) ||
-					event.isType(TextEventType.ACTIVE_ACETEXT_CHANGED)) {
-				acetext = ACETextManager.getActiveACEText();
-				acelexicon = ACETextManager.getActiveACELexicon();
-				entityArray = getEntityArray();
-				fireTableDataChanged();
+		public void handleChange(ACEViewEvent<TextEventType> event) {
+			ACETextDelta delta = event.getDelta();
+			if (delta == null) {
+				if (event.isType(TextEventType.ACELEXICON_CHANGED) ||
+						event.isType(TextEventType.ACTIVE_ACETEXT_CHANGED)) {
+					reset();
+				}
+			}
+			else if (! delta.getLexiconChanges().isEmpty()) {
+				updateRows(delta);
 			}
 		}
 	};
@@ -129,7 +141,7 @@ public class LexiconTableModel extends AbstractTableModel {
 	public LexiconTableModel() {
 		acetext = ACETextManager.getActiveACEText();
 		acelexicon = ACETextManager.getActiveACELexicon();
-		entityArray = getEntityArray();
+		setEntityArray(getEntityArray());
 		ACETextManager.addListener(aceTextManagerListener);
 	}
 
@@ -258,6 +270,51 @@ public class LexiconTableModel extends AbstractTableModel {
 	}
 
 
+	private void reset() {
+		acetext = ACETextManager.getActiveACEText();
+		acelexicon = ACETextManager.getActiveACELexicon();
+		setEntityArray(getEntityArray());
+		fireTableDataChanged();
+	}
+
+
+	/**
+	 * <p>Notifies the table about the rows of the entities whose lexicon entries
+	 * have changed. If an entity has been added to or removed from the ontology
+	 * (i.e. the set of rows has changed), then falls back to {@link #reset()}.</p>
+	 */
+	private void updateRows(ACETextDelta delta) {
+		OWLOntology ont = ACETextManager.getOWLModelManager().getActiveOntology();
+		List<Integer> rows = Lists.newArrayList();
+		for (IRI iri : delta.getLexiconIRIs()) {
+			Collection<Integer> iriRows = iriToRows.get(iri);
+			if (iriRows.isEmpty()) {
+				reset();
+				return;
+			}
+			for (int row : iriRows) {
+				if (! ont.containsEntityInSignature((OWLEntity) entityArray[row])) {
+					reset();
+					return;
+				}
+				rows.add(row);
+			}
+		}
+		for (int row : rows) {
+			fireTableRowsUpdated(row, row);
+		}
+	}
+
+
+	private void setEntityArray(Object[] array) {
+		entityArray = array;
+		iriToRows.clear();
+		for (int row = 0; row < array.length; row++) {
+			iriToRows.put(((OWLEntity) array[row]).getIRI(), row);
+		}
+	}
+
+
 	// TODO: BUG: This used to be public but nothing is calling it, why?
 	private OWLEntity getEntity(int row) {
 		return (OWLEntity) entityArray[row];
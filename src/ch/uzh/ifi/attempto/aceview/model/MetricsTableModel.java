@@ -21,6 +21,7 @@ import javax.swing.table.AbstractTableModel;
 import ch.uzh.ifi.attempto.aceview.ACEText;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.model.event.ACETextDelta;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
@@ -34,44 +35,70 @@ public class MetricsTableModel extends AbstractTableModel {
 		public void handleChange(ACEViewEvent<TextEventType> event) {
 			acetext = ACETextManager.getActiveACEText();
 			tokenMapper = ACETextManager.getActiveACELexicon();
-			fireTableDataChanged();
+			ACETextDelta delta = event.getDelta();
+			if (delta == null) {
+				fireTableRowsUpdated(0, getRowCount() - 1);
+			}
+			else {
+				boolean isTextChanged = ! delta.getSnippetChanges().isEmpty();
+				boolean isLexiconChanged = ! delta.getLexiconChanges().isEmpty();
+				for (Row row : Row.values()) {
+					if ((isTextChanged && row.isTextMetric()) || (isLexiconChanged && row.isLexiconMetric())) {
+						fireTableRowsUpdated(row.ordinal(), row.ordinal());
+					}
+				}
+			}
 		}
 	};
 
 	private enum Row {
-		SNIPPET_COUNT("Snippets"),
-		SENTENCE_COUNT("Sentences"),
-		QUESTION_COUNT("Questions"),
-		SWRL_SNIPPET_COUNT("SWRL snippets"),
-		NON_OWLSWRL_SNIPPET_COUNT("Non OWL/SWRL snippets"),
-		UNVERBALIZED_AXIOM_COUNT("Unverbalized axioms"),
-		NOTHING_BUT_COUNT("<html>Snippets that contain <i>nothing but</i></html>"),
-		CONTENT_WORD_COUNT("!Content words (CN + TV + PN)"),
-		CN_COUNT("!Common nouns (CN)"),
-		TV_COUNT("!Transitive verbs (TV)"),
-		PN_COUNT("!Proper names (PN)"),
-		UNUSED_CONTENT_WORD_COUNT("!Unused content words"),
-		WORDFORM_COUNT("Wordforms"),
-		WORDFORM_PN_SG_COUNT("<html><code>PN_sg</code></html>"),
-		WORDFORM_CN_SG_COUNT("<html><code>CN_sg</code></html>"),
-		WORDFORM_CN_PL_COUNT("<html><code>CN_pl</code></html>"),
-		WORDFORM_TV_SG_COUNT("<html><code>TV_sg</code></html>"),
-		WORDFORM_TV_PL_COUNT("<html><code>TV_pl</code></html>"),
-		WORDFORM_TV_VBG_COUNT("<html><code>TV_vbg</code></html>"),
-		AMBIGUOUS_WORDFORM_COUNT("Ambiguous wordforms"),
-		WORDCLASS_AMBIGUOUS_WORDFORM_COUNT("!Ambiguous wordforms in the same wordclass"),
-		PARTIAL_ENTRY_COUNT("!Incomplete lexicon entries");
+		SNIPPET_COUNT("Snippets", true, false),
+		SENTENCE_COUNT("Sentences", true, false),
+		QUESTION_COUNT("Questions", true, false),
+		SWRL_SNIPPET_COUNT("SWRL snippets", true, false),
+		NON_OWLSWRL_SNIPPET_COUNT("Non OWL/SWRL snippets", true, false),
+		UNVERBALIZED_AXIOM_COUNT("Unverbalized axioms", true, false),
+		NOTHING_BUT_COUNT("<html>Snippets that contain <i>nothing but</i></html>", true, false),
+		CONTENT_WORD_COUNT("!Content words (CN + TV + PN)", false, true),
+		CN_COUNT("!Common nouns (CN)", false, true),
+		TV_COUNT("!Transitive verbs (TV)", false, true),
+		PN_COUNT("!Proper names (PN)", false, true),
+		UNUSED_CONTENT_WORD_COUNT("!Unused content words", true, true),
+		WORDFORM_COUNT("Wordforms", false, true),
+		WORDFORM_PN_SG_COUNT("<html><code>PN_sg</code></html>", false, true),
+		WORDFORM_CN_SG_COUNT("<html><code>CN_sg</code></html>", false, true),
+		WORDFORM_CN_PL_COUNT("<html><code>CN_pl</code></html>", false, true),
+		WORDFORM_TV_SG_COUNT("<html><code>TV_sg</code></html>", false, true),
+		WORDFORM_TV_PL_COUNT("<html><code>TV_pl</code></html>", false, true),
+		WORDFORM_TV_VBG_COUNT("<html><code>TV_vbg</code></html>", false, true),
+		AMBIGUOUS_WORDFORM_COUNT("Ambiguous wordforms", false, true),
+		WORDCLASS_AMBIGUOUS_WORDFORM_COUNT("!Ambiguous wordforms in the same wordclass", false, true),
+		PARTIAL_ENTRY_COUNT("!Incomplete lexicon entries", false, true);
 
 		private final String name;
+		// The count depends on the ACE text
+		private final boolean isTextMetric;
+		// The count depends on the ACE lexicon
+		private final boolean isLexiconMetric;
 
-		private Row(String name) {
+		private Row(String name, boolean isTextMetric, boolean isLexiconMetric) {
 			this.name = name;
+			this.isTextMetric = isTextMetric;
+			this.isLexiconMetric = isLexiconMetric;
 		}
 
 		public String getName() {
 			return name;
 		}
 
+		public boolean isTextMetric() {
+			return isTextMetric;
+		}
+
+		public boolean isLexiconMetric() {
+			return isLexiconMetric;
+		}
+
 		public static int getCount(ACEText acetext, TokenMapper tokenMapper, int row) {
 			switch (values()[row]) {
 			case SNIPPET_COUNT:
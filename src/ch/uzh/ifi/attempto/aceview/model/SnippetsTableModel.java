@@ -16,13 +16,35 @@
 
 package ch.uzh.ifi.attempto.aceview.model;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.SwingUtilities;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.aceview.ACESnippet;
+import ch.uzh.ifi.attempto.aceview.ACEText;
+import ch.uzh.ifi.attempto.aceview.ACETextChange;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
+import ch.uzh.ifi.attempto.aceview.model.event.ACETextDelta;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
+import ch.uzh.ifi.attempto.aceview.util.IndexedList;
 
 /**
  * @author Kaarel Kaljurand
@@ -69,19 +91,274 @@ public class SnippetsTableModel extends AbstractSnippetsTableModel {
 	}
 
 
+	// Maximal time (in milliseconds) that one slice of the computation of the row values
+	// can take on the event dispatch thread
+	private static final long SLICE_MS = 20;
+
+	// Generation of the active ACE text that the rows correspond to
+	private long generation;
+
+	// Values of the columns SHARED and ANNOTATIONS, which are expensive to compute
+	// (they query the ACE text and the ontology). The values are computed in short
+	// slices on the event dispatch thread, where the ACE text and the ontology are changed,
+	// and cached until the snippet or its axioms change.
+	// All the fields below are accessed only on the event dispatch thread.
+	private final Map<ACESnippet, RowValues> rowValues = Maps.newHashMap();
+	// Snippets whose row values have been requested but not computed yet
+	private final Set<ACESnippet> requestedSnippets = Sets.newLinkedHashSet();
+	private boolean isComputationScheduled = false;
+
+	private static final class RowValues {
+		private final int sharedCount;
+		private final int annotationCount;
+
+		private RowValues(int sharedCount, int annotationCount) {
+			this.sharedCount = sharedCount;
+			this.annotationCount = annotationCount;
+		}
+	}
+
+	// The annotations of an axiom can change without changing the ACE text,
+	// e.g. when they are edited in the ACE View annotations table.
+	private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+		public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+			final List<OWLLogicalAxiom> axioms = Lists.newArrayList();
+			for (OWLOntologyChange change : changes) {
+				if (change.isAxiomChange() && change.getAxiom() instanceof OWLLogicalAxiom) {
+					axioms.add((OWLLogicalAxiom) change.getAxiom());
+				}
+			}
+			if (! axioms.isEmpty()) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						invalidateAxiomSnippets(axioms);
+					}
+				});
+			}
+		}
+	};
+
+
 	public SnippetsTableModel() {
-		snippets = ACETextManager.getActiveACEText().getSnippets();
+		reset();
+		ACETextManager.getOWLModelManager().addOntologyChangeListener(ontologyChangeListener);
 		aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
 			public void handleChange(ACEViewEvent<TextEventType> event) {
-				snippets = ACETextManager.getActiveACEText().getSnippets();
-				// BUG: return something more precise here
-				fireTableDataChanged();
+				ACETextDelta delta = event.getDelta();
+				if (delta == null || delta.getFromGeneration() != generation) {
+					reset();
+				}
+				else {
+					applyDelta(delta);
+				}
 			}
 		};
 		ACETextManager.addListener(aceTextManagerListener);
 	}
 
 
+	/**
+	 * <p>Copies the snippet list of the active ACE text and
+	 * notifies the table that all the rows have changed.</p>
+	 */
+	private void reset() {
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
+		generation = acetext.getGeneration();
+		snippets = new IndexedList<ACESnippet>();
+		snippets.addAll(acetext.getSnippets());
+		rowValues.clear();
+		requestedSnippets.clear();
+		fireTableDataChanged();
+	}
+
+
+	/**
+	 * <p>Replays the snippet insertions and removals on the rows, notifying the table
+	 * about every run of consecutive changes, and then notifies the table about
+	 * the rows whose values have changed: the snippets that share axioms with
+	 * the inserted or removed snippets, and the snippets that contain words
+	 * whose lexicon entries have changed. Falls back to {@link #reset()} if the
+	 * changes do not fit the rows.</p>
+	 */
+	private void applyDelta(ACETextDelta delta) {
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
+		// Snippets whose number of shared axioms can have changed
+		Set<ACESnippet> sharingSnippets = Sets.newHashSet();
+		Set<ACESnippet> updatedSnippets = Sets.newHashSet();
+
+		List<ACETextChange> changes = delta.getSnippetChanges();
+		// Current run of consecutive changes: its kind, first row, and number of rows
+		boolean isInsertionRun = false;
+		int runFirst = 0;
+		int runLength = 0;
+		for (ACETextChange change : changes) {
+			int index = change.getIndex();
+			ACESnippet snippet = change.getSnippet();
+			if (change.isInsertion()) {
+				if (index > snippets.size()) {
+					reset();
+					return;
+				}
+				if (runLength > 0 && ! (isInsertionRun && index == runFirst + runLength)) {
+					fireRun(isInsertionRun, runFirst, runLength);
+					runLength = 0;
+				}
+				snippets.add(index, snippet);
+			}
+			else {
+				if (index >= snippets.size() || ! snippet.equals(snippets.get(index))) {
+					reset();
+					return;
+				}
+				if (runLength > 0 && ! (! isInsertionRun && index == runFirst)) {
+					fireRun(isInsertionRun, runFirst, runLength);
+					runLength = 0;
+				}
+				snippets.remove(index);
+			}
+			invalidate(snippet);
+			if (runLength == 0) {
+				isInsertionRun = change.isInsertion();
+				runFirst = index;
+			}
+			runLength++;
+			for (OWLLogicalAxiom axiom : snippet.getLogicalAxioms()) {
+				sharingSnippets.addAll(acetext.getAxiomSnippets(axiom));
+			}
+		}
+		if (runLength > 0) {
+			fireRun(isInsertionRun, runFirst, runLength);
+		}
+		if (! changes.isEmpty()) {
+			generation = changes.get(changes.size() - 1).getGeneration();
+		}
+
+		for (ACESnippet snippet : sharingSnippets) {
+			invalidate(snippet);
+		}
+		updatedSnippets.addAll(sharingSnippets);
+
+		Set<IRI> iris = delta.getLexiconIRIs();
+		if (! iris.isEmpty()) {
+			OWLOntology ont = ACETextManager.getOWLModelManager().getActiveOntology();
+			for (IRI iri : iris) {
+				for (OWLEntity entity : ont.getEntitiesInSignature(iri)) {
+					updatedSnippets.addAll(acetext.getSnippets(entity));
+				}
+			}
+		}
+
+		for (ACESnippet snippet : updatedSnippets) {
+			int row = snippets.indexOf(snippet);
+			if (row != -1) {
+				fireTableRowsUpdated(row, row);
+			}
+		}
+	}
+
+
+	/**
+	 * <p>Forgets the row values of the snippets that correspond to the given axioms,
+	 * and notifies the table about their rows.</p>
+	 */
+	private void invalidateAxiomSnippets(Collection<OWLLogicalAxiom> axioms) {
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
+		Set<ACESnippet> axiomSnippets = Sets.newHashSet();
+		for (OWLLogicalAxiom axiom : axioms) {
+			axiomSnippets.addAll(acetext.getAxiomSnippets(axiom));
+		}
+		for (ACESnippet snippet : axiomSnippets) {
+			invalidate(snippet);
+			int row = snippets.indexOf(snippet);
+			if (row != -1) {
+				fireTableRowsUpdated(row, row);
+			}
+		}
+	}
+
+
+	private void invalidate(ACESnippet snippet) {
+		rowValues.remove(snippet);
+	}
+
+
+	/**
+	 * <p>Returns the cached row values of the given snippet. If they are not cached
+	 * then requests them to be computed and returns <code>null</code>.</p>
+	 */
+	private RowValues getRowValues(ACESnippet snippet) {
+		RowValues values = rowValues.get(snippet);
+		if (values == null) {
+			requestedSnippets.add(snippet);
+			scheduleComputation();
+		}
+		return values;
+	}
+
+
+	/**
+	 * <p>Computes the requested row values after the current event has been handled,
+	 * so that all the row values that are requested while painting (or sorting)
+	 * the table are computed together.</p>
+	 */
+	private void scheduleComputation() {
+		if (isComputationScheduled) {
+			return;
+		}
+		isComputationScheduled = true;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				isComputationScheduled = false;
+				computeSlice();
+			}
+		});
+	}
+
+
+	/**
+	 * <p>Computes the row values of the requested snippets for at most
+	 * {@link #SLICE_MS} milliseconds, notifies the table about the computed rows,
+	 * and schedules the computation of the rest of the snippets, so that
+	 * the table stays responsive. Runs on the event dispatch thread,
+	 * i.e. the ACE text and the ontology do not change meanwhile.</p>
+	 */
+	private void computeSlice() {
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
+		long deadline = System.currentTimeMillis() + SLICE_MS;
+		int first = Integer.MAX_VALUE;
+		int last = -1;
+		Iterator<ACESnippet> it = requestedSnippets.iterator();
+		while (it.hasNext() && System.currentTimeMillis() < deadline) {
+			ACESnippet snippet = it.next();
+			it.remove();
+			int row = snippets.indexOf(snippet);
+			if (row != -1 && ! rowValues.containsKey(snippet)) {
+				int sharedCount = acetext.getSharedAxioms(snippet).size();
+				int annotationCount = ACETextManager.getAnnotationsExceptAcetext(snippet).size();
+				rowValues.put(snippet, new RowValues(sharedCount, annotationCount));
+				first = Math.min(first, row);
+				last = Math.max(last, row);
+			}
+		}
+		if (last != -1) {
+			fireTableRowsUpdated(first, last);
+		}
+		if (! requestedSnippets.isEmpty()) {
+			scheduleComputation();
+		}
+	}
+
+
+	private void fireRun(boolean isInsertionRun, int first, int length) {
+		if (isInsertionRun) {
+			fireTableRowsInserted(first, first + length - 1);
+		}
+		else {
+			fireTableRowsDeleted(first, first + length - 1);
+		}
+	}
+
+
 	@Override
 	public int getSnippetColumn() {
 		return Column.SNIPPET.ordinal();
@@ -109,8 +386,10 @@ public class SnippetsTableModel extends AbstractSnippetsTableModel {
 			return snippet;
 		case AXIOMS:
 			return snippet.getLogicalAxioms().size();
-		case SHARED:
-			return ACETextManager.getActiveACEText().getSharedAxioms(snippet).size();
+		case SHARED: {
+			RowValues values = getRowValues(snippet);
+			return (values == null) ? null : values.sharedCount;
+		}
 		case MESSAGES:
 			return snippet.getMessages().size();
 		case CONTENT_WORDS:
@@ -119,8 +398,10 @@ public class SnippetsTableModel extends AbstractSnippetsTableModel {
 			return snippet.getTimestamp();
 		case NAMESPACE:
 			return snippet.getDefaultNamespace();
-		case ANNOTATIONS:
-			return ACETextManager.getAnnotationsExceptAcetext(snippet).size();
+		case ANNOTATIONS: {
+			RowValues values = getRowValues(snippet);
+			return (values == null) ? null : values.annotationCount;
+		}
 		default:
 			throw new RuntimeException("Programmer error.");
 		}
@@ -135,4 +416,11 @@ public class SnippetsTableModel extends AbstractSnippetsTableModel {
 		}
 		return Column.values()[column].getName();
 	}
-}
\ No newline at end of file
+
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		ACETextManager.getOWLModelManager().removeOntologyChangeListener(ontologyChangeListener);
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.model.event;
+
+import java.util.List;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import ch.uzh.ifi.attempto.aceview.ACETextChange;
+import ch.uzh.ifi.attempto.aceview.lexicon.LexiconChange;
+
+/**
+ * <p>Changes of the active ACE text and its lexicon that have been made
+ * since the previous event: the snippets that were inserted into or removed
+ * from the snippet list (at which positions), and the lexicon entries that
+ * were added or removed. The snippet changes start from the generation
+ * {@link #getFromGeneration()} of the ACE text. A listener that has
+ * not seen this generation must not apply the snippet changes but rebuild its
+ * state from the ACE text.</p>
+ * 
+ * @author Kaarel Kaljurand
+ */
+public final class ACETextDelta {
+
+	private final long fromGeneration;
+	private final List<ACETextChange> snippetChanges;
+	private final List<LexiconChange> lexiconChanges;
+
+	public ACETextDelta(long fromGeneration, List<ACETextChange> snippetChanges, List<LexiconChange> lexiconChanges) {
+		this.fromGeneration = fromGeneration;
+		this.snippetChanges = ImmutableList.copyOf(snippetChanges);
+		this.lexiconChanges = ImmutableList.copyOf(lexiconChanges);
+	}
+
+
+	/**
+	 * @return Generation of the ACE text before the snippet changes
+	 */
+	public long getFromGeneration() {
+		return fromGeneration;
+	}
+
+
+	/**
+	 * @return Insertions and removals of snippets, in the order in which they were made
+	 */
+	public List<ACETextChange> getSnippetChanges() {
+		return snippetChanges;
+	}
+
+
+	/**
+	 * @return Additions and removals of lexicon entries, in the order in which they were made
+	 */
+	public List<LexiconChange> getLexiconChanges() {
+		return lexiconChanges;
+	}
+
+
+	/**
+	 * @return IRIs of the entities whose lexicon entries were touched
+	 */
+	public Set<IRI> getLexiconIRIs() {
+		Set<IRI> iris = Sets.newHashSet();
+		for (LexiconChange change : lexiconChanges) {
+			iris.add(change.getTriple().getSubjectIRI());
+		}
+		return iris;
+	}
+
+
+	public boolean isEmpty() {
+		return snippetChanges.isEmpty() && lexiconChanges.isEmpty();
+	}
+
+
+	@Override
+	public String toString() {
+		return "from " + fromGeneration + ": " + snippetChanges.size() + " snippet changes, " + lexiconChanges.size() + " lexicon changes";
+	}
+}
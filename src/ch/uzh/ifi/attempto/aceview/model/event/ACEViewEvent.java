@@ -3,9 +3,15 @@ package ch.uzh.ifi.attempto.aceview.model.event;
 public class ACEViewEvent<T> {
 
 	private final T type;
+	private final ACETextDelta delta;
 
 	public ACEViewEvent(T type) {
+		this(type, null);
+	}
+
+	public ACEViewEvent(T type, ACETextDelta delta) {
 		this.type = type;
+		this.delta = delta;
 	}
 
 	public T getType() {
@@ -15,4 +21,12 @@ public class ACEViewEvent<T> {
 	public boolean isType(T type) {
 		return this.type.equals(type);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return Changes that this event reports, or <code>null</code> if they are not known
+	 * (in which case the listener should rebuild its state)
+	 */
+	public ACETextDelta getDelta() {
+		return delta;
+	}
+}
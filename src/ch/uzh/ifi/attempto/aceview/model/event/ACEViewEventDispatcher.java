@@ -0,0 +1,263 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.model.event;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.Timer;
+
+import org.apache.log4j.Logger;
+import org.protege.editor.core.ProtegeApplication;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * <p>Delivers ACE View events to listeners on the Swing event dispatch thread.
+ * An event can be fired from any thread. The events that are fired within a short
+ * window (one frame) are coalesced by type and delivered together in one batch,
+ * in the order in which their types were first fired. In this way a burst of changes
+ * results in a single refresh of every listener.</p>
+ *
+ * <p>All the dispatchers share one queue and one timer, so that the order
+ * is kept also between the events of different dispatchers (e.g. a text event
+ * that was fired before a snippet event is also delivered before it).</p>
+ *
+ * <p>The event objects are created only at delivery time, by the given
+ * event factory, so that they can describe everything that happened until
+ * the delivery (see {@link ACETextDelta}). The factory can return <code>null</code>
+ * in order to drop the event.</p>
+ *
+ * <p>The listener list is copy-on-write, i.e. listeners can be added and removed
+ * (also by the listeners themselves) during the delivery. A listener that throws
+ * an exception is detached. The time that every listener spends handling the
+ * events is recorded (see {@link #getTimings()}).</p>
+ *
+ * @author Kaarel Kaljurand
+ *
+ * @param <T> Type of the event types
+ */
+public class ACEViewEventDispatcher<T> {
+
+	private static final Logger logger = Logger.getLogger(ACEViewEventDispatcher.class);
+
+	// Length of the window (in milliseconds) in which the events are coalesced
+	private static final int FRAME_MS = 40;
+
+	// A listener that spends longer than this (in milliseconds) on an event is reported
+	private static final long SLOW_LISTENER_MS = 100;
+
+	private final List<ACEViewListener<ACEViewEvent<T>>> listeners = new CopyOnWriteArrayList<ACEViewListener<ACEViewEvent<T>>>();
+	private final ConcurrentMap<String, Timing> timings = Maps.newConcurrentMap();
+	private final Function<T, ACEViewEvent<T>> eventFactory;
+
+	// Events of all the dispatchers that have been fired but not yet delivered, in firing order
+	private static final Set<PendingEvent<?>> pendingEvents = Sets.newLinkedHashSet();
+
+	private static final Timer timer = new Timer(FRAME_MS, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			deliverPendingEvents();
+		}
+	});
+
+	static {
+		timer.setRepeats(false);
+	}
+
+
+	/**
+	 * <p>Event type that is waiting for the delivery by the given dispatcher.</p>
+	 */
+	private static final class PendingEvent<T> {
+		private final ACEViewEventDispatcher<T> dispatcher;
+		private final T type;
+
+		private PendingEvent(ACEViewEventDispatcher<T> dispatcher, T type) {
+			this.dispatcher = dispatcher;
+			this.type = type;
+		}
+
+		private void deliver() {
+			dispatcher.deliver(type);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (! (obj instanceof PendingEvent<?>)) {
+				return false;
+			}
+			PendingEvent<?> other = (PendingEvent<?>) obj;
+			return dispatcher == other.dispatcher && type.equals(other.type);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(dispatcher) + type.hashCode();
+		}
+	}
+
+
+	/**
+	 * <p>Cumulative time that a listener has spent handling events.</p>
+	 */
+	public static final class Timing {
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+
+		private synchronized void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) {
+				maxNanos = nanos;
+			}
+		}
+
+		/**
+		 * @return Number of handled events
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public synchronized long getMaxNanos() {
+			return maxNanos;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return count + " events, total " + totalNanos / 1000000 + " ms, max " + maxNanos / 1000000 + " ms";
+		}
+	}
+
+
+	/**
+	 * @param eventFactory Creates the event for the given type at delivery time
+	 */
+	public ACEViewEventDispatcher(Function<T, ACEViewEvent<T>> eventFactory) {
+		this.eventFactory = eventFactory;
+	}
+
+
+	public void addListener(ACEViewListener<ACEViewEvent<T>> listener) {
+		listeners.add(listener);
+	}
+
+
+	public void removeListener(ACEViewListener<ACEViewEvent<T>> listener) {
+		listeners.remove(listener);
+	}
+
+
+	/**
+	 * <p>Schedules the delivery of an event of the given type. If an event of this
+	 * type is already waiting for the delivery by this dispatcher then does nothing.
+	 * Can be called from any thread.</p>
+	 *
+	 * @param type Type of the event
+	 */
+	public void fire(T type) {
+		synchronized (pendingEvents) {
+			pendingEvents.add(new PendingEvent<T>(this, type));
+		}
+		// The timer is not restarted, otherwise a steady stream of
+		// events could postpone the delivery forever.
+		if (! timer.isRunning()) {
+			timer.start();
+		}
+	}
+
+
+	/**
+	 * @return Map from listener class names to the time they have spent handling events
+	 */
+	public Map<String, Timing> getTimings() {
+		return ImmutableMap.copyOf(timings);
+	}
+
+
+	/**
+	 * <p>Delivers the pending events of all the dispatchers, in firing order.
+	 * Called on the event dispatch thread.</p>
+	 */
+	private static void deliverPendingEvents() {
+		List<PendingEvent<?>> events;
+		synchronized (pendingEvents) {
+			events = Lists.newArrayList(pendingEvents);
+			pendingEvents.clear();
+		}
+		for (PendingEvent<?> pendingEvent : events) {
+			pendingEvent.deliver();
+		}
+	}
+
+
+	/**
+	 * <p>Delivers the event of the given type to all the listeners of this dispatcher.</p>
+	 */
+	private void deliver(T type) {
+		ACEViewEvent<T> event = eventFactory.apply(type);
+		if (event != null) {
+			long start = System.nanoTime();
+			for (ACEViewListener<ACEViewEvent<T>> listener : listeners) {
+				long listenerStart = System.nanoTime();
+				try {
+					listener.handleChange(event);
+				}
+				catch (Exception e) {
+					logger.error("Detaching " + listener.getClass().getName() + " because it threw " + e.toString());
+					ProtegeApplication.getErrorLog().logError(e);
+					removeListener(listener);
+				}
+				record(listener, event, System.nanoTime() - listenerStart);
+			}
+			logger.info("Event: " + event.getType() + " delivered to " + listeners.size() + " listeners in " +
+					(System.nanoTime() - start) / 1000000 + " ms");
+		}
+	}
+
+
+	private void record(ACEViewListener<ACEViewEvent<T>> listener, ACEViewEvent<T> event, long nanos) {
+		String name = listener.getClass().getName();
+		Timing timing = timings.get(name);
+		if (timing == null) {
+			timings.putIfAbsent(name, new Timing());
+			timing = timings.get(name);
+		}
+		timing.add(nanos);
+		if (nanos > SLOW_LISTENER_MS * 1000000) {
+			logger.warn("Slow listener: " + name + " took " + nanos / 1000000 + " ms to handle " + event.getType());
+		}
+	}
+}
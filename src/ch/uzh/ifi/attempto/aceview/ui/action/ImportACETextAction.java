@@ -0,0 +1,129 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.ui.action;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+import org.protege.editor.core.ProtegeApplication;
+import org.protege.editor.core.ui.progress.BackgroundTask;
+import org.protege.editor.core.ui.util.UIUtil;
+import org.protege.editor.owl.ui.action.ProtegeOWLAction;
+
+import com.google.common.collect.Sets;
+
+import ch.uzh.ifi.attempto.aceview.ACETextImporter;
+import ch.uzh.ifi.attempto.aceview.ACETextManager;
+
+/**
+ * <p>Action that adds the paragraphs of an ACE text file to the active ACE text.
+ * The file is imported in the background (see {@link ACETextImporter}), so that
+ * also very large files can be imported. The import can be cancelled, in which case
+ * the paragraphs that have been imported so far remain in the ACE text.</p>
+ * 
+ * @author Kaarel Kaljurand
+ */
+public class ImportACETextAction extends ProtegeOWLAction {
+
+	private static final Logger logger = Logger.getLogger(ImportACETextAction.class);
+
+	private static final String ACTION_TITLE = "Import ACE text";
+
+	public void initialise() throws Exception {}
+	public void dispose() throws Exception {}
+
+	public void actionPerformed(ActionEvent actionEvent) {
+		if (ACETextManager.getActiveACEText() == null) return;
+
+		final File file = openFile(ACTION_TITLE);
+		if (file == null) return;
+
+		final ACETextImporter importer = new ACETextImporter();
+		final ProgressMonitor progressMonitor = new ProgressMonitor(getOWLWorkspace(), "Importing " + file.getName(), null, 0, 100);
+		importer.addProgressListener(new ACETextImporter.ProgressListener() {
+			public void progressChanged(final int done, final int total) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (progressMonitor.isCanceled()) {
+							importer.cancel();
+						}
+						else {
+							progressMonitor.setMaximum(total);
+							progressMonitor.setProgress(done);
+							progressMonitor.setNote(done + " of " + total + " KB");
+						}
+					}
+				});
+			}
+		});
+
+		final BackgroundTask task = ProtegeApplication.getBackgroundTaskManager().startTask("importing " + file.getName());
+
+		Runnable runnable = new Runnable() {
+			public void run() {
+				int messageType = JOptionPane.INFORMATION_MESSAGE;
+				String message;
+				try {
+					importer.importFile(file);
+					message = "Imported " + file + ".";
+				} catch (CancellationException e) {
+					message = "Import cancelled.";
+				} catch (IOException e) {
+					logger.error("Import failed", e);
+					messageType = JOptionPane.ERROR_MESSAGE;
+					message = "Import failed: " + e.getMessage();
+				}
+				finally {
+					ProtegeApplication.getBackgroundTaskManager().endTask(task);
+				}
+
+				final int finalMessageType = messageType;
+				final String finalMessage = message + "\nSnippets added: " + importer.getAddedCount() +
+						"\nParagraphs already in the text: " + importer.getDuplicateCount();
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						progressMonitor.close();
+						showMessage(finalMessageType, finalMessage);
+					}
+				});
+			}
+		};
+
+		Thread thread = new Thread(runnable, "ACE View import");
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+
+	private void showMessage(int messageType, String str) {
+		JOptionPane.showMessageDialog(null, str, ACTION_TITLE, messageType);
+	}
+
+
+	private File openFile(String title) {
+		JFrame frame = (JFrame) SwingUtilities.getAncestorOfClass(JFrame.class, getOWLWorkspace().getParent());
+		return UIUtil.openFile(frame, title, "ACE text", Sets.newHashSet("ace", "txt"));
+	}
+}
@@ -58,10 +58,9 @@ public class ReparseAction extends ProtegeOWLAction {
 			showMessage(JOptionPane.INFORMATION_MESSAGE, "There are no axiomless snippets. Nothing to reparse.");
 		}
 		else {
-			for (Map.Entry<ACESnippet, Integer> entry : axiomlessSnippets.entrySet()) {
-				ACESnippet oldSnippet = entry.getKey();
+			for (ACESnippet oldSnippet : axiomlessSnippets.keySet()) {
 				logger.info("Reparsing: " + oldSnippet);
-				ACETextManager.updateSnippet(entry.getValue(), oldSnippet, oldSnippet.getSentences());
+				ACETextManager.updateSnippet(oldSnippet, oldSnippet.getSentences());
 			}
 			int counterFailedBefore = axiomlessSnippets.size();
 			int counterFailedAgain = acetext.getAxiomlessSnippets().size();
@@ -0,0 +1,315 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.ui.util;
+
+import java.util.Arrays;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * <p>Tracks which paragraphs of a text document have been edited since the
+ * document was last set to a known text (the baseline). Paragraphs are
+ * separated by blank lines. The tracker remembers the offsets and the content hashes
+ * of the baseline paragraphs, and the smallest region of the baseline that
+ * contains all the edits, so that the changed paragraphs can be found without
+ * looking at the rest of the document.</p>
+ *
+ * <p>The tracker must be registered as a listener of the document, and
+ * {@link #reset(String)} must be called after the document has been set to the baseline.
+ * Like the document events, all the methods must be called in the event dispatch thread.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public class ParagraphTracker implements DocumentListener {
+
+	/**
+	 * <p>Edited region of the document: the baseline paragraphs
+	 * from <code>first</code> (inclusive) to <code>end</code> (exclusive)
+	 * have been replaced by the given text.</p>
+	 */
+	public static final class Change {
+		private final int first;
+		private final int end;
+		private final String text;
+
+		private Change(int first, int end, String text) {
+			this.first = first;
+			this.end = end;
+			this.text = text;
+		}
+
+		/**
+		 * @return Index of the first replaced baseline paragraph
+		 */
+		public int getFirst() {
+			return first;
+		}
+
+		/**
+		 * @return Index after the last replaced baseline paragraph
+		 */
+		public int getEnd() {
+			return end;
+		}
+
+		/**
+		 * @return Current text of the edited region, which starts and ends with a paragraph
+		 */
+		public String getText() {
+			return text;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + first + ", " + end + ") -> " + text.length() + " chars";
+		}
+	}
+
+	// Baseline paragraphs: start offset, end offset (exclusive), content hash
+	private int[] starts = new int[0];
+	private int[] ends = new int[0];
+	private long[] hashes = new long[0];
+	private int baselineLength = 0;
+
+	private boolean isTracking = false;
+	private boolean isDirty = false;
+
+	// Edited region in baseline coordinates
+	private int dirtyStart;
+	private int dirtyEnd;
+
+	// Current length minus baseline length
+	private int delta;
+
+
+	/**
+	 * <p>Sets the baseline to the given text, which must be
+	 * the current content of the document.</p>
+	 *
+	 * @param text Baseline text
+	 * @return Number of paragraphs in the baseline
+	 */
+	public int reset(String text) {
+		Paragraphs paragraphs = split(text);
+		starts = paragraphs.starts;
+		ends = paragraphs.ends;
+		hashes = paragraphs.hashes;
+		baselineLength = text.length();
+		isTracking = true;
+		isDirty = false;
+		delta = 0;
+		return paragraphs.size;
+	}
+
+
+	/**
+	 * <p>Forgets the baseline, e.g. because the document no longer
+	 * corresponds to the paragraphs that it was created from.
+	 * Until the next reset, {@link #getChange(Document)} returns <code>null</code>.</p>
+	 */
+	public void invalidate() {
+		isTracking = false;
+	}
+
+
+	public boolean isTracking() {
+		return isTracking;
+	}
+
+
+	public boolean isDirty() {
+		return isDirty;
+	}
+
+
+	public void insertUpdate(DocumentEvent e) {
+		markDirty(e.getOffset(), e.getOffset(), e.getLength());
+	}
+
+
+	public void removeUpdate(DocumentEvent e) {
+		markDirty(e.getOffset(), e.getOffset() + e.getLength(), -e.getLength());
+	}
+
+
+	public void changedUpdate(DocumentEvent e) {
+		// Attribute changes do not change the text
+	}
+
+
+	/**
+	 * <p>Returns the edited region of the document, extended to whole paragraphs,
+	 * and shrunk by the paragraphs at its borders that are identical to the baseline.</p>
+	 *
+	 * @param doc Document that this tracker listens to
+	 * @return Edited region, or <code>null</code> if the baseline is not known
+	 */
+	public Change getChange(Document doc) {
+		if (! isTracking) {
+			return null;
+		}
+		int count = starts.length;
+		if (! isDirty) {
+			return new Change(count, count, "");
+		}
+
+		// The edited paragraphs plus one neighbor on each side,
+		// because a removed or inserted blank line joins or splits paragraphs.
+		int first = 0;
+		while (first < count && ends[first] < dirtyStart) {
+			first++;
+		}
+		first = Math.max(0, first - 1);
+		int end = first;
+		while (end < count && starts[end] <= dirtyEnd) {
+			end++;
+		}
+		end = Math.min(count, end + 1);
+
+		int regionStart = (first == 0) ? 0 : Math.min(starts[first], dirtyStart);
+		int regionEnd = (end == count) ? baselineLength : Math.max(ends[end - 1], dirtyEnd);
+
+		String text;
+		try {
+			text = doc.getText(regionStart, regionEnd + delta - regionStart);
+		} catch (BadLocationException e) {
+			invalidate();
+			return null;
+		}
+
+		// Drops the paragraphs that did not change
+		Paragraphs current = split(text);
+		int newFirst = 0;
+		int newEnd = current.size;
+		while (first < end && newFirst < newEnd && hashes[first] == current.hashes[newFirst]) {
+			first++;
+			newFirst++;
+		}
+		while (first < end && newFirst < newEnd && hashes[end - 1] == current.hashes[newEnd - 1]) {
+			end--;
+			newEnd--;
+		}
+
+		if (newFirst == newEnd) {
+			return new Change(first, end, "");
+		}
+		return new Change(first, end, text.substring(current.starts[newFirst], current.ends[newEnd - 1]));
+	}
+
+
+	private void markDirty(int offset, int offsetEnd, int lengthChange) {
+		if (! isDirty) {
+			dirtyStart = offset;
+			dirtyEnd = offsetEnd;
+			isDirty = true;
+		}
+		else {
+			// Converts the current offsets into baseline offsets
+			if (offset < dirtyStart) {
+				dirtyStart = offset;
+			}
+			if (offsetEnd - delta > dirtyEnd) {
+				dirtyEnd = offsetEnd - delta;
+			}
+		}
+		delta += lengthChange;
+	}
+
+
+	private static final class Paragraphs {
+		private int[] starts = new int[8];
+		private int[] ends = new int[8];
+		private long[] hashes = new long[8];
+		private int size = 0;
+
+		private void add(int start, int end, long hash) {
+			if (size == starts.length) {
+				starts = Arrays.copyOf(starts, 2 * size);
+				ends = Arrays.copyOf(ends, 2 * size);
+				hashes = Arrays.copyOf(hashes, 2 * size);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			hashes[size] = hash;
+			size++;
+		}
+
+		private void trim() {
+			starts = Arrays.copyOf(starts, size);
+			ends = Arrays.copyOf(ends, size);
+			hashes = Arrays.copyOf(hashes, size);
+		}
+	}
+
+
+	/**
+	 * <p>Splits the given text into paragraphs, i.e. maximal sequences
+	 * of lines that are not blank. A paragraph ends with its last non-whitespace character.</p>
+	 */
+	private static Paragraphs split(String text) {
+		Paragraphs paragraphs = new Paragraphs();
+		int start = -1;
+		int end = -1;
+		boolean isBlankLine = true;
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (ch == '\n') {
+				if (isBlankLine && start != -1) {
+					paragraphs.add(start, end, hash(text, start, end));
+					start = -1;
+				}
+				isBlankLine = true;
+			}
+			else if (! Character.isWhitespace(ch)) {
+				if (isBlankLine && start == -1) {
+					start = lineStart(text, i);
+				}
+				isBlankLine = false;
+				end = i + 1;
+			}
+		}
+		if (start != -1) {
+			paragraphs.add(start, end, hash(text, start, end));
+		}
+		paragraphs.trim();
+		return paragraphs;
+	}
+
+
+	private static int lineStart(String text, int i) {
+		while (i > 0 && text.charAt(i - 1) != '\n') {
+			i--;
+		}
+		return i;
+	}
+
+
+	/**
+	 * <p>64-bit FNV-1a hash of the given part of the text.</p>
+	 */
+	private static long hash(String text, int start, int end) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+}
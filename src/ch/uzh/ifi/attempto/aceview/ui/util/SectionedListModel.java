@@ -0,0 +1,284 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.ui.util;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+/**
+ * <p>List model that shows the elements of a sorted list model
+ * divided into sections, e.g. words under their initial letters.
+ * Every maximal run of elements that belong to the same section is preceded
+ * by a row that contains the name of the section.</p>
+ *
+ * <p>The row of an element is found by binary search over the section starts.
+ * An insertion or removal of a single element in the underlying model
+ * is reported as a change of the few rows around it (the element itself and the
+ * section rows that appear or disappear next to it), other changes make the model
+ * rebuild its sections.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class SectionedListModel extends AbstractListModel implements ListDataListener {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ListModel model;
+	private final Function<Integer, String> sectionFunction;
+
+	// Indices of the elements that start a section, sorted
+	private final List<Integer> sectionStarts = Lists.newArrayList();
+	// Number of elements of the underlying model that the sections describe
+	private int size = 0;
+
+
+	/**
+	 * @param model Sorted list model
+	 * @param sectionFunction Gives the name of the section of the element at the given index
+	 */
+	public SectionedListModel(ListModel model, Function<Integer, String> sectionFunction) {
+		this.model = model;
+		this.sectionFunction = sectionFunction;
+		rebuild();
+		model.addListDataListener(this);
+	}
+
+
+	public int getSize() {
+		return size + sectionStarts.size();
+	}
+
+
+	/**
+	 * @return Name of the section if the given row is a section row,
+	 * otherwise the element of the underlying model
+	 */
+	public Object getElementAt(int row) {
+		int section = getSectionOfRow(row);
+		int start = sectionStarts.get(section);
+		if (row == start + section) {
+			return sectionFunction.apply(start);
+		}
+		return model.getElementAt(row - section - 1);
+	}
+
+
+	public boolean isSection(int row) {
+		return getElementIndex(row) == -1;
+	}
+
+
+	/**
+	 * @param row Row
+	 * @return Index of the element in the underlying model, or <code>-1</code> if the row is a section row
+	 */
+	public int getElementIndex(int row) {
+		int section = getSectionOfRow(row);
+		int start = sectionStarts.get(section);
+		if (row == start + section) {
+			return -1;
+		}
+		return row - section - 1;
+	}
+
+
+	/**
+	 * @param index Index of an element in the underlying model
+	 * @return Row of the element
+	 */
+	public int getRow(int index) {
+		return index + countStartsBefore(index + 1);
+	}
+
+
+	public void dispose() {
+		model.removeListDataListener(this);
+	}
+
+
+	public void intervalAdded(ListDataEvent e) {
+		if (e.getIndex0() != e.getIndex1()) {
+			rebuild();
+			return;
+		}
+		int index = e.getIndex0();
+		int pos = countStartsBefore(index);
+		int row = index + pos;
+		int oldRowCount = 0;
+		if (pos < sectionStarts.size() && sectionStarts.get(pos) == index) {
+			// The element that was at the index loses its section row,
+			// which is re-added below if the element still starts a section.
+			sectionStarts.remove(pos);
+			oldRowCount = 1;
+		}
+		shiftStarts(pos, 1);
+		size++;
+		int newRowCount = 1 + addStarts(pos, index, index + 1);
+		fireRowsReplaced(row, oldRowCount, newRowCount);
+	}
+
+
+	public void intervalRemoved(ListDataEvent e) {
+		if (e.getIndex0() != e.getIndex1()) {
+			rebuild();
+			return;
+		}
+		int index = e.getIndex0();
+		int pos = countStartsBefore(index);
+		int row = index + pos;
+		int oldRowCount = 1;
+		while (pos < sectionStarts.size() && sectionStarts.get(pos) <= index + 1) {
+			sectionStarts.remove(pos);
+			oldRowCount++;
+		}
+		shiftStarts(pos, -1);
+		size--;
+		int newRowCount = addStarts(pos, index, index);
+		fireRowsReplaced(row, oldRowCount, newRowCount);
+	}
+
+
+	public void contentsChanged(ListDataEvent e) {
+		int index = e.getIndex0();
+		if (index != e.getIndex1() || index < 0 || index >= size ||
+				isStart(index) != isStoredStart(index) ||
+				(index + 1 < size && isStart(index + 1) != isStoredStart(index + 1))) {
+			rebuild();
+			return;
+		}
+		int row = getRow(index);
+		fireContentsChanged(this, row, row);
+	}
+
+
+	/**
+	 * <p>Recomputes the sections from scratch.</p>
+	 */
+	private void rebuild() {
+		int oldRowCount = getSize();
+		sectionStarts.clear();
+		size = 0;
+		if (oldRowCount > 0) {
+			fireIntervalRemoved(this, 0, oldRowCount - 1);
+		}
+		size = model.getSize();
+		String previousSection = null;
+		for (int i = 0; i < size; i++) {
+			String section = sectionFunction.apply(i);
+			if (! section.equals(previousSection)) {
+				sectionStarts.add(i);
+				previousSection = section;
+			}
+		}
+		if (getSize() > 0) {
+			fireIntervalAdded(this, 0, getSize() - 1);
+		}
+	}
+
+
+	/**
+	 * <p>Reports that <code>oldRowCount</code> rows starting from the given row
+	 * have been replaced by <code>newRowCount</code> rows.</p>
+	 */
+	private void fireRowsReplaced(int row, int oldRowCount, int newRowCount) {
+		int common = Math.min(oldRowCount, newRowCount);
+		if (common > 0) {
+			fireContentsChanged(this, row, row + common - 1);
+		}
+		if (newRowCount > common) {
+			fireIntervalAdded(this, row + common, row + newRowCount - 1);
+		}
+		else if (oldRowCount > common) {
+			fireIntervalRemoved(this, row + common, row + oldRowCount - 1);
+		}
+	}
+
+
+	/**
+	 * <p>Adds the elements between <code>first</code> and <code>last</code>
+	 * (inclusive) that start a section to the section starts, at the given position.</p>
+	 *
+	 * @return Number of added section starts
+	 */
+	private int addStarts(int pos, int first, int last) {
+		int count = 0;
+		for (int i = first; i <= last && i < size; i++) {
+			if (isStart(i)) {
+				sectionStarts.add(pos + count, i);
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	private void shiftStarts(int pos, int delta) {
+		for (int i = pos; i < sectionStarts.size(); i++) {
+			sectionStarts.set(i, sectionStarts.get(i) + delta);
+		}
+	}
+
+
+	private boolean isStart(int index) {
+		return index == 0 || ! sectionFunction.apply(index).equals(sectionFunction.apply(index - 1));
+	}
+
+
+	private boolean isStoredStart(int index) {
+		return Collections.binarySearch(sectionStarts, index) >= 0;
+	}
+
+
+	/**
+	 * @return Number of section starts that are smaller than the given index
+	 */
+	private int countStartsBefore(int index) {
+		int pos = Collections.binarySearch(sectionStarts, index);
+		if (pos < 0) {
+			return -(pos + 1);
+		}
+		return pos;
+	}
+
+
+	/**
+	 * @return Position of the last section whose section row is not after the given row
+	 */
+	private int getSectionOfRow(int row) {
+		int low = 0;
+		int high = sectionStarts.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (sectionStarts.get(mid) + mid <= row) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+}
@@ -17,64 +17,98 @@
 package ch.uzh.ifi.attempto.aceview.ui.view;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.Font;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JEditorPane;
-import javax.swing.JPanel;
+import javax.swing.JList;
 import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLObject;
-import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyID;
 
 import ch.uzh.ifi.attempto.aceview.ACEText;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
 import ch.uzh.ifi.attempto.aceview.WordsHyperlinkListener;
 import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.model.IndexListModel;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
 import ch.uzh.ifi.attempto.aceview.util.ACETextRenderer;
-import ch.uzh.ifi.attempto.aceview.util.EntityComparator;
 
 /**
  * <p>This view component provides the index-view to the ACE text.</p>
  * 
+ * <p>The entities are shown in a list that renders only its visible rows
+ * (every row has the same height), and the snippets of the selected
+ * entity are shown below the list.</p>
+ * 
  * @author Kaarel Kaljurand
  */
 public class ACEIndexViewComponent extends AbstractACEViewComponent {
 
-	private JEditorPane editorpaneIndex;
+	private IndexListModel indexListModel;
+	private JList listIndex;
+	private JEditorPane editorpaneEntry;
 	private WordsHyperlinkListener wordsHyperlinkListener;
 
 	private final ACEViewListener<ACEViewEvent<TextEventType>> aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
 		public void handleChange(ACEViewEvent<TextEventType> event) {
-			showIndex();
+			showHeader();
+			showEntry();
+		}
+	};
+
+	private final ListSelectionListener listSelectionListener = new ListSelectionListener() {
+		public void valueChanged(ListSelectionEvent e) {
+			if (! e.getValueIsAdjusting()) {
+				OWLEntity entity = (OWLEntity) listIndex.getSelectedValue();
+				if (entity != null && ! entity.equals(getOWLWorkspace().getOWLSelectionModel().getSelectedEntity())) {
+					getOWLWorkspace().getOWLSelectionModel().setSelectedEntity(entity);
+				}
+				showEntry();
+			}
 		}
 	};
 
 
-	private void showIndex() {
-		OWLOntology ont = this.getOWLModelManager().getActiveOntology();
-		OWLOntologyID oid = ont.getOntologyID();
-		ACEText<OWLEntity, ?> acetext = ACETextManager.getACEText(oid);
-		TokenMapper tokenMapper = ACETextManager.getACELexicon(oid);
+	private void showHeader() {
+		ACEText<OWLEntity, ?> acetext = ACETextManager.getActiveACEText();
 		setHeaderText(acetext.getReferencedEntities().size() + " content word(s) in " + acetext.getSentences().size() + " sentence(s)");
+	}
+
 
-		SortedSet<OWLEntity> entitiesSorted = new TreeSet<OWLEntity>(new EntityComparator());
-		entitiesSorted.addAll(ont.getSignature());
-		editorpaneIndex.setText(ACETextManager.wrapInHtml(ACETextRenderer.getIndexBody(entitiesSorted, acetext, tokenMapper)));
+	private void showEntry() {
+		OWLEntity entity = (OWLEntity) listIndex.getSelectedValue();
+		if (entity == null) {
+			editorpaneEntry.setText(ACETextManager.wrapInHtml(""));
+		}
+		else {
+			OWLOntologyID oid = getOWLModelManager().getActiveOntology().getOntologyID();
+			ACEText<OWLEntity, ?> acetext = ACETextManager.getACEText(oid);
+			TokenMapper tokenMapper = ACETextManager.getACELexicon(oid);
+			editorpaneEntry.setText(ACETextManager.wrapInHtml(ACETextRenderer.getIndexEntry(acetext, entity, tokenMapper)));
+			editorpaneEntry.setCaretPosition(0);
+		}
 	}
 
+
 	@Override
 	protected OWLObject updateView() {
 		OWLEntity entity = getOWLWorkspace().getOWLSelectionModel().getSelectedEntity();
 		if (isShowing() && entity != null) {
-			String entityRendering = getOWLModelManager().getRendering(entity);
-			editorpaneIndex.scrollToReference(entityRendering);
+			int index = indexListModel.indexOf(entity);
+			if (index != -1 && index != listIndex.getSelectedIndex()) {
+				listIndex.setSelectedIndex(index);
+				listIndex.ensureIndexIsVisible(index);
+			}
 		}
 		return entity;
 	}
@@ -82,38 +116,70 @@ public class ACEIndexViewComponent extends AbstractACEViewComponent {
 
 	@Override
 	public void initialiseView() throws Exception {
-		editorpaneIndex = new JEditorPane("text/html", ACETextManager.wrapInHtml(""));
-		editorpaneIndex.setFont(new Font("Monaco", Font.PLAIN, 11));
-		editorpaneIndex.setEnabled(true);
-		editorpaneIndex.setEditable(false);
+		indexListModel = new IndexListModel();
+		listIndex = new JList(indexListModel);
+		listIndex.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		listIndex.setCellRenderer(new DefaultListCellRenderer() {
+			@Override
+			public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+				String text = indexListModel.getRendering(index) + " (" + indexListModel.getSnippetCount(index) + ")";
+				return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+			}
+		});
+		setListFont(new Font("Monaco", Font.PLAIN, 11));
+		listIndex.addListSelectionListener(listSelectionListener);
+
+		editorpaneEntry = new JEditorPane("text/html", ACETextManager.wrapInHtml(""));
+		editorpaneEntry.setEnabled(true);
+		editorpaneEntry.setEditable(false);
 		wordsHyperlinkListener = new WordsHyperlinkListener(getOWLWorkspace());
-		editorpaneIndex.addHyperlinkListener(wordsHyperlinkListener);
+		editorpaneEntry.addHyperlinkListener(wordsHyperlinkListener);
+
+		JScrollPane scrollpaneIndex = new JScrollPane(listIndex,
+				JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 
-		JScrollPane scrollpaneIndex = new JScrollPane(editorpaneIndex,
+		JScrollPane scrollpaneEntry = new JScrollPane(editorpaneEntry,
 				JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
 				JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 
-		JPanel panelIndex = new JPanel(new BorderLayout());
-		panelIndex.add(scrollpaneIndex);
+		JSplitPane splitpane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, scrollpaneIndex, scrollpaneEntry);
+		splitpane.setResizeWeight(0.5);
 
 		setLayout(new BorderLayout());
-
-		add(panelIndex);
+		add(splitpane);
 
 		ACETextManager.addListener(aceTextManagerListener);
-		showIndex();
+		showHeader();
 	}
 
 	@Override
 	public void disposeView() {
-		editorpaneIndex.removeHyperlinkListener(wordsHyperlinkListener);
+		listIndex.removeListSelectionListener(listSelectionListener);
+		editorpaneEntry.removeHyperlinkListener(wordsHyperlinkListener);
 		ACETextManager.removeListener(aceTextManagerListener);
+		indexListModel.dispose();
 	}
 
 	@Override
 	public void refreshComponent() {
-		if (editorpaneIndex != null) {
-			editorpaneIndex.setFont(owlRendererPreferences.getFont());
+		if (listIndex != null) {
+			Font font = owlRendererPreferences.getFont();
+			setListFont(font);
+			editorpaneEntry.setFont(font);
+			// The renderings depend on the renderer preferences
+			indexListModel.reset();
 		}
 	}
-}
\ No newline at end of file
+
+
+	/**
+	 * <p>Sets the font of the list and fixes the size of its cells,
+	 * so that the list does not measure every cell in order to lay itself out.</p>
+	 */
+	private void setListFont(Font font) {
+		listIndex.setFont(font);
+		listIndex.setFixedCellHeight(listIndex.getFontMetrics(font).getHeight() + 2);
+		listIndex.setFixedCellWidth(1);
+	}
+}
@@ -189,7 +189,7 @@ public class ACESnippetEditorViewComponent extends AbstractACESnippetSelectionVi
 						ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
 						ACESnippet oldSnippet = acetext.find(sentences);
 						if (oldSnippet == null) {
-							ACETextManager.updateSnippet(acetext.indexOf(selectedSnippet), selectedSnippet, sentences);
+							ACETextManager.updateSnippet(selectedSnippet, sentences);
 						}
 						else {
 							displayWarningMessage("Selected snippet <b>not</b> updated. These sentences are already in the text.");
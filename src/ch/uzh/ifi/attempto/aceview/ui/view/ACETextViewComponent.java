@@ -23,23 +23,28 @@ import org.protege.editor.owl.ui.view.AbstractOWLViewComponent;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.ace.ACESentence;
 import ch.uzh.ifi.attempto.ace.ACESplitter;
 import ch.uzh.ifi.attempto.aceview.ACESnippet;
 import ch.uzh.ifi.attempto.aceview.ACEText;
+import ch.uzh.ifi.attempto.aceview.ACETextLoader;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
+import ch.uzh.ifi.attempto.aceview.SnippetParser;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
 import ch.uzh.ifi.attempto.aceview.ui.ACESnippetEditor;
 import ch.uzh.ifi.attempto.aceview.ui.util.ComponentFactory;
+import ch.uzh.ifi.attempto.aceview.ui.util.ParagraphTracker;
 
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
@@ -51,6 +56,7 @@ import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 /**
  * <p>This view component shows the ACE text in a simple text area
@@ -66,6 +72,19 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 	private final ACESnippetEditor aceTextArea = new ACESnippetEditor(25, 80);
 	private final JLabel labelMessage = new JLabel();
 	private final JButton buttonUpdate = ComponentFactory.makeButton("Update");
+	private final JButton buttonCancel = ComponentFactory.makeButton("Cancel");
+
+	// Tracks the paragraphs of the textarea that were edited since the text was shown.
+	// The paragraphs of the shown text correspond one-to-one to the snippets.
+	private final ParagraphTracker paragraphTracker = new ParagraphTracker();
+
+	// Snippets of the shown text, in the order of the paragraphs. The paragraph
+	// indices are resolved against this list rather than against the ACE text,
+	// which might have changed after the text was shown.
+	private List<ACESnippet> shownSnippets = ImmutableList.of();
+
+	// Parser of the update that is currently running, or null
+	private volatile SnippetParser currentSnippetParser;
 
 	private final ACEViewListener<ACEViewEvent<TextEventType>> aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
 		public void handleChange(ACEViewEvent<TextEventType> event) {
@@ -79,6 +98,10 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 
 	@Override
 	protected void disposeOWLView() {
+		SnippetParser snippetParser = currentSnippetParser;
+		if (snippetParser != null) {
+			snippetParser.cancel();
+		}
 		ACETextManager.removeListener(aceTextManagerListener);
 	}
 
@@ -91,17 +114,11 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 
 		buttonUpdate.addActionListener(new ActionListener() {
 			/**
-			 * <p>Updates the active ACE text on the basis of the textarea.</p>
-			 * 
-			 * <ol>
-			 * <li>Checks if an existing snippet includes a sentence from the textarea.
-			 * These textarea sentences that are not included by any snippet
-			 * are collected into <code>addedSentences</code>.</li>
-			 * <li>Check if an existing snippet contains a sentence that the textarea does not contain.
-			 * Such sentences are collected into <code>removedSentences</code>.</li>
-			 * <li><code>addedSentences</code> are added to the current text and
-			 * <code>removedSentences</code> are removed.</li>
-			 * </ol>
+			 * <p>Updates the active ACE text on the basis of the textarea.
+			 * Usually only the paragraphs that were edited since the text was shown
+			 * are compared to the snippets that they replace. If the edits cannot be
+			 * tracked (e.g. they open a comment), then the complete textarea is compared
+			 * to the ACE text.</p>
 			 * 
 			 * BUG: Does the order of add/delete matter (semantically and performancewise)?
 			 */
@@ -115,26 +132,17 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 
 				final Set<List<ACESentence>> newSentenceLists = new LinkedHashSet<List<ACESentence>>();
 				final Set<ACESnippet> removedSnippets = Sets.newHashSet();
-				Set<List<ACESentence>> oldSentenceLists = Sets.newHashSet();
 
-				List<List<ACESentence>> textareaSentenceLists = ACESplitter.getParagraphs(aceTextArea.getText());
-				for (List<ACESentence> sentences : textareaSentenceLists) {
-					if (acetext.contains(sentences)) {
-						oldSentenceLists.add(sentences);
-					}
-					else {
-						newSentenceLists.add(sentences);
-					}
+				ParagraphTracker.Change change = paragraphTracker.getChange(aceTextArea.getDocument());
+				if (change == null || ! isSelfContained(change.getText()) || change.getEnd() > shownSnippets.size()) {
+					findChanges(acetext, aceTextArea.getText(), newSentenceLists, removedSnippets);
 				}
-
-				logger.info("Add: " + newSentenceLists);
-
-				for (ACESnippet s : acetext.getSnippets()) {
-					if (! oldSentenceLists.contains(s.getSentences())) {
-						removedSnippets.add(s);
-					}
+				else {
+					logger.info("Edited paragraphs: " + change);
+					findChanges(acetext, shownSnippets, change, newSentenceLists, removedSnippets);
 				}
 
+				logger.info("Add: " + newSentenceLists);
 				logger.info("Del: " + removedSnippets);
 
 				displayMessage("Adding " + newSentenceLists.size() + " and deleting " + removedSnippets.size() + " snippet(s)");
@@ -143,7 +151,19 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 			}
 		});
 
+		buttonCancel.setToolTipText("Stop parsing the new snippets and leave the knowledge base unchanged.");
+		buttonCancel.setEnabled(false);
+		buttonCancel.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				SnippetParser snippetParser = currentSnippetParser;
+				if (snippetParser != null) {
+					snippetParser.cancel();
+				}
+			}
+		});
+
 		aceTextArea.setAutocompleter(ACETextManager.getActiveACELexicon().getAutocompleter());
+		aceTextArea.getDocument().addDocumentListener(paragraphTracker);
 
 
 		JScrollPane scrollpaneAce = new JScrollPane(aceTextArea,
@@ -153,6 +173,7 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 
 		Box panelButtonAndLabel = new Box(BoxLayout.X_AXIS);
 		panelButtonAndLabel.add(buttonUpdate);
+		panelButtonAndLabel.add(buttonCancel);
 		// Note: Glue does not seem to work with labels that contain HTML
 		panelButtonAndLabel.add(Box.createHorizontalGlue());
 		panelButtonAndLabel.add(labelMessage);
@@ -176,7 +197,107 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 		else {
 			setHeaderText(numberOfSnippets + " snippets");
 		}
-		aceTextArea.setText(acetext.toString());
+		String text = acetext.toString();
+		shownSnippets = ImmutableList.copyOf(acetext.getSnippets());
+		aceTextArea.setText(text);
+		if (paragraphTracker.reset(text) != numberOfSnippets) {
+			// Some snippet is rendered as several paragraphs (or none)
+			paragraphTracker.invalidate();
+		}
+	}
+
+
+	/**
+	 * <p>Compares the complete textarea with the ACE text.</p>
+	 * 
+	 * <ol>
+	 * <li>Checks if an existing snippet includes a paragraph from the textarea.
+	 * These textarea paragraphs that are not included by any snippet
+	 * are collected into <code>newSentenceLists</code>.</li>
+	 * <li>Checks if an existing snippet is not among the paragraphs of the textarea.
+	 * Such snippets are collected into <code>removedSnippets</code>.</li>
+	 * </ol>
+	 */
+	private static void findChanges(ACEText<OWLEntity, OWLLogicalAxiom> acetext, String text,
+			Set<List<ACESentence>> newSentenceLists, Set<ACESnippet> removedSnippets) {
+
+		Set<List<ACESentence>> oldSentenceLists = Sets.newHashSet();
+
+		List<List<ACESentence>> textareaSentenceLists = ACESplitter.getParagraphs(text);
+		for (List<ACESentence> sentences : textareaSentenceLists) {
+			if (acetext.contains(sentences)) {
+				oldSentenceLists.add(sentences);
+			}
+			else {
+				newSentenceLists.add(sentences);
+			}
+		}
+
+		for (ACESnippet s : acetext.getSnippets()) {
+			if (! oldSentenceLists.contains(s.getSentences())) {
+				removedSnippets.add(s);
+			}
+		}
+	}
+
+
+	/**
+	 * <p>Compares only the edited paragraphs of the textarea with the snippets
+	 * that they replace. The snippets of the replaced paragraphs are removed,
+	 * unless an edited paragraph still contains them. The edited paragraphs that
+	 * are not included by any snippet are added.</p>
+	 * 
+	 * <p>The replaced snippets are looked up by the paragraph indices in the list of
+	 * the snippets that were shown. The ACE text might have changed in the meantime
+	 * (e.g. if the change event has not been delivered yet), therefore the snippets
+	 * that are no longer in the text are skipped, and the indices of the current
+	 * text are not used at all.</p>
+	 */
+	private static void findChanges(ACEText<OWLEntity, OWLLogicalAxiom> acetext, List<ACESnippet> shownSnippets,
+			ParagraphTracker.Change change, Set<List<ACESentence>> newSentenceLists, Set<ACESnippet> removedSnippets) {
+
+		for (int i = change.getFirst(); i < change.getEnd(); i++) {
+			ACESnippet snippet = shownSnippets.get(i);
+			if (acetext.contains(snippet)) {
+				removedSnippets.add(snippet);
+			}
+		}
+
+		if (change.getText().length() > 0) {
+			for (List<ACESentence> sentences : ACESplitter.getParagraphs(change.getText())) {
+				ACESnippet snippet = acetext.find(sentences);
+				if (snippet == null) {
+					newSentenceLists.add(sentences);
+				}
+				else {
+					removedSnippets.remove(snippet);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * <p>Returns <code>true</code> if the given text cannot contain the beginning or
+	 * the end of a comment or a quoted string that continues outside of the text,
+	 * i.e. if the text can be tokenized independently of the rest of the textarea.</p>
+	 */
+	private static boolean isSelfContained(String text) {
+		if (text.contains("/*") || text.contains("*/")) {
+			return false;
+		}
+		int quoteCount = 0;
+		int backquoteCount = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (ch == '"') {
+				quoteCount++;
+			}
+			else if (ch == '`') {
+				backquoteCount++;
+			}
+		}
+		return quoteCount % 2 == 0 && backquoteCount % 2 == 0;
 	}
 
 
@@ -187,7 +308,10 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 
 
 	/**
-	 * Can this task be stopped somehow?
+	 * <p>Updates the active ACE text. The new snippets are parsed in parallel
+	 * in a background thread, the progress is shown in the message label, and the
+	 * Cancel-button stops the parsing, in which case the ACE text is not changed.
+	 * The parsed snippets are added to the ACE text on the event dispatch thread.</p>
 	 * 
 	 * @param addedSentenceLists
 	 * @param removedSnippets
@@ -195,18 +319,53 @@ public class ACETextViewComponent extends AbstractOWLViewComponent {
 	private void updateActiveACEText(final Set<List<ACESentence>> addedSentenceLists, final Set<ACESnippet> removedSnippets) {
 		final BackgroundTask task = ProtegeApplication.getBackgroundTaskManager().startTask("updating the active ACE text");
 
+		final SnippetParser snippetParser = new SnippetParser();
+		snippetParser.addProgressListener(new ACETextLoader.ProgressListener() {
+			public void progressChanged(final int done, final int total) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						displayMessage("Parsed " + done + " of " + total + " snippet(s)");
+					}
+				});
+			}
+		});
+		currentSnippetParser = snippetParser;
+		buttonCancel.setEnabled(true);
+
 		Runnable runnable = new Runnable() {
 			public void run() {
 				Date dateBegin = new Date();
-				ACETextManager.addAndRemoveItems(addedSentenceLists, removedSnippets);
-				Date dateEnd = new Date();
-				double duration = (dateEnd.getTime() - dateBegin.getTime()) / 1000;
-
-				ProtegeApplication.getBackgroundTaskManager().endTask(task);
+				String message;
+				try {
+					ACETextManager.addAndRemoveItems(addedSentenceLists, removedSnippets, snippetParser);
+					Date dateEnd = new Date();
+					double duration = (dateEnd.getTime() - dateBegin.getTime()) / 1000;
+					message = "Updated in " + duration + " seconds";
+				} catch (CancellationException e) {
+					message = "Update cancelled";
+				} catch (RuntimeException e) {
+					logger.error("Update failed", e);
+					message = "Update failed: " + e.getMessage();
+				}
+				finally {
+					ProtegeApplication.getBackgroundTaskManager().endTask(task);
+					currentSnippetParser = null;
+				}
 
-				displayMessage("Updated in " + duration + " seconds");
-				aceTextArea.requestFocusInWindow();
-				buttonUpdate.setEnabled(true);
+				final String finalMessage = message;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						displayMessage(finalMessage);
+						// If the ACE text did not change, the textarea was not re-rendered
+						// and its paragraphs no longer correspond to the snippets.
+						if (paragraphTracker.isDirty()) {
+							paragraphTracker.invalidate();
+						}
+						aceTextArea.requestFocusInWindow();
+						buttonCancel.setEnabled(false);
+						buttonUpdate.setEnabled(true);
+					}
+				});
 			}
 		};
 		Thread t = new Thread(runnable, "Update the active ACE text");
@@ -17,36 +17,33 @@
 package ch.uzh.ifi.attempto.aceview.ui.view;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.Font;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
-import javax.swing.JComponent;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
 import javax.swing.JScrollPane;
-import javax.swing.JTextPane;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.DefaultStyledDocument;
-import javax.swing.text.Style;
-import javax.swing.text.StyleConstants;
-import javax.swing.text.StyledDocument;
-
-import org.jdesktop.swingx.JXHyperlink;
+import javax.swing.ListSelectionModel;
+
 import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
 import org.semanticweb.owlapi.model.OWLObject;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
 import ch.uzh.ifi.attempto.aceview.ACEText;
 import ch.uzh.ifi.attempto.aceview.ACETextManager;
+import ch.uzh.ifi.attempto.aceview.model.IndexListModel;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewEvent;
 import ch.uzh.ifi.attempto.aceview.model.event.ACEViewListener;
 import ch.uzh.ifi.attempto.aceview.model.event.TextEventType;
 import ch.uzh.ifi.attempto.aceview.ui.Colors;
-import ch.uzh.ifi.attempto.aceview.ui.EntityLinkAction;
-import ch.uzh.ifi.attempto.aceview.ui.util.ComponentFactory;
-import ch.uzh.ifi.attempto.aceview.util.EntityComparator;
+import ch.uzh.ifi.attempto.aceview.ui.util.SectionedListModel;
 import ch.uzh.ifi.attempto.aceview.util.Showing;
 
 /**
@@ -58,23 +55,41 @@ import ch.uzh.ifi.attempto.aceview.util.Showing;
  * <p>This view respects the renderer settings (e.g. shows annotations instead
  * of entity names if the renderer is set this way).</p>
  * 
+ * <p>The entities are grouped under their initial letters and shown in a list
+ * that renders only its visible rows. Clicking on an entity selects it.</p>
+ * 
  * @author Kaarel Kaljurand
  */
 public class ACEWordsASortedViewComponent extends AbstractACEViewComponent {
 
-	private JTextPane textpaneWords;
+	private IndexListModel indexListModel;
+	private SectionedListModel wordsListModel;
+	private JList listWords;
 
 	private final OWLModelManagerListener modelManagerListener = new OWLModelManagerListener() {
 		public void handleChange(OWLModelManagerChangeEvent event) {
 			if (event.isType(org.protege.editor.owl.model.event.EventType.ENTITY_RENDERER_CHANGED)) {
-				textpaneWords.setDocument(getContentWordsAsStyledDocument(ACETextManager.getActiveACEText(), textpaneWords.getFont()));
+				indexListModel.reset();
 			}
 		}
 	};
 
 	private final ACEViewListener<ACEViewEvent<TextEventType>> aceTextManagerListener = new ACEViewListener<ACEViewEvent<TextEventType>>() {
 		public void handleChange(ACEViewEvent<TextEventType> event) {
-			showWords();
+			showHeader();
+		}
+	};
+
+	private final MouseAdapter mouseListener = new MouseAdapter() {
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			int row = listWords.locationToIndex(e.getPoint());
+			if (row != -1 && listWords.getCellBounds(row, row).contains(e.getPoint())) {
+				int index = wordsListModel.getElementIndex(row);
+				if (index != -1) {
+					getOWLWorkspace().getOWLSelectionModel().setSelectedEntity(indexListModel.getElementAt(index));
+				}
+			}
 		}
 	};
 
@@ -83,16 +98,49 @@ public class ACEWordsASortedViewComponent extends AbstractACEViewComponent {
 		getOWLModelManager().removeListener(modelManagerListener);
 		ACETextManager.removeListener(aceTextManagerListener);
 		removeHierarchyListener(hierarchyListener);
+		listWords.removeMouseListener(mouseListener);
+		wordsListModel.dispose();
+		indexListModel.dispose();
 	}
 
 	@Override
 	public void initialiseView() throws Exception {
-		textpaneWords = new JTextPane() {{
-			setEditable(false);
-			setBackground(Colors.BG_COLOR);
-		}};
+		indexListModel = new IndexListModel(new Predicate<OWLEntity>() {
+			public boolean apply(OWLEntity entity) {
+				return Showing.isShow(entity);
+			}
+		});
+		wordsListModel = new SectionedListModel(indexListModel, new Function<Integer, String>() {
+			public String apply(Integer index) {
+				return indexListModel.getRendering(index).substring(0, 1).toUpperCase();
+			}
+		});
+
+		listWords = new JList(wordsListModel);
+		listWords.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		listWords.setBackground(Colors.BG_COLOR);
+		listWords.setCellRenderer(new DefaultListCellRenderer() {
+			@Override
+			public Component getListCellRendererComponent(JList list, Object value, int row, boolean isSelected, boolean cellHasFocus) {
+				int index = wordsListModel.getElementIndex(row);
+				if (index == -1) {
+					super.getListCellRendererComponent(list, value, row, false, false);
+					setFont(list.getFont().deriveFont(Font.BOLD));
+				}
+				else {
+					String text = indexListModel.getRendering(index) + " (" + indexListModel.getSnippetCount(index) + ")";
+					super.getListCellRendererComponent(list, text, row, isSelected, cellHasFocus);
+					if (! isSelected) {
+						setForeground(Colors.LINK_COLOR);
+					}
+				}
+				return this;
+			}
+		});
+		setListFont(owlRendererPreferences.getFont());
+		listWords.addMouseListener(mouseListener);
 
-		JScrollPane scrollpaneWords = new JScrollPane(textpaneWords,
+		JScrollPane scrollpaneWords = new JScrollPane(listWords,
 				JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
 				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 
@@ -102,11 +150,11 @@ public class ACEWordsASortedViewComponent extends AbstractACEViewComponent {
 		ACETextManager.addListener(aceTextManagerListener);
 		addHierarchyListener(hierarchyListener);
 		getOWLModelManager().addListener(modelManagerListener);
-		showWords();
+		showHeader();
 	}
 
 
-	private void showWords() {
+	private void showHeader() {
 		ACEText<OWLEntity, OWLLogicalAxiom> acetext = ACETextManager.getActiveACEText();
 		int contentWordCount = acetext.getReferencedEntities().size();
 		int sentenceCount = acetext.getSentences().size();
@@ -119,101 +167,41 @@ public class ACEWordsASortedViewComponent extends AbstractACEViewComponent {
 			pl2 = "s";
 		}
 		setHeaderText(contentWordCount + " content word" + pl1 + " in " + sentenceCount + " sentence" + pl2);
-		if (contentWordCount > 0) {
-			textpaneWords.setDocument(getContentWordsAsStyledDocument(acetext, owlRendererPreferences.getFont()));
-		}
-		else {
-			textpaneWords.setDocument(new DefaultStyledDocument());
-		}
 	}
 
 	@Override
 	protected OWLObject updateView() {
 		OWLEntity entity = getOWLWorkspace().getOWLSelectionModel().getSelectedEntity();
-		/*
-		if (isShowing() && entity != null && ACETextManager.isShow(entity)) {
-			String entityRendering = getOWLModelManager().getRendering(entity);
-			textpaneWords.scrollToReference(entityRendering);
+		if (isShowing() && entity != null) {
+			int index = indexListModel.indexOf(entity);
+			if (index == -1) {
+				listWords.clearSelection();
+			}
+			else {
+				int row = wordsListModel.getRow(index);
+				listWords.setSelectedIndex(row);
+				listWords.ensureIndexIsVisible(row);
+			}
 		}
-		 */
 		return entity;
 	}
 
 
 	@Override
 	public void refreshComponent() {
-		// TODO: BUG: This has no effect, I guess the whole pane needs
-		// to be redrawn
-		if (textpaneWords != null) {
-			textpaneWords.setFont(owlRendererPreferences.getFont());
+		if (listWords != null) {
+			setListFont(owlRendererPreferences.getFont());
 		}
 	}
 
 
 	/**
-	 * <p>Returns a formatted list of content words in this {@link ACEText}.
-	 * The list is alphabetically sorted.</p>
-	 * 
-	 * @return Styled document of all content words in the given text
+	 * <p>Sets the font of the list and fixes the size of its cells,
+	 * so that the list does not measure every cell in order to lay itself out.</p>
 	 */
-	private StyledDocument getContentWordsAsStyledDocument(ACEText<OWLEntity, OWLLogicalAxiom> acetext, Font font) {
-		StyledDocument doc = new DefaultStyledDocument();
-		Set<OWLEntity> entities = getOWLModelManager().getActiveOntology().getSignature();
-		SortedSet<OWLEntity> entitiesSorted = new TreeSet<OWLEntity>(new EntityComparator());
-		entitiesSorted.addAll(entities);
-
-		char previousFirstChar = ' '; // No word can contain a space (as the first character)
-		for (OWLEntity entity : entitiesSorted) {
-			if (! Showing.isShow(entity)) {
-				continue;
-			}
-			String entityRendering = ACETextManager.getRendering(entity);
-			char currentFirstChar = Character.toLowerCase(entityRendering.charAt(0));
-			if (currentFirstChar != previousFirstChar) {
-				addString(doc, "\n\n" + Character.toUpperCase(currentFirstChar) + "\n");
-				//addComponent(doc, ComponentFactory.makeInitialLetter(Character.toUpperCase(currentFirstChar), font));
-				previousFirstChar = currentFirstChar;
-			}
-			else {
-				/*
-				JLabel label = new JLabel(", ");
-				label.setFont(font);
-				addComponent(doc, label);
-				 */
-			}
-
-			addComponent(doc, getHyperlink(entity, font));
-			addComponent(doc, ComponentFactory.makeItalicLabel(" (" + acetext.getSnippetCount(entity) + ")  ", font));
-		}
-		return doc;
-	}
-
-
-	private void addString(StyledDocument doc, String str) {
-		try {
-			doc.insertString(doc.getLength(), str, null);
-		} catch (BadLocationException e) {
-			e.printStackTrace();
-		}
-	}
-
-	private void addComponent(StyledDocument doc, JComponent component) {
-		// The component must first be wrapped in a style
-		Style style = doc.addStyle("StyleName", null);
-		StyleConstants.setComponent(style, component);
-
-		// Insert the component at the end of the text
-		try {
-			doc.insertString(doc.getLength(), "ignored text", style);
-		} catch (BadLocationException e) {
-			e.printStackTrace();
-		}
-	}
-
-
-	private JXHyperlink getHyperlink(OWLEntity entity, Font font) {
-		JXHyperlink link = new JXHyperlink(new EntityLinkAction(getOWLWorkspace(), entity));
-		link.setFont(font);
-		return link;
+	private void setListFont(Font font) {
+		listWords.setFont(font);
+		listWords.setFixedCellHeight(listWords.getFontMetrics(font).getHeight() + 2);
+		listWords.setFixedCellWidth(1);
 	}
-}
\ No newline at end of file
+}
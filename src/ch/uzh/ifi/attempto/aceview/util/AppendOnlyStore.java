@@ -0,0 +1,415 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * <p>Persistent map from 64-bit keys to string arrays, stored in an
+ * append-only file. Every <code>put</code> and <code>remove</code> appends
+ * a record to the end of the file. Only the file offsets of the live records
+ * are kept in memory, the values are read from the file on demand.</p>
+ *
+ * <p>When the store is opened, the file is scanned once to rebuild the offsets.
+ * A truncated last record (e.g. if the application was killed while writing)
+ * is cut off. If the file contains more dead records than live records then
+ * it is compacted, i.e. rewritten with only the live records.</p>
+ *
+ * <p>All the methods are synchronized, i.e. the store can be
+ * shared between threads. The file cannot be shared between processes
+ * (or between two stores in the same process): the store holds a lock on
+ * an accompanying <code>.lock</code> file until it is closed, and the constructor
+ * throws {@link LockedException} if the lock is already held.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class AppendOnlyStore {
+
+	private static final Logger logger = Logger.getLogger(AppendOnlyStore.class);
+
+	private static final int MAGIC = 0x41435653;
+	private static final byte RECORD_REMOVE = 0;
+	private static final byte RECORD_PUT = 1;
+
+	// Compaction is not worth the trouble for small files
+	private static final int MIN_DEAD_RECORDS_TO_COMPACT = 1000;
+
+	// Appended records are buffered in memory up to this size
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final int version;
+	private final RandomAccessFile lockFile;
+	private final FileLock lock;
+	private final Map<Long, Long> offsets = Maps.newHashMap();
+	private final ByteArrayOutputStream writeBuffer = new ByteArrayOutputStream();
+	private RandomAccessFile raf;
+	private long fileLength;
+	private int deadCount = 0;
+
+
+	/**
+	 * <p>Opens the store in the given file, creating the file if it does not exist.
+	 * If the file has been written with a different format version then
+	 * its content is discarded.</p>
+	 *
+	 * @param file File that holds the records
+	 * @param version Version of the format of the values
+	 * @throws IOException
+	 */
+	public AppendOnlyStore(File file, int version) throws IOException {
+		this.file = file;
+		this.version = version;
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && ! dir.exists() && ! dir.mkdirs()) {
+			throw new IOException("Cannot create directory: " + dir);
+		}
+		lockFile = new RandomAccessFile(getLockFile(file), "rw");
+		FileLock fileLock = null;
+		try {
+			fileLock = lockFile.getChannel().tryLock();
+		} catch (OverlappingFileLockException e) {
+			// Locked by another store in this process
+		} catch (IOException e) {
+			lockFile.close();
+			throw e;
+		}
+		if (fileLock == null) {
+			lockFile.close();
+			throw new LockedException(file);
+		}
+		lock = fileLock;
+		try {
+			open();
+			if (deadCount >= MIN_DEAD_RECORDS_TO_COMPACT && deadCount > offsets.size()) {
+				compact();
+			}
+		} catch (IOException e) {
+			releaseLock();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * @param file File that holds the records
+	 * @return File whose lock guards the given file
+	 */
+	public static File getLockFile(File file) {
+		return new File(file.getPath() + ".lock");
+	}
+
+
+	/**
+	 * @param key Key
+	 * @return Value of the given key or <code>null</code> if the store does not contain the key
+	 * @throws IOException
+	 */
+	public synchronized String[] get(long key) throws IOException {
+		Long offset = offsets.get(key);
+		if (offset == null) {
+			return null;
+		}
+		if (offset >= fileLength) {
+			flush();
+		}
+		raf.seek(offset);
+		byte type = raf.readByte();
+		long storedKey = raf.readLong();
+		if (type != RECORD_PUT || storedKey != key) {
+			throw new IOException("Corrupted record at offset " + offset + " in " + file);
+		}
+		String[] fields = new String[raf.readInt()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = raf.readUTF();
+		}
+		return fields;
+	}
+
+
+	public synchronized boolean containsKey(long key) {
+		return offsets.containsKey(key);
+	}
+
+
+	/**
+	 * <p>Stores the given value under the given key, replacing the
+	 * previous value of the key. Note that each field must fit into
+	 * 64KB in the modified UTF-8 encoding.</p>
+	 *
+	 * @param key Key
+	 * @param fields Value
+	 * @throws IOException
+	 */
+	public synchronized void put(long key, String... fields) throws IOException {
+		// The record is built separately so that a field that is too long
+		// does not leave a partial record in the buffer.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(RECORD_PUT);
+		out.writeLong(key);
+		out.writeInt(fields.length);
+		for (String field : fields) {
+			out.writeUTF(field);
+		}
+		out.flush();
+		Long oldOffset = offsets.put(key, fileLength + writeBuffer.size());
+		if (oldOffset != null) {
+			deadCount++;
+		}
+		append(bytes);
+	}
+
+
+	/**
+	 * @param key Key
+	 * @return <code>true</code> if the store contained the given key
+	 * @throws IOException
+	 */
+	public synchronized boolean remove(long key) throws IOException {
+		if (offsets.remove(key) == null) {
+			return false;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(RECORD_REMOVE);
+		out.writeLong(key);
+		out.flush();
+		// Both the removed record and the removal record are dead
+		deadCount += 2;
+		append(bytes);
+		return true;
+	}
+
+
+	/**
+	 * @return Copy of the set of keys
+	 */
+	public synchronized Set<Long> keySet() {
+		return Sets.newHashSet(offsets.keySet());
+	}
+
+
+	public synchronized int size() {
+		return offsets.size();
+	}
+
+
+	/**
+	 * <p>Writes the buffered records to the file.</p>
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (writeBuffer.size() > 0) {
+			raf.seek(fileLength);
+			raf.write(writeBuffer.toByteArray());
+			fileLength += writeBuffer.size();
+			writeBuffer.reset();
+		}
+	}
+
+
+	/**
+	 * <p>Writes the buffered records to the file and closes the file.
+	 * The store cannot be used afterwards.</p>
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			try {
+				raf.close();
+			} finally {
+				releaseLock();
+			}
+		}
+	}
+
+
+	private void releaseLock() throws IOException {
+		try {
+			lock.release();
+		} finally {
+			lockFile.close();
+		}
+	}
+
+
+	private void append(ByteArrayOutputStream bytes) throws IOException {
+		bytes.writeTo(writeBuffer);
+		if (writeBuffer.size() >= WRITE_BUFFER_SIZE) {
+			flush();
+		}
+	}
+
+
+	/**
+	 * <p>Opens the file and scans its records. A record that cannot
+	 * be read completely, and everything after it, is cut off.</p>
+	 */
+	private void open() throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		if (raf.length() == 0 || ! hasValidHeader()) {
+			writeHeader();
+			return;
+		}
+
+		long goodLength = 8;
+		boolean isTruncated = false;
+		CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+		DataInputStream in = new DataInputStream(counter);
+		try {
+			in.readInt();
+			in.readInt();
+			while (true) {
+				long offset = counter.getCount();
+				int type = in.read();
+				if (type == -1) {
+					break;
+				}
+				long key = in.readLong();
+				if (type == RECORD_PUT) {
+					int fieldCount = in.readInt();
+					for (int i = 0; i < fieldCount; i++) {
+						in.readUTF();
+					}
+					if (offsets.put(key, offset) != null) {
+						deadCount++;
+					}
+				}
+				else if (type == RECORD_REMOVE) {
+					offsets.remove(key);
+					deadCount += 2;
+				}
+				else {
+					throw new IOException("Unknown record type: " + type);
+				}
+				goodLength = counter.getCount();
+			}
+		} catch (IOException e) {
+			// Includes EOFException and UTFDataFormatException
+			logger.warn("Discarding the unreadable end of " + file + " starting at offset " + goodLength + ": " + e.getMessage());
+			isTruncated = true;
+		} finally {
+			in.close();
+		}
+		if (isTruncated) {
+			// The offsets are rebuilt from the good part of the file.
+			raf.setLength(goodLength);
+			raf.close();
+			offsets.clear();
+			deadCount = 0;
+			open();
+			return;
+		}
+		fileLength = goodLength;
+		if (raf.length() != goodLength) {
+			raf.setLength(goodLength);
+		}
+	}
+
+
+	private boolean hasValidHeader() throws IOException {
+		try {
+			raf.seek(0);
+			return raf.readInt() == MAGIC && raf.readInt() == version;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+
+	private void writeHeader() throws IOException {
+		raf.setLength(0);
+		raf.seek(0);
+		raf.writeInt(MAGIC);
+		raf.writeInt(version);
+		fileLength = 8;
+		offsets.clear();
+		deadCount = 0;
+	}
+
+
+	/**
+	 * <p>Rewrites the file so that it contains only the live records.</p>
+	 */
+	private void compact() throws IOException {
+		logger.info("Compacting " + file + ": " + offsets.size() + " live records, " + deadCount + " dead records");
+		flush();
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(version);
+			for (Long key : offsets.keySet()) {
+				String[] fields = get(key);
+				out.writeByte(RECORD_PUT);
+				out.writeLong(key);
+				out.writeInt(fields.length);
+				for (String field : fields) {
+					out.writeUTF(field);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		raf.close();
+		if (! file.delete() || ! tmpFile.renameTo(file)) {
+			throw new IOException("Cannot replace " + file + " with " + tmpFile);
+		}
+		offsets.clear();
+		deadCount = 0;
+		open();
+	}
+
+
+	/**
+	 * <p>Thrown if the file of the store is used by another store,
+	 * possibly in another process.</p>
+	 */
+	public static final class LockedException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		public LockedException(File file) {
+			super("File is in use by another process: " + file);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * <p>Journal of the most recent changes of a mutable structure, e.g. the ACE text
+ * or the ACE lexicon. Every change increments the generation of the structure,
+ * i.e. the change that produced the generation <code>n</code> is
+ * the <code>n</code>-th change. Listeners that remember the generation that they
+ * have last seen can ask for the changes since that generation, instead of
+ * rebuilding everything that depends on the structure.</p>
+ *
+ * <p>At most <code>capacity</code> changes are kept, the oldest changes are dropped.
+ * If the change objects contain their generation then the owner of the journal
+ * must not call {@link #add(Object)} concurrently, so that the generation
+ * of the change is <code>getGeneration() + 1</code> at the time of the call.</p>
+ *
+ * @author Kaarel Kaljurand
+ *
+ * @param <T> Type of the changes
+ */
+public final class ChangeJournal<T> {
+
+	private final int capacity;
+
+	// The most recent changes, the oldest first
+	private final Deque<T> changes = new ArrayDeque<T>();
+
+	private volatile long generation = 0;
+
+
+	/**
+	 * @param capacity Maximal number of changes in the journal
+	 */
+	public ChangeJournal(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * @return Number of changes that have been added to the journal
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+
+	/**
+	 * <p>Increments the generation and adds the change to the journal,
+	 * dropping the oldest change if the journal is full.</p>
+	 *
+	 * @param change Change that produced the next generation
+	 * @return New generation
+	 */
+	public synchronized long add(T change) {
+		if (changes.size() == capacity) {
+			changes.removeFirst();
+		}
+		changes.addLast(change);
+		return ++generation;
+	}
+
+
+	/**
+	 * <p>Returns the changes that have been added after the given generation,
+	 * the oldest first, or <code>null</code> if some of these changes have
+	 * already been dropped from the journal.</p>
+	 *
+	 * @param since Generation
+	 * @return List of changes (possibly empty) or <code>null</code>
+	 */
+	public synchronized List<T> getChangesSince(long since) {
+		if (since >= generation) {
+			return Lists.newArrayList();
+		}
+		// The change that produced the generation since+1 must still be in the journal
+		if (generation - since > changes.size()) {
+			return null;
+		}
+		List<T> list = Lists.newArrayList(changes);
+		return list.subList(list.size() - (int) (generation - since), list.size());
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * <p>List of elements that is kept sorted by the renderings of the elements,
+ * e.g. the entities of an ontology sorted by their names. The renderings
+ * are compared case-insensitively by their collation keys, which are computed
+ * once, when the element is added. Elements with equal renderings are ordered
+ * by the names of their classes (e.g. a class and an individual that have the same name),
+ * and elements of the same class with equal renderings are kept in the order
+ * in which they were added.</p>
+ *
+ * <p>Adding, removing and finding an element takes logarithmic time
+ * (plus the time of shifting the elements of the underlying array),
+ * positional access takes constant time. The list is not thread-safe.</p>
+ *
+ * @author Kaarel Kaljurand
+ *
+ * @param <E> Type of the elements
+ */
+public final class CollatedList<E> {
+
+	private static final class Entry<E> {
+		private final E element;
+		private final String rendering;
+		private final CollationKey key;
+		private final String className;
+		// Makes the order total, i.e. every entry can be found by binary search
+		private final long sequenceNumber;
+
+		private Entry(E element, String rendering, CollationKey key, long sequenceNumber) {
+			this.element = element;
+			this.rendering = rendering;
+			this.key = key;
+			this.className = element.getClass().getName();
+			this.sequenceNumber = sequenceNumber;
+		}
+	}
+
+	private final Comparator<Entry<E>> comparator = new Comparator<Entry<E>>() {
+		public int compare(Entry<E> e1, Entry<E> e2) {
+			int c = e1.key.compareTo(e2.key);
+			if (c != 0) {
+				return c;
+			}
+			c = e1.className.compareTo(e2.className);
+			if (c != 0) {
+				return c;
+			}
+			if (e1.sequenceNumber < e2.sequenceNumber) {
+				return -1;
+			}
+			if (e1.sequenceNumber > e2.sequenceNumber) {
+				return 1;
+			}
+			return 0;
+		}
+	};
+
+	private final Collator collator;
+	private final List<Entry<E>> entries = Lists.newArrayList();
+	private final Map<E, Entry<E>> elementToEntry = Maps.newHashMap();
+	private long sequenceNumber = 0;
+
+
+	public CollatedList() {
+		this(Collator.getInstance());
+	}
+
+
+	public CollatedList(Collator collator) {
+		this.collator = collator;
+	}
+
+
+	/**
+	 * <p>Replaces the content of this list by the given elements,
+	 * sorting them only once.</p>
+	 *
+	 * @param elements Elements
+	 * @param renderer Gives the rendering of every element
+	 */
+	public void setAll(Iterable<? extends E> elements, Function<? super E, String> renderer) {
+		clear();
+		for (E element : elements) {
+			if (! elementToEntry.containsKey(element)) {
+				Entry<E> entry = newEntry(element, renderer.apply(element));
+				entries.add(entry);
+				elementToEntry.put(element, entry);
+			}
+		}
+		Collections.sort(entries, comparator);
+	}
+
+
+	/**
+	 * <p>Adds the given element with the given rendering, unless
+	 * the element is already in the list.</p>
+	 *
+	 * @param element Element
+	 * @param rendering Rendering of the element
+	 * @return Position of the added element, or <code>-1</code> if the element was already in the list
+	 */
+	public int add(E element, String rendering) {
+		if (elementToEntry.containsKey(element)) {
+			return -1;
+		}
+		Entry<E> entry = newEntry(element, rendering);
+		int index = -(Collections.binarySearch(entries, entry, comparator) + 1);
+		entries.add(index, entry);
+		elementToEntry.put(element, entry);
+		return index;
+	}
+
+
+	/**
+	 * @param element Element
+	 * @return Position that the removed element had, or <code>-1</code> if the element was not in the list
+	 */
+	public int remove(E element) {
+		int index = indexOf(element);
+		if (index != -1) {
+			entries.remove(index);
+			elementToEntry.remove(element);
+		}
+		return index;
+	}
+
+
+	/**
+	 * @param element Element
+	 * @return Position of the element, or <code>-1</code> if the element is not in the list
+	 */
+	public int indexOf(E element) {
+		Entry<E> entry = elementToEntry.get(element);
+		if (entry == null) {
+			return -1;
+		}
+		return Collections.binarySearch(entries, entry, comparator);
+	}
+
+
+	public boolean contains(E element) {
+		return elementToEntry.containsKey(element);
+	}
+
+
+	public E get(int index) {
+		return entries.get(index).element;
+	}
+
+
+	public String getRendering(int index) {
+		return entries.get(index).rendering;
+	}
+
+
+	/**
+	 * @param element Element
+	 * @return Rendering of the element, or <code>null</code> if the element is not in the list
+	 */
+	public String getRendering(E element) {
+		Entry<E> entry = elementToEntry.get(element);
+		if (entry == null) {
+			return null;
+		}
+		return entry.rendering;
+	}
+
+
+	public int size() {
+		return entries.size();
+	}
+
+
+	public void clear() {
+		entries.clear();
+		elementToEntry.clear();
+	}
+
+
+	private Entry<E> newEntry(E element, String rendering) {
+		return new Entry<E>(element, rendering, collator.getCollationKey(rendering.toLowerCase()), sequenceNumber++);
+	}
+}
@@ -0,0 +1,440 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>Compressed set of non-negative integers, in the style of Roaring bitmaps.
+ * The integers are partitioned by their upper 16 bits into chunks. A chunk with
+ * at most 4096 integers is stored as a sorted array of their lower 16 bits,
+ * a larger chunk as a bitmap of 2^16 bits. Intersection works chunk by chunk,
+ * either by merging two arrays, by probing a bitmap, or by AND-ing two bitmaps.</p>
+ *
+ * <p>The bitmap is not thread-safe.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class CompressedBitmap {
+
+	// Maximal size of an array chunk
+	private static final int ARRAY_MAX = 4096;
+
+	private static final int BITMAP_WORDS = 1 << 10;
+
+	private char[] keys = new char[4];
+	private Chunk[] chunks = new Chunk[4];
+	private int size = 0;
+	private int cardinality = 0;
+
+
+	/**
+	 * @param x Non-negative integer
+	 * @return <code>true</code> if the integer was not yet in the set
+	 */
+	public boolean add(int x) {
+		checkArgument(x);
+		char key = (char) (x >>> 16);
+		int i = indexOfKey(key);
+		if (i < 0) {
+			i = -i - 1;
+			insertChunk(i, key, new ArrayChunk());
+		}
+		Chunk chunk = chunks[i];
+		int before = chunk.cardinality();
+		chunks[i] = chunk.add((char) x);
+		if (chunks[i].cardinality() > before) {
+			cardinality++;
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * @param x Non-negative integer
+	 * @return <code>true</code> if the integer was in the set
+	 */
+	public boolean remove(int x) {
+		checkArgument(x);
+		int i = indexOfKey((char) (x >>> 16));
+		if (i < 0) {
+			return false;
+		}
+		Chunk chunk = chunks[i];
+		int before = chunk.cardinality();
+		chunks[i] = chunk.remove((char) x);
+		if (chunks[i].cardinality() == before) {
+			return false;
+		}
+		cardinality--;
+		if (chunks[i].cardinality() == 0) {
+			removeChunk(i);
+		}
+		return true;
+	}
+
+
+	public boolean contains(int x) {
+		if (x < 0) {
+			return false;
+		}
+		int i = indexOfKey((char) (x >>> 16));
+		return i >= 0 && chunks[i].contains((char) x);
+	}
+
+
+	public int getCardinality() {
+		return cardinality;
+	}
+
+
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+
+	/**
+	 * @param other Compressed bitmap
+	 * @return New bitmap that contains the integers that are in both bitmaps
+	 */
+	public CompressedBitmap and(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			}
+			else if (keys[i] > other.keys[j]) {
+				j++;
+			}
+			else {
+				Chunk chunk = chunks[i].and(other.chunks[j]);
+				if (chunk.cardinality() > 0) {
+					result.insertChunk(result.size, keys[i], chunk);
+					result.cardinality += chunk.cardinality();
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * @param other Compressed bitmap
+	 * @return Number of integers that are in both bitmaps
+	 */
+	public int andCardinality(CompressedBitmap other) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			}
+			else if (keys[i] > other.keys[j]) {
+				j++;
+			}
+			else {
+				count += chunks[i].andCardinality(other.chunks[j]);
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * @return Integers of this set in ascending order
+	 */
+	public int[] toArray() {
+		int[] array = new int[cardinality];
+		int pos = 0;
+		for (int i = 0; i < size; i++) {
+			pos = chunks[i].toArray(keys[i] << 16, array, pos);
+		}
+		return array;
+	}
+
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+
+	private int indexOfKey(char key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid] < key) {
+				low = mid + 1;
+			}
+			else if (keys[mid] > key) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+
+	private void insertChunk(int i, char key, Chunk chunk) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * size);
+			chunks = Arrays.copyOf(chunks, 2 * size);
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(chunks, i, chunks, i + 1, size - i);
+		keys[i] = key;
+		chunks[i] = chunk;
+		size++;
+	}
+
+
+	private void removeChunk(int i) {
+		System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+		System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+		size--;
+		chunks[size] = null;
+	}
+
+
+	private static void checkArgument(int x) {
+		if (x < 0) {
+			throw new IllegalArgumentException("Negative integer: " + x);
+		}
+	}
+
+
+	/**
+	 * <p>Set of the lower 16 bits of the integers that share the upper 16 bits.
+	 * The modifying methods return the chunk that replaces this chunk.</p>
+	 */
+	private interface Chunk {
+		Chunk add(char x);
+		Chunk remove(char x);
+		boolean contains(char x);
+		int cardinality();
+		Chunk and(Chunk other);
+		int andCardinality(Chunk other);
+		int toArray(int high, int[] array, int pos);
+	}
+
+
+	private static final class ArrayChunk implements Chunk {
+		private char[] content;
+		private int cardinality;
+
+		private ArrayChunk() {
+			this(new char[4], 0);
+		}
+
+		private ArrayChunk(char[] content, int cardinality) {
+			this.content = content;
+			this.cardinality = cardinality;
+		}
+
+		public Chunk add(char x) {
+			int i = Arrays.binarySearch(content, 0, cardinality, x);
+			if (i >= 0) {
+				return this;
+			}
+			if (cardinality == ARRAY_MAX) {
+				return toBitmapChunk().add(x);
+			}
+			i = -i - 1;
+			if (cardinality == content.length) {
+				content = Arrays.copyOf(content, Math.min(ARRAY_MAX, 2 * cardinality));
+			}
+			System.arraycopy(content, i, content, i + 1, cardinality - i);
+			content[i] = x;
+			cardinality++;
+			return this;
+		}
+
+		public Chunk remove(char x) {
+			int i = Arrays.binarySearch(content, 0, cardinality, x);
+			if (i >= 0) {
+				System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		public boolean contains(char x) {
+			return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+		}
+
+		public int cardinality() {
+			return cardinality;
+		}
+
+		public Chunk and(Chunk other) {
+			char[] result = new char[Math.min(cardinality, other.cardinality())];
+			int count = 0;
+			if (other instanceof ArrayChunk) {
+				ArrayChunk o = (ArrayChunk) other;
+				int i = 0;
+				int j = 0;
+				while (i < cardinality && j < o.cardinality) {
+					if (content[i] < o.content[j]) {
+						i++;
+					}
+					else if (content[i] > o.content[j]) {
+						j++;
+					}
+					else {
+						result[count++] = content[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			else {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(content[i])) {
+						result[count++] = content[i];
+					}
+				}
+			}
+			return new ArrayChunk(result, count);
+		}
+
+		public int andCardinality(Chunk other) {
+			if (other instanceof ArrayChunk) {
+				return and(other).cardinality();
+			}
+			int count = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(content[i])) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		public int toArray(int high, int[] array, int pos) {
+			for (int i = 0; i < cardinality; i++) {
+				array[pos++] = high | content[i];
+			}
+			return pos;
+		}
+
+		private BitmapChunk toBitmapChunk() {
+			BitmapChunk chunk = new BitmapChunk();
+			for (int i = 0; i < cardinality; i++) {
+				chunk.add(content[i]);
+			}
+			return chunk;
+		}
+	}
+
+
+	private static final class BitmapChunk implements Chunk {
+		private final long[] words = new long[BITMAP_WORDS];
+		private int cardinality = 0;
+
+		public Chunk add(char x) {
+			long mask = 1L << x;
+			if ((words[x >>> 6] & mask) == 0) {
+				words[x >>> 6] |= mask;
+				cardinality++;
+			}
+			return this;
+		}
+
+		public Chunk remove(char x) {
+			long mask = 1L << x;
+			if ((words[x >>> 6] & mask) != 0) {
+				words[x >>> 6] &= ~mask;
+				cardinality--;
+				if (cardinality <= ARRAY_MAX) {
+					return toArrayChunk();
+				}
+			}
+			return this;
+		}
+
+		public boolean contains(char x) {
+			return (words[x >>> 6] & (1L << x)) != 0;
+		}
+
+		public int cardinality() {
+			return cardinality;
+		}
+
+		public Chunk and(Chunk other) {
+			if (other instanceof ArrayChunk) {
+				return other.and(this);
+			}
+			BitmapChunk o = (BitmapChunk) other;
+			BitmapChunk result = new BitmapChunk();
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				result.words[i] = words[i] & o.words[i];
+				result.cardinality += Long.bitCount(result.words[i]);
+			}
+			if (result.cardinality <= ARRAY_MAX) {
+				return result.toArrayChunk();
+			}
+			return result;
+		}
+
+		public int andCardinality(Chunk other) {
+			if (other instanceof ArrayChunk) {
+				return other.andCardinality(this);
+			}
+			BitmapChunk o = (BitmapChunk) other;
+			int count = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				count += Long.bitCount(words[i] & o.words[i]);
+			}
+			return count;
+		}
+
+		public int toArray(int high, int[] array, int pos) {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					array[pos++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return pos;
+		}
+
+		private ArrayChunk toArrayChunk() {
+			char[] content = new char[cardinality];
+			int pos = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					content[pos++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayChunk(content, cardinality);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>64-bit fingerprints of strings, i.e. the first 8 bytes of the
+ * MD5 digest of the UTF-8 encoding of the string. Unlike
+ * {@link String#hashCode()}, collisions are so unlikely that
+ * the fingerprint can be used as a key of persistent data.</p>
+ *
+ * @author Kaarel Kaljurand
+ */
+public final class Fingerprint {
+
+	private Fingerprint() {}
+
+
+	/**
+	 * @param str String
+	 * @return 64-bit fingerprint of the given string
+	 */
+	public static long of(String str) {
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("MD5").digest(str.getBytes("UTF-8"));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports MD5
+			throw new RuntimeException(e);
+		} catch (UnsupportedEncodingException e) {
+			// Every Java platform supports UTF-8
+			throw new RuntimeException(e);
+		}
+		long fingerprint = 0;
+		for (int i = 0; i < 8; i++) {
+			fingerprint = (fingerprint << 8) | (digest[i] & 0xFF);
+		}
+		return fingerprint;
+	}
+}
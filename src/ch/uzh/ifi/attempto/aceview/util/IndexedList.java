@@ -0,0 +1,377 @@
+/*
+ * This file is part of ACE View.
+ * Copyright 2008-2011, Attempto Group, University of Zurich (see http://attempto.ifi.uzh.ch).
+ *
+ * ACE View is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * ACE View is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with ACE View.
+ * If not, see http://www.gnu.org/licenses/.
+ */
+
+package ch.uzh.ifi.attempto.aceview.util;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import com.google.common.collect.Maps;
+
+/**
+ * <p>List without duplicates (i.e. an ordered set) that supports
+ * positional access, positional insertion and removal, <code>indexOf</code>,
+ * and removal of an element in O(log n) time, and membership
+ * tests in O(1) time.</p>
+ *
+ * <p>The elements are stored in an implicit treap, i.e. a randomized balanced
+ * binary tree whose in-order traversal gives the list, and in which every node knows
+ * the size of its subtree. A hash map from the elements to the tree nodes gives the position
+ * of an element by walking from its node up to the root.</p>
+ *
+ * <p>Adding an element that is already in the list does not change the list.
+ * The elements must not be <code>null</code> and must have stable hash codes.
+ * The list is not thread-safe.</p>
+ *
+ * @author Kaarel Kaljurand
+ *
+ * @param <E> Type of the elements
+ */
+public final class IndexedList<E> extends AbstractList<E> {
+
+	private static final class Node<E> {
+		private E value;
+		private final int priority;
+		private int size = 1;
+		private Node<E> left;
+		private Node<E> right;
+		private Node<E> parent;
+
+		private Node(E value, int priority) {
+			this.value = value;
+			this.priority = priority;
+		}
+	}
+
+	// Result of splitting a tree: the first elements and the rest
+	private static final class Split<E> {
+		private final Node<E> first;
+		private final Node<E> rest;
+
+		private Split(Node<E> first, Node<E> rest) {
+			this.first = first;
+			this.rest = rest;
+		}
+	}
+
+	private final Map<E, Node<E>> valueToNode = Maps.newHashMap();
+	private final Random random = new Random();
+	private Node<E> root;
+
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+
+	@Override
+	public boolean contains(Object o) {
+		return valueToNode.containsKey(o);
+	}
+
+
+	@Override
+	public E get(int index) {
+		return getNode(index).value;
+	}
+
+
+	/**
+	 * <p>Appends the given element to the end of the list,
+	 * unless the list already contains it.</p>
+	 *
+	 * @return <code>true</code> if the list changed
+	 */
+	@Override
+	public boolean add(E e) {
+		if (contains(e)) {
+			return false;
+		}
+		add(size(), e);
+		return true;
+	}
+
+
+	/**
+	 * <p>Inserts the given element at the given position,
+	 * unless the list already contains it.</p>
+	 */
+	@Override
+	public void add(int index, E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		checkPositionIndex(index);
+		if (contains(e)) {
+			return;
+		}
+		Node<E> node = new Node<E>(e, random.nextInt());
+		valueToNode.put(e, node);
+		Split<E> parts = split(root, index);
+		root = detach(merge(merge(parts.first, node), parts.rest));
+		modCount++;
+	}
+
+
+	/**
+	 * <p>Replaces the element at the given position.</p>
+	 *
+	 * @throws IllegalArgumentException if the new element is already in the list at another position
+	 */
+	@Override
+	public E set(int index, E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		Node<E> node = getNode(index);
+		E old = node.value;
+		if (old.equals(e)) {
+			return old;
+		}
+		if (contains(e)) {
+			throw new IllegalArgumentException("Element is already in the list: " + e);
+		}
+		valueToNode.remove(old);
+		valueToNode.put(e, node);
+		node.value = e;
+		return old;
+	}
+
+
+	@Override
+	public E remove(int index) {
+		checkElementIndex(index);
+		Split<E> parts = split(root, index);
+		Split<E> tail = split(parts.rest, 1);
+		root = detach(merge(parts.first, tail.rest));
+		E value = tail.first.value;
+		valueToNode.remove(value);
+		modCount++;
+		return value;
+	}
+
+
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index == -1) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+
+	@Override
+	public int indexOf(Object o) {
+		Node<E> node = valueToNode.get(o);
+		if (node == null) {
+			return -1;
+		}
+		int index = size(node.left);
+		while (node.parent != null) {
+			if (node == node.parent.right) {
+				index += size(node.parent.left) + 1;
+			}
+			node = node.parent;
+		}
+		return index;
+	}
+
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+
+	@Override
+	public void clear() {
+		root = null;
+		valueToNode.clear();
+		modCount++;
+	}
+
+
+	/**
+	 * <p>Iterates over the elements in O(1) amortized time per element.
+	 * Removing an element by the iterator takes O(log n) time.</p>
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private Node<E> next = leftmost(root);
+			private Node<E> lastReturned;
+			private int expectedModCount = modCount;
+
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			public E next() {
+				checkForComodification();
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				lastReturned = next;
+				next = successor(next);
+				return lastReturned.value;
+			}
+
+			public void remove() {
+				if (lastReturned == null) {
+					throw new IllegalStateException();
+				}
+				checkForComodification();
+				// The nodes are relinked but not replaced, i.e. the next node stays valid
+				IndexedList.this.remove(indexOf(lastReturned.value));
+				lastReturned = null;
+				expectedModCount = modCount;
+			}
+
+			private void checkForComodification() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+
+	private Node<E> getNode(int index) {
+		checkElementIndex(index);
+		Node<E> node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			}
+			else if (index == leftSize) {
+				return node;
+			}
+			else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+
+	private void checkElementIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+	}
+
+
+	private void checkPositionIndex(int index) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+	}
+
+
+	/**
+	 * <p>Splits the given tree into the first <code>k</code> elements and the rest.</p>
+	 */
+	private static <E> Split<E> split(Node<E> node, int k) {
+		if (node == null) {
+			return new Split<E>(null, null);
+		}
+		if (size(node.left) >= k) {
+			Split<E> parts = split(node.left, k);
+			node.left = parts.rest;
+			update(node);
+			return new Split<E>(detach(parts.first), node);
+		}
+		Split<E> parts = split(node.right, k - size(node.left) - 1);
+		node.right = parts.first;
+		update(node);
+		return new Split<E>(node, detach(parts.rest));
+	}
+
+
+	/**
+	 * <p>Concatenates the given trees.</p>
+	 */
+	private static <E> Node<E> merge(Node<E> a, Node<E> b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		}
+		b.left = merge(a, b.left);
+		update(b);
+		return b;
+	}
+
+
+	private static <E> void update(Node<E> node) {
+		node.size = 1 + size(node.left) + size(node.right);
+		if (node.left != null) {
+			node.left.parent = node;
+		}
+		if (node.right != null) {
+			node.right.parent = node;
+		}
+	}
+
+
+	private static <E> Node<E> detach(Node<E> node) {
+		if (node != null) {
+			node.parent = null;
+		}
+		return node;
+	}
+
+
+	private static <E> Node<E> leftmost(Node<E> node) {
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+
+
+	private static <E> Node<E> successor(Node<E> node) {
+		if (node.right != null) {
+			return leftmost(node.right);
+		}
+		while (node.parent != null && node == node.parent.right) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+
+	private static int size(Node<?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+}
@@ -19,6 +19,7 @@ import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLDataPropertyAxiom;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChangeException;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
@@ -27,6 +28,8 @@ import org.semanticweb.owlapi.model.SWRLRule;
 
 import com.google.common.collect.Sets;
 
+import uk.ac.manchester.cs.owl.owlapi.SimpleRenderer;
+
 /**
  * 
  * This class should not import any Protege classes.
@@ -177,4 +180,28 @@ public final class OntologyUtils {
 		}
 		return false;
 	}
-}
\ No newline at end of file
+
+
+	/**
+	 * <p>Renders the given OWL object in a structural syntax that uses full IRIs,
+	 * e.g. to be used as the input of a fingerprint. Note that <code>toString()</code>
+	 * is not suitable for this because inside Protege it returns the rendering
+	 * of the entities (e.g. labels), which can be the same for different entities.</p>
+	 * 
+	 * @param object OWL object
+	 * @return Structural rendering of the object
+	 */
+	public static String toStructuralString(OWLObject object) {
+		// SimpleRenderer is not thread-safe
+		return new SimpleRenderer().render(object);
+	}
+
+
+	/**
+	 * @param object OWL object
+	 * @return Fingerprint of the structural rendering of the object
+	 */
+	public static long getFingerprint(OWLObject object) {
+		return Fingerprint.of(toStructuralString(object));
+	}
+}
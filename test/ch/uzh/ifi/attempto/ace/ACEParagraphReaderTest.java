@@ -0,0 +1,68 @@
+package ch.uzh.ifi.attempto.ace;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ACEParagraphReaderTest {
+
+	private static final String[] TEXTS = {
+		"",
+		"\n\n",
+		"John likes Mary.\n\nMary likes Bill.\n\n\n\nBill likes Ann.\n",
+		"John likes Mary.\r\n\r\nMary likes Bill.\r\rBill likes Ann.",
+		"A man /* a comment\n\nthat spans lines */ waits.\n\nA woman # waits /*\n\n# only a comment\n\nA dog barks.",
+		"A \"string /* that\" waits.\n\nA dog */ barks. /* x *\n/\n\ny */ z.",
+		"Mary's age is 15.\n\n16.\n17.\n\n \t \n18",
+		"A \"string that \\\n\ncontinues\" waits.\n\nA dog barks.",
+	};
+
+
+	@Test
+	public final void testSameAsSplitter() {
+		for (String text : TEXTS) {
+			assertEquals(text, getParagraphs(text), readParagraphs(text));
+		}
+	}
+
+
+	@Test
+	public final void testRandomStrings() {
+		String[] pieces = {
+				"a", "John", "1", ".", "\"", "`", "\\", "/", "*", "/*", "*/", "#", "?", " ",
+				"\n", "\r", "\n\n", "\r\n\r\n", "\\\n", "\\\r\n"
+		};
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int j = 0; j < length; j++) {
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String text = sb.toString();
+			assertEquals(text, getParagraphs(text), readParagraphs(text));
+		}
+	}
+
+
+	private static List<List<ACESentence>> getParagraphs(String text) {
+		List<List<ACESentence>> paragraphs = Lists.newArrayList();
+		for (List<ACESentence> paragraph : ACESplitter.getParagraphs(text)) {
+			if (! paragraph.isEmpty()) {
+				paragraphs.add(paragraph);
+			}
+		}
+		return paragraphs;
+	}
+
+
+	private static List<List<ACESentence>> readParagraphs(String text) {
+		return Lists.newArrayList(new ACEParagraphReader(new StringReader(text)));
+	}
+}
@@ -0,0 +1,35 @@
+package ch.uzh.ifi.attempto.ace;
+
+import java.util.List;
+
+/**
+ * <p>Compares the throughput of the scanner and the StreamTokenizer-based
+ * splitter on a multi-megabyte ACE text. This is not a unit test,
+ * run it with <code>main</code>.</p>
+ */
+public class ACEScannerBenchmark {
+
+	public static void main(String[] args) {
+		String text = ACEScannerTest.createText(2 * 1024 * 1024);
+
+		// Warm-up
+		String warmup = text.substring(0, text.length() / 8);
+		ACESplitter.getParagraphs(warmup);
+		StreamTokenizerSplitter.getParagraphs(warmup);
+
+		long start = System.nanoTime();
+		List<List<ACESentence>> paragraphs1 = ACESplitter.getParagraphs(text);
+		long scanner = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		List<List<ACESentence>> paragraphs2 = StreamTokenizerSplitter.getParagraphs(text);
+		long streamTokenizer = System.nanoTime() - start;
+
+		if (! paragraphs2.equals(paragraphs1)) {
+			System.out.println("The splitters produced different paragraphs");
+		}
+		double megabytes = text.length() / (1024.0 * 1024.0);
+		System.out.println("ACEScanner: " + (int) (megabytes * 1e9 / scanner) + " MB/s; StreamTokenizer: " +
+				(int) (megabytes * 1e9 / streamTokenizer) + " MB/s");
+	}
+}
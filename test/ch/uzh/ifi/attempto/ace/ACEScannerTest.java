@@ -0,0 +1,117 @@
+package ch.uzh.ifi.attempto.ace;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ACEScannerTest {
+
+	private static final String[] TEXTS = {
+		"John's age is 15.\nMary's 3.0 age 3.2 is 14.John waits 4.",
+		"John's age is 15. Mary's address is \"Paris 100.\".",
+		"John likes Mary.\n\nMary likes Bill.\n\nBill likes Ann.",
+		"\n \n o o o o ? o o 1. \n\n o o . \n\n o \n\n ? o . \n\n o . .\n\n",
+		"Everybody ;owns \"quoted string\"," +
+		"and does-not v:like John.John's $dog /*likes*/ kno_ws 2.1.1+1=2-3(4.01*8/6.6)#,comment,",
+		"% ; @ \\ ^ : | ~",
+		"123man man123 äöüp 123man123 man123man \"äöüpüp\" `Tom's Diner`",
+		"1 12 0 -1 -12 -0 1.2 0.2 -1.2 -0.2 -.01 -.0 .1",
+		"John likes Mary.\r\n\r\nMary likes Bill.\r\rBill likes Ann.\n\r\nAnn sleeps.",
+		"A man /* a comment\n\nthat spans lines */ waits.\n\nA woman # waits.\n\n# only a comment\n\nA dog barks.",
+		"\"unterminated\nstring\" and `unterminated word\n\n\"a\\tb\\n\\101\\0\\477\\x\" is a string.",
+		"1234567890 12345678901234567890 -2147483648 007 1.5.x 2..3 4.-5 -x - -- --1 a-1 1-a",
+		"Mary's age is 1.\n\n2.\n3.",
+		"\u0080\u009f ÿĀ中文 waits. \t\f\u000b X1 sees Y.",
+	};
+
+
+	@Test
+	public final void testSameAsStreamTokenizer() {
+		for (String text : TEXTS) {
+			assertSameParagraphs(text);
+		}
+	}
+
+
+	/**
+	 * <p>Compares the scanner with the StreamTokenizer-based splitter
+	 * on random strings that consist of problematic pieces.</p>
+	 */
+	@Test
+	public final void testRandomStrings() {
+		String[] pieces = {
+				"a", "John", "X", "1", "23", ".", "-", "'", "\"", "`", "\\", "/", "*", "#",
+				"?", "!", ",", " ", "\n", "\r", "\r\n", "\n\n", "ä", " ", "中", "[", "$", "_"
+		};
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(30);
+			for (int j = 0; j < length; j++) {
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			assertSameParagraphs(sb.toString());
+		}
+	}
+
+
+	@Test
+	public final void testOffsets() {
+		String text = "John's age is 15. /* x */ He likes \"Paris\" and `New York`.";
+		ACEScanner scanner = new ACEScanner(text);
+		List<String> spans = Lists.newArrayList();
+		while (scanner.nextToken() != ACEScanner.TT_EOF) {
+			spans.add(text.substring(scanner.getStart(), scanner.getEnd()));
+		}
+		assertEquals(Lists.newArrayList("John", "'", "s", "age", "is", "15", ".",
+				"He", "likes", "\"Paris\"", "and", "`New York`", "."), spans);
+	}
+
+
+	@Test
+	public final void testOffsetsInBuffer() {
+		char[] buf = "xx Mary waits. yy".toCharArray();
+		ACEScanner scanner = new ACEScanner(buf, 3, 11);
+		assertEquals(ACEScanner.TT_TOKEN, scanner.nextToken());
+		assertEquals("Mary", scanner.getToken().getToken());
+		assertEquals(3, scanner.getStart());
+		assertEquals(7, scanner.getEnd());
+		assertEquals(ACEScanner.TT_TOKEN, scanner.nextToken());
+		assertEquals(ACEScanner.TT_TOKEN, scanner.nextToken());
+		assertEquals(ACEToken.DOT, scanner.getToken());
+		assertEquals(ACEScanner.TT_EOF, scanner.nextToken());
+	}
+
+
+	@Test
+	public final void testLongText() {
+		assertSameParagraphs(createText(64 * 1024));
+	}
+
+
+	/**
+	 * <p>Creates an ACE text of at least the given length by repeating a paragraph.</p>
+	 */
+	static String createText(int length) {
+		String paragraph = "Every man that owns a car is a driver. John's age is 42. " +
+				"If X likes Y then Y likes X. Mary lives-in \"Paris\" and owns 2.5 dogs.\n\n";
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append(paragraph);
+		}
+		return sb.toString();
+	}
+
+
+	private static void assertSameParagraphs(String text) {
+		List<List<ACESentence>> expected = StreamTokenizerSplitter.getParagraphs(text);
+		List<List<ACESentence>> actual = ACESplitter.getParagraphs(text);
+		assertEquals(text, expected.toString(), actual.toString());
+		assertEquals(text, expected, actual);
+	}
+}
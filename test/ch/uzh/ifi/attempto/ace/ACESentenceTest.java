@@ -89,4 +89,32 @@ public class ACESentenceTest {
 		assertEquals(true, new ACESentence(question).isQuestion());
 	}
 
+	@Test
+	public final void testTokensAreShared() {
+		List<ACEToken> tokens1 = new ACESentence(str1).getTokens();
+		List<ACEToken> tokens2 = new ACESentence(str2).getTokens();
+		assertEquals(tokens1.size(), tokens2.size());
+		for (int i = 0; i < tokens1.size(); i++) {
+			assertSame(tokens1.get(i), tokens2.get(i));
+		}
+	}
+
+	@Test
+	public final void testHashCodeOfTokens() {
+		ACESentence sentence = new ACESentence(str1);
+		assertEquals(Lists.newArrayList(sentence.getTokens()).hashCode(), sentence.hashCode());
+	}
+
+	@Test
+	public final void testEqualsComparesTokenStrings() {
+		// The same string with different features, i.e. different shared tokens
+		ACEToken number = ACEToken.newNumber(12);
+		ACEToken word = ACEToken.newToken("12");
+		assertNotSame(number, word);
+		ACESentence s1 = new ACESentence(Lists.newArrayList(ACEToken.newToken("John"), ACEToken.newToken("sees"), number, ACEToken.DOT));
+		ACESentence s2 = new ACESentence(Lists.newArrayList(ACEToken.newToken("John"), ACEToken.newToken("sees"), word, ACEToken.DOT));
+		assertEquals(s1, s2);
+		assertEquals(s1.hashCode(), s2.hashCode());
+		assertFalse(s1.equals(new ACESentence("John sees 13.")));
+	}
 }
@@ -0,0 +1,30 @@
+package ch.uzh.ifi.attempto.ace;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ACETokenTest {
+
+	@Test
+	public final void testWordsAreShared() {
+		assertSame(ACEToken.newToken("mammal"), ACEToken.newToken(new String("mammal")));
+		assertSame(ACEToken.newToken("X1"), ACESplitter.getTokens("X1 waits.").get(0));
+	}
+
+
+	@Test
+	public final void testCachedWordsAreClassified() {
+		for (int i = 0; i < 2; i++) {
+			assertTrue(ACEToken.newToken("If").isOrdinationWord());
+			assertTrue(ACEToken.newToken("but").isButToken());
+			assertTrue(ACEToken.newToken("X1").isVariable());
+			assertTrue(ACEToken.newToken("every").isFunctionWord());
+			assertTrue(ACEToken.newToken("mammal").isContentWord());
+			assertFalse(ACEToken.newToken("mammal").isVariable());
+			assertTrue(ACEToken.newToken("New York").toString().startsWith("`"));
+		}
+	}
+}
@@ -1,18 +1,25 @@
 package ch.uzh.ifi.attempto.aceview;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
 import org.junit.Test;
 import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.model.OWLModelManagerImpl;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
 
 import com.google.common.collect.Sets;
 
 import ch.uzh.ifi.attempto.ace.ACESentence;
 import ch.uzh.ifi.attempto.ace.ACESplitter;
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapperImpl;
 
 public class ACESnippetImplTest {
 
@@ -102,4 +109,24 @@ public class ACESnippetImplTest {
 		assertEquals(s.getAxiom(), every_man_is_a_human);
 		assertEquals(s.getLogicalAxioms(), Sets.newHashSet(every_man_is_a_human));
 	}
+
+
+	@Test
+	public final void testHtmlStringFollowsLexicon() {
+		ACESnippet s = new ACESnippetImpl(Utils.ID_TEST, "John likes Mary.", john_likes_mary);
+		TokenMapper lexicon = new TokenMapperImpl();
+
+		String html1 = s.toHtmlString(lexicon);
+		assertSame(html1, s.toHtmlString(lexicon));
+		assertFalse(html1.contains("<a href"));
+
+		// A change that does not concern the words of the snippet
+		lexicon.addEntry("Bill", IRI.create("http://attempto.ifi.uzh.ch/aceview_test#Bill"), MorphType.PN_SG);
+		assertSame(html1, s.toHtmlString(lexicon));
+
+		lexicon.addEntry("Mary", IRI.create("http://attempto.ifi.uzh.ch/aceview_test#Mary"), MorphType.PN_SG);
+		String html2 = s.toHtmlString(lexicon);
+		assertTrue(html2.contains("<a href"));
+		assertSame(html2, s.toHtmlString(lexicon));
+	}
 }
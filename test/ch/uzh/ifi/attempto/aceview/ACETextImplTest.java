@@ -144,4 +144,29 @@ public class ACETextImplTest {
 		assertEquals(acetext.size(), 0);
 		assertEquals(removedAxioms, Sets.newHashSet(every_man_is_a_human));
 	}
-}
\ No newline at end of file
+
+
+	@Test
+	public final void testChangesSince() {
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = new ACETextImpl();
+		ACESnippet s1 = new ACESnippetImpl(Utils.ID_TEST, "John likes Mary.", john_likes_mary);
+		ACESnippet s2 = new ACESnippetImpl(Utils.ID_TEST, "Every man is a human.", every_man_is_a_human);
+		acetext.add(s1);
+		long generation = acetext.getGeneration();
+		acetext.add(0, s2);
+		acetext.add(s2);
+		acetext.remove(s1);
+
+		List<ACETextChange> changes = acetext.getChangesSince(generation);
+		assertEquals(2, changes.size());
+		assertEquals(s2, changes.get(0).getSnippet());
+		assertEquals(0, changes.get(0).getIndex());
+		assertEquals(true, changes.get(0).isInsertion());
+		assertEquals(s1, changes.get(1).getSnippet());
+		assertEquals(1, changes.get(1).getIndex());
+		assertEquals(false, changes.get(1).isInsertion());
+		assertEquals(acetext.getGeneration(), changes.get(1).getGeneration());
+		assertEquals(3, acetext.getChangesSince(0).size());
+		assertEquals(0, acetext.getChangesSince(acetext.getGeneration()).size());
+	}
+}
@@ -0,0 +1,98 @@
+package ch.uzh.ifi.attempto.aceview;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapper;
+import ch.uzh.ifi.attempto.aceview.lexicon.TokenMapperImpl;
+
+import com.google.common.collect.Sets;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+public class ACETextSnapshotTest {
+
+	private static final OWLDataFactory df = new OWLDataFactoryImpl();
+
+	// The classes have the same fragments but different IRIs
+	private static final OWLClass man1 = df.getOWLClass(IRI.create("http://example.org/a#man"));
+	private static final OWLClass man2 = df.getOWLClass(IRI.create("http://example.org/b#man"));
+	private static final OWLClass human = df.getOWLClass(IRI.create("http://example.org/a#human"));
+	private static final OWLClass animal = df.getOWLClass(IRI.create("http://example.org/a#animal"));
+
+	private static final OWLLogicalAxiom every_man1_is_a_human = df.getOWLSubClassOfAxiom(man1, human);
+	private static final OWLLogicalAxiom every_man2_is_a_human = df.getOWLSubClassOfAxiom(man2, human);
+	private static final OWLLogicalAxiom every_man1_is_an_animal = df.getOWLSubClassOfAxiom(man1, animal);
+
+	private final OWLOntologyManager mngr = OWLManager.createOWLOntologyManager();
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("aceview", ".snapshot");
+		file.delete();
+	}
+
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+
+	@Test
+	public final void testWriteReadRestore() throws Exception {
+		OWLOntology ont = mngr.createOntology(Sets.<OWLAxiom>newHashSet(every_man1_is_a_human, every_man2_is_a_human));
+		ACEText<OWLEntity, OWLLogicalAxiom> acetext = new ACETextImpl();
+		acetext.add(new ACESnippetImpl(ont.getOntologyID(), "Every man is a human.", every_man1_is_a_human));
+		acetext.add(new ACESnippetImpl(ont.getOntologyID(), "Every male is a human.", every_man2_is_a_human));
+		TokenMapper lexicon = new TokenMapperImpl();
+		lexicon.addEntry("man", man1.getIRI(), MorphType.CN_SG);
+		lexicon.addEntry("human", human.getIRI(), MorphType.CN_SG);
+
+		ACETextSnapshot.write(file, ont, acetext, lexicon);
+		ACETextSnapshot snapshot = ACETextSnapshot.read(file);
+		assertEquals(true, snapshot.isTextValid(ont));
+
+		// The lexicon entries are restored
+		TokenMapper restoredLexicon = new TokenMapperImpl();
+		snapshot.restoreLexicon(restoredLexicon);
+		assertEquals(Sets.newHashSet(lexicon.getEntries()), Sets.newHashSet(restoredLexicon.getEntries()));
+		assertEquals(Sets.<OWLEntity>newHashSet(man2, animal), snapshot.getUncoveredEntities(Sets.<OWLEntity>newHashSet(man1, man2, human, animal)));
+
+		// Only the snippet whose axiom is still in the ontology is restored,
+		// although the other axiom has the same label-based rendering
+		mngr.removeAxiom(ont, every_man2_is_a_human);
+		mngr.addAxiom(ont, every_man1_is_an_animal);
+		assertEquals(false, snapshot.isTextValid(ont));
+
+		ACEText<OWLEntity, OWLLogicalAxiom> restoredText = new ACETextImpl();
+		Set<OWLLogicalAxiom> restoredAxioms = snapshot.restoreText(ont, restoredText);
+		assertEquals(Sets.newHashSet(every_man1_is_a_human), restoredAxioms);
+		assertEquals(1, restoredText.size());
+		assertEquals("Every man is a human.", restoredText.getSnippets().get(0).toString());
+	}
+
+
+	@Test
+	public final void testReadMissing() throws IOException {
+		assertEquals(null, ACETextSnapshot.read(file));
+	}
+}
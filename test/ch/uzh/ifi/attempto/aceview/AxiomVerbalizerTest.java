@@ -1,17 +1,23 @@
 package ch.uzh.ifi.attempto.aceview;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
 import org.junit.Test;
 import org.semanticweb.owlapi.io.OWLRendererException;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLLogicalAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChangeException;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
 import ch.uzh.ifi.attempto.ace.ACESentence;
 import ch.uzh.ifi.attempto.ace.ACESplitter;
 
@@ -84,6 +90,15 @@ public class AxiomVerbalizerTest {
 	}
 
 
+	@Test
+	public final void testMentionsSignature() {
+		Multimap<IRI, String> surfaceForms = HashMultimap.create();
+		assertTrue(AxiomVerbalizer.mentionsSignature("Every man is a human.", every_man_is_a_human, surfaceForms));
+		assertFalse(AxiomVerbalizer.mentionsSignature("Every woman is a human.", every_man_is_a_human, surfaceForms));
+		assertFalse(AxiomVerbalizer.mentionsSignature("Every man is a humanist.", every_man_is_a_human, surfaceForms));
+	}
+
+
 	private static OWLOntology createOntology() {
 		OWLOntology ontology = null;
 
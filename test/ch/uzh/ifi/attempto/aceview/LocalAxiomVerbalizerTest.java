@@ -0,0 +1,134 @@
+package ch.uzh.ifi.attempto.aceview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import ch.uzh.ifi.attempto.aceview.lexicon.MorphType;
+import ch.uzh.ifi.attempto.aceview.lexicon.SurfaceFormIndex;
+import ch.uzh.ifi.attempto.aceview.util.OntologyUtils;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+public class LocalAxiomVerbalizerTest {
+
+	private static final String PREFIX = "http://attempto.ifi.uzh.ch/aceview_test#";
+	private static final OWLDataFactory df = new OWLDataFactoryImpl();
+
+	private static final OWLClass man = df.getOWLClass(IRI.create(PREFIX + "man"));
+	private static final OWLClass woman = df.getOWLClass(IRI.create(PREFIX + "woman"));
+	private static final OWLClass human = df.getOWLClass(IRI.create(PREFIX + "human"));
+	private static final OWLObjectProperty like = df.getOWLObjectProperty(IRI.create(PREFIX + "like"));
+	private static final OWLObjectProperty love = df.getOWLObjectProperty(IRI.create(PREFIX + "love"));
+	private static final OWLNamedIndividual john = df.getOWLNamedIndividual(IRI.create(PREFIX + "John"));
+
+	// Renders the entities by their IRI fragments, as outside of Protege
+	private static final Function<OWLEntity, String> FRAGMENT_RENDERER = new Function<OWLEntity, String>() {
+		public String apply(OWLEntity entity) {
+			return entity.getIRI().getFragment();
+		}
+	};
+
+	private final SurfaceFormIndex surfaceForms = new SurfaceFormIndex(createOntology());
+
+
+	@Test
+	public final void testClassAxioms() {
+		assertVerbalization("Every man is a human.", df.getOWLSubClassOfAxiom(man, human));
+		assertVerbalization("Every man likes a woman.", df.getOWLSubClassOfAxiom(man, df.getOWLObjectSomeValuesFrom(like, woman)));
+		assertVerbalization("Every man likes nothing but women.", df.getOWLSubClassOfAxiom(man, df.getOWLObjectAllValuesFrom(like, woman)));
+		assertVerbalization("Every man likes at least 2 women.", df.getOWLSubClassOfAxiom(man, df.getOWLObjectMinCardinality(2, like, woman)));
+		assertVerbalization("Every man likes at most 1 woman.", df.getOWLSubClassOfAxiom(man, df.getOWLObjectMaxCardinality(1, like, woman)));
+		assertVerbalization("Every woman is liked by John.", df.getOWLSubClassOfAxiom(woman, df.getOWLObjectHasValue(df.getOWLObjectInverseOf(like), john)));
+		assertVerbalization("No man is a woman.", df.getOWLSubClassOfAxiom(man, df.getOWLObjectComplementOf(woman)));
+		assertVerbalization("Every human is a man. Every man is a human.", df.getOWLEquivalentClassesAxiom(man, human));
+		assertVerbalization("John is a man or is a woman.", df.getOWLClassAssertionAxiom(df.getOWLObjectUnionOf(man, woman), john));
+	}
+
+
+	@Test
+	public final void testPropertyAxioms() {
+		assertVerbalization("Everything that likes something is a human.", df.getOWLObjectPropertyDomainAxiom(like, human));
+		assertVerbalization("Everything that something likes is a human.", df.getOWLObjectPropertyRangeAxiom(like, human));
+		assertVerbalization("If X likes Y then X loves Y.", df.getOWLSubObjectPropertyOfAxiom(like, love));
+		assertVerbalization("If X likes Y then Y loves X. If X loves Y then Y likes X.", df.getOWLInverseObjectPropertiesAxiom(like, love));
+	}
+
+
+	@Test
+	public final void testNotCovered() {
+		LocalAxiomVerbalizer verbalizer = new LocalAxiomVerbalizer(FRAGMENT_RENDERER);
+		// Nested restrictions
+		assertNull(verbalizer.verbalize(df.getOWLSubClassOfAxiom(man, df.getOWLObjectSomeValuesFrom(like, df.getOWLObjectSomeValuesFrom(love, woman))), surfaceForms));
+		// The plural form of "human" is missing
+		assertNull(verbalizer.verbalize(df.getOWLSubClassOfAxiom(man, df.getOWLObjectAllValuesFrom(like, human)), surfaceForms));
+	}
+
+
+	@Test
+	public final void testCoverageReport() {
+		LocalAxiomVerbalizer verbalizer = new LocalAxiomVerbalizer(FRAGMENT_RENDERER);
+		verbalizer.verbalize(df.getOWLSubClassOfAxiom(man, human), surfaceForms);
+		verbalizer.verbalize(df.getOWLSubClassOfAxiom(man, df.getOWLObjectAllValuesFrom(like, human)), surfaceForms);
+		verbalizer.verbalize(df.getOWLSubObjectPropertyOfAxiom(like, love), surfaceForms);
+		String report = verbalizer.getCoverageReport();
+		assertTrue(report, report.startsWith("Local verbalization: 2/3 axioms in "));
+		assertTrue(report, report.contains("\n" + AxiomType.SUBCLASS_OF + ": 1/2"));
+		assertTrue(report, report.contains("\n" + AxiomType.SUB_OBJECT_PROPERTY + ": 1/1"));
+	}
+
+
+	@Test
+	public final void testRenderer() {
+		OWLClass person = df.getOWLClass(IRI.create(PREFIX + "person"));
+		LocalAxiomVerbalizer verbalizer = new LocalAxiomVerbalizer(new Function<OWLEntity, String>() {
+			public String apply(OWLEntity entity) {
+				return "Person";
+			}
+		});
+		assertEquals("Every man is a Person.", verbalizer.verbalize(df.getOWLSubClassOfAxiom(man, person), surfaceForms));
+	}
+
+
+	private void assertVerbalization(String expected, OWLLogicalAxiom axiom) {
+		assertEquals(expected, new LocalAxiomVerbalizer(FRAGMENT_RENDERER).verbalize(axiom, surfaceForms));
+	}
+
+
+	private static OWLOntology createOntology() {
+		Set<OWLAxiom> axioms = Sets.newHashSet();
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.CN_SG.getIRI(), man.getIRI(), "man"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.CN_PL.getIRI(), man.getIRI(), "men"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.CN_SG.getIRI(), woman.getIRI(), "woman"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.CN_PL.getIRI(), woman.getIRI(), "women"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.CN_SG.getIRI(), human.getIRI(), "human"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.TV_SG.getIRI(), like.getIRI(), "likes"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.TV_VBG.getIRI(), like.getIRI(), "liked"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.TV_SG.getIRI(), love.getIRI(), "loves"));
+		axioms.add(OntologyUtils.createIRIAnnotationAxiom(df, MorphType.PN_SG.getIRI(), john.getIRI(), "John"));
+		try {
+			return OWLManager.createOWLOntologyManager().createOntology(axioms);
+		} catch (OWLOntologyCreationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
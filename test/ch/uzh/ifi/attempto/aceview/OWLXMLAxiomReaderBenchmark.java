@@ -0,0 +1,26 @@
+package ch.uzh.ifi.attempto.aceview;
+
+/**
+ * <p>Compares the per-snippet cost of the streaming OWL/XML reader
+ * with the cost of loading a temporary ontology. This is not a unit test,
+ * run it with <code>main</code>.</p>
+ */
+public class OWLXMLAxiomReaderBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			OWLXMLAxiomReader.read(OWLXMLAxiomReaderTest.df, OWLXMLAxiomReaderTest.DOC1);
+		}
+		long streaming = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			OWLXMLAxiomReaderTest.loadWithOWLAPI(OWLXMLAxiomReaderTest.DOC1);
+		}
+		long ontology = System.nanoTime() - start;
+
+		System.out.println("Streaming reader: " + (streaming / count / 1000) + " us/snippet; temporary ontology: " + (ontology / count / 1000) + " us/snippet");
+	}
+}
@@ -0,0 +1,120 @@
+package ch.uzh.ifi.attempto.aceview;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.xml.sax.SAXException;
+
+public class OWLXMLAxiomReaderTest {
+
+	static final OWLDataFactory df = OWLManager.getOWLDataFactory();
+
+	private static final String NS = "http://attempto.ifi.uzh.ch/aceview_test#";
+
+	// Every man likes a woman. John is a man. John likes Mary. John is 30 years old.
+	static final String DOC1 = wrap(
+			"<SubClassOf>" +
+			"<Class URI=\"" + NS + "man\"/>" +
+			"<ObjectSomeValuesFrom><ObjectProperty URI=\"" + NS + "like\"/><Class URI=\"" + NS + "woman\"/></ObjectSomeValuesFrom>" +
+			"</SubClassOf>" +
+			"<ClassAssertion><Class URI=\"" + NS + "man\"/><NamedIndividual URI=\"" + NS + "John\"/></ClassAssertion>" +
+			"<ObjectPropertyAssertion><ObjectProperty URI=\"" + NS + "like\"/><NamedIndividual URI=\"" + NS + "John\"/><NamedIndividual URI=\"" + NS + "Mary\"/></ObjectPropertyAssertion>" +
+			"<DataPropertyAssertion><DataProperty URI=\"" + NS + "age\"/><NamedIndividual URI=\"" + NS + "John\"/>" +
+			"<Literal datatypeIRI=\"http://www.w3.org/2001/XMLSchema#integer\">30</Literal></DataPropertyAssertion>");
+
+	// The same as DOC1 but with OWL 1.1 names and argument order
+	private static final String DOC1_OWL11 = wrap(
+			"<SubClassOf>" +
+			"<Class URI=\"" + NS + "man\"/>" +
+			"<ObjectSomeValuesFrom><ObjectProperty URI=\"" + NS + "like\"/><Class URI=\"" + NS + "woman\"/></ObjectSomeValuesFrom>" +
+			"</SubClassOf>" +
+			"<ClassAssertion><Individual URI=\"" + NS + "John\"/><Class URI=\"" + NS + "man\"/></ClassAssertion>" +
+			"<ObjectPropertyAssertion><ObjectProperty URI=\"" + NS + "like\"/><Individual URI=\"" + NS + "John\"/><Individual URI=\"" + NS + "Mary\"/></ObjectPropertyAssertion>" +
+			"<DataPropertyAssertion><DataProperty URI=\"" + NS + "age\"/><Individual URI=\"" + NS + "John\"/>" +
+			"<Constant datatypeURI=\"http://www.w3.org/2001/XMLSchema#integer\">30</Constant></DataPropertyAssertion>");
+
+	// Everything that likes something is a human. Everything that something likes is a human.
+	private static final String DOC2 = wrap(
+			"<SubClassOf><ObjectIntersectionOf>" +
+			"<Class URI=\"http://www.w3.org/2002/07/owl#Thing\"/>" +
+			"<ObjectSomeValuesFrom><ObjectProperty URI=\"" + NS + "like\"/><Class URI=\"http://www.w3.org/2002/07/owl#Thing\"/></ObjectSomeValuesFrom>" +
+			"</ObjectIntersectionOf><Class URI=\"" + NS + "human\"/></SubClassOf>" +
+			"<SubClassOf><ObjectIntersectionOf>" +
+			"<Class URI=\"http://www.w3.org/2002/07/owl#Thing\"/>" +
+			"<ObjectSomeValuesFrom><InverseObjectProperty><ObjectProperty URI=\"" + NS + "like\"/></InverseObjectProperty>" +
+			"<Class URI=\"http://www.w3.org/2002/07/owl#Thing\"/></ObjectSomeValuesFrom>" +
+			"</ObjectIntersectionOf><Class URI=\"" + NS + "human\"/></SubClassOf>");
+
+	// Every man likes at most 2 things that are not women. If X is a brother of Y and Y is a parent of Z then X is an uncle of Z.
+	private static final String DOC3 = wrap(
+			"<SubClassOf><Class URI=\"" + NS + "man\"/>" +
+			"<ObjectMaxCardinality cardinality=\"2\"><ObjectProperty URI=\"" + NS + "like\"/>" +
+			"<ObjectComplementOf><Class URI=\"" + NS + "woman\"/></ObjectComplementOf></ObjectMaxCardinality>" +
+			"</SubClassOf>" +
+			"<SubObjectPropertyOf><SubObjectPropertyChain>" +
+			"<ObjectProperty URI=\"" + NS + "brother-of\"/><ObjectProperty URI=\"" + NS + "parent-of\"/>" +
+			"</SubObjectPropertyChain><ObjectProperty URI=\"" + NS + "uncle-of\"/></SubObjectPropertyOf>" +
+			"<DisjointClasses><Class URI=\"" + NS + "man\"/><Class URI=\"" + NS + "woman\"/></DisjointClasses>" +
+			"<SubClassOf><Class URI=\"" + NS + "man\"/>" +
+			"<ObjectExistsSelf><ObjectProperty URI=\"" + NS + "like\"/></ObjectExistsSelf></SubClassOf>");
+
+	private static final String DOC_SWRL = wrap(
+			"<DLSafeRule><Body><ClassAtom><Class URI=\"" + NS + "man\"/><Variable URI=\"urn:swrl#x\"/></ClassAtom></Body>" +
+			"<Head><ClassAtom><Class URI=\"" + NS + "human\"/><Variable URI=\"urn:swrl#x\"/></ClassAtom></Head></DLSafeRule>");
+
+
+	@Test
+	public final void testSameAsOWLAPI() throws Exception {
+		for (String doc : new String[] { DOC1, DOC2, DOC3 }) {
+			assertEquals(loadWithOWLAPI(doc), OWLXMLAxiomReader.read(df, doc));
+		}
+	}
+
+
+	@Test
+	public final void testOWL11Names() throws Exception {
+		assertEquals(OWLXMLAxiomReader.read(df, DOC1), OWLXMLAxiomReader.read(df, DOC1_OWL11));
+	}
+
+
+	@Test
+	public final void testDomainAndRange() throws Exception {
+		Set<OWLLogicalAxiom> axioms = OWLXMLAxiomReader.read(df, DOC2);
+		assertEquals(2, axioms.size());
+		for (OWLLogicalAxiom axiom : axioms) {
+			assertEquals(true, axiom.isOfType(AxiomType.OBJECT_PROPERTY_DOMAIN, AxiomType.OBJECT_PROPERTY_RANGE));
+		}
+	}
+
+
+	@Test(expected=SAXException.class)
+	public final void testUnsupported() throws SAXException {
+		OWLXMLAxiomReader.read(df, DOC_SWRL);
+	}
+
+
+	/**
+	 * <p>Loads the given document the old way, i.e. transforms it into
+	 * OWL/XML and loads it as a temporary ontology.</p>
+	 */
+	static Set<OWLLogicalAxiom> loadWithOWLAPI(String doc) throws OWLOntologyCreationException {
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager(df);
+		return manager.loadOntologyFromOntologyDocument(new StringDocumentSource(OWLXMLTransformer.transform(doc))).getLogicalAxioms();
+	}
+
+
+	private static String wrap(String axioms) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+		"<Ontology xmlns=\"http://www.w3.org/2006/12/owl11-xml#\" URI=\"http://attempto.ifi.uzh.ch/aceview_test\">" +
+		axioms + "</Ontology>";
+	}
+}
@@ -0,0 +1,97 @@
+package ch.uzh.ifi.attempto.aceview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ch.uzh.ifi.attempto.ape.ACEParser;
+import ch.uzh.ifi.attempto.ape.ACEParserResult;
+import ch.uzh.ifi.attempto.ape.Lexicon;
+import ch.uzh.ifi.attempto.ape.OutputType;
+
+public class ParserPoolTest {
+
+	private static final class DummyParser extends ACEParser {
+		@Override
+		public String getSoloOutput(String text, Lexicon lexicon, OutputType outputType) {
+			return null;
+		}
+
+		@Override
+		public ACEParserResult getMultiOutput(String text, Lexicon lexicon, OutputType... outputTypes) {
+			return null;
+		}
+	}
+
+	private final AtomicInteger createCount = new AtomicInteger();
+
+	private final ParserPool.Factory factory = new ParserPool.Factory() {
+		public ACEParser create() {
+			createCount.incrementAndGet();
+			return new DummyParser();
+		}
+	};
+
+
+	@Test
+	public final void testBorrowAndGiveBack() throws InterruptedException {
+		ParserPool pool = new ParserPool(factory, 2);
+		assertEquals(2, createCount.get());
+		ACEParser p1 = pool.borrow();
+		ACEParser p2 = pool.borrow();
+		assertNotSame(p1, p2);
+		assertEquals(0, pool.getIdleCount());
+		pool.giveBack(p1);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(p1, pool.borrow());
+	}
+
+
+	@Test
+	public final void testDiscard() throws InterruptedException {
+		ParserPool pool = new ParserPool(factory, 1);
+		ACEParser p1 = pool.borrow();
+		pool.discard(p1);
+		assertEquals(1, pool.getDiscardCount());
+		assertEquals(1, pool.getIdleCount());
+		assertNotSame(p1, pool.borrow());
+	}
+
+
+	@Test
+	public final void testConcurrencyLimit() throws InterruptedException {
+		final ParserPool pool = new ParserPool(factory, 3);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		Thread[] threads = new Thread[10];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						ACEParser parser = pool.borrow();
+						int n = active.incrementAndGet();
+						synchronized (maxActive) {
+							maxActive.set(Math.max(maxActive.get(), n));
+						}
+						Thread.sleep(10);
+						active.decrementAndGet();
+						pool.giveBack(parser);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(maxActive.get() <= 3);
+		assertEquals(3, pool.getIdleCount());
+	}
+}
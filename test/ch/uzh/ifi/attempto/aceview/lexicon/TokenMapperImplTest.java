@@ -0,0 +1,62 @@
+package ch.uzh.ifi.attempto.aceview.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+public class TokenMapperImplTest {
+
+	private static final IRI MAN = IRI.create("http://attempto.ifi.uzh.ch/aceview_test#man");
+
+
+	@Test
+	public final void testChangesSince() {
+		TokenMapper lexicon = new TokenMapperImpl();
+		long generation0 = lexicon.getGeneration();
+		lexicon.addEntry("man", MAN, MorphType.CN_SG);
+		long generation1 = lexicon.getGeneration();
+		lexicon.addEntry("men", MAN, MorphType.CN_PL);
+		lexicon.removeEntry("man", MAN, MorphType.CN_SG);
+
+		assertEquals(generation0 + 3, lexicon.getGeneration());
+		assertTrue(lexicon.getChangesSince(lexicon.getGeneration()).isEmpty());
+
+		List<LexiconChange> changes = lexicon.getChangesSince(generation1);
+		assertEquals(2, changes.size());
+		assertEquals("men", changes.get(0).getWordform());
+		assertTrue(changes.get(0).isAddition());
+		assertEquals("man", changes.get(1).getWordform());
+		assertEquals(false, changes.get(1).isAddition());
+		assertEquals(3, lexicon.getChangesSince(generation0).size());
+	}
+
+
+	@Test
+	public final void testForgottenChanges() {
+		TokenMapper lexicon = new TokenMapperImpl();
+		long generation0 = lexicon.getGeneration();
+		for (int i = 0; i < 5000; i++) {
+			lexicon.addEntry("man" + i, MAN, MorphType.CN_SG);
+		}
+		assertNull(lexicon.getChangesSince(generation0));
+		assertEquals(10, lexicon.getChangesSince(lexicon.getGeneration() - 10).size());
+	}
+
+
+	@Test
+	public final void testNoChangeNoGeneration() {
+		TokenMapper lexicon = new TokenMapperImpl();
+		lexicon.addEntry("man", MAN, MorphType.CN_SG);
+		long generation1 = lexicon.getGeneration();
+		// Neither the duplicate nor the missing entry changes the lexicon
+		lexicon.addEntry("man", MAN, MorphType.CN_SG);
+		lexicon.removeEntry("men", MAN, MorphType.CN_PL);
+		assertEquals(generation1, lexicon.getGeneration());
+		assertTrue(lexicon.containsWordform("man"));
+	}
+}
@@ -0,0 +1,127 @@
+package ch.uzh.ifi.attempto.aceview.ui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ParagraphTrackerTest {
+
+	private static final String TEXT = "John likes Mary.\n\nEvery man is a human.\nNo dog is a cat.\n\nMary sleeps.";
+
+
+	@Test
+	public final void testReset() throws BadLocationException {
+		PlainDocument doc = new PlainDocument();
+		ParagraphTracker tracker = newTracker(doc, TEXT);
+		assertEquals(3, tracker.reset(TEXT));
+		ParagraphTracker.Change change = tracker.getChange(doc);
+		assertEquals(3, change.getFirst());
+		assertEquals(3, change.getEnd());
+		assertEquals("", change.getText());
+	}
+
+
+	@Test
+	public final void testEditOneParagraph() throws BadLocationException {
+		PlainDocument doc = new PlainDocument();
+		ParagraphTracker tracker = newTracker(doc, TEXT);
+		int offset = TEXT.indexOf("dog");
+		doc.remove(offset, 3);
+		doc.insertString(offset, "cow", null);
+		ParagraphTracker.Change change = tracker.getChange(doc);
+		assertEquals(1, change.getFirst());
+		assertEquals(2, change.getEnd());
+		assertEquals("Every man is a human.\nNo cow is a cat.", change.getText());
+	}
+
+
+	@Test
+	public final void testJoinParagraphs() throws BadLocationException {
+		PlainDocument doc = new PlainDocument();
+		ParagraphTracker tracker = newTracker(doc, TEXT);
+		doc.remove(TEXT.indexOf("\n\nMary"), 1);
+		ParagraphTracker.Change change = tracker.getChange(doc);
+		assertEquals(1, change.getFirst());
+		assertEquals(3, change.getEnd());
+		assertEquals("Every man is a human.\nNo dog is a cat.\nMary sleeps.", change.getText());
+	}
+
+
+	@Test
+	public final void testInvalidate() throws BadLocationException {
+		PlainDocument doc = new PlainDocument();
+		ParagraphTracker tracker = newTracker(doc, TEXT);
+		tracker.invalidate();
+		assertNull(tracker.getChange(doc));
+	}
+
+
+	/**
+	 * <p>Applies random edits to the document and checks that replacing
+	 * the changed baseline paragraphs by the paragraphs of the change
+	 * gives the paragraphs of the document.</p>
+	 */
+	@Test
+	public final void testRandomEdits() throws BadLocationException {
+		Random random = new Random(42);
+		String[] pieces = { "a", "b c", ".", " ", "\n", "\n\n", "\n \n" };
+		for (int round = 0; round < 500; round++) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 30; i++) {
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String baseline = sb.toString();
+			PlainDocument doc = new PlainDocument();
+			ParagraphTracker tracker = newTracker(doc, baseline);
+
+			int editCount = 1 + random.nextInt(4);
+			for (int i = 0; i < editCount; i++) {
+				int length = doc.getLength();
+				if (length > 0 && random.nextBoolean()) {
+					int offset = random.nextInt(length);
+					doc.remove(offset, 1 + random.nextInt(Math.min(5, length - offset)));
+				}
+				else {
+					doc.insertString(random.nextInt(length + 1), pieces[random.nextInt(pieces.length)], null);
+				}
+			}
+
+			ParagraphTracker.Change change = tracker.getChange(doc);
+			List<String> expected = paragraphs(baseline);
+			List<String> actual = Lists.newArrayList(expected.subList(0, change.getFirst()));
+			actual.addAll(paragraphs(change.getText()));
+			actual.addAll(expected.subList(change.getEnd(), expected.size()));
+			assertEquals(paragraphs(doc.getText(0, doc.getLength())), actual);
+		}
+	}
+
+
+	private static ParagraphTracker newTracker(PlainDocument doc, String text) throws BadLocationException {
+		ParagraphTracker tracker = new ParagraphTracker();
+		doc.insertString(0, text, null);
+		doc.addDocumentListener(tracker);
+		tracker.reset(text);
+		return tracker;
+	}
+
+
+	private static List<String> paragraphs(String text) {
+		List<String> paragraphs = Lists.newArrayList();
+		for (String paragraph : Arrays.asList(text.split("\n[ \t]*\n"))) {
+			if (paragraph.trim().length() > 0) {
+				paragraphs.add(paragraph.trim());
+			}
+		}
+		return paragraphs;
+	}
+}
@@ -0,0 +1,105 @@
+package ch.uzh.ifi.attempto.aceview.ui.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.DefaultListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+public class SectionedListModelTest {
+
+	@Test
+	public final void testSections() {
+		DefaultListModel model = new DefaultListModel();
+		for (String word : new String[] { "apple", "avocado", "banana", "cherry" }) {
+			model.addElement(word);
+		}
+		SectionedListModel sectioned = new SectionedListModel(model, getSectionFunction(model));
+		assertEquals("[A, apple, avocado, B, banana, C, cherry]", getRows(sectioned).toString());
+		assertEquals(4, sectioned.getRow(2));
+		assertEquals(2, sectioned.getElementIndex(4));
+		assertEquals(-1, sectioned.getElementIndex(3));
+
+		model.remove(2);
+		assertEquals("[A, apple, avocado, C, cherry]", getRows(sectioned).toString());
+		model.add(0, "aardvark");
+		assertEquals("[A, aardvark, apple, avocado, C, cherry]", getRows(sectioned).toString());
+	}
+
+
+	/**
+	 * <p>Applies random insertions and removals to the underlying model and checks that
+	 * replaying the events of the sectioned model on a copy of its rows gives its rows.</p>
+	 */
+	@Test
+	public final void testRandomEdits() {
+		Random random = new Random(42);
+		String[] words = { "a", "ab", "b", "ba", "bb", "c", "d", "da" };
+		DefaultListModel model = new DefaultListModel();
+		final SectionedListModel sectioned = new SectionedListModel(model, getSectionFunction(model));
+		final List<Object> copy = Lists.newArrayList();
+		sectioned.addListDataListener(new ListDataListener() {
+			public void intervalAdded(ListDataEvent e) {
+				for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+					copy.add(i, sectioned.getElementAt(i));
+				}
+			}
+
+			public void intervalRemoved(ListDataEvent e) {
+				for (int i = e.getIndex1(); i >= e.getIndex0(); i--) {
+					copy.remove(i);
+				}
+			}
+
+			public void contentsChanged(ListDataEvent e) {
+				for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+					copy.set(i, sectioned.getElementAt(i));
+				}
+			}
+		});
+
+		for (int i = 0; i < 5000; i++) {
+			if (model.getSize() > 0 && random.nextInt(3) == 0) {
+				model.remove(random.nextInt(model.getSize()));
+			}
+			else {
+				String word = words[random.nextInt(words.length)];
+				int index = 0;
+				while (index < model.getSize() && ((String) model.get(index)).compareTo(word) < 0) {
+					index++;
+				}
+				model.add(index, word);
+			}
+			assertEquals(getRows(sectioned), copy);
+			for (int j = 0; j < model.getSize(); j++) {
+				assertEquals(j, sectioned.getElementIndex(sectioned.getRow(j)));
+			}
+		}
+	}
+
+
+	private static Function<Integer, String> getSectionFunction(final DefaultListModel model) {
+		return new Function<Integer, String>() {
+			public String apply(Integer index) {
+				return ((String) model.get(index)).substring(0, 1).toUpperCase();
+			}
+		};
+	}
+
+
+	private static List<Object> getRows(SectionedListModel sectioned) {
+		List<Object> rows = Lists.newArrayList();
+		for (int i = 0; i < sectioned.getSize(); i++) {
+			rows.add(sectioned.getElementAt(i));
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,126 @@
+package ch.uzh.ifi.attempto.aceview.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class AppendOnlyStoreTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("aceview", ".store");
+		file.delete();
+	}
+
+
+	@After
+	public void tearDown() {
+		file.delete();
+		AppendOnlyStore.getLockFile(file).delete();
+	}
+
+
+	@Test
+	public final void testLocked() throws IOException {
+		AppendOnlyStore store = new AppendOnlyStore(file, 1);
+		try {
+			new AppendOnlyStore(file, 1);
+			fail("The second store must not open a locked file");
+		} catch (AppendOnlyStore.LockedException e) {
+			// expected
+		}
+		store.close();
+
+		// The lock is released by close
+		store = new AppendOnlyStore(file, 1);
+		store.close();
+	}
+
+
+	@Test
+	public final void testPutGetRemove() throws IOException {
+		AppendOnlyStore store = new AppendOnlyStore(file, 1);
+		store.put(1, "John likes Mary.", "http://example.org#John");
+		store.put(2, "Every man is a human.");
+		store.put(1, "Mary likes John.");
+		assertArrayEquals(new String[] { "Mary likes John." }, store.get(1));
+		assertEquals(true, store.remove(2));
+		assertEquals(false, store.remove(2));
+		assertNull(store.get(2));
+		assertEquals(1, store.size());
+		store.close();
+	}
+
+
+	@Test
+	public final void testReopen() throws IOException {
+		AppendOnlyStore store = new AppendOnlyStore(file, 1);
+		store.put(1, "John likes Mary.");
+		store.put(2, "Every man is a human.");
+		store.remove(1);
+		store.close();
+
+		store = new AppendOnlyStore(file, 1);
+		assertNull(store.get(1));
+		assertArrayEquals(new String[] { "Every man is a human." }, store.get(2));
+		store.close();
+
+		// Different version discards the content
+		store = new AppendOnlyStore(file, 2);
+		assertEquals(0, store.size());
+		store.close();
+	}
+
+
+	@Test
+	public final void testTruncatedRecord() throws IOException {
+		AppendOnlyStore store = new AppendOnlyStore(file, 1);
+		store.put(1, "John likes Mary.");
+		store.put(2, "Every man is a human.");
+		store.close();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		store = new AppendOnlyStore(file, 1);
+		assertArrayEquals(new String[] { "John likes Mary." }, store.get(1));
+		assertNull(store.get(2));
+		store.put(3, "Mary is a woman.");
+		store.close();
+
+		store = new AppendOnlyStore(file, 1);
+		assertArrayEquals(new String[] { "Mary is a woman." }, store.get(3));
+		assertEquals(2, store.size());
+		store.close();
+	}
+
+
+	@Test
+	public final void testCompaction() throws IOException {
+		AppendOnlyStore store = new AppendOnlyStore(file, 1);
+		for (int i = 0; i < 2000; i++) {
+			store.put(i % 10, "Value " + i);
+		}
+		store.close();
+		long length = file.length();
+
+		store = new AppendOnlyStore(file, 1);
+		assertEquals(10, store.size());
+		assertArrayEquals(new String[] { "Value 1999" }, store.get(9));
+		store.close();
+		assertEquals(true, file.length() < length / 10);
+	}
+}
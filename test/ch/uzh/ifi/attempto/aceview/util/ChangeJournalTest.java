@@ -0,0 +1,38 @@
+package ch.uzh.ifi.attempto.aceview.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ChangeJournalTest {
+
+	@Test
+	public final void testChangesSince() {
+		ChangeJournal<String> journal = new ChangeJournal<String>(3);
+		assertEquals(0, journal.getGeneration());
+		assertTrue(journal.getChangesSince(0).isEmpty());
+
+		assertEquals(1, journal.add("a"));
+		assertEquals(2, journal.add("b"));
+		assertEquals(Lists.newArrayList("a", "b"), journal.getChangesSince(0));
+		assertEquals(Lists.newArrayList("b"), journal.getChangesSince(1));
+		assertTrue(journal.getChangesSince(2).isEmpty());
+	}
+
+
+	@Test
+	public final void testDroppedChanges() {
+		ChangeJournal<String> journal = new ChangeJournal<String>(3);
+		for (String change : new String[] { "a", "b", "c", "d", "e" }) {
+			journal.add(change);
+		}
+		assertEquals(5, journal.getGeneration());
+		assertNull(journal.getChangesSince(1));
+		assertEquals(Lists.newArrayList("c", "d", "e"), journal.getChangesSince(2));
+		assertEquals(Lists.newArrayList("e"), journal.getChangesSince(4));
+	}
+}
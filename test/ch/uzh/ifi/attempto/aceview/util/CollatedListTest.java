@@ -0,0 +1,95 @@
+package ch.uzh.ifi.attempto.aceview.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.Lists;
+
+public class CollatedListTest {
+
+	@Test
+	public final void testBasic() {
+		CollatedList<String> list = new CollatedList<String>();
+		assertEquals(0, list.add("b", "b"));
+		assertEquals(0, list.add("A", "A"));
+		assertEquals(2, list.add("c", "c"));
+		assertEquals(-1, list.add("c", "c"));
+		assertEquals("A", list.get(0));
+		assertEquals(1, list.indexOf("b"));
+		assertEquals(1, list.remove("b"));
+		assertEquals(-1, list.remove("b"));
+		assertEquals(-1, list.indexOf("b"));
+		assertEquals(2, list.size());
+		assertEquals("c", list.getRendering(1));
+	}
+
+
+	@Test
+	public final void testSameRendering() {
+		CollatedList<Integer> list = new CollatedList<Integer>();
+		list.add(1, "man");
+		list.add(2, "Man");
+		list.add(3, "man");
+		assertEquals(1, list.indexOf(2));
+		assertEquals(2, list.indexOf(3));
+		assertEquals(1, list.remove(2));
+		assertEquals(1, list.indexOf(3));
+	}
+
+
+	@Test
+	public final void testSameRenderingDifferentClass() {
+		CollatedList<Object> list = new CollatedList<Object>();
+		list.add(Long.valueOf(1), "man");
+		list.add(Integer.valueOf(2), "Man");
+		list.add(Integer.valueOf(3), "man");
+		// java.lang.Integer before java.lang.Long, then in the order of adding
+		assertEquals(Integer.valueOf(2), list.get(0));
+		assertEquals(Integer.valueOf(3), list.get(1));
+		assertEquals(Long.valueOf(1), list.get(2));
+		assertEquals(2, list.indexOf(Long.valueOf(1)));
+	}
+
+
+	/**
+	 * <p>Applies random additions and removals and checks that the list
+	 * stays sorted and that every element is found at its position.</p>
+	 */
+	@Test
+	public final void testRandomOperations() {
+		Random random = new Random(42);
+		CollatedList<String> list = new CollatedList<String>();
+		List<String> elements = Lists.newArrayList();
+		for (int i = 0; i < 5000; i++) {
+			String element = Integer.toString(random.nextInt(1000), 36);
+			if (random.nextBoolean()) {
+				if (list.add(element, element) != -1) {
+					elements.add(element);
+				}
+			}
+			else if (list.remove(element) != -1) {
+				elements.remove(element);
+			}
+		}
+		Collections.sort(elements);
+		assertEquals(elements.size(), list.size());
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(elements.get(i), list.get(i));
+			assertEquals(i, list.indexOf(list.get(i)));
+		}
+
+		CollatedList<String> list2 = new CollatedList<String>();
+		Function<String, String> identity = Functions.identity();
+		list2.setAll(elements, identity);
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(list.get(i), list2.get(i));
+		}
+	}
+}
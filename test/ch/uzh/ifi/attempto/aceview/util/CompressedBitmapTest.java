@@ -0,0 +1,78 @@
+package ch.uzh.ifi.attempto.aceview.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class CompressedBitmapTest {
+
+	@Test
+	public final void testBasic() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		assertTrue(bitmap.isEmpty());
+		assertTrue(bitmap.add(3));
+		assertTrue(bitmap.add(70000));
+		assertTrue(bitmap.add(1));
+		assertFalse(bitmap.add(3));
+		assertEquals(3, bitmap.getCardinality());
+		assertArrayEquals(new int[] { 1, 3, 70000 }, bitmap.toArray());
+		assertTrue(bitmap.contains(70000));
+		assertFalse(bitmap.contains(70001));
+		assertTrue(bitmap.remove(70000));
+		assertFalse(bitmap.remove(70000));
+		assertArrayEquals(new int[] { 1, 3 }, bitmap.toArray());
+	}
+
+
+	/**
+	 * <p>Fills two bitmaps densely enough that some of their chunks
+	 * become bitmap chunks, and compares the bitmaps with tree sets.</p>
+	 */
+	@Test
+	public final void testRandomOperations() {
+		Random random = new Random(42);
+		CompressedBitmap b1 = new CompressedBitmap();
+		CompressedBitmap b2 = new CompressedBitmap();
+		Set<Integer> s1 = new TreeSet<Integer>();
+		Set<Integer> s2 = new TreeSet<Integer>();
+
+		for (int i = 0; i < 100000; i++) {
+			int x = random.nextInt(200000);
+			if (random.nextInt(4) == 0) {
+				assertEquals(s1.remove(x), b1.remove(x));
+			}
+			else {
+				assertEquals(s1.add(x), b1.add(x));
+			}
+			int y = random.nextInt(20000);
+			assertEquals(s2.add(y), b2.add(y));
+		}
+
+		assertEquals(s1.size(), b1.getCardinality());
+		assertArrayEquals(toArray(s1), b1.toArray());
+		assertArrayEquals(toArray(s2), b2.toArray());
+
+		s1.retainAll(s2);
+		assertArrayEquals(toArray(s1), b1.and(b2).toArray());
+		assertArrayEquals(toArray(s1), b2.and(b1).toArray());
+		assertEquals(s1.size(), b1.andCardinality(b2));
+		assertEquals(s1.size(), b2.andCardinality(b1));
+	}
+
+
+	private static int[] toArray(Set<Integer> set) {
+		int[] array = new int[set.size()];
+		int i = 0;
+		for (int x : set) {
+			array[i++] = x;
+		}
+		return array;
+	}
+}
@@ -0,0 +1,91 @@
+package ch.uzh.ifi.attempto.aceview.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class IndexedListTest {
+
+	@Test
+	public final void testBasic() {
+		List<String> list = new IndexedList<String>();
+		assertTrue(list.add("a"));
+		assertTrue(list.add("c"));
+		list.add(1, "b");
+		assertFalse(list.add("a"));
+		assertEquals(Lists.newArrayList("a", "b", "c"), list);
+		assertEquals(2, list.indexOf("c"));
+		assertEquals(-1, list.indexOf("d"));
+		assertTrue(list.remove("b"));
+		assertFalse(list.remove("b"));
+		assertEquals(Lists.newArrayList("a", "c"), list);
+		assertEquals("a", list.set(0, "x"));
+		assertEquals(0, list.indexOf("x"));
+		assertFalse(list.contains("a"));
+	}
+
+
+	@Test
+	public final void testIteratorRemove() {
+		List<String> list = new IndexedList<String>();
+		list.addAll(Lists.newArrayList("a", "b", "c", "d", "e"));
+		Iterator<String> it = list.iterator();
+		while (it.hasNext()) {
+			String e = it.next();
+			if (e.equals("b") || e.equals("e")) {
+				it.remove();
+			}
+		}
+		assertEquals(Lists.newArrayList("a", "c", "d"), list);
+		assertFalse(list.contains("b"));
+		assertTrue(list.retainAll(Lists.newArrayList("a", "d")));
+		assertEquals(Lists.newArrayList("a", "d"), list);
+		assertTrue(list.removeAll(Lists.newArrayList("a")));
+		assertEquals(Lists.newArrayList("d"), list);
+	}
+
+
+	/**
+	 * <p>Applies the same random operations to an ArrayList and to an IndexedList
+	 * and checks that the lists stay equal.</p>
+	 */
+	@Test
+	public final void testRandomOperations() {
+		Random random = new Random(42);
+		List<Integer> expected = Lists.newArrayList();
+		IndexedList<Integer> actual = new IndexedList<Integer>();
+		for (int i = 0; i < 20000; i++) {
+			int op = random.nextInt(4);
+			Integer value = random.nextInt(2000);
+			if (op == 0 || op == 1) {
+				if (! expected.contains(value)) {
+					int index = random.nextInt(expected.size() + 1);
+					expected.add(index, value);
+					actual.add(index, value);
+				}
+			}
+			else if (op == 2) {
+				assertEquals(expected.remove(value), actual.remove(value));
+			}
+			else if (! expected.isEmpty()) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), actual.remove(index));
+			}
+			assertEquals(expected.size(), actual.size());
+			assertEquals(expected.indexOf(value), actual.indexOf(value));
+		}
+		assertEquals(expected, actual);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(i, actual.indexOf(expected.get(i)));
+			assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+}